@@ -15,6 +15,7 @@
  */
 package org.codelibs.opensearch.configsync;
 
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -22,13 +23,25 @@ import java.util.Collections;
 import java.util.List;
 import java.util.function.Supplier;
 
+import org.codelibs.opensearch.configsync.allocation.ConfigSyncAllocationDecider;
+import org.codelibs.opensearch.configsync.cluster.ConfigSyncMetadata;
+import org.codelibs.opensearch.configsync.cluster.ConfigSyncMigrationMetadata;
+import org.codelibs.opensearch.configsync.cluster.ConfigSyncReadyNodes;
+import org.codelibs.opensearch.configsync.rest.RestConfigSyncCopyAction;
 import org.codelibs.opensearch.configsync.rest.RestConfigSyncFileAction;
 import org.codelibs.opensearch.configsync.rest.RestConfigSyncFlushAction;
+import org.codelibs.opensearch.configsync.rest.RestConfigSyncMigrationAction;
 import org.codelibs.opensearch.configsync.rest.RestConfigSyncResetAction;
+import org.codelibs.opensearch.configsync.rest.RestConfigSyncStatsAction;
 import org.codelibs.opensearch.configsync.rest.RestConfigSyncWaitAction;
 import org.codelibs.opensearch.configsync.service.ConfigSyncService;
+import org.codelibs.opensearch.configsync.service.LocalConfigFiles;
+import org.opensearch.cluster.ClusterState;
+import org.opensearch.cluster.NamedDiff;
 import org.opensearch.cluster.metadata.IndexNameExpressionResolver;
+import org.opensearch.cluster.metadata.Metadata;
 import org.opensearch.cluster.node.DiscoveryNodes;
+import org.opensearch.cluster.routing.allocation.decider.AllocationDecider;
 import org.opensearch.cluster.service.ClusterService;
 import org.opensearch.common.lifecycle.LifecycleComponent;
 import org.opensearch.common.settings.ClusterSettings;
@@ -36,26 +49,38 @@ import org.opensearch.common.settings.IndexScopedSettings;
 import org.opensearch.common.settings.Setting;
 import org.opensearch.common.settings.Settings;
 import org.opensearch.common.settings.SettingsFilter;
+import org.opensearch.common.unit.TimeValue;
+import org.opensearch.common.util.concurrent.OpenSearchExecutors;
+import org.opensearch.core.ParseField;
 import org.opensearch.core.common.io.stream.NamedWriteableRegistry;
 import org.opensearch.core.xcontent.NamedXContentRegistry;
 import org.opensearch.env.Environment;
 import org.opensearch.env.NodeEnvironment;
 import org.opensearch.indices.SystemIndexDescriptor;
 import org.opensearch.plugins.ActionPlugin;
+import org.opensearch.plugins.ClusterPlugin;
 import org.opensearch.plugins.Plugin;
 import org.opensearch.plugins.SystemIndexPlugin;
 import org.opensearch.repositories.RepositoriesService;
 import org.opensearch.rest.RestController;
 import org.opensearch.rest.RestHandler;
 import org.opensearch.script.ScriptService;
+import org.opensearch.threadpool.ExecutorBuilder;
+import org.opensearch.threadpool.ScalingExecutorBuilder;
 import org.opensearch.threadpool.ThreadPool;
 import org.opensearch.transport.client.Client;
 import org.opensearch.watcher.ResourceWatcherService;
 
-public class ConfigSyncPlugin extends Plugin implements ActionPlugin, SystemIndexPlugin {
+public class ConfigSyncPlugin extends Plugin implements ActionPlugin, ClusterPlugin, SystemIndexPlugin {
 
     private final PluginComponent pluginComponent = new PluginComponent();
 
+    private final Path configPath;
+
+    public ConfigSyncPlugin(final Settings settings, final Path configPath) {
+        this.configPath = configPath;
+    }
+
     @Override
     public List<RestHandler> getRestHandlers(final Settings settings, final RestController restController, final ClusterSettings clusterSettings,
             final IndexScopedSettings indexScopedSettings, final SettingsFilter settingsFilter, final IndexNameExpressionResolver indexNameExpressionResolver,
@@ -65,7 +90,10 @@ public class ConfigSyncPlugin extends Plugin implements ActionPlugin, SystemInde
                 new RestConfigSyncFileAction(settings, restController, service), //
                 new RestConfigSyncResetAction(settings, restController, service), //
                 new RestConfigSyncFlushAction(settings, restController, service), //
-                new RestConfigSyncWaitAction(settings, restController, service));
+                new RestConfigSyncWaitAction(settings, restController, service), //
+                new RestConfigSyncStatsAction(settings, restController, service), //
+                new RestConfigSyncMigrationAction(settings, restController, service), //
+                new RestConfigSyncCopyAction(settings, restController, service));
     }
 
     @Override
@@ -96,10 +124,80 @@ public class ConfigSyncPlugin extends Plugin implements ActionPlugin, SystemInde
                 ConfigSyncService.SCROLL_TIME_SETTING, //
                 ConfigSyncService.SCROLL_SIZE_SETTING, //
                 ConfigSyncService.FLUSH_INTERVAL_SETTING, //
-                ConfigSyncService.FILE_UPDATER_ENABLED_SETTING//
+                ConfigSyncService.FILE_UPDATER_ENABLED_SETTING, //
+                ConfigSyncService.APPLY_CONCURRENCY_SETTING, //
+                ConfigSyncService.APPLY_VIRTUAL_THREADS_SETTING, //
+                ConfigSyncService.PREFETCH_PAGES_SETTING, //
+                ConfigSyncService.PREFETCH_MAX_BYTES_SETTING, //
+                ConfigSyncService.COLD_SYNC_SLICES_SETTING, //
+                ConfigSyncService.COLD_SYNC_MIN_FILES_SETTING, //
+                ConfigSyncService.ALLOCATION_WAIT_FOR_SYNC_SETTING, //
+                ConfigSyncService.TOMBSTONE_RETENTION_SETTING, //
+                ConfigSyncService.TOMBSTONE_GC_INTERVAL_SETTING, //
+                ConfigSyncService.MANIFEST_RECONCILE_INTERVAL_SETTING, //
+                ConfigSyncService.ANTI_ENTROPY_INTERVAL_SETTING, //
+                ConfigSyncService.WATCHER_ENABLED_SETTING, //
+                ConfigSyncService.WATCHER_DELAY_SETTING, //
+                ConfigSyncService.PEER_TRANSFER_ENABLED_SETTING, //
+                ConfigSyncService.PEER_TRANSFER_MIN_SIZE_SETTING, //
+                ConfigSyncService.PEER_TRANSFER_CHUNK_SIZE_SETTING, //
+                ConfigSyncService.BROADCAST_ENABLED_SETTING, //
+                ConfigSyncService.BROADCAST_MAX_BYTES_SETTING, //
+                ConfigSyncService.BROADCAST_CONCURRENCY_SETTING, //
+                ConfigSyncService.STORE_REFRESH_POLICY_SETTING, //
+                ConfigSyncService.STORE_REFRESH_INTERVAL_SETTING, //
+                ConfigSyncService.STORE_COALESCE_WINDOW_SETTING, //
+                ConfigSyncService.STORE_COALESCE_MAX_BYTES_SETTING, //
+                ConfigSyncService.ANALYZER_RELOAD_ENABLED_SETTING, //
+                ConfigSyncService.THROTTLE_FETCH_RATE_SETTING, //
+                ConfigSyncService.THROTTLE_WRITE_RATE_SETTING, //
+                ConfigSyncService.MIGRATION_SLICES_SETTING, //
+                ConfigSyncService.MIGRATION_BULK_SIZE_SETTING//
         );
     }
 
+    @Override
+    public Settings additionalSettings() {
+        // lets the cluster-manager tell the nodes that report their initial sync from nodes without the plugin
+        return Settings.builder().put("node.attr." + ConfigSyncAllocationDecider.WAIT_FOR_SYNC_ATTR, true).build();
+    }
+
+    @Override
+    public Collection<AllocationDecider> createAllocationDeciders(final Settings settings, final ClusterSettings clusterSettings) {
+        final String syncPath = ConfigSyncService.CONFIG_PATH_SETTING.get(settings);
+        final LocalConfigFiles localConfigFiles =
+                new LocalConfigFiles(syncPath.length() == 0 ? configPath.toFile().getAbsolutePath() : syncPath);
+        return Collections.singletonList(new ConfigSyncAllocationDecider(configPath, localConfigFiles));
+    }
+
+    @Override
+    public List<ExecutorBuilder<?>> getExecutorBuilders(final Settings settings) {
+        final int max = Math.min(4, OpenSearchExecutors.allocatedProcessors(settings));
+        return Arrays.asList(new ScalingExecutorBuilder(ConfigSyncService.THREAD_POOL_NAME, 1, max, TimeValue.timeValueMinutes(5)),
+                new ScalingExecutorBuilder(ConfigSyncService.SYNC_THREAD_POOL_NAME, 1, max, TimeValue.timeValueMinutes(5)));
+    }
+
+    @Override
+    public List<NamedWriteableRegistry.Entry> getNamedWriteables() {
+        return Arrays.asList(//
+                new NamedWriteableRegistry.Entry(Metadata.Custom.class, ConfigSyncMetadata.TYPE, ConfigSyncMetadata::new), //
+                new NamedWriteableRegistry.Entry(NamedDiff.class, ConfigSyncMetadata.TYPE, ConfigSyncMetadata::readDiffFrom), //
+                new NamedWriteableRegistry.Entry(Metadata.Custom.class, ConfigSyncMigrationMetadata.TYPE, ConfigSyncMigrationMetadata::new), //
+                new NamedWriteableRegistry.Entry(NamedDiff.class, ConfigSyncMigrationMetadata.TYPE,
+                        ConfigSyncMigrationMetadata::readDiffFrom), //
+                new NamedWriteableRegistry.Entry(ClusterState.Custom.class, ConfigSyncReadyNodes.TYPE, ConfigSyncReadyNodes::new), //
+                new NamedWriteableRegistry.Entry(NamedDiff.class, ConfigSyncReadyNodes.TYPE, ConfigSyncReadyNodes::readDiffFrom));
+    }
+
+    @Override
+    public List<NamedXContentRegistry.Entry> getNamedXContent() {
+        return Arrays.asList(//
+                new NamedXContentRegistry.Entry(Metadata.Custom.class, new ParseField(ConfigSyncMetadata.TYPE),
+                        ConfigSyncMetadata::fromXContent), //
+                new NamedXContentRegistry.Entry(Metadata.Custom.class, new ParseField(ConfigSyncMigrationMetadata.TYPE),
+                        ConfigSyncMigrationMetadata::fromXContent));
+    }
+
     @Override
     public Collection<SystemIndexDescriptor> getSystemIndexDescriptors(Settings settings) {
         return Collections.unmodifiableList(Arrays.asList(new SystemIndexDescriptor(".configsync", "Contains config sync data")));
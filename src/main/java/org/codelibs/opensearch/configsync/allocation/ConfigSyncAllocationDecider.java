@@ -0,0 +1,157 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.opensearch.configsync.allocation;
+
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.codelibs.opensearch.configsync.cluster.ConfigSyncMetadata;
+import org.codelibs.opensearch.configsync.cluster.ConfigSyncMetadata.FileEntry;
+import org.codelibs.opensearch.configsync.cluster.ConfigSyncReadyNodes;
+import org.codelibs.opensearch.configsync.service.AnalyzerReloader;
+import org.codelibs.opensearch.configsync.service.LocalConfigFiles;
+import org.opensearch.cluster.metadata.IndexMetadata;
+import org.opensearch.cluster.node.DiscoveryNode;
+import org.opensearch.cluster.routing.RoutingNode;
+import org.opensearch.cluster.routing.ShardRouting;
+import org.opensearch.cluster.routing.allocation.RoutingAllocation;
+import org.opensearch.cluster.routing.allocation.decider.AllocationDecider;
+import org.opensearch.cluster.routing.allocation.decider.Decision;
+import org.opensearch.common.settings.Settings;
+
+/**
+ * Keeps shards of indices whose analysis settings name synced files, such as dictionary or synonym files,
+ * off a node until the node has finished its initial config sync.
+ * Only nodes with the {@value #WAIT_FOR_SYNC_ATTR} attribute, set by this plugin, are held back,
+ * so nodes without the plugin are not affected.
+ * Paths are resolved with the directories of the cluster-manager, so all nodes are expected to share the layout.
+ * While the manifest is incomplete, the synced files are not known and indices with any {@code *_path} analysis setting are held.
+ */
+public class ConfigSyncAllocationDecider extends AllocationDecider {
+
+    public static final String NAME = "configsync";
+
+    public static final String WAIT_FOR_SYNC_ATTR = "configsync_wait_for_sync";
+
+    private static final String ANALYSIS_PREFIX = "index.analysis.";
+
+    private static final String PATH_SUFFIX = "_path";
+
+    private final Path configDir;
+
+    private final LocalConfigFiles localConfigFiles;
+
+    // the synced paths of the last manifest, resolved once per manifest instance
+    private volatile SyncedPaths syncedPaths;
+
+    /**
+     * @param configDir the directory analysis settings resolve relative file paths against
+     * @param localConfigFiles the directory synced files are written to
+     */
+    public ConfigSyncAllocationDecider(final Path configDir, final LocalConfigFiles localConfigFiles) {
+        this.configDir = configDir;
+        this.localConfigFiles = localConfigFiles;
+    }
+
+    @Override
+    public Decision canAllocate(final ShardRouting shardRouting, final RoutingNode node, final RoutingAllocation allocation) {
+        return canAllocate(allocation.metadata().getIndexSafe(shardRouting.index()), node, allocation);
+    }
+
+    @Override
+    public Decision canAllocate(final IndexMetadata indexMetadata, final RoutingNode node, final RoutingAllocation allocation) {
+        final DiscoveryNode discoveryNode = node.node();
+        if (discoveryNode == null || !waitsForSync(discoveryNode)) {
+            return allocation.decision(Decision.YES, NAME, "node does not wait for the config sync");
+        }
+        if (!usesConfigFiles(indexMetadata, allocation.metadata().custom(ConfigSyncMetadata.TYPE))) {
+            return allocation.decision(Decision.YES, NAME, "index uses no synced files");
+        }
+        final ConfigSyncReadyNodes readyNodes = allocation.custom(ConfigSyncReadyNodes.TYPE);
+        if (readyNodes != null && readyNodes.isReady(discoveryNode.getId())) {
+            return allocation.decision(Decision.YES, NAME, "node has finished the initial config sync");
+        }
+        return allocation.decision(Decision.NO, NAME, "node [%s] has not finished the initial config sync", discoveryNode.getId());
+    }
+
+    @Override
+    public Decision canForceAllocatePrimary(final ShardRouting shardRouting, final RoutingNode node, final RoutingAllocation allocation) {
+        final Decision decision = canAllocate(shardRouting, node, allocation);
+        if (decision.type() == Decision.Type.NO) {
+            // only held for a file the index reads: the node becomes ready shortly, so the primary waits for it
+            // rather than opening without the file
+            return allocation.decision(Decision.THROTTLE, NAME, "node [%s] has not finished the initial config sync", node.nodeId());
+        }
+        return decision;
+    }
+
+    /**
+     * Returns true if the node runs this plugin, which sets the {@value #WAIT_FOR_SYNC_ATTR} attribute on every node it runs on.
+     */
+    public static boolean waitsForSync(final DiscoveryNode node) {
+        return Boolean.parseBoolean(node.getAttributes().get(WAIT_FOR_SYNC_ATTR));
+    }
+
+    boolean usesConfigFiles(final IndexMetadata indexMetadata, final ConfigSyncMetadata metadata) {
+        final Settings settings = indexMetadata.getSettings();
+        final Settings analysis = settings.getByPrefix(ANALYSIS_PREFIX);
+        if (analysis.isEmpty()) {
+            return false;
+        }
+        if (metadata == null || !metadata.isComplete()) {
+            // the synced files are not known while the manifest is rebuilt, but inline rules never need one
+            return hasPathSetting(analysis);
+        }
+        return AnalyzerReloader.references(settings, configDir, getSyncedPaths(metadata));
+    }
+
+    private static boolean hasPathSetting(final Settings analysis) {
+        for (final String key : analysis.keySet()) {
+            if (key.endsWith(PATH_SUFFIX)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Set<Path> getSyncedPaths(final ConfigSyncMetadata metadata) {
+        final SyncedPaths current = syncedPaths;
+        if (current != null && current.metadata == metadata) {
+            return current.paths;
+        }
+        final Set<Path> paths = new HashSet<>();
+        for (final Map.Entry<String, FileEntry> entry : metadata.getFiles().entrySet()) {
+            if (!entry.getValue().isDeleted()) {
+                paths.add(localConfigFiles.resolve(entry.getKey()).toAbsolutePath().normalize());
+            }
+        }
+        syncedPaths = new SyncedPaths(metadata, paths);
+        return paths;
+    }
+
+    private static class SyncedPaths {
+        private final ConfigSyncMetadata metadata;
+
+        private final Set<Path> paths;
+
+        SyncedPaths(final ConfigSyncMetadata metadata, final Set<Path> paths) {
+            this.metadata = metadata;
+            this.paths = paths;
+        }
+    }
+}
@@ -0,0 +1,481 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.opensearch.configsync.cluster;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import org.opensearch.OpenSearchParseException;
+import org.opensearch.Version;
+import org.opensearch.cluster.AbstractDiffable;
+import org.opensearch.cluster.ClusterState;
+import org.opensearch.cluster.Diff;
+import org.opensearch.cluster.DiffableUtils;
+import org.opensearch.cluster.NamedDiff;
+import org.opensearch.cluster.metadata.Metadata;
+import org.opensearch.core.common.io.stream.StreamInput;
+import org.opensearch.core.common.io.stream.StreamOutput;
+import org.opensearch.core.common.io.stream.Writeable;
+import org.opensearch.core.xcontent.ToXContentFragment;
+import org.opensearch.core.xcontent.XContentBuilder;
+import org.opensearch.core.xcontent.XContentParser;
+import org.opensearch.index.seqno.SequenceNumbers;
+
+/**
+ * Cluster-state custom metadata holding the config generation and the file manifest.
+ * The generation is bumped on every store/delete so that nodes can tell
+ * whether the config index has changed without searching it, and the manifest
+ * maps each path to the hash, size and version of its current content.
+ * The manifest also records the config index it was read from and the sequence number
+ * up to which every document of that index is known to be in the manifest.
+ */
+public class ConfigSyncMetadata implements Metadata.Custom {
+
+    public static final String TYPE = "configsync";
+
+    public static final String GENERATION = "generation";
+
+    public static final String COMPLETE = "complete";
+
+    public static final String FILES = "files";
+
+    public static final String INDEX_UUID = "index_uuid";
+
+    public static final String CHECKPOINT = "checkpoint";
+
+    public static final ConfigSyncMetadata EMPTY = new ConfigSyncMetadata(0L, false, Collections.emptyMap());
+
+    private final long generation;
+
+    private final boolean complete;
+
+    private final String indexUuid;
+
+    private final long checkpoint;
+
+    private final Map<String, FileEntry> files;
+
+    public ConfigSyncMetadata(final long generation) {
+        this(generation, false, Collections.emptyMap());
+    }
+
+    public ConfigSyncMetadata(final long generation, final boolean complete, final Map<String, FileEntry> files) {
+        this(generation, complete, "", SequenceNumbers.NO_OPS_PERFORMED, files);
+    }
+
+    public ConfigSyncMetadata(final long generation, final boolean complete, final String indexUuid, final long checkpoint,
+            final Map<String, FileEntry> files) {
+        this.generation = generation;
+        this.complete = complete;
+        this.indexUuid = indexUuid;
+        this.checkpoint = checkpoint;
+        this.files = Collections.unmodifiableMap(files);
+    }
+
+    public ConfigSyncMetadata(final StreamInput in) throws IOException {
+        generation = in.readVLong();
+        complete = in.readBoolean();
+        indexUuid = in.readString();
+        checkpoint = in.readZLong();
+        files = Collections.unmodifiableMap(in.readMap(StreamInput::readString, FileEntry::new));
+    }
+
+    public static ConfigSyncMetadata get(final ClusterState state) {
+        final ConfigSyncMetadata metadata = state.metadata().custom(TYPE);
+        return metadata != null ? metadata : EMPTY;
+    }
+
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Returns true if the manifest covers every document in the config index.
+     * It is false until the cluster-manager has built it from the index.
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Returns the UUID of the config index the sequence numbers of the manifest belong to, or an empty string if none.
+     */
+    public String getIndexUuid() {
+        return indexUuid;
+    }
+
+    /**
+     * Returns the sequence number up to which every document of the config index is in the manifest.
+     */
+    public long getCheckpoint() {
+        return checkpoint;
+    }
+
+    public Map<String, FileEntry> getFiles() {
+        return files;
+    }
+
+    public ConfigSyncMetadata nextGeneration() {
+        return new ConfigSyncMetadata(generation + 1, complete, indexUuid, checkpoint, files);
+    }
+
+    @Override
+    public String getWriteableName() {
+        return TYPE;
+    }
+
+    @Override
+    public Version getMinimalSupportedVersion() {
+        return Version.V_3_0_0;
+    }
+
+    // not persisted: a full cluster restart starts from generation 0 and the manifest is rebuilt from the index
+    @Override
+    public EnumSet<Metadata.XContentContext> context() {
+        return Metadata.API_ONLY;
+    }
+
+    @Override
+    public void writeTo(final StreamOutput out) throws IOException {
+        out.writeVLong(generation);
+        out.writeBoolean(complete);
+        out.writeString(indexUuid);
+        out.writeZLong(checkpoint);
+        out.writeMap(files, StreamOutput::writeString, (o, v) -> v.writeTo(o));
+    }
+
+    @Override
+    public Diff<Metadata.Custom> diff(final Metadata.Custom before) {
+        return new ConfigSyncMetadataDiff((ConfigSyncMetadata) before, this);
+    }
+
+    public static NamedDiff<Metadata.Custom> readDiffFrom(final StreamInput in) throws IOException {
+        return new ConfigSyncMetadataDiff(in);
+    }
+
+    public static ConfigSyncMetadata fromXContent(final XContentParser parser) throws IOException {
+        long generation = 0L;
+        boolean complete = false;
+        String indexUuid = "";
+        long checkpoint = SequenceNumbers.NO_OPS_PERFORMED;
+        final Map<String, FileEntry> files = new HashMap<>();
+        String currentFieldName = null;
+        XContentParser.Token token;
+        while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+            if (token == XContentParser.Token.FIELD_NAME) {
+                currentFieldName = parser.currentName();
+            } else if (token == XContentParser.Token.VALUE_NUMBER && GENERATION.equals(currentFieldName)) {
+                generation = parser.longValue();
+            } else if (token == XContentParser.Token.VALUE_BOOLEAN && COMPLETE.equals(currentFieldName)) {
+                complete = parser.booleanValue();
+            } else if (token == XContentParser.Token.VALUE_STRING && INDEX_UUID.equals(currentFieldName)) {
+                indexUuid = parser.text();
+            } else if (token == XContentParser.Token.VALUE_NUMBER && CHECKPOINT.equals(currentFieldName)) {
+                checkpoint = parser.longValue();
+            } else if (token == XContentParser.Token.START_OBJECT && FILES.equals(currentFieldName)) {
+                while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+                    if (token == XContentParser.Token.FIELD_NAME) {
+                        final String path = parser.currentName();
+                        parser.nextToken();
+                        files.put(path, FileEntry.fromXContent(parser));
+                    }
+                }
+            } else {
+                throw new OpenSearchParseException("failed to parse configsync metadata [{}]", currentFieldName);
+            }
+        }
+        return new ConfigSyncMetadata(generation, complete, indexUuid, checkpoint, files);
+    }
+
+    @Override
+    public XContentBuilder toXContent(final XContentBuilder builder, final Params params) throws IOException {
+        builder.field(GENERATION, generation);
+        builder.field(COMPLETE, complete);
+        builder.field(INDEX_UUID, indexUuid);
+        builder.field(CHECKPOINT, checkpoint);
+        builder.startObject(FILES);
+        for (final Map.Entry<String, FileEntry> entry : files.entrySet()) {
+            builder.startObject(entry.getKey());
+            entry.getValue().toXContent(builder, params);
+            builder.endObject();
+        }
+        builder.endObject();
+        return builder;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final ConfigSyncMetadata that = (ConfigSyncMetadata) o;
+        return generation == that.generation && complete == that.complete && checkpoint == that.checkpoint
+                && indexUuid.equals(that.indexUuid) && files.equals(that.files);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(generation, complete, indexUuid, checkpoint, files);
+    }
+
+    @Override
+    public String toString() {
+        return "ConfigSyncMetadata[generation=" + generation + ", complete=" + complete + ", checkpoint=" + checkpoint + ", files="
+                + files.size() + "]";
+    }
+
+    static class ConfigSyncMetadataDiff implements NamedDiff<Metadata.Custom> {
+
+        private final long generation;
+
+        private final boolean complete;
+
+        private final String indexUuid;
+
+        private final long checkpoint;
+
+        private final Diff<Map<String, FileEntry>> files;
+
+        ConfigSyncMetadataDiff(final ConfigSyncMetadata before, final ConfigSyncMetadata after) {
+            generation = after.generation;
+            complete = after.complete;
+            indexUuid = after.indexUuid;
+            checkpoint = after.checkpoint;
+            files = DiffableUtils.diff(before.files, after.files, DiffableUtils.getStringKeySerializer());
+        }
+
+        ConfigSyncMetadataDiff(final StreamInput in) throws IOException {
+            generation = in.readVLong();
+            complete = in.readBoolean();
+            indexUuid = in.readString();
+            checkpoint = in.readZLong();
+            files = DiffableUtils.readJdkMapDiff(in, DiffableUtils.getStringKeySerializer(), FileEntry::new, FileEntry::readDiffFrom);
+        }
+
+        @Override
+        public Metadata.Custom apply(final Metadata.Custom part) {
+            return new ConfigSyncMetadata(generation, complete, indexUuid, checkpoint, files.apply(((ConfigSyncMetadata) part).files));
+        }
+
+        @Override
+        public void writeTo(final StreamOutput out) throws IOException {
+            out.writeVLong(generation);
+            out.writeBoolean(complete);
+            out.writeString(indexUuid);
+            out.writeZLong(checkpoint);
+            files.writeTo(out);
+        }
+
+        @Override
+        public String getWriteableName() {
+            return TYPE;
+        }
+    }
+
+    /**
+     * Manifest entry for a single path. A deleted entry is a tombstone: nodes remove their copy of the file
+     * until the tombstone is collected. An entry with a node selector is only synced by the selected nodes.
+     * The sequence number of the document an entry was read from orders concurrent updates of the same path.
+     */
+    public static class FileEntry extends AbstractDiffable<FileEntry> implements Writeable, ToXContentFragment {
+
+        public static final String HASH = "hash";
+
+        public static final String SIZE = "size";
+
+        public static final String VERSION = "version";
+
+        public static final String DELETED = "deleted";
+
+        public static final String NODES = "nodes";
+
+        public static final String SEQ_NO = "seq_no";
+
+        private final String hash;
+
+        private final long size;
+
+        private final long version;
+
+        private final boolean deleted;
+
+        private final String nodes;
+
+        private final long seqNo;
+
+        public FileEntry(final String hash, final long size, final long version) {
+            this(hash, size, version, false, null, SequenceNumbers.UNASSIGNED_SEQ_NO);
+        }
+
+        private FileEntry(final String hash, final long size, final long version, final boolean deleted, final String nodes,
+                final long seqNo) {
+            this.hash = hash;
+            this.size = size;
+            this.version = version;
+            this.deleted = deleted;
+            this.nodes = nodes;
+            this.seqNo = seqNo;
+        }
+
+        public FileEntry(final StreamInput in) throws IOException {
+            hash = in.readString();
+            size = in.readVLong();
+            version = in.readVLong();
+            deleted = in.readBoolean();
+            nodes = in.readOptionalString();
+            seqNo = in.readZLong();
+        }
+
+        public static FileEntry tombstone(final long version) {
+            return new FileEntry("", 0L, version, true, null, SequenceNumbers.UNASSIGNED_SEQ_NO);
+        }
+
+        public static Diff<FileEntry> readDiffFrom(final StreamInput in) throws IOException {
+            return readDiffFrom(FileEntry::new, in);
+        }
+
+        public String getHash() {
+            return hash;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public boolean isDeleted() {
+            return deleted;
+        }
+
+        /**
+         * Returns the selector of the nodes that sync the file, or null if every node does.
+         */
+        public String getNodes() {
+            return nodes;
+        }
+
+        /**
+         * Returns the sequence number of the document in the config index, or {@link SequenceNumbers#UNASSIGNED_SEQ_NO} if unknown.
+         */
+        public long getSeqNo() {
+            return seqNo;
+        }
+
+        public FileEntry withVersion(final long version) {
+            return new FileEntry(hash, size, version, deleted, nodes, seqNo);
+        }
+
+        public FileEntry withNodes(final String nodes) {
+            return new FileEntry(hash, size, version, deleted, nodes == null || nodes.isEmpty() ? null : nodes, seqNo);
+        }
+
+        public FileEntry withSeqNo(final long seqNo) {
+            return new FileEntry(hash, size, version, deleted, nodes, seqNo);
+        }
+
+        @Override
+        public void writeTo(final StreamOutput out) throws IOException {
+            out.writeString(hash);
+            out.writeVLong(size);
+            out.writeVLong(version);
+            out.writeBoolean(deleted);
+            out.writeOptionalString(nodes);
+            out.writeZLong(seqNo);
+        }
+
+        public static FileEntry fromXContent(final XContentParser parser) throws IOException {
+            String hash = null;
+            long size = 0L;
+            long version = 0L;
+            boolean deleted = false;
+            String nodes = null;
+            long seqNo = SequenceNumbers.UNASSIGNED_SEQ_NO;
+            String currentFieldName = null;
+            XContentParser.Token token;
+            while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+                if (token == XContentParser.Token.FIELD_NAME) {
+                    currentFieldName = parser.currentName();
+                } else if (HASH.equals(currentFieldName)) {
+                    hash = parser.text();
+                } else if (SIZE.equals(currentFieldName)) {
+                    size = parser.longValue();
+                } else if (VERSION.equals(currentFieldName)) {
+                    version = parser.longValue();
+                } else if (DELETED.equals(currentFieldName)) {
+                    deleted = parser.booleanValue();
+                } else if (NODES.equals(currentFieldName)) {
+                    nodes = parser.text();
+                } else if (SEQ_NO.equals(currentFieldName)) {
+                    seqNo = parser.longValue();
+                } else {
+                    throw new OpenSearchParseException("failed to parse configsync file entry [{}]", currentFieldName);
+                }
+            }
+            return new FileEntry(hash, size, version, deleted, nodes, seqNo);
+        }
+
+        @Override
+        public XContentBuilder toXContent(final XContentBuilder builder, final Params params) throws IOException {
+            builder.field(HASH, hash);
+            builder.field(SIZE, size);
+            builder.field(VERSION, version);
+            if (deleted) {
+                builder.field(DELETED, true);
+            }
+            if (nodes != null) {
+                builder.field(NODES, nodes);
+            }
+            if (seqNo != SequenceNumbers.UNASSIGNED_SEQ_NO) {
+                builder.field(SEQ_NO, seqNo);
+            }
+            return builder;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            final FileEntry that = (FileEntry) o;
+            return size == that.size && version == that.version && deleted == that.deleted && seqNo == that.seqNo
+                    && Objects.equals(hash, that.hash) && Objects.equals(nodes, that.nodes);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(hash, size, version, deleted, nodes, seqNo);
+        }
+
+        @Override
+        public String toString() {
+            return "FileEntry[hash=" + hash + ", size=" + size + ", version=" + version + (deleted ? ", deleted" : "")
+                    + (nodes != null ? ", nodes=" + nodes : "") + ", seqNo=" + seqNo + "]";
+        }
+    }
+}
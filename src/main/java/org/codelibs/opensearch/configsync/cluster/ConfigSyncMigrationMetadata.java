@@ -0,0 +1,373 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.opensearch.configsync.cluster;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+import org.opensearch.OpenSearchParseException;
+import org.opensearch.Version;
+import org.opensearch.cluster.AbstractNamedDiffable;
+import org.opensearch.cluster.ClusterState;
+import org.opensearch.cluster.NamedDiff;
+import org.opensearch.cluster.metadata.Metadata;
+import org.opensearch.core.common.io.stream.StreamInput;
+import org.opensearch.core.common.io.stream.StreamOutput;
+import org.opensearch.core.common.io.stream.Writeable;
+import org.opensearch.core.xcontent.ToXContentObject;
+import org.opensearch.core.xcontent.XContentBuilder;
+import org.opensearch.core.xcontent.XContentParser;
+
+/**
+ * Cluster-state custom metadata holding the progress of the migration from the legacy config index.
+ * It is persisted so that a migration interrupted by a restart resumes from the last checkpoint of each slice.
+ */
+public class ConfigSyncMigrationMetadata extends AbstractNamedDiffable<Metadata.Custom> implements Metadata.Custom {
+
+    public static final String TYPE = "configsync_migration";
+
+    public static final String SOURCE = "source";
+
+    public static final String TARGET = "target";
+
+    public static final String STATE = "state";
+
+    public static final String FAILURE = "failure";
+
+    public static final String SLICES = "slices";
+
+    public enum State {
+        RUNNING, COMPLETED, FAILED;
+
+        @Override
+        public String toString() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final String source;
+
+    private final String target;
+
+    private final State state;
+
+    private final String failure;
+
+    private final List<SliceProgress> slices;
+
+    public ConfigSyncMigrationMetadata(final String source, final String target, final State state, final String failure,
+            final List<SliceProgress> slices) {
+        this.source = source;
+        this.target = target;
+        this.state = state;
+        this.failure = failure;
+        this.slices = Collections.unmodifiableList(slices);
+    }
+
+    public ConfigSyncMigrationMetadata(final StreamInput in) throws IOException {
+        source = in.readString();
+        target = in.readString();
+        state = in.readEnum(State.class);
+        failure = in.readOptionalString();
+        slices = Collections.unmodifiableList(in.readList(SliceProgress::new));
+    }
+
+    /**
+     * Returns the migration metadata of the state, or null if no migration has been started.
+     */
+    public static ConfigSyncMigrationMetadata get(final ClusterState state) {
+        return state.metadata().custom(TYPE);
+    }
+
+    /**
+     * Creates the metadata of a migration that has not copied anything yet.
+     */
+    public static ConfigSyncMigrationMetadata start(final String source, final String target, final int numOfSlices) {
+        final List<SliceProgress> slices = new ArrayList<>(numOfSlices);
+        for (int i = 0; i < numOfSlices; i++) {
+            slices.add(new SliceProgress(null, 0L, false));
+        }
+        return new ConfigSyncMigrationMetadata(source, target, State.RUNNING, null, slices);
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public String getTarget() {
+        return target;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public String getFailure() {
+        return failure;
+    }
+
+    public List<SliceProgress> getSlices() {
+        return slices;
+    }
+
+    public long getCopied() {
+        return slices.stream().mapToLong(SliceProgress::getCopied).sum();
+    }
+
+    public ConfigSyncMigrationMetadata withSlice(final int slice, final SliceProgress progress) {
+        final List<SliceProgress> newSlices = new ArrayList<>(slices);
+        newSlices.set(slice, progress);
+        return new ConfigSyncMigrationMetadata(source, target, state, failure, newSlices);
+    }
+
+    public ConfigSyncMigrationMetadata withState(final State state, final String failure) {
+        return new ConfigSyncMigrationMetadata(source, target, state, failure, slices);
+    }
+
+    @Override
+    public String getWriteableName() {
+        return TYPE;
+    }
+
+    @Override
+    public Version getMinimalSupportedVersion() {
+        return Version.V_3_0_0;
+    }
+
+    @Override
+    public EnumSet<Metadata.XContentContext> context() {
+        return Metadata.API_AND_GATEWAY;
+    }
+
+    @Override
+    public void writeTo(final StreamOutput out) throws IOException {
+        out.writeString(source);
+        out.writeString(target);
+        out.writeEnum(state);
+        out.writeOptionalString(failure);
+        out.writeList(slices);
+    }
+
+    public static NamedDiff<Metadata.Custom> readDiffFrom(final StreamInput in) throws IOException {
+        return readDiffFrom(Metadata.Custom.class, TYPE, in);
+    }
+
+    public static ConfigSyncMigrationMetadata fromXContent(final XContentParser parser) throws IOException {
+        String source = null;
+        String target = null;
+        State state = State.RUNNING;
+        String failure = null;
+        final List<SliceProgress> slices = new ArrayList<>();
+        String currentFieldName = null;
+        XContentParser.Token token;
+        while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+            if (token == XContentParser.Token.FIELD_NAME) {
+                currentFieldName = parser.currentName();
+            } else if (token == XContentParser.Token.START_ARRAY && SLICES.equals(currentFieldName)) {
+                while (parser.nextToken() != XContentParser.Token.END_ARRAY) {
+                    slices.add(SliceProgress.fromXContent(parser));
+                }
+            } else if (token == XContentParser.Token.VALUE_NULL) {
+                // optional field
+            } else if (SOURCE.equals(currentFieldName)) {
+                source = parser.text();
+            } else if (TARGET.equals(currentFieldName)) {
+                target = parser.text();
+            } else if (STATE.equals(currentFieldName)) {
+                state = State.valueOf(parser.text().toUpperCase(Locale.ROOT));
+            } else if (FAILURE.equals(currentFieldName)) {
+                failure = parser.text();
+            } else {
+                throw new OpenSearchParseException("failed to parse configsync migration metadata [{}]", currentFieldName);
+            }
+        }
+        return new ConfigSyncMigrationMetadata(source, target, state, failure, slices);
+    }
+
+    @Override
+    public XContentBuilder toXContent(final XContentBuilder builder, final Params params) throws IOException {
+        builder.field(SOURCE, source);
+        builder.field(TARGET, target);
+        builder.field(STATE, state.toString());
+        if (failure != null) {
+            builder.field(FAILURE, failure);
+        }
+        builder.startArray(SLICES);
+        for (final SliceProgress slice : slices) {
+            slice.toXContent(builder, params);
+        }
+        builder.endArray();
+        return builder;
+    }
+
+    /**
+     * Returns the status reported by the migration API.
+     */
+    public Map<String, Object> toMap() {
+        final Map<String, Object> map = new LinkedHashMap<>();
+        map.put(SOURCE, source);
+        map.put(TARGET, target);
+        map.put(STATE, state.toString());
+        map.put("copied", getCopied());
+        if (failure != null) {
+            map.put(FAILURE, failure);
+        }
+        final List<Object> sliceList = new ArrayList<>();
+        for (final SliceProgress slice : slices) {
+            final Map<String, Object> sliceMap = new LinkedHashMap<>();
+            sliceMap.put(SliceProgress.LAST_PATH, slice.lastPath);
+            sliceMap.put(SliceProgress.COPIED, slice.copied);
+            sliceMap.put(SliceProgress.DONE, slice.done);
+            sliceList.add(sliceMap);
+        }
+        map.put(SLICES, sliceList);
+        return map;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final ConfigSyncMigrationMetadata that = (ConfigSyncMigrationMetadata) o;
+        return Objects.equals(source, that.source) && Objects.equals(target, that.target) && state == that.state
+                && Objects.equals(failure, that.failure) && slices.equals(that.slices);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(source, target, state, failure, slices);
+    }
+
+    @Override
+    public String toString() {
+        return "ConfigSyncMigrationMetadata[source=" + source + ", target=" + target + ", state=" + state + ", copied=" + getCopied()
+                + "]";
+    }
+
+    /**
+     * Checkpoint of a slice: the documents are copied in path order,
+     * so everything up to and including the last path has been copied.
+     */
+    public static class SliceProgress implements Writeable, ToXContentObject {
+
+        public static final String LAST_PATH = "last_path";
+
+        public static final String COPIED = "copied";
+
+        public static final String DONE = "done";
+
+        private final String lastPath;
+
+        private final long copied;
+
+        private final boolean done;
+
+        public SliceProgress(final String lastPath, final long copied, final boolean done) {
+            this.lastPath = lastPath;
+            this.copied = copied;
+            this.done = done;
+        }
+
+        public SliceProgress(final StreamInput in) throws IOException {
+            lastPath = in.readOptionalString();
+            copied = in.readVLong();
+            done = in.readBoolean();
+        }
+
+        public String getLastPath() {
+            return lastPath;
+        }
+
+        public long getCopied() {
+            return copied;
+        }
+
+        public boolean isDone() {
+            return done;
+        }
+
+        @Override
+        public void writeTo(final StreamOutput out) throws IOException {
+            out.writeOptionalString(lastPath);
+            out.writeVLong(copied);
+            out.writeBoolean(done);
+        }
+
+        public static SliceProgress fromXContent(final XContentParser parser) throws IOException {
+            String lastPath = null;
+            long copied = 0L;
+            boolean done = false;
+            String currentFieldName = null;
+            XContentParser.Token token;
+            while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+                if (token == XContentParser.Token.FIELD_NAME) {
+                    currentFieldName = parser.currentName();
+                } else if (token == XContentParser.Token.VALUE_NULL) {
+                    // optional field
+                } else if (LAST_PATH.equals(currentFieldName)) {
+                    lastPath = parser.text();
+                } else if (COPIED.equals(currentFieldName)) {
+                    copied = parser.longValue();
+                } else if (DONE.equals(currentFieldName)) {
+                    done = parser.booleanValue();
+                } else {
+                    throw new OpenSearchParseException("failed to parse configsync migration slice [{}]", currentFieldName);
+                }
+            }
+            return new SliceProgress(lastPath, copied, done);
+        }
+
+        @Override
+        public XContentBuilder toXContent(final XContentBuilder builder, final Params params) throws IOException {
+            builder.startObject();
+            if (lastPath != null) {
+                builder.field(LAST_PATH, lastPath);
+            }
+            builder.field(COPIED, copied);
+            builder.field(DONE, done);
+            builder.endObject();
+            return builder;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            final SliceProgress that = (SliceProgress) o;
+            return copied == that.copied && done == that.done && Objects.equals(lastPath, that.lastPath);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(lastPath, copied, done);
+        }
+    }
+}
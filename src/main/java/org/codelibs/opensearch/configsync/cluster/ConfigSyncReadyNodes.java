@@ -0,0 +1,117 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.opensearch.configsync.cluster;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.opensearch.Version;
+import org.opensearch.cluster.AbstractNamedDiffable;
+import org.opensearch.cluster.ClusterState;
+import org.opensearch.cluster.NamedDiff;
+import org.opensearch.core.common.io.stream.StreamInput;
+import org.opensearch.core.common.io.stream.StreamOutput;
+import org.opensearch.core.xcontent.XContentBuilder;
+
+/**
+ * Cluster-state custom holding the ids of the nodes that have finished their initial config sync.
+ * It lives in the cluster state rather than the metadata, so it is not persisted and every node
+ * syncs again after a full cluster restart.
+ */
+public class ConfigSyncReadyNodes extends AbstractNamedDiffable<ClusterState.Custom> implements ClusterState.Custom {
+
+    public static final String TYPE = "configsync_ready_nodes";
+
+    public static final ConfigSyncReadyNodes EMPTY = new ConfigSyncReadyNodes(Collections.emptySet());
+
+    private final Set<String> nodeIds;
+
+    public ConfigSyncReadyNodes(final Set<String> nodeIds) {
+        this.nodeIds = Collections.unmodifiableSet(new TreeSet<>(nodeIds));
+    }
+
+    public ConfigSyncReadyNodes(final StreamInput in) throws IOException {
+        nodeIds = Collections.unmodifiableSet(new TreeSet<>(in.readStringList()));
+    }
+
+    /**
+     * Returns the ready nodes of the state, or {@link #EMPTY} if no node has reported yet.
+     */
+    public static ConfigSyncReadyNodes get(final ClusterState state) {
+        final ConfigSyncReadyNodes readyNodes = state.custom(TYPE);
+        return readyNodes != null ? readyNodes : EMPTY;
+    }
+
+    public Set<String> getNodeIds() {
+        return nodeIds;
+    }
+
+    public boolean isReady(final String nodeId) {
+        return nodeIds.contains(nodeId);
+    }
+
+    @Override
+    public String getWriteableName() {
+        return TYPE;
+    }
+
+    @Override
+    public Version getMinimalSupportedVersion() {
+        return Version.V_3_0_0;
+    }
+
+    @Override
+    public void writeTo(final StreamOutput out) throws IOException {
+        out.writeStringCollection(nodeIds);
+    }
+
+    public static NamedDiff<ClusterState.Custom> readDiffFrom(final StreamInput in) throws IOException {
+        return readDiffFrom(ClusterState.Custom.class, TYPE, in);
+    }
+
+    @Override
+    public XContentBuilder toXContent(final XContentBuilder builder, final Params params) throws IOException {
+        builder.startArray("nodes");
+        for (final String nodeId : nodeIds) {
+            builder.value(nodeId);
+        }
+        builder.endArray();
+        return builder;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        return nodeIds.equals(((ConfigSyncReadyNodes) o).nodeIds);
+    }
+
+    @Override
+    public int hashCode() {
+        return nodeIds.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "ConfigSyncReadyNodes" + nodeIds;
+    }
+}
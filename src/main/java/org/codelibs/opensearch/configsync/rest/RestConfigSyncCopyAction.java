@@ -0,0 +1,104 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.opensearch.configsync.rest;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.unmodifiableList;
+import static org.opensearch.core.action.ActionListener.wrap;
+import static org.opensearch.rest.RestRequest.Method.POST;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.codelibs.opensearch.configsync.service.ConfigSyncService;
+import org.opensearch.OpenSearchException;
+import org.opensearch.common.inject.Inject;
+import org.opensearch.common.settings.Settings;
+import org.opensearch.core.action.ActionListener;
+import org.opensearch.core.common.bytes.BytesReference;
+import org.opensearch.rest.RestController;
+import org.opensearch.rest.RestRequest;
+import org.opensearch.search.lookup.SourceLookup;
+import org.opensearch.transport.client.node.NodeClient;
+
+public class RestConfigSyncCopyAction extends RestConfigSyncAction {
+
+    private static final String SOURCE = "source";
+
+    private static final String TARGET = "target";
+
+    private final ConfigSyncService configSyncService;
+
+    @Inject
+    public RestConfigSyncCopyAction(final Settings settings, final RestController controller, final ConfigSyncService configSyncService) {
+        this.configSyncService = configSyncService;
+    }
+
+    @Override
+    public List<Route> routes() {
+        return unmodifiableList(asList(
+                new Route(POST, "/_configsync/copy"),
+                new Route(POST, "/_configsync/move")));
+    }
+
+    @Override
+    protected RestChannelConsumer prepareRequest(final RestRequest request, final NodeClient client) throws IOException {
+        try {
+            final BytesReference content = request.content();
+            final String source;
+            final String target;
+            if (request.param(SOURCE) != null || request.param(TARGET) != null) {
+                source = request.param(SOURCE);
+                target = request.param(TARGET);
+            } else if (content != null && content.length() > 0) {
+                final Map<String, Object> sourceAsMap = SourceLookup.sourceAsMap(content);
+                source = (String) sourceAsMap.get(SOURCE);
+                target = (String) sourceAsMap.get(TARGET);
+            } else {
+                source = null;
+                target = null;
+            }
+            if (source == null) {
+                return channel -> sendErrorResponse(channel, new OpenSearchException(SOURCE + " is empty."));
+            }
+            if (target == null) {
+                return channel -> sendErrorResponse(channel, new OpenSearchException(TARGET + " is empty."));
+            }
+            final boolean move = request.path().endsWith("/move");
+            return channel -> {
+                final ActionListener<Integer> listener = wrap(count -> {
+                    final Map<String, Object> params = new HashMap<>();
+                    params.put("count", count);
+                    sendResponse(channel, params);
+                }, e -> sendErrorResponse(channel, e));
+                if (move) {
+                    configSyncService.move(source, target, listener);
+                } else {
+                    configSyncService.copy(source, target, listener);
+                }
+            };
+        } catch (final Exception e) {
+            return channel -> sendErrorResponse(channel, e);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "configsync_copy_action";
+    }
+}
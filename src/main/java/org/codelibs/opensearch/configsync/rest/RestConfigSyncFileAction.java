@@ -45,6 +45,8 @@ import org.opensearch.transport.client.node.NodeClient;
 
 public class RestConfigSyncFileAction extends RestConfigSyncAction {
 
+    private static final String PREFIX = "prefix";
+
     private final ConfigSyncService configSyncService;
 
     @Inject
@@ -110,9 +112,11 @@ public class RestConfigSyncFileAction extends RestConfigSyncAction {
                     throw new OpenSearchException("content is empty.");
                 }
                 final String path;
+                final String nodes;
                 byte[] contentArray;
                 if (request.param(ConfigSyncService.PATH) != null) {
                     path = request.param(ConfigSyncService.PATH);
+                    nodes = request.param(ConfigSyncService.NODES);
                     try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
                         content.writeTo(out);
                         contentArray = out.toByteArray();
@@ -120,28 +124,43 @@ public class RestConfigSyncFileAction extends RestConfigSyncAction {
                 } else {
                     final Map<String, Object> sourceAsMap = SourceLookup.sourceAsMap(content);
                     path = (String) sourceAsMap.get(ConfigSyncService.PATH);
+                    nodes = (String) sourceAsMap.get(ConfigSyncService.NODES);
                     final String fileContent = (String) sourceAsMap.get(ConfigSyncService.CONTENT);
                     contentArray = Base64.getDecoder().decode(fileContent);
                 }
-                return channel -> configSyncService.store(path, contentArray,
-                        wrap(res -> sendResponse(channel, null), e -> sendErrorResponse(channel, e)));
+                return channel -> configSyncService.store(path, contentArray, nodes, wrap(result -> {
+                    final Map<String, Object> params = new HashMap<>();
+                    params.put("result", result.getLowercase());
+                    sendResponse(channel, params);
+                }, e -> sendErrorResponse(channel, e)));
             }
             case DELETE: {
                 final String path;
-                if (request.param(ConfigSyncService.PATH) != null) {
+                final String prefix;
+                if (request.param(ConfigSyncService.PATH) != null || request.param(PREFIX) != null) {
                     path = request.param(ConfigSyncService.PATH);
+                    prefix = request.param(PREFIX);
                 } else if (content != null && content.length() > 0) {
                     final Map<String, Object> sourceAsMap = SourceLookup.sourceAsMap(content);
                     path = (String) sourceAsMap.get(ConfigSyncService.PATH);
+                    prefix = (String) sourceAsMap.get(PREFIX);
                 } else {
                     path = null;
+                    prefix = null;
+                }
+                if (prefix != null) {
+                    return channel -> configSyncService.deleteByPrefix(prefix, wrap(count -> {
+                        final Map<String, Object> params = new HashMap<>();
+                        params.put("count", count);
+                        sendResponse(channel, params);
+                    }, e -> sendErrorResponse(channel, e)));
                 }
                 if (path == null) {
                     return channel -> sendErrorResponse(channel, new OpenSearchException(ConfigSyncService.PATH + " is empty."));
                 }
-                return channel -> configSyncService.delete(path, wrap(response -> {
+                return channel -> configSyncService.delete(path, wrap(result -> {
                     final Map<String, Object> params = new HashMap<>();
-                    params.put("result", response.getResult().toString().toLowerCase());
+                    params.put("result", result.getLowercase());
                     sendResponse(channel, params);
                 }, e -> sendErrorResponse(channel, e)));
             }
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.opensearch.configsync.rest;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.unmodifiableList;
+import static org.opensearch.core.action.ActionListener.wrap;
+import static org.opensearch.rest.RestRequest.Method.GET;
+import static org.opensearch.rest.RestRequest.Method.POST;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.codelibs.opensearch.configsync.service.ConfigSyncService;
+import org.opensearch.OpenSearchException;
+import org.opensearch.common.inject.Inject;
+import org.opensearch.common.settings.Settings;
+import org.opensearch.rest.RestController;
+import org.opensearch.rest.RestRequest;
+import org.opensearch.transport.client.node.NodeClient;
+
+public class RestConfigSyncMigrationAction extends RestConfigSyncAction {
+
+    private final ConfigSyncService configSyncService;
+
+    @Inject
+    public RestConfigSyncMigrationAction(final Settings settings, final RestController controller,
+            final ConfigSyncService configSyncService) {
+        this.configSyncService = configSyncService;
+    }
+
+    @Override
+    public List<Route> routes() {
+        return unmodifiableList(asList(
+                new Route(GET, "/_configsync/migration"),
+                new Route(POST, "/_configsync/migration")));
+    }
+
+    @Override
+    protected RestChannelConsumer prepareRequest(final RestRequest request, final NodeClient client) throws IOException {
+        try {
+            switch (request.method()) {
+            case GET:
+                return channel -> {
+                    final Map<String, Object> params = new HashMap<>();
+                    params.put("migration", configSyncService.getMigrationStatus());
+                    params.put("layout", configSyncService.getLayoutStatus());
+                    sendResponse(channel, params);
+                };
+            case POST:
+                return channel -> configSyncService.startMigration(
+                        wrap(response -> sendResponse(channel, null), e -> sendErrorResponse(channel, e)));
+            default:
+                return channel -> sendErrorResponse(channel, new OpenSearchException("Unknown request type."));
+            }
+        } catch (final Exception e) {
+            return channel -> sendErrorResponse(channel, e);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "configsync_migration_action";
+    }
+}
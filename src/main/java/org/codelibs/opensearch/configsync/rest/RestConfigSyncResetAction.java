@@ -51,9 +51,11 @@ public class RestConfigSyncResetAction extends RestConfigSyncAction {
     protected RestChannelConsumer prepareRequest(final RestRequest request, final NodeClient client) throws IOException {
         try {
             switch (request.method()) {
-            case POST:
+            case POST: {
+                final String nodes = request.param(ConfigSyncService.NODES);
                 return channel -> configSyncService
-                        .resetSync(wrap(response -> sendResponse(channel, null), e -> sendErrorResponse(channel, e)));
+                        .resetSync(nodes, wrap(response -> sendResponse(channel, null), e -> sendErrorResponse(channel, e)));
+            }
             default:
                 return channel -> sendErrorResponse(channel, new OpenSearchException("Unknown request type."));
             }
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.opensearch.configsync.service;
+
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.opensearch.common.settings.Settings;
+import org.opensearch.index.IndexService;
+import org.opensearch.index.analysis.AnalysisRegistry;
+
+/**
+ * Reloads the search analyzers of the indices on this node whose analysis settings reference synced files,
+ * such as {@code synonyms_path} or {@code user_dictionary}, once for all the files written by a sync.
+ * Only analyzers built for search time (e.g. synonym filters with {@code updateable: true}) are reloaded in place;
+ * other analyzers read the files when the index is opened again.
+ */
+public class AnalyzerReloader {
+    private static final Logger logger = LogManager.getLogger(AnalyzerReloader.class);
+
+    private static final String ANALYSIS_PREFIX = "index.analysis.";
+
+    private final Iterable<IndexService> indices;
+
+    private final AnalysisRegistry analysisRegistry;
+
+    private final LocalConfigFiles localConfigFiles;
+
+    private final Path configDir;
+
+    private final ConfigSyncStats stats;
+
+    /**
+     * @param configDir the directory analysis settings resolve relative file paths against
+     */
+    public AnalyzerReloader(final Iterable<IndexService> indices, final AnalysisRegistry analysisRegistry,
+            final LocalConfigFiles localConfigFiles, final Path configDir, final ConfigSyncStats stats) {
+        this.indices = indices;
+        this.analysisRegistry = analysisRegistry;
+        this.localConfigFiles = localConfigFiles;
+        this.configDir = configDir;
+        this.stats = stats;
+    }
+
+    /**
+     * Reloads the indices that reference any of the given synced paths.
+     */
+    public void reload(final Set<String> paths) {
+        final Set<Path> filePaths = new HashSet<>();
+        for (final String path : paths) {
+            filePaths.add(localConfigFiles.resolve(path).toAbsolutePath().normalize());
+        }
+        for (final IndexService indexService : indices) {
+            if (!references(indexService.getIndexSettings().getSettings(), configDir, filePaths)) {
+                continue;
+            }
+            final String indexName = indexService.index().getName();
+            try {
+                final List<String> analyzers = indexService.mapperService().reloadSearchAnalyzers(analysisRegistry);
+                stats.onAnalyzersReloaded(analyzers.size());
+                if (analyzers.isEmpty()) {
+                    logger.info("[{}] uses changed config files, but has no updateable analyzers. Reopen it to apply the files.",
+                            indexName);
+                } else {
+                    logger.info("[{}] Reloaded search analyzers {}", indexName, analyzers);
+                }
+            } catch (final Exception e) {
+                stats.onAnalyzerReloadFailed();
+                logger.warn("[{}] Failed to reload search analyzers.", indexName, e);
+            }
+        }
+    }
+
+    /**
+     * Returns true if an analysis setting of the index names one of the files.
+     */
+    public static boolean references(final Settings indexSettings, final Path configDir, final Set<Path> filePaths) {
+        final Settings analysis = indexSettings.getByPrefix(ANALYSIS_PREFIX);
+        for (final String key : analysis.keySet()) {
+            for (final String value : analysis.getAsList(key)) {
+                try {
+                    if (filePaths.contains(configDir.resolve(value).toAbsolutePath().normalize())) {
+                        return true;
+                    }
+                } catch (final InvalidPathException e) {
+                    // not a path, e.g. an inline synonym rule
+                }
+            }
+        }
+        return false;
+    }
+}
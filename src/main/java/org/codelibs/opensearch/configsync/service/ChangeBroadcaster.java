@@ -0,0 +1,474 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.opensearch.configsync.service;
+
+import static org.opensearch.core.action.ActionListener.wrap;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.AccessController;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.PrivilegedActionException;
+import java.security.PrivilegedExceptionAction;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.codelibs.opensearch.configsync.allocation.ConfigSyncAllocationDecider;
+import org.codelibs.opensearch.configsync.cluster.ConfigSyncMetadata;
+import org.codelibs.opensearch.configsync.cluster.ConfigSyncMetadata.FileEntry;
+import org.opensearch.ExceptionsHelper;
+import org.opensearch.action.get.MultiGetItemResponse;
+import org.opensearch.action.get.MultiGetRequestBuilder;
+import org.opensearch.action.support.clustermanager.AcknowledgedResponse;
+import org.opensearch.cluster.ClusterState;
+import org.opensearch.cluster.ClusterStateObserver;
+import org.opensearch.cluster.node.DiscoveryNode;
+import org.opensearch.cluster.node.DiscoveryNodes;
+import org.opensearch.cluster.service.ClusterService;
+import org.opensearch.common.UUIDs;
+import org.opensearch.common.hash.MessageDigests;
+import org.opensearch.common.unit.TimeValue;
+import org.opensearch.core.common.bytes.BytesReference;
+import org.opensearch.core.common.io.stream.StreamInput;
+import org.opensearch.core.common.io.stream.StreamOutput;
+import org.opensearch.tasks.Task;
+import org.opensearch.threadpool.ThreadPool;
+import org.opensearch.transport.ActionNotFoundTransportException;
+import org.opensearch.transport.TransportChannel;
+import org.opensearch.transport.TransportException;
+import org.opensearch.transport.TransportRequest;
+import org.opensearch.transport.TransportRequestHandler;
+import org.opensearch.transport.TransportResponseHandler;
+import org.opensearch.transport.TransportService;
+import org.opensearch.transport.client.Client;
+
+/**
+ * Pushes the files changed by a generation from the elected cluster-manager to every node, so a change is read from the config index
+ * once instead of once per node. A node writes a pushed file only if its content matches the hash in the manifest, and counts itself
+ * synced to the generation only if it was synced to the previous one and the batch held every change; anything else is left to its updater.
+ */
+public class ChangeBroadcaster implements TransportRequestHandler<ChangeBroadcaster.ChangeBatchRequest> {
+    private static final Logger logger = LogManager.getLogger(ChangeBroadcaster.class);
+
+    public static final String ACTION_CHANGE_BATCH = "cluster:admin/configsync/change_batch";
+
+    // a batch may arrive before the generation is applied on the node
+    private static final TimeValue STATE_TIMEOUT = TimeValue.timeValueSeconds(30);
+
+    private final Supplier<Client> client;
+
+    private final ClusterService clusterService;
+
+    private final TransportService transportService;
+
+    private final ThreadPool threadPool;
+
+    private final LocalConfigFiles localConfigFiles;
+
+    private final ConfigSyncStats stats;
+
+    private final SyncThrottle throttle;
+
+    private final String index;
+
+    private final long maxBytes;
+
+    private final int concurrency;
+
+    private final BooleanSupplier accepting;
+
+    private final SyncedGenerationUpdater syncedGenerationUpdater;
+
+    private final Runnable afterApply;
+
+    private final AtomicLong latestGeneration = new AtomicLong(-1);
+
+    /**
+     * @param concurrency the number of nodes a batch is sent to at once
+     * @param accepting tells if this node applies batches, which it does once its initial sync is done
+     * @param syncedGenerationUpdater moves the synced generation of this node forward after a complete batch
+     * @param afterApply runs after each applied batch, complete or not
+     */
+    public ChangeBroadcaster(final Supplier<Client> client, final ClusterService clusterService, final TransportService transportService,
+            final ThreadPool threadPool, final LocalConfigFiles localConfigFiles, final ConfigSyncStats stats, final SyncThrottle throttle,
+            final String index, final long maxBytes, final int concurrency, final BooleanSupplier accepting,
+            final SyncedGenerationUpdater syncedGenerationUpdater, final Runnable afterApply) {
+        this.client = client;
+        this.clusterService = clusterService;
+        this.transportService = transportService;
+        this.threadPool = threadPool;
+        this.localConfigFiles = localConfigFiles;
+        this.stats = stats;
+        this.throttle = throttle;
+        this.index = index;
+        this.maxBytes = maxBytes;
+        this.concurrency = concurrency;
+        this.accepting = accepting;
+        this.syncedGenerationUpdater = syncedGenerationUpdater;
+        this.afterApply = afterApply;
+    }
+
+    /**
+     * Reads the files changed from the previous manifest to the current one and sends them to every node running this plugin,
+     * to at most {@code configsync.broadcast.concurrency} nodes at once.
+     * Changes larger than {@code configsync.broadcast.max_bytes} are not sent; each node fetches them itself.
+     */
+    public void broadcast(final ConfigSyncMetadata previous, final ConfigSyncMetadata current) {
+        if (!previous.isComplete() || !current.isComplete() || current.getGeneration() <= previous.getGeneration()) {
+            return;
+        }
+        final Map<String, FileEntry> changes = getChanges(current.getFiles(), previous.getGeneration());
+        if (changes.isEmpty()) {
+            return;
+        }
+        final List<String> deletes = new ArrayList<>();
+        final MultiGetRequestBuilder builder = client.get().prepareMultiGet().setPreference(ConfigSyncService.LOCAL_PREFERENCE);
+        long size = 0;
+        for (final Map.Entry<String, FileEntry> entry : changes.entrySet()) {
+            if (entry.getValue().isDeleted()) {
+                deletes.add(entry.getKey());
+            } else {
+                builder.add(index, ConfigSyncService.getId(entry.getKey()));
+                size += entry.getValue().getSize();
+            }
+        }
+        if (size > maxBytes) {
+            logger.info("Generation {} changes {} bytes of config files, more than {}. Each node fetches them.", current.getGeneration(),
+                    size, maxBytes);
+            return;
+        }
+        if (deletes.size() == changes.size()) {
+            send(new ChangeBatchRequest(previous.getGeneration(), current.getGeneration(), new ArrayList<>(), deletes));
+            return;
+        }
+        builder.execute(wrap(response -> {
+            final List<BytesReference> sources = new ArrayList<>();
+            for (final MultiGetItemResponse item : response.getResponses()) {
+                if (item.isFailed()) {
+                    logger.warn("Failed to get {}: {}", item.getId(), item.getFailure().getMessage());
+                } else if (item.getResponse().isExists()) {
+                    sources.add(item.getResponse().getSourceAsBytesRef());
+                }
+            }
+            send(new ChangeBatchRequest(previous.getGeneration(), current.getGeneration(), sources, deletes));
+        }, e -> logger.warn("Failed to read the config files of generation {}.", current.getGeneration(), e)));
+    }
+
+    private void send(final ChangeBatchRequest request) {
+        final Queue<DiscoveryNode> nodes = new ConcurrentLinkedQueue<>();
+        for (final DiscoveryNode node : clusterService.state().nodes()) {
+            // nodes without the plugin do not know the action
+            if (ConfigSyncAllocationDecider.waitsForSync(node)) {
+                nodes.add(node);
+            }
+        }
+        stats.onBroadcastSent();
+        for (int i = 0; i < concurrency; i++) {
+            sendNext(request, nodes);
+        }
+    }
+
+    /**
+     * Sends the batch to the next node in the queue, and to the one after it once that node has responded.
+     */
+    private void sendNext(final ChangeBatchRequest request, final Queue<DiscoveryNode> nodes) {
+        final DiscoveryNode node = nodes.poll();
+        if (node == null) {
+            return;
+        }
+        transportService.sendRequest(node, ACTION_CHANGE_BATCH, request, new TransportResponseHandler<ChangeBatchResponse>() {
+
+            @Override
+            public ChangeBatchResponse read(final StreamInput in) throws IOException {
+                return new ChangeBatchResponse(in);
+            }
+
+            @Override
+            public void handleResponse(final ChangeBatchResponse response) {
+                if (logger.isDebugEnabled()) {
+                    logger.debug("{} applied generation {}: {}", node, request.generation, response.isAcknowledged());
+                }
+                sendNext(request, nodes);
+            }
+
+            @Override
+            public void handleException(final TransportException exp) {
+                // the node's updater fetches the files
+                if (ExceptionsHelper.unwrapCause(exp) instanceof ActionNotFoundTransportException) {
+                    // e.g. the plugin is being installed on the node
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("{} does not accept generation {}.", node, request.generation, exp);
+                    }
+                } else {
+                    logger.warn("Failed to send generation {} to {}.", request.generation, node, exp);
+                }
+                sendNext(request, nodes);
+            }
+
+            @Override
+            public String executor() {
+                return ConfigSyncService.THREAD_POOL_NAME;
+            }
+        });
+    }
+
+    /**
+     * Returns the entries of the manifest changed after the given generation, by path.
+     */
+    static Map<String, FileEntry> getChanges(final Map<String, FileEntry> manifest, final long sinceGeneration) {
+        final Map<String, FileEntry> changes = new TreeMap<>();
+        manifest.forEach((path, entry) -> {
+            if (entry.getVersion() > sinceGeneration) {
+                changes.put(path, entry);
+            }
+        });
+        return changes;
+    }
+
+    @Override
+    public void messageReceived(final ChangeBatchRequest request, final TransportChannel channel, final Task task) throws Exception {
+        if (!accepting.getAsBoolean() || latestGeneration.getAndAccumulate(request.generation, Math::max) >= request.generation) {
+            // not synced yet, or a newer batch has already been applied
+            channel.sendResponse(new ChangeBatchResponse(false));
+            return;
+        }
+        final ClusterStateObserver observer = new ClusterStateObserver(clusterService, STATE_TIMEOUT, logger, threadPool.getThreadContext());
+        final ClusterState state = observer.setAndGetObservedState();
+        if (ConfigSyncMetadata.get(state).getGeneration() >= request.generation) {
+            channel.sendResponse(new ChangeBatchResponse(apply(request, ConfigSyncMetadata.get(state), state.nodes())));
+            return;
+        }
+        observer.waitForNextChange(new ClusterStateObserver.Listener() {
+            @Override
+            public void onNewClusterState(final ClusterState state) {
+                threadPool.executor(ConfigSyncService.SYNC_THREAD_POOL_NAME).execute(() -> {
+                    final ClusterState current = clusterService.state();
+                    respond(channel, () -> new ChangeBatchResponse(apply(request, ConfigSyncMetadata.get(current), current.nodes())));
+                });
+            }
+
+            @Override
+            public void onClusterServiceClose() {
+                respond(channel, () -> new ChangeBatchResponse(false));
+            }
+
+            @Override
+            public void onTimeout(final TimeValue timeout) {
+                logger.warn("Generation {} was not applied within {}. Skipped the pushed config files.", request.generation, timeout);
+                respond(channel, () -> new ChangeBatchResponse(false));
+            }
+        }, s -> ConfigSyncMetadata.get(s).getGeneration() >= request.generation);
+    }
+
+    private static void respond(final TransportChannel channel, final Supplier<ChangeBatchResponse> response) {
+        try {
+            channel.sendResponse(response.get());
+        } catch (final IOException e) {
+            logger.warn("Failed to send ChangeBatch response.", e);
+        }
+    }
+
+    /**
+     * Writes the pushed files that match the manifest and returns true if the node is synced to the generation of the batch.
+     * Files selected for other nodes are removed instead of written.
+     */
+    boolean apply(final ChangeBatchRequest request, final ConfigSyncMetadata metadata, final DiscoveryNodes nodes) {
+        final Map<String, FileEntry> manifest = NodeSelector.localFiles(metadata.getFiles(), nodes);
+        final Set<String> applied = new HashSet<>();
+        for (final String path : request.deletes) {
+            final FileEntry entry = manifest.get(path);
+            if (entry != null && entry.isDeleted() && delete(path)) {
+                applied.add(path);
+            }
+        }
+        for (final BytesReference source : request.sources) {
+            try {
+                final ConfigFileSource configFileSource = ConfigFileSource.parse(source);
+                final FileEntry entry = manifest.get(configFileSource.getPath());
+                if (entry == null) {
+                    continue;
+                }
+                if (entry.isDeleted() ? delete(configFileSource.getPath()) : write(configFileSource, entry)) {
+                    applied.add(configFileSource.getPath());
+                }
+            } catch (final IOException e) {
+                logger.warn("Failed to parse a config file of generation {}.", request.generation, e);
+            }
+        }
+        stats.onBroadcastReceived();
+        // a newer generation or a file missing from the batch is left to the updater
+        final boolean complete = metadata.getGeneration() == request.generation
+                && applied.containsAll(getChanges(manifest, request.previousGeneration).keySet());
+        if (complete) {
+            stats.onBroadcastSynced();
+            syncedGenerationUpdater.update(request.previousGeneration, request.generation);
+        }
+        afterApply.run();
+        return complete;
+    }
+
+    private boolean delete(final String path) {
+        final Path filePath = localConfigFiles.resolve(path);
+        try {
+            return doPrivileged(() -> {
+                if (Files.deleteIfExists(filePath)) {
+                    localConfigFiles.deleted(path);
+                    stats.onDeleted();
+                    logger.info("Deleted {}", filePath.toAbsolutePath());
+                } else {
+                    localConfigFiles.remove(path);
+                }
+                return true;
+            });
+        } catch (final IOException e) {
+            logger.warn("Failed to delete {}", filePath.toAbsolutePath(), e);
+            return false;
+        }
+    }
+
+    /**
+     * Decodes the content into a temporary file next to the file and replaces the file if the content matches the entry.
+     */
+    private boolean write(final ConfigFileSource source, final FileEntry entry) {
+        final String path = source.getPath();
+        final Path filePath = localConfigFiles.resolve(path);
+        final Path tempPath = filePath.resolveSibling("." + filePath.getFileName() + "." + UUIDs.randomBase64UUID() + ".configsync");
+        try {
+            return doPrivileged(() -> {
+                if (localConfigFiles.isCurrent(path, entry)) {
+                    return true;
+                }
+                final long startTime = stats.onApplyStarted();
+                try {
+                    Files.createDirectories(filePath.getParent());
+                    final MessageDigest digest = MessageDigests.sha256();
+                    try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                            StandardOpenOption.WRITE);
+                            OutputStream out = new DigestOutputStream(throttle.limitWrites(Channels.newOutputStream(channel)), digest)) {
+                        source.writeContentTo(out);
+                    }
+                    final String hash = MessageDigests.toHexString(digest.digest());
+                    if (!hash.equals(entry.getHash())) {
+                        // the document was changed again after the generation
+                        throw new IOException("The content of " + path + " does not match generation " + entry.getVersion() + ".");
+                    }
+                    Files.move(tempPath, filePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    stats.onApplied(startTime, localConfigFiles.applied(path, hash));
+                    logger.info("Updated {}", filePath.toAbsolutePath());
+                    return true;
+                } catch (final IOException | RuntimeException e) {
+                    stats.onApplyFailed(startTime);
+                    Files.deleteIfExists(tempPath);
+                    throw e;
+                }
+            });
+        } catch (final IOException | RuntimeException e) {
+            logger.warn("Failed to apply the pushed {}", path, e);
+            return false;
+        }
+    }
+
+    private static <T> T doPrivileged(final PrivilegedExceptionAction<T> action) throws IOException {
+        try {
+            return AccessController.doPrivileged(action);
+        } catch (final PrivilegedActionException e) {
+            if (e.getException() instanceof IOException) {
+                throw (IOException) e.getException();
+            }
+            throw new IOException(e.getException());
+        }
+    }
+
+    /**
+     * Moves the synced generation of this node from the previous generation of a batch to its generation.
+     */
+    @FunctionalInterface
+    public interface SyncedGenerationUpdater {
+        void update(long previousGeneration, long generation);
+    }
+
+    public static class ChangeBatchRequest extends TransportRequest {
+
+        private final long previousGeneration;
+
+        private final long generation;
+
+        private final List<BytesReference> sources;
+
+        private final List<String> deletes;
+
+        ChangeBatchRequest(final long previousGeneration, final long generation, final List<BytesReference> sources,
+                final List<String> deletes) {
+            this.previousGeneration = previousGeneration;
+            this.generation = generation;
+            this.sources = sources;
+            this.deletes = deletes;
+        }
+
+        public ChangeBatchRequest(final StreamInput in) throws IOException {
+            super(in);
+            previousGeneration = in.readVLong();
+            generation = in.readVLong();
+            final int size = in.readVInt();
+            sources = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                sources.add(in.readBytesReference());
+            }
+            deletes = in.readStringList();
+        }
+
+        @Override
+        public void writeTo(final StreamOutput out) throws IOException {
+            super.writeTo(out);
+            out.writeVLong(previousGeneration);
+            out.writeVLong(generation);
+            out.writeVInt(sources.size());
+            for (final BytesReference source : sources) {
+                out.writeBytesReference(source);
+            }
+            out.writeStringCollection(deletes);
+        }
+    }
+
+    static class ChangeBatchResponse extends AcknowledgedResponse {
+
+        ChangeBatchResponse(final StreamInput in) throws IOException {
+            super(in);
+        }
+
+        ChangeBatchResponse(final boolean acknowledged) {
+            super(acknowledged);
+        }
+    }
+}
@@ -0,0 +1,296 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.opensearch.configsync.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.AccessController;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.PrivilegedAction;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.codelibs.opensearch.configsync.cluster.ConfigSyncMetadata;
+import org.codelibs.opensearch.configsync.cluster.ConfigSyncMetadata.FileEntry;
+import org.opensearch.cluster.service.ClusterService;
+import org.opensearch.common.CheckedConsumer;
+import org.opensearch.common.CheckedRunnable;
+import org.opensearch.common.UUIDs;
+import org.opensearch.common.hash.MessageDigests;
+import org.opensearch.common.util.concurrent.AbstractRunnable;
+import org.opensearch.common.util.concurrent.CountDown;
+import org.opensearch.core.common.bytes.BytesReference;
+import org.opensearch.threadpool.ThreadPool;
+
+/**
+ * Writes and deletes the local config files for the sources fetched from the config index.
+ */
+public class ConfigFileApplier {
+    private static final Logger logger = LogManager.getLogger(ConfigFileApplier.class);
+
+    private final ClusterService clusterService;
+
+    private final ThreadPool threadPool;
+
+    private final LocalConfigFiles localConfigFiles;
+
+    private final ConfigSyncStats stats;
+
+    private final SyncThrottle throttle;
+
+    private final int applyConcurrency;
+
+    private final ExecutorService virtualThreadExecutor;
+
+    /**
+     * @param virtualThreadExecutor runs the apply workers if set, otherwise they run on the configsync_sync thread pool
+     */
+    public ConfigFileApplier(final ClusterService clusterService, final ThreadPool threadPool, final LocalConfigFiles localConfigFiles,
+            final ConfigSyncStats stats, final SyncThrottle throttle, final int applyConcurrency,
+            final ExecutorService virtualThreadExecutor) {
+        this.clusterService = clusterService;
+        this.threadPool = threadPool;
+        this.localConfigFiles = localConfigFiles;
+        this.stats = stats;
+        this.throttle = throttle;
+        this.applyConcurrency = applyConcurrency;
+        this.virtualThreadExecutor = virtualThreadExecutor;
+    }
+
+    int getApplyConcurrency() {
+        return applyConcurrency;
+    }
+
+    /**
+     * Writes or deletes the local file of the source if it is outdated.
+     *
+     * @throws Exception if the file could not be written or does not match its hash, so the sync is not counted as done
+     */
+    void updateConfigFile(final BytesReference sourceRef, final boolean force) throws Exception {
+        String path = null;
+        try {
+            final ConfigFileSource source = ConfigFileSource.parse(sourceRef);
+            path = source.getPath();
+            final Date timestamp = ConfigSyncService.getTimestamp(source.getTimestamp());
+            final Path filePath = localConfigFiles.resolve(path);
+            // a file selected for other nodes is removed like a deleted one
+            final boolean deleted = source.isDeleted() || !isSelected(source);
+            if (logger.isDebugEnabled()) {
+                logger.debug("Checking {}", filePath);
+            }
+            final Exception e = AccessController.doPrivileged((PrivilegedAction<Exception>) () -> {
+                try {
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("timestamp(index): {}", timestamp.getTime());
+                        if (Files.exists(filePath)) {
+                            logger.debug("timestamp(file):  {}", Files.getLastModifiedTime(filePath).toMillis());
+                        }
+                    }
+                    if (!isOutdated(deleted, timestamp, filePath, force)) {
+                        return null;
+                    }
+                    if (deleted) {
+                        Files.delete(filePath);
+                        localConfigFiles.deleted(source.getPath());
+                        stats.onDeleted();
+                        logger.info("Deleted {}", filePath.toAbsolutePath());
+                    } else {
+                        final long startTime = stats.onApplyStarted();
+                        // the content is decoded next to the file, which is replaced only once it is complete and matches
+                        final Path tempPath =
+                                filePath.resolveSibling("." + filePath.getFileName() + "." + UUIDs.randomBase64UUID() + ".configsync");
+                        try {
+                            Files.createDirectories(filePath.getParent());
+                            final String hash = writeToFile(source, tempPath, throttle);
+                            final String expectedHash = getExpectedHash(source);
+                            if (expectedHash != null && !expectedHash.equals(hash)) {
+                                // a stale copy of the document, or one changed again after the manifest was updated
+                                throw new IOException(
+                                        "The content of " + source.getPath() + " does not match its hash " + expectedHash + ".");
+                            }
+                            Files.move(tempPath, filePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                            stats.onApplied(startTime, localConfigFiles.applied(source.getPath(), hash));
+                            logger.info("Updated {}", filePath.toAbsolutePath());
+                        } catch (final Exception e1) {
+                            stats.onApplyFailed(startTime);
+                            Files.deleteIfExists(tempPath);
+                            throw e1;
+                        }
+                    }
+                } catch (final Exception e1) {
+                    return e1;
+                }
+                return null;
+            });
+            if (e != null) {
+                throw e;
+            }
+        } catch (final Exception e) {
+            logger.warn("Failed to update {}", path, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Returns true if the local file has to be written or deleted for the source. Without {@code force},
+     * a file modified after the document was stored is kept.
+     */
+    static boolean isOutdated(final boolean deleted, final Date timestamp, final Path filePath, final boolean force)
+            throws IOException {
+        if (deleted) {
+            return Files.exists(filePath) && (force || Files.getLastModifiedTime(filePath).toMillis() < timestamp.getTime());
+        }
+        return force || !Files.exists(filePath) || Files.getLastModifiedTime(filePath).toMillis() < timestamp.getTime();
+    }
+
+    /**
+     * Returns the hash the written content must have: the one in the manifest if it is complete,
+     * otherwise the one stored with the document, or null for a document stored without a hash.
+     */
+    private String getExpectedHash(final ConfigFileSource source) {
+        final ConfigSyncMetadata metadata = ConfigSyncMetadata.get(clusterService.state());
+        if (metadata.isComplete()) {
+            final FileEntry entry = metadata.getFiles().get(source.getPath());
+            if (entry != null && !entry.isDeleted()) {
+                return entry.getHash();
+            }
+        }
+        return source.getHash();
+    }
+
+    boolean isSelected(final ConfigFileSource source) {
+        return NodeSelector.matches(source.getNodes(), clusterService.state().nodes());
+    }
+
+    /**
+     * Runs fetch and file system work on the configsync_sync thread pool instead of the thread delivering a response,
+     * so throttle pauses do not hold the threads of the other configsync tasks.
+     */
+    void executeOnSyncThread(final Consumer<Exception> onFailure, final CheckedRunnable<Exception> task) {
+        threadPool.executor(ConfigSyncService.SYNC_THREAD_POOL_NAME).execute(new AbstractRunnable() {
+            @Override
+            public void onFailure(final Exception e) {
+                onFailure.accept(e);
+            }
+
+            @Override
+            protected void doRun() throws Exception {
+                task.run();
+            }
+        });
+    }
+
+    /**
+     * Writes the given files with up to {@code configsync.apply.concurrency} workers and runs {@code next}
+     * on the configsync_sync thread pool once all of them are processed, with the first failure to write a file or null.
+     * A file that fails does not stop the others.
+     * The files of one page have distinct paths and the next page is not requested before {@code next} runs,
+     * so writes to the same path are never reordered.
+     */
+    void applyConfigFiles(final List<BytesReference> sources, final boolean force, final Consumer<Exception> onFailure,
+            final CheckedConsumer<Exception, Exception> next) throws Exception {
+        final int workers = Math.min(applyConcurrency, sources.size());
+        if (workers <= 1) {
+            Exception fileFailure = null;
+            for (final BytesReference source : sources) {
+                try {
+                    updateConfigFile(source, force);
+                } catch (final Exception e) {
+                    if (fileFailure == null) {
+                        fileFailure = e;
+                    }
+                }
+            }
+            next.accept(fileFailure);
+            return;
+        }
+
+        final Executor executor =
+                virtualThreadExecutor != null ? virtualThreadExecutor : threadPool.executor(ConfigSyncService.SYNC_THREAD_POOL_NAME);
+        final AtomicInteger cursor = new AtomicInteger(0);
+        final AtomicReference<Exception> failure = new AtomicReference<>();
+        final AtomicReference<Exception> fileFailure = new AtomicReference<>();
+        final CountDown countDown = new CountDown(workers);
+        for (int i = 0; i < workers; i++) {
+            final AbstractRunnable worker = new AbstractRunnable() {
+                @Override
+                public void onFailure(final Exception e) {
+                    failure.compareAndSet(null, e);
+                }
+
+                @Override
+                protected void doRun() throws Exception {
+                    int n;
+                    while ((n = cursor.getAndIncrement()) < sources.size()) {
+                        try {
+                            updateConfigFile(sources.get(n), force);
+                        } catch (final Exception e) {
+                            fileFailure.compareAndSet(null, e);
+                        }
+                    }
+                }
+
+                @Override
+                public void onAfter() {
+                    if (countDown.countDown()) {
+                        final Exception e = failure.get();
+                        if (e != null && cursor.get() <= sources.size()) {
+                            // workers were rejected before all files were taken
+                            onFailure.accept(e);
+                        } else {
+                            executeOnSyncThread(onFailure, () -> next.accept(fileFailure.get()));
+                        }
+                    }
+                }
+            };
+            try {
+                executor.execute(worker);
+            } catch (final RejectedExecutionException e) {
+                worker.onRejection(e);
+                worker.onAfter();
+            }
+        }
+    }
+
+    /**
+     * Decodes the content of the source in chunks straight into the given file and returns its SHA-256 hex.
+     */
+    private static String writeToFile(final ConfigFileSource source, final Path filePath, final SyncThrottle throttle)
+            throws IOException {
+        final MessageDigest digest = MessageDigests.sha256();
+        try (FileChannel channel =
+                FileChannel.open(filePath, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+                OutputStream out = new DigestOutputStream(throttle.limitWrites(Channels.newOutputStream(channel)), digest)) {
+            source.writeContentTo(out);
+        }
+        return MessageDigests.toHexString(digest.digest());
+    }
+}
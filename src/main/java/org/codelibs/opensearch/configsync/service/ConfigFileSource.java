@@ -0,0 +1,244 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.opensearch.configsync.service;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.codec.binary.Base64OutputStream;
+import org.opensearch.OpenSearchException;
+import org.opensearch.OpenSearchParseException;
+import org.opensearch.common.xcontent.XContentType;
+import org.opensearch.core.common.bytes.BytesReference;
+import org.opensearch.core.xcontent.DeprecationHandler;
+import org.opensearch.core.xcontent.MediaTypeRegistry;
+import org.opensearch.core.xcontent.NamedXContentRegistry;
+import org.opensearch.core.xcontent.XContentParser;
+
+import com.fasterxml.jackson.core.Base64Variant;
+import com.fasterxml.jackson.core.Base64Variants;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileParser;
+
+/**
+ * Pull-parses the source of a config document without building a map of it.
+ * Documents are stored as SMILE, where the content is raw bytes; JSON documents written by older versions
+ * or indexed directly hold base64. Either is decoded in chunks while it is written, so no decoded copy of the file
+ * is held besides the source itself.
+ */
+public class ConfigFileSource {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final SmileFactory SMILE_FACTORY = new SmileFactory();
+
+    // the content is written by XContentBuilder with this variant; accept it with or without padding
+    private static final Base64Variant BASE64 = Base64Variants.MIME_NO_LINEFEEDS.withPaddingAllowed();
+
+    private static final int CHUNK_SIZE = 8192;
+
+    private final BytesReference source;
+
+    private final String path;
+
+    private final Object timestamp;
+
+    private final boolean deleted;
+
+    private final String nodes;
+
+    private final String hash;
+
+    private ConfigFileSource(final BytesReference source, final String path, final Object timestamp, final boolean deleted,
+            final String nodes, final String hash) {
+        this.source = source;
+        this.path = path;
+        this.timestamp = timestamp;
+        this.deleted = deleted;
+        this.nodes = nodes;
+        this.hash = hash;
+    }
+
+    /**
+     * Reads the path, timestamp, tombstone flag, node selector and hash of the source. The content is skipped without being decoded.
+     */
+    public static ConfigFileSource parse(final BytesReference source) throws IOException {
+        String path = null;
+        Object timestamp = null;
+        boolean deleted = false;
+        String nodes = null;
+        String hash = null;
+        try (InputStream in = source.streamInput(); XContentParser parser = createParser(source, in)) {
+            if (parser.nextToken() != XContentParser.Token.START_OBJECT) {
+                throw new OpenSearchParseException("config source is not an object");
+            }
+            XContentParser.Token token;
+            while ((token = parser.nextToken()) == XContentParser.Token.FIELD_NAME) {
+                final String name = parser.currentName();
+                token = parser.nextToken();
+                if (ConfigSyncService.PATH.equals(name) && token == XContentParser.Token.VALUE_STRING) {
+                    path = parser.text();
+                } else if (ConfigSyncService.TIMESTAMP.equals(name)) {
+                    timestamp = token == XContentParser.Token.VALUE_NUMBER ? (Object) parser.longValue() : parser.text();
+                } else if (ConfigSyncService.DELETED.equals(name)) {
+                    deleted = token == XContentParser.Token.VALUE_BOOLEAN && parser.booleanValue();
+                } else if (ConfigSyncService.NODES.equals(name) && token == XContentParser.Token.VALUE_STRING) {
+                    nodes = parser.text();
+                } else if (ConfigSyncService.HASH.equals(name) && token == XContentParser.Token.VALUE_STRING) {
+                    hash = parser.text();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        if (path == null) {
+            throw new OpenSearchParseException("config source has no [{}]", ConfigSyncService.PATH);
+        }
+        return new ConfigFileSource(source, path, timestamp, deleted, nodes, hash);
+    }
+
+    private static XContentParser createParser(final BytesReference source, final InputStream in) throws IOException {
+        final XContentType type = MediaTypeRegistry.xContentType(source) == XContentType.SMILE ? XContentType.SMILE : XContentType.JSON;
+        return type.xContent().createParser(NamedXContentRegistry.EMPTY, DeprecationHandler.THROW_UNSUPPORTED_OPERATION, in);
+    }
+
+    /**
+     * Returns the bytes of a content value read into a source map: raw bytes from SMILE, or a base64 string from JSON.
+     */
+    public static byte[] decodeContent(final Object value) {
+        if (value instanceof byte[] bytes) {
+            return bytes;
+        }
+        return Base64.decodeBase64((String) value);
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Returns the timestamp as it is in the source: a string or a number of milliseconds.
+     */
+    public Object getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Returns true if the source is the tombstone of a deleted file, which has no content.
+     */
+    public boolean isDeleted() {
+        return deleted;
+    }
+
+    /**
+     * Returns the selector of the nodes that sync the file, or null if every node does.
+     */
+    public String getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Returns the SHA-256 hex of the content stored with the document, or null if it was stored without one.
+     */
+    public String getHash() {
+        return hash;
+    }
+
+    /**
+     * Decodes the content into the given stream and returns the number of bytes written.
+     * Raw SMILE bytes and JSON base64 are decoded from the source in chunks; base64 in a SMILE string
+     * is only available as a whole, so its text is held while it is decoded in chunks.
+     *
+     * @throws OpenSearchParseException if the content is not valid base64
+     */
+    public long writeContentTo(final OutputStream out) throws IOException {
+        try (InputStream in = source.streamInput(); JsonParser parser = createStreamingParser(source, in)) {
+            parser.nextToken();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String name = parser.currentName();
+                final JsonToken token = parser.nextToken();
+                if (ConfigSyncService.CONTENT.equals(name) && token == JsonToken.VALUE_EMBEDDED_OBJECT) {
+                    return parser.readBinaryValue(out);
+                } else if (ConfigSyncService.CONTENT.equals(name) && token == JsonToken.VALUE_STRING) {
+                    try {
+                        if (parser instanceof SmileParser) {
+                            return decodeBase64(parser, out);
+                        }
+                        return parser.readBinaryValue(BASE64, out);
+                    } catch (final JsonParseException | IllegalArgumentException e) {
+                        throw new OpenSearchParseException("invalid base64 content in [{}]", e, path);
+                    }
+                }
+                parser.skipChildren();
+            }
+        }
+        throw new OpenSearchException("config source of [{}] has no [{}]", path, ConfigSyncService.CONTENT);
+    }
+
+    /**
+     * XContentParser only returns a binary value as a whole array, so the content is read with the Jackson parser
+     * the JSON and SMILE implementations are built on, which can write it to a stream.
+     */
+    private static JsonParser createStreamingParser(final BytesReference source, final InputStream in) throws IOException {
+        if (MediaTypeRegistry.xContentType(source) == XContentType.SMILE) {
+            return SMILE_FACTORY.createParser(in);
+        }
+        return JSON_FACTORY.createParser(in);
+    }
+
+    private static long decodeBase64(final JsonParser parser, final OutputStream out) throws IOException {
+        final long[] written = new long[1];
+        final OutputStream counter = new FilterOutputStream(out) {
+            @Override
+            public void write(final int b) throws IOException {
+                out.write(b);
+                written[0]++;
+            }
+
+            @Override
+            public void write(final byte[] b, final int off, final int len) throws IOException {
+                out.write(b, off, len);
+                written[0] += len;
+            }
+        };
+        // not closed, which would close the given stream
+        final Base64OutputStream decoder = new Base64OutputStream(counter, false);
+        final char[] text = parser.getTextCharacters();
+        final int end = parser.getTextOffset() + parser.getTextLength();
+        final byte[] chunk = new byte[CHUNK_SIZE];
+        for (int offset = parser.getTextOffset(); offset < end; offset += CHUNK_SIZE) {
+            final int length = Math.min(CHUNK_SIZE, end - offset);
+            for (int i = 0; i < length; i++) {
+                final char c = text[offset + i];
+                if (BASE64.decodeBase64Char(c) < 0 && c != BASE64.getPaddingChar()) {
+                    throw new OpenSearchParseException("invalid base64 character [{}]", c);
+                }
+                chunk[i] = (byte) c;
+            }
+            decoder.write(chunk, 0, length);
+        }
+        decoder.eof();
+        decoder.flush();
+        return written[0];
+    }
+}
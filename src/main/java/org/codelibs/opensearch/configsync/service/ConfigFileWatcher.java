@@ -0,0 +1,203 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.opensearch.configsync.service;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.opensearch.common.unit.TimeValue;
+import org.opensearch.threadpool.ThreadPool;
+
+/**
+ * Watches the directories of the synced files for local changes and reports the changed paths.
+ * Events are collected for {@code configsync.watcher.delay} and reported once per batch, without duplicates,
+ * so a file written in several steps is only reported once. The node's own writes are reported as well;
+ * the listener is expected to ignore the paths that are still current.
+ */
+public class ConfigFileWatcher implements Closeable {
+    private static final Logger logger = LogManager.getLogger(ConfigFileWatcher.class);
+
+    private final Path root;
+
+    private final Function<String, Path> resolver;
+
+    private final ThreadPool threadPool;
+
+    private final TimeValue delay;
+
+    private final Consumer<Set<String>> listener;
+
+    // synced paths by their path relative to the root
+    private final NavigableMap<String, String> paths = new ConcurrentSkipListMap<>();
+
+    // guarded by this
+    private final Map<Path, WatchKey> keys = new HashMap<>();
+
+    // guarded by this
+    private final Set<String> pending = new HashSet<>();
+
+    // guarded by this
+    private boolean scheduled;
+
+    private WatchService watchService;
+
+    private volatile boolean closed;
+
+    /**
+     * @param resolver resolves a synced path to the local file
+     * @param listener receives the synced paths changed locally, on the configsync thread pool
+     */
+    public ConfigFileWatcher(final Path root, final Function<String, Path> resolver, final ThreadPool threadPool, final TimeValue delay,
+            final Consumer<Set<String>> listener) {
+        this.root = root.toAbsolutePath().normalize();
+        this.resolver = resolver;
+        this.threadPool = threadPool;
+        this.delay = delay;
+        this.listener = listener;
+    }
+
+    /**
+     * Replaces the watched paths. The directories of the paths, up to the root, are watched if they exist,
+     * so a deleted directory is noticed as well. It is called again after a sync to watch recreated directories.
+     */
+    public synchronized void watch(final Collection<String> syncedPaths) throws IOException {
+        if (closed) {
+            return;
+        }
+        if (watchService == null) {
+            watchService = root.getFileSystem().newWatchService();
+            final Thread thread = new Thread(this::run, "configsync[watcher]");
+            thread.setDaemon(true);
+            thread.start();
+        }
+        final Map<String, String> newPaths = new HashMap<>();
+        final Set<Path> dirs = new HashSet<>();
+        for (final String path : syncedPaths) {
+            final Path filePath = resolver.apply(path).toAbsolutePath().normalize();
+            if (!filePath.startsWith(root) || filePath.equals(root)) {
+                continue;
+            }
+            newPaths.put(relativize(filePath), path);
+            for (Path dir = filePath.getParent(); dir != null && dir.startsWith(root); dir = dir.getParent()) {
+                dirs.add(dir);
+            }
+        }
+        paths.keySet().retainAll(newPaths.keySet());
+        paths.putAll(newPaths);
+        for (final Iterator<Map.Entry<Path, WatchKey>> it = keys.entrySet().iterator(); it.hasNext();) {
+            final Map.Entry<Path, WatchKey> entry = it.next();
+            if (!dirs.contains(entry.getKey()) || !entry.getValue().isValid()) {
+                entry.getValue().cancel();
+                it.remove();
+            }
+        }
+        for (final Path dir : dirs) {
+            if (!keys.containsKey(dir) && Files.isDirectory(dir)) {
+                keys.put(dir, dir.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY));
+            }
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug("Watching {} files in {} directories.", paths.size(), keys.size());
+        }
+    }
+
+    private String relativize(final Path filePath) {
+        return root.relativize(filePath).toString().replace(File.separatorChar, '/');
+    }
+
+    private void run() {
+        while (!closed) {
+            final WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (final InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            final Path dir = (Path) key.watchable();
+            final Set<String> changed = new HashSet<>();
+            for (final WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == OVERFLOW) {
+                    changed.addAll(paths.values());
+                    continue;
+                }
+                final String name = relativize(dir.resolve((Path) event.context()));
+                final String path = paths.get(name);
+                if (path != null) {
+                    changed.add(path);
+                }
+                // the files under a deleted or replaced directory
+                changed.addAll(paths.subMap(name + "/", name + "0").values());
+            }
+            key.reset();
+            if (!changed.isEmpty()) {
+                enqueue(changed);
+            }
+        }
+    }
+
+    private synchronized void enqueue(final Set<String> changed) {
+        pending.addAll(changed);
+        if (!scheduled && !closed) {
+            scheduled = true;
+            threadPool.schedule(this::dispatch, delay, ConfigSyncService.THREAD_POOL_NAME);
+        }
+    }
+
+    private void dispatch() {
+        final Set<String> changed;
+        synchronized (this) {
+            changed = new HashSet<>(pending);
+            pending.clear();
+            scheduled = false;
+        }
+        if (!closed) {
+            listener.accept(changed);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        closed = true;
+        keys.clear();
+        if (watchService != null) {
+            watchService.close();
+        }
+    }
+}
@@ -0,0 +1,574 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.opensearch.configsync.service;
+
+import static org.opensearch.core.action.ActionListener.wrap;
+
+import java.nio.file.Path;
+import java.security.AccessController;
+import java.security.PrivilegedActionException;
+import java.security.PrivilegedExceptionAction;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.codelibs.opensearch.configsync.cluster.ConfigSyncMetadata;
+import org.codelibs.opensearch.configsync.cluster.ConfigSyncMetadata.FileEntry;
+import org.opensearch.OpenSearchException;
+import org.opensearch.action.get.GetResponse;
+import org.opensearch.action.get.MultiGetItemResponse;
+import org.opensearch.action.get.MultiGetRequestBuilder;
+import org.opensearch.action.search.SearchRequestBuilder;
+import org.opensearch.action.search.SearchResponse;
+import org.opensearch.cluster.service.ClusterService;
+import org.opensearch.common.unit.TimeValue;
+import org.opensearch.common.util.concurrent.CountDown;
+import org.opensearch.core.action.ActionListener;
+import org.opensearch.core.common.bytes.BytesReference;
+import org.opensearch.index.query.QueryBuilder;
+import org.opensearch.index.query.QueryBuilders;
+import org.opensearch.search.SearchHit;
+import org.opensearch.search.slice.SliceBuilder;
+import org.opensearch.transport.client.Client;
+
+/**
+ * Fetches config files page by page and writes them to the local config path.
+ * The next page is fetched while the current one is being written, up to
+ * {@code configsync.prefetch.pages} pages ahead and {@code configsync.prefetch.max_bytes} of buffered sources.
+ * A cold sync, the first one of a node or one with at least {@code configsync.cold_sync.min_files} outdated files,
+ * is split into {@code configsync.cold_sync.slices} writers that fetch and write their part in parallel.
+ * Slices share the node's fetch and write throttle, so the rates hold for the node as a whole.
+ */
+public class ConfigFileWriter {
+    private static final Logger logger = LogManager.getLogger(ConfigFileWriter.class);
+
+    private final Supplier<Client> client;
+
+    private final ClusterService clusterService;
+
+    private final String index;
+
+    private final LocalConfigFiles localConfigFiles;
+
+    private final ConfigFileApplier applier;
+
+    private final PeerFileTransfer peerFileTransfer;
+
+    private final ConfigSyncStats stats;
+
+    private final SyncThrottle throttle;
+
+    private final TimeValue scrollTime;
+
+    private final int scrollSize;
+
+    private final int prefetchPages;
+
+    private final int coldSyncSlices;
+
+    private final int coldSyncMinFiles;
+
+    private final AtomicLong lastChecked;
+
+    private final Runnable afterSync;
+
+    private final AtomicBoolean terminated;
+
+    private final int slice;
+
+    private final int numOfSlices;
+
+    private final long maxBufferedBytes;
+
+    private ActionListener<Void> listener;
+
+    private boolean force;
+
+    private List<String> paths;
+
+    private int offset;
+
+    private QueryBuilder queryBuilder;
+
+    private volatile String currentScrollId;
+
+    // guarded by this
+    private final Deque<Page> pages = new ArrayDeque<>();
+
+    private long bufferedBytes;
+
+    // fetched bytes the fetch throttle has not waited for yet
+    private long unthrottledBytes;
+
+    private boolean fetching;
+
+    private boolean applying;
+
+    private boolean exhausted;
+
+    private boolean done;
+
+    private Exception failure;
+
+    // the first file that could not be written; the other files are still written, but the sync fails
+    private Exception fileFailure;
+
+    private final boolean initialSync;
+
+    /**
+     * @param peerFileTransfer copies large files from peers, or null to fetch all files from the index
+     * @param lastChecked the time of the last incremental check, shared by the writers of concurrent syncs
+     * @param afterSync runs once a sync has finished, whether it succeeded or not
+     * @param initialSync true for the first sync of a node, which is split into slices
+     */
+    public ConfigFileWriter(final Supplier<Client> client, final ClusterService clusterService, final String index,
+            final LocalConfigFiles localConfigFiles, final ConfigFileApplier applier, final PeerFileTransfer peerFileTransfer,
+            final ConfigSyncStats stats, final SyncThrottle throttle, final TimeValue scrollTime, final int scrollSize,
+            final int prefetchPages, final long prefetchMaxBytes, final int coldSyncSlices, final int coldSyncMinFiles,
+            final AtomicLong lastChecked, final Runnable afterSync, final boolean initialSync) {
+        this.client = client;
+        this.clusterService = clusterService;
+        this.index = index;
+        this.localConfigFiles = localConfigFiles;
+        this.applier = applier;
+        this.peerFileTransfer = peerFileTransfer;
+        this.stats = stats;
+        this.throttle = throttle;
+        this.scrollTime = scrollTime;
+        this.scrollSize = scrollSize;
+        this.prefetchPages = prefetchPages;
+        this.coldSyncSlices = coldSyncSlices;
+        this.coldSyncMinFiles = coldSyncMinFiles;
+        this.lastChecked = lastChecked;
+        this.afterSync = afterSync;
+        this.initialSync = initialSync;
+        this.terminated = new AtomicBoolean(false);
+        this.slice = 0;
+        this.numOfSlices = 1;
+        this.maxBufferedBytes = prefetchMaxBytes;
+    }
+
+    private ConfigFileWriter(final ConfigFileWriter parent, final int slice, final int numOfSlices) {
+        client = parent.client;
+        clusterService = parent.clusterService;
+        index = parent.index;
+        localConfigFiles = parent.localConfigFiles;
+        applier = parent.applier;
+        peerFileTransfer = parent.peerFileTransfer;
+        stats = parent.stats;
+        throttle = parent.throttle;
+        scrollTime = parent.scrollTime;
+        scrollSize = parent.scrollSize;
+        prefetchPages = parent.prefetchPages;
+        coldSyncSlices = parent.coldSyncSlices;
+        coldSyncMinFiles = parent.coldSyncMinFiles;
+        lastChecked = parent.lastChecked;
+        afterSync = parent.afterSync;
+        initialSync = parent.initialSync;
+        terminated = parent.terminated;
+        this.slice = slice;
+        this.numOfSlices = numOfSlices;
+        // slices share the prefetch buffer
+        maxBufferedBytes = parent.maxBufferedBytes / numOfSlices;
+    }
+
+    public void execute(final ActionListener<Void> listener) {
+        execute(null, listener);
+    }
+
+    /**
+     * @param outdatedPaths the paths to sync if they are already known, or null to compare the manifest with the local files
+     */
+    public void execute(final List<String> outdatedPaths, final ActionListener<Void> listener) {
+        doExecute(outdatedPaths, ActionListener.runAfter(listener, afterSync::run));
+    }
+
+    private void doExecute(final List<String> outdatedPaths, final ActionListener<Void> actionListener) {
+        final boolean cold;
+        final ActionListener<Void> listener;
+        final ConfigSyncMetadata metadata = ConfigSyncMetadata.get(clusterService.state());
+        final Map<String, FileEntry> files = NodeSelector.localFiles(metadata.getFiles(), clusterService.state().nodes());
+        if (metadata.isComplete()) {
+            final long now = System.currentTimeMillis();
+            // a failed sync is repeated from the same time if the manifest becomes incomplete
+            listener = wrap(r -> {
+                advanceLastChecked(now);
+                actionListener.onResponse(r);
+            }, actionListener::onFailure);
+            if (outdatedPaths != null) {
+                paths = outdatedPaths;
+            } else {
+                try {
+                    paths = AccessController.doPrivileged(
+                            (PrivilegedExceptionAction<List<String>>) () -> localConfigFiles.getOutdatedPaths(files));
+                } catch (final PrivilegedActionException e) {
+                    listener.onFailure(e.getException());
+                    return;
+                }
+            }
+            if (logger.isDebugEnabled()) {
+                logger.debug("{} of {} files are outdated at generation {}.", paths.size(), metadata.getFiles().size(),
+                        metadata.getGeneration());
+            }
+            force = true;
+            cold = initialSync || paths.size() >= coldSyncMinFiles;
+        } else {
+            final long now = System.currentTimeMillis();
+            final long since = lastChecked.get();
+            cold = initialSync || since == 0;
+            queryBuilder = QueryBuilders.boolQuery().filter(QueryBuilders.rangeQuery(ConfigSyncService.TIMESTAMP).from(since));
+            force = false;
+            // a failed check is repeated from the same time by the next one
+            listener = wrap(r -> {
+                advanceLastChecked(now);
+                actionListener.onResponse(r);
+            }, actionListener::onFailure);
+        }
+        if (paths != null && !paths.isEmpty() && peerFileTransfer != null) {
+            // large files are copied from peers first; the rest is fetched from the index
+            peerFileTransfer.fetch(paths, files, wrap(remaining -> {
+                paths = remaining;
+                dispatch(cold, listener);
+            }, listener::onFailure));
+        } else {
+            dispatch(cold, listener);
+        }
+    }
+
+    private void dispatch(final boolean cold, final ActionListener<Void> listener) {
+        final int slices = paths != null ? Math.min(coldSyncSlices, paths.size()) : coldSyncSlices;
+        if (cold && slices > 1) {
+            executeSliced(slices, listener);
+        } else {
+            start(listener);
+        }
+    }
+
+    private void executeSliced(final int slices, final ActionListener<Void> listener) {
+        logger.info("Syncing {} config files with {} slices.", paths != null ? paths.size() : "all", slices);
+        stats.onSlicedSync();
+        final CountDown countDown = new CountDown(slices);
+        final AtomicReference<Exception> sliceFailure = new AtomicReference<>();
+        final ActionListener<Void> sliceListener = ActionListener.wrap(r -> {
+            if (countDown.countDown()) {
+                finishSliced(sliceFailure.get(), listener);
+            }
+        }, e -> {
+            sliceFailure.compareAndSet(null, e);
+            if (countDown.countDown()) {
+                finishSliced(sliceFailure.get(), listener);
+            }
+        });
+        for (int i = 0; i < slices; i++) {
+            final ConfigFileWriter writer = new ConfigFileWriter(this, i, slices);
+            writer.force = force;
+            if (paths != null) {
+                writer.paths = paths.subList(paths.size() * i / slices, paths.size() * (i + 1) / slices);
+            } else {
+                writer.queryBuilder = queryBuilder;
+            }
+            writer.start(sliceListener);
+        }
+    }
+
+    private void finishSliced(final Exception e, final ActionListener<Void> listener) {
+        if (e != null) {
+            listener.onFailure(e);
+        } else {
+            listener.onResponse(null);
+        }
+    }
+
+    private void start(final ActionListener<Void> listener) {
+        this.listener = listener;
+        fetchNext();
+    }
+
+    public void terminate() {
+        terminated.set(true);
+    }
+
+    public boolean isTerminated() {
+        return terminated.get();
+    }
+
+    private void fetchNext() {
+        final long fetchedBytes;
+        synchronized (this) {
+            if (done || fetching || exhausted || failure != null || terminated.get()
+                    || pages.size() + (applying ? 1 : 0) > prefetchPages
+                    || (bufferedBytes > 0 && bufferedBytes >= maxBufferedBytes)) {
+                return;
+            }
+            fetching = true;
+            fetchedBytes = unthrottledBytes;
+            unthrottledBytes = 0;
+        }
+        if (fetchedBytes > 0 && throttle.isFetchLimited()) {
+            // the previous page may have arrived on a network thread, which must not wait
+            applier.executeOnSyncThread(this::onFetchFailure, () -> {
+                throttle.pauseFetch(fetchedBytes);
+                fetchPage(wrap(this::onPage, this::onFetchFailure));
+            });
+            return;
+        }
+        try {
+            fetchPage(wrap(this::onPage, this::onFetchFailure));
+        } catch (final Exception e) {
+            onFetchFailure(e);
+        }
+    }
+
+    private void fetchPage(final ActionListener<Page> pageListener) {
+        if (paths != null) {
+            if (offset >= paths.size()) {
+                pageListener.onResponse(null);
+                return;
+            }
+            // a batch holds at least one file per apply worker
+            final int end = Math.min(offset + Math.max(scrollSize, applier.getApplyConcurrency()), paths.size());
+            final MultiGetRequestBuilder builder = client.get().prepareMultiGet().setPreference(ConfigSyncService.LOCAL_PREFERENCE);
+            for (final String path : paths.subList(offset, end)) {
+                builder.add(index, ConfigSyncService.getId(path));
+            }
+            offset = end;
+            builder.execute(wrap(response -> {
+                final Page page = new Page();
+                for (final MultiGetItemResponse item : response.getResponses()) {
+                    if (item.isFailed()) {
+                        logger.warn("Failed to get {}: {}", item.getId(), item.getFailure().getMessage());
+                    } else if (item.getResponse().isExists()) {
+                        final GetResponse getResponse = item.getResponse();
+                        page.add(getResponse.getSourceAsBytesRef());
+                    }
+                }
+                pageListener.onResponse(page);
+            }, pageListener::onFailure));
+            return;
+        }
+
+        final ActionListener<SearchResponse> searchListener = wrap(response -> {
+            currentScrollId = response.getScrollId();
+            final SearchHit[] hits = response.getHits().getHits();
+            if (hits.length == 0) {
+                pageListener.onResponse(null);
+                return;
+            }
+            applier.executeOnSyncThread(pageListener::onFailure, () -> fetchOutdated(hits, pageListener));
+        }, pageListener::onFailure);
+        if (currentScrollId == null) {
+            // the content is fetched in a second step, only for the files that are outdated
+            final SearchRequestBuilder builder = client.get().prepareSearch(index).setPreference(ConfigSyncService.LOCAL_PREFERENCE)
+                    .setQuery(queryBuilder).setFetchSource(null, new String[] { ConfigSyncService.CONTENT }).setScroll(scrollTime)
+                    .setSize(scrollSize);
+            if (numOfSlices > 1) {
+                builder.slice(new SliceBuilder(slice, numOfSlices));
+            }
+            builder.execute(searchListener);
+        } else {
+            client.get().prepareSearchScroll(currentScrollId).setScroll(scrollTime).execute(searchListener);
+        }
+    }
+
+    /**
+     * Compares the path and timestamp of the hits with the local files and fetches the content of the outdated ones.
+     * A tombstone has no content, so its hit is applied as it is.
+     */
+    private void fetchOutdated(final SearchHit[] hits, final ActionListener<Page> pageListener) throws Exception {
+        final Page page = new Page();
+        final MultiGetRequestBuilder builder = client.get().prepareMultiGet().setPreference(ConfigSyncService.LOCAL_PREFERENCE);
+        int skipped = 0;
+        for (final SearchHit hit : hits) {
+            final ConfigFileSource source;
+            try {
+                source = ConfigFileSource.parse(hit.getSourceRef());
+            } catch (final Exception e) {
+                // reported when the whole document is applied
+                builder.add(index, hit.getId());
+                continue;
+            }
+            final Date timestamp = ConfigSyncService.getTimestamp(source.getTimestamp());
+            final Path filePath = localConfigFiles.resolve(source.getPath());
+            final boolean deleted = source.isDeleted() || !applier.isSelected(source);
+            final boolean outdated = AccessController.doPrivileged(
+                    (PrivilegedExceptionAction<Boolean>) () -> ConfigFileApplier.isOutdated(deleted, timestamp, filePath, force));
+            if (!outdated) {
+                skipped++;
+            } else if (deleted) {
+                page.add(hit.getSourceRef());
+            } else {
+                builder.add(index, hit.getId());
+            }
+        }
+        stats.onCurrentFiles(skipped);
+        if (builder.request().getItems().isEmpty()) {
+            pageListener.onResponse(page);
+            return;
+        }
+        builder.execute(wrap(response -> {
+            for (final MultiGetItemResponse item : response.getResponses()) {
+                if (item.isFailed()) {
+                    logger.warn("Failed to get {}: {}", item.getId(), item.getFailure().getMessage());
+                } else if (item.getResponse().isExists()) {
+                    page.add(item.getResponse().getSourceAsBytesRef());
+                }
+            }
+            pageListener.onResponse(page);
+        }, pageListener::onFailure));
+    }
+
+    private void onPage(final Page page) {
+        synchronized (this) {
+            fetching = false;
+            if (page == null) {
+                exhausted = true;
+            } else {
+                pages.add(page);
+                bufferedBytes += page.bytes;
+                unthrottledBytes += page.bytes;
+            }
+        }
+        if (page != null) {
+            stats.onPageFetched(page.bytes);
+        }
+        fetchNext();
+        applyNext();
+    }
+
+    private void onFetchFailure(final Exception e) {
+        synchronized (this) {
+            fetching = false;
+            if (failure == null) {
+                failure = e;
+            }
+        }
+        applyNext();
+    }
+
+    private void onApplyFailure(final Exception e) {
+        synchronized (this) {
+            applying = false;
+            if (failure == null) {
+                failure = e;
+            }
+        }
+        applyNext();
+    }
+
+    private void applyNext() {
+        final Page page;
+        final Exception e;
+        final long released;
+        synchronized (this) {
+            if (done || applying) {
+                return;
+            }
+            if (failure == null && terminated.get()) {
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Terminated {}", this);
+                }
+                failure = new OpenSearchException("Config Writing process was terminated.");
+            }
+            if (failure == null && !(exhausted && pages.isEmpty())) {
+                page = pages.poll();
+                if (page == null) {
+                    // waiting for the page being fetched
+                    return;
+                }
+                applying = true;
+                e = null;
+                released = 0;
+            } else {
+                if (fetching) {
+                    // finished when the page being fetched arrives
+                    return;
+                }
+                done = true;
+                page = null;
+                e = failure != null ? failure : fileFailure;
+                released = bufferedBytes;
+                bufferedBytes = 0;
+                pages.clear();
+            }
+        }
+
+        if (page == null) {
+            stats.onPageReleased(released);
+            finish(e);
+            return;
+        }
+
+        applier.executeOnSyncThread(this::onApplyFailure, () -> applier.applyConfigFiles(page.sources, force, this::onApplyFailure, e1 -> {
+            synchronized (this) {
+                applying = false;
+                bufferedBytes -= page.bytes;
+                if (fileFailure == null) {
+                    fileFailure = e1;
+                }
+            }
+            stats.onPageReleased(page.bytes);
+            fetchNext();
+            applyNext();
+        }));
+    }
+
+    private void finish(final Exception e) {
+        final String scrollId = currentScrollId;
+        if (scrollId != null) {
+            client.get().prepareClearScroll().addScrollId(scrollId)
+                    .execute(wrap(res -> {
+                        if (logger.isDebugEnabled()) {
+                            logger.debug("Cleared scroll context: {}", scrollId);
+                        }
+                    }, ex -> logger.warn("Failed to clear the scroll context.", ex)));
+        }
+        if (e != null) {
+            listener.onFailure(e);
+        } else {
+            listener.onResponse(null);
+        }
+    }
+
+    private void advanceLastChecked(final long time) {
+        long current;
+        do {
+            current = lastChecked.get();
+        } while (current < time && !lastChecked.compareAndSet(current, time));
+    }
+
+    /**
+     * Raw sources of a fetched page, parsed when the page is written.
+     */
+    private static class Page {
+        private final List<BytesReference> sources = new ArrayList<>();
+
+        private long bytes;
+
+        void add(final BytesReference source) {
+            sources.add(source);
+            bytes += source.length();
+        }
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.opensearch.configsync.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.codelibs.opensearch.configsync.cluster.ConfigSyncMetadata.FileEntry;
+import org.opensearch.common.hash.MessageDigests;
+
+/**
+ * Merkle tree over the content hashes of config files: a directory is hashed over the names and hashes of its children,
+ * so two trees with the same root hash hold the same files, and a comparison only descends into the directories that differ.
+ */
+public class ConfigHashTree {
+
+    private final Node root;
+
+    private ConfigHashTree(final Node root) {
+        this.root = root;
+    }
+
+    /**
+     * Builds the tree of the live files of a manifest. Deleted files are left out, as they should not exist.
+     */
+    public static ConfigHashTree of(final Map<String, FileEntry> manifest) {
+        final Map<String, String> hashes = new HashMap<>();
+        manifest.forEach((path, entry) -> {
+            if (!entry.isDeleted()) {
+                hashes.put(path, entry.getHash());
+            }
+        });
+        return build(hashes);
+    }
+
+    /**
+     * Builds the tree of the given content hashes by path.
+     */
+    public static ConfigHashTree build(final Map<String, String> hashes) {
+        final Node root = Node.directory();
+        hashes.forEach((path, hash) -> {
+            Node node = root;
+            final String[] names = split(path);
+            for (int i = 0; i < names.length - 1; i++) {
+                node = node.children.computeIfAbsent(names[i], name -> Node.directory());
+                if (node.children == null) {
+                    // a file and a directory cannot share a path
+                    return;
+                }
+            }
+            if (names.length > 0) {
+                node.children.putIfAbsent(names[names.length - 1], Node.file(path, hash));
+            }
+        });
+        root.computeHash();
+        return new ConfigHashTree(root);
+    }
+
+    private static String[] split(final String path) {
+        final List<String> names = new ArrayList<>();
+        for (final String name : path.split("/")) {
+            if (!name.isEmpty()) {
+                names.add(name);
+            }
+        }
+        return names.toArray(new String[names.size()]);
+    }
+
+    public String getRootHash() {
+        return root.hash;
+    }
+
+    /**
+     * Returns the paths of the files whose hashes differ between the trees, including the files that exist in only one of them.
+     * Subtrees with equal hashes are skipped without being visited.
+     */
+    public List<String> diff(final ConfigHashTree other) {
+        final List<String> paths = new ArrayList<>();
+        diff(root, other.root, paths);
+        return paths;
+    }
+
+    private static void diff(final Node node, final Node other, final List<String> paths) {
+        if (node.hash.equals(other.hash)) {
+            return;
+        }
+        if (node.isFile() && other.isFile()) {
+            paths.add(node.path);
+            return;
+        }
+        if (node.isFile() || other.isFile()) {
+            node.collectPaths(paths);
+            other.collectPaths(paths);
+            return;
+        }
+        final TreeSet<String> names = new TreeSet<>(node.children.keySet());
+        names.addAll(other.children.keySet());
+        for (final String name : names) {
+            final Node child = node.children.get(name);
+            final Node otherChild = other.children.get(name);
+            if (child == null) {
+                otherChild.collectPaths(paths);
+            } else if (otherChild == null) {
+                child.collectPaths(paths);
+            } else {
+                diff(child, otherChild, paths);
+            }
+        }
+    }
+
+    private static class Node {
+
+        private final String path;
+
+        private final SortedMap<String, Node> children;
+
+        private String hash;
+
+        private Node(final String path, final String hash, final SortedMap<String, Node> children) {
+            this.path = path;
+            this.hash = hash;
+            this.children = children;
+        }
+
+        static Node directory() {
+            return new Node(null, null, new TreeMap<>());
+        }
+
+        static Node file(final String path, final String hash) {
+            return new Node(path, hash, null);
+        }
+
+        boolean isFile() {
+            return children == null;
+        }
+
+        void computeHash() {
+            if (isFile()) {
+                return;
+            }
+            // the digest is shared by the thread, so the children are hashed before it is taken
+            children.values().forEach(Node::computeHash);
+            final MessageDigest digest = MessageDigests.sha256();
+            for (final Map.Entry<String, Node> entry : children.entrySet()) {
+                final Node child = entry.getValue();
+                digest.update(entry.getKey().getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+                digest.update((byte) (child.isFile() ? 'f' : 'd'));
+                digest.update(child.hash.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) '\n');
+            }
+            hash = MessageDigests.toHexString(digest.digest());
+        }
+
+        void collectPaths(final List<String> paths) {
+            if (isFile()) {
+                paths.add(path);
+            } else {
+                children.values().forEach(child -> child.collectPaths(paths));
+            }
+        }
+    }
+}
@@ -17,17 +17,14 @@ package org.codelibs.opensearch.configsync.service;
 
 import static org.opensearch.core.action.ActionListener.wrap;
 
-import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.security.AccessController;
-import java.security.PrivilegedAction;
+import java.security.PrivilegedActionException;
+import java.security.PrivilegedExceptionAction;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -35,33 +32,49 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 
 import org.apache.commons.codec.binary.Base64;
-import org.apache.commons.codec.binary.Base64OutputStream;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.codelibs.opensearch.configsync.ConfigSyncPlugin.PluginComponent;
 import org.codelibs.opensearch.configsync.action.ConfigFileFlushResponse;
 import org.codelibs.opensearch.configsync.action.ConfigResetSyncResponse;
+import org.codelibs.opensearch.configsync.cluster.ConfigSyncMetadata;
+import org.codelibs.opensearch.configsync.cluster.ConfigSyncMetadata.FileEntry;
+import org.codelibs.opensearch.configsync.cluster.ConfigSyncMigrationMetadata;
+import org.codelibs.opensearch.configsync.cluster.ConfigSyncReadyNodes;
+import org.codelibs.opensearch.configsync.service.StoreCoalescer.PendingStore;
 import org.opensearch.OpenSearchException;
+import org.opensearch.action.DocWriteResponse;
 import org.opensearch.action.admin.cluster.health.ClusterHealthResponse;
+import org.opensearch.action.admin.indices.alias.Alias;
+import org.opensearch.action.admin.indices.create.CreateIndexRequestBuilder;
+import org.opensearch.action.bulk.BulkItemResponse;
 import org.opensearch.action.bulk.BulkRequestBuilder;
-import org.opensearch.action.bulk.BulkResponse;
-import org.opensearch.action.delete.DeleteResponse;
-import org.opensearch.action.index.IndexResponse;
-import org.opensearch.action.search.SearchResponse;
 import org.opensearch.action.support.WriteRequest.RefreshPolicy;
 import org.opensearch.action.support.clustermanager.AcknowledgedResponse;
+import org.opensearch.cluster.ClusterChangedEvent;
 import org.opensearch.cluster.ClusterState;
+import org.opensearch.cluster.ClusterStateListener;
+import org.opensearch.cluster.ClusterStateObserver;
+import org.opensearch.cluster.ClusterStateTaskConfig;
+import org.opensearch.cluster.ClusterStateTaskListener;
 import org.opensearch.cluster.health.ClusterHealthStatus;
+import org.opensearch.cluster.metadata.IndexMetadata;
 import org.opensearch.cluster.node.DiscoveryNode;
-import org.opensearch.cluster.node.DiscoveryNodes;
 import org.opensearch.cluster.service.ClusterService;
+import org.opensearch.common.Priority;
 import org.opensearch.common.inject.Inject;
 import org.opensearch.common.io.Streams;
 import org.opensearch.common.lifecycle.AbstractLifecycleComponent;
@@ -71,18 +84,21 @@ import org.opensearch.common.settings.Setting.Property;
 import org.opensearch.common.settings.Settings;
 import org.opensearch.common.unit.TimeValue;
 import org.opensearch.common.xcontent.XContentFactory;
-import org.opensearch.common.xcontent.XContentType;
-import org.opensearch.common.xcontent.json.JsonXContent;
 import org.opensearch.core.action.ActionListener;
 import org.opensearch.core.action.ActionResponse;
 import org.opensearch.core.common.io.stream.StreamInput;
+import org.opensearch.core.common.io.stream.StreamOutput;
+import org.opensearch.core.common.unit.ByteSizeUnit;
+import org.opensearch.core.common.unit.ByteSizeValue;
+import org.opensearch.core.transport.TransportResponse;
 import org.opensearch.core.xcontent.XContentBuilder;
 import org.opensearch.env.Environment;
+import org.opensearch.gateway.GatewayService;
 import org.opensearch.index.IndexNotFoundException;
-import org.opensearch.index.query.QueryBuilder;
+import org.opensearch.index.analysis.AnalysisRegistry;
 import org.opensearch.index.query.QueryBuilders;
+import org.opensearch.indices.IndicesService;
 import org.opensearch.search.SearchHit;
-import org.opensearch.search.SearchHits;
 import org.opensearch.search.sort.SortOrder;
 import org.opensearch.tasks.Task;
 import org.opensearch.threadpool.Scheduler.ScheduledCancellable;
@@ -96,7 +112,7 @@ import org.opensearch.transport.TransportResponseHandler;
 import org.opensearch.transport.TransportService;
 import org.opensearch.transport.client.Client;
 
-public class ConfigSyncService extends AbstractLifecycleComponent {
+public class ConfigSyncService extends AbstractLifecycleComponent implements ClusterStateListener {
     private static final Logger logger = LogManager.getLogger(ConfigSyncService.class);
 
     public static final Setting<Boolean> FILE_UPDATER_ENABLED_SETTING =
@@ -118,10 +134,108 @@ public class ConfigSyncService extends AbstractLifecycleComponent {
     public static final Setting<String> XPACK_SECURITY_SETTING =
             new Setting<>("configsync.xpack.security.user", s -> "", ConfigSyncService::xpackSecurityToken, Property.NodeScope);
 
+    public static final Setting<Integer> APPLY_CONCURRENCY_SETTING =
+            Setting.intSetting("configsync.apply.concurrency", 4, 1, Property.NodeScope);
+
+    public static final Setting<Boolean> APPLY_VIRTUAL_THREADS_SETTING =
+            Setting.boolSetting("configsync.apply.virtual_threads", false, Property.NodeScope);
+
+    public static final Setting<Integer> PREFETCH_PAGES_SETTING =
+            Setting.intSetting("configsync.prefetch.pages", 1, 0, Property.NodeScope);
+
+    public static final Setting<ByteSizeValue> PREFETCH_MAX_BYTES_SETTING =
+            Setting.byteSizeSetting("configsync.prefetch.max_bytes", new ByteSizeValue(64, ByteSizeUnit.MB), Property.NodeScope);
+
+    public static final Setting<Integer> COLD_SYNC_SLICES_SETTING =
+            Setting.intSetting("configsync.cold_sync.slices", 4, 1, Property.NodeScope);
+
+    public static final Setting<Integer> COLD_SYNC_MIN_FILES_SETTING =
+            Setting.intSetting("configsync.cold_sync.min_files", 100, 0, Property.NodeScope);
+
+    public static final Setting<Boolean> ALLOCATION_WAIT_FOR_SYNC_SETTING =
+            Setting.boolSetting("configsync.allocation.wait_for_sync", true, Property.NodeScope);
+
+    public static final Setting<TimeValue> TOMBSTONE_RETENTION_SETTING =
+            Setting.positiveTimeSetting("configsync.tombstone.retention", TimeValue.timeValueDays(7), Property.NodeScope);
+
+    public static final Setting<TimeValue> TOMBSTONE_GC_INTERVAL_SETTING =
+            Setting.positiveTimeSetting("configsync.tombstone.gc_interval", TimeValue.timeValueHours(1), Property.NodeScope);
+
+    public static final Setting<TimeValue> MANIFEST_RECONCILE_INTERVAL_SETTING = Setting.timeSetting(
+            "configsync.manifest.reconcile_interval", TimeValue.timeValueMinutes(1), TimeValue.ZERO, Property.NodeScope);
+
+    public static final Setting<TimeValue> ANTI_ENTROPY_INTERVAL_SETTING = Setting.timeSetting("configsync.anti_entropy.interval",
+            TimeValue.timeValueMinutes(10), TimeValue.MINUS_ONE, Property.NodeScope);
+
+    public static final Setting<Boolean> WATCHER_ENABLED_SETTING =
+            Setting.boolSetting("configsync.watcher.enabled", false, Property.NodeScope);
+
+    public static final Setting<TimeValue> WATCHER_DELAY_SETTING =
+            Setting.positiveTimeSetting("configsync.watcher.delay", TimeValue.timeValueSeconds(1), Property.NodeScope);
+
+    public static final Setting<Boolean> PEER_TRANSFER_ENABLED_SETTING =
+            Setting.boolSetting("configsync.peer_transfer.enabled", true, Property.NodeScope);
+
+    public static final Setting<ByteSizeValue> PEER_TRANSFER_MIN_SIZE_SETTING =
+            Setting.byteSizeSetting("configsync.peer_transfer.min_size", new ByteSizeValue(1, ByteSizeUnit.MB), Property.NodeScope);
+
+    public static final Setting<ByteSizeValue> PEER_TRANSFER_CHUNK_SIZE_SETTING = Setting.byteSizeSetting(
+            "configsync.peer_transfer.chunk_size", new ByteSizeValue(512, ByteSizeUnit.KB), new ByteSizeValue(1, ByteSizeUnit.KB),
+            new ByteSizeValue(64, ByteSizeUnit.MB), Property.NodeScope);
+
+    public static final Setting<Boolean> BROADCAST_ENABLED_SETTING =
+            Setting.boolSetting("configsync.broadcast.enabled", false, Property.NodeScope);
+
+    public static final Setting<ByteSizeValue> BROADCAST_MAX_BYTES_SETTING =
+            Setting.byteSizeSetting("configsync.broadcast.max_bytes", new ByteSizeValue(10, ByteSizeUnit.MB), Property.NodeScope);
+
+    public static final Setting<Integer> BROADCAST_CONCURRENCY_SETTING =
+            Setting.intSetting("configsync.broadcast.concurrency", 5, 1, Property.NodeScope);
+
+    public static final Setting<RefreshPolicy> STORE_REFRESH_POLICY_SETTING =
+            new Setting<>("configsync.store.refresh_policy", "immediate", ConfigSyncService::parseRefreshPolicy, Property.NodeScope);
+
+    public static final Setting<TimeValue> STORE_REFRESH_INTERVAL_SETTING =
+            Setting.positiveTimeSetting("configsync.store.refresh_interval", TimeValue.timeValueSeconds(1), Property.NodeScope);
+
+    public static final Setting<TimeValue> STORE_COALESCE_WINDOW_SETTING = Setting.timeSetting("configsync.store.coalesce_window",
+            TimeValue.timeValueMillis(0), TimeValue.timeValueMillis(0), Property.NodeScope);
+
+    public static final Setting<ByteSizeValue> STORE_COALESCE_MAX_BYTES_SETTING =
+            Setting.byteSizeSetting("configsync.store.coalesce_max_bytes", new ByteSizeValue(10, ByteSizeUnit.MB), Property.NodeScope);
+
+    public static final Setting<Boolean> ANALYZER_RELOAD_ENABLED_SETTING =
+            Setting.boolSetting("configsync.analyzer_reload.enabled", true, Property.NodeScope);
+
+    public static final Setting<ByteSizeValue> THROTTLE_FETCH_RATE_SETTING = Setting.byteSizeSetting(
+            "configsync.throttle.fetch_bytes_per_sec", ByteSizeValue.ZERO, Property.NodeScope, Property.Dynamic);
+
+    public static final Setting<ByteSizeValue> THROTTLE_WRITE_RATE_SETTING = Setting.byteSizeSetting(
+            "configsync.throttle.write_bytes_per_sec", ByteSizeValue.ZERO, Property.NodeScope, Property.Dynamic);
+
+    public static final Setting<Integer> MIGRATION_SLICES_SETTING =
+            Setting.intSetting("configsync.migration.slices", 2, 1, Property.NodeScope);
+
+    public static final Setting<ByteSizeValue> MIGRATION_BULK_SIZE_SETTING =
+            Setting.byteSizeSetting("configsync.migration.bulk_size", new ByteSizeValue(5, ByteSizeUnit.MB), Property.NodeScope);
+
+    public static final String THREAD_POOL_NAME = "configsync";
+
+    // fetching and writing synced files, which may wait on the throttle
+    public static final String SYNC_THREAD_POOL_NAME = "configsync_sync";
+
     public static final String ACTION_CONFIG_FLUSH = "cluster:admin/configsync/flush";
 
     public static final String ACTION_CONFIG_RESET = "cluster:admin/configsync/reset_sync";
 
+    public static final String ACTION_CONFIG_GENERATION = "cluster:admin/configsync/generation";
+
+    public static final String ACTION_CONFIG_STATS = "cluster:admin/configsync/stats";
+
+    public static final String ACTION_CONFIG_MIGRATION = "cluster:admin/configsync/migration";
+
+    public static final String ACTION_CONFIG_NODE_READY = "cluster:admin/configsync/node_ready";
+
     private static final String FILE_MAPPING_JSON = "configsync/file_mapping.json";
 
     public static final String TIMESTAMP = "@timestamp";
@@ -130,6 +244,17 @@ public class ConfigSyncService extends AbstractLifecycleComponent {
 
     public static final String PATH = "path";
 
+    public static final String DELETED = "deleted";
+
+    public static final String NODES = "nodes";
+
+    public static final String HASH = "hash";
+
+    public static final String SIZE = "size";
+
+    // the config index is expanded to every node, so reads are served by the local copy when it is active
+    static final String LOCAL_PREFERENCE = "_local";
+
     private final Client client;
 
     private final String index;
@@ -142,7 +267,8 @@ public class ConfigSyncService extends AbstractLifecycleComponent {
 
     private final int sizeForUpdate;
 
-    private Date lastChecked = new Date(0);
+    // the time of the last incremental check, shared by the writers of concurrent syncs
+    private final AtomicLong lastChecked = new AtomicLong();
 
     private ConfigFileUpdater configFileUpdater;
 
@@ -158,6 +284,89 @@ public class ConfigSyncService extends AbstractLifecycleComponent {
 
     private final String authorizationToken;
 
+    private final GenerationUpdateExecutor generationUpdateExecutor = new GenerationUpdateExecutor();
+
+    private volatile long publishedGeneration = 0;
+
+    private volatile long syncedGeneration = -1;
+
+    private final LocalConfigFiles localConfigFiles;
+
+    private final AtomicBoolean rebuildingManifest = new AtomicBoolean(false);
+
+    private final int applyConcurrency;
+
+    private final ExecutorService virtualThreadExecutor;
+
+    private final ConfigFileApplier configFileApplier;
+
+    private final int prefetchPages;
+
+    private final long prefetchMaxBytes;
+
+    private final int coldSyncSlices;
+
+    private final int coldSyncMinFiles;
+
+    private final ConfigSyncStats stats = new ConfigSyncStats();
+
+    private final LegacyIndexMigrator migrator;
+
+    private final IndexLayoutMigrator layoutMigrator;
+
+    private final TombstoneCollector tombstoneCollector;
+
+    private final ManifestReconciler manifestReconciler;
+
+    private final TimeValue antiEntropyInterval;
+
+    private long lastAntiEntropyCheck;
+
+    private final ConfigFileWatcher configFileWatcher;
+
+    private final SyncThrottle syncThrottle;
+
+    private final PeerFileTransfer peerFileTransfer;
+
+    private final boolean peerTransferEnabled;
+
+    private final ChangeBroadcaster changeBroadcaster;
+
+    private final boolean broadcastEnabled;
+
+    // shards that may need synced files are kept off this node until it is set
+    private volatile boolean initialSyncDone;
+
+    private final boolean waitForSync;
+
+    private final AtomicBoolean reportingReady = new AtomicBoolean(false);
+
+    private final NodeReadyExecutor nodeReadyExecutor = new NodeReadyExecutor();
+
+    private final RefreshPolicy storeRefreshPolicy;
+
+    private final TimeValue storeRefreshInterval;
+
+    private final AtomicBoolean refreshScheduled = new AtomicBoolean(false);
+
+    private final StoreCoalescer storeCoalescer;
+
+    private final AnalyzerReloader analyzerReloader;
+
+    static RefreshPolicy parseRefreshPolicy(final String value) {
+        switch (value) {
+        case "immediate":
+            return RefreshPolicy.IMMEDIATE;
+        case "wait_for":
+            return RefreshPolicy.WAIT_UNTIL;
+        case "none":
+            return RefreshPolicy.NONE;
+        default:
+            throw new IllegalArgumentException("Unknown value for [configsync.store.refresh_policy]: [" + value
+                    + "]. Must be one of [immediate, wait_for, none].");
+        }
+    }
+
     private static String xpackSecurityToken(final String s) {
         if (s == null || s.trim().length() == 0) {
             return "";
@@ -169,7 +378,7 @@ public class ConfigSyncService extends AbstractLifecycleComponent {
     @Inject
     public ConfigSyncService(final Settings settings, final Client client, final ClusterService clusterService,
             final TransportService transportService, final Environment env, final ThreadPool threadPool,
-            final PluginComponent pluginComponent) {
+            final IndicesService indicesService, final AnalysisRegistry analysisRegistry, final PluginComponent pluginComponent) {
         this.client = client;
         this.clusterService = clusterService;
         this.transportService = transportService;
@@ -189,11 +398,81 @@ public class ConfigSyncService extends AbstractLifecycleComponent {
         fileUpdaterEnabled = FILE_UPDATER_ENABLED_SETTING.get(settings);
         flushInterval = FLUSH_INTERVAL_SETTING.get(settings);
         authorizationToken = XPACK_SECURITY_SETTING.get(settings);
-
-        transportService.registerRequestHandler(ACTION_CONFIG_FLUSH, ThreadPool.Names.GENERIC, FileFlushRequest::new,
+        localConfigFiles = new LocalConfigFiles(configPath);
+        applyConcurrency = APPLY_CONCURRENCY_SETTING.get(settings);
+        prefetchPages = PREFETCH_PAGES_SETTING.get(settings);
+        prefetchMaxBytes = PREFETCH_MAX_BYTES_SETTING.get(settings).getBytes();
+        coldSyncSlices = COLD_SYNC_SLICES_SETTING.get(settings);
+        coldSyncMinFiles = COLD_SYNC_MIN_FILES_SETTING.get(settings);
+        antiEntropyInterval = ANTI_ENTROPY_INTERVAL_SETTING.get(settings);
+        syncThrottle = new SyncThrottle(THROTTLE_FETCH_RATE_SETTING.get(settings), THROTTLE_WRITE_RATE_SETTING.get(settings), stats);
+        clusterService.getClusterSettings().addSettingsUpdateConsumer(THROTTLE_FETCH_RATE_SETTING, syncThrottle::setFetchRate);
+        clusterService.getClusterSettings().addSettingsUpdateConsumer(THROTTLE_WRITE_RATE_SETTING, syncThrottle::setWriteRate);
+        // every node answers chunk requests, so a peer without the file replies instead of failing
+        peerFileTransfer = new PeerFileTransfer(transportService, clusterService, localConfigFiles, stats, syncThrottle,
+                PEER_TRANSFER_MIN_SIZE_SETTING.get(settings).getBytes(), (int) PEER_TRANSFER_CHUNK_SIZE_SETTING.get(settings).getBytes());
+        peerTransferEnabled = PEER_TRANSFER_ENABLED_SETTING.get(settings);
+        // every node applies pushed batches; the elected cluster-manager sends them if broadcasting is enabled on it
+        changeBroadcaster = new ChangeBroadcaster(this::client, clusterService, transportService, threadPool, localConfigFiles, stats,
+                syncThrottle, index, BROADCAST_MAX_BYTES_SETTING.get(settings).getBytes(), BROADCAST_CONCURRENCY_SETTING.get(settings),
+                () -> configFileUpdater != null, this::onBatchApplied, this::reloadAnalyzers);
+        broadcastEnabled = BROADCAST_ENABLED_SETTING.get(settings);
+        storeRefreshPolicy = STORE_REFRESH_POLICY_SETTING.get(settings);
+        storeRefreshInterval = STORE_REFRESH_INTERVAL_SETTING.get(settings);
+        final TimeValue coalesceWindow = STORE_COALESCE_WINDOW_SETTING.get(settings);
+        if (coalesceWindow.millis() > 0) {
+            storeCoalescer = new StoreCoalescer(threadPool, coalesceWindow, STORE_COALESCE_MAX_BYTES_SETTING.get(settings).getBytes(), stats,
+                    this::writeStores);
+        } else {
+            storeCoalescer = null;
+        }
+        if (ANALYZER_RELOAD_ENABLED_SETTING.get(settings)) {
+            analyzerReloader = new AnalyzerReloader(indicesService, analysisRegistry, localConfigFiles, env.configDir(), stats);
+        } else {
+            analyzerReloader = null;
+        }
+        if (fileUpdaterEnabled && WATCHER_ENABLED_SETTING.get(settings)) {
+            configFileWatcher = new ConfigFileWatcher(Paths.get(configPath), localConfigFiles::resolve, threadPool,
+                    WATCHER_DELAY_SETTING.get(settings), this::restoreChangedFiles);
+        } else {
+            configFileWatcher = null;
+        }
+        waitForSync = fileUpdaterEnabled && ALLOCATION_WAIT_FOR_SYNC_SETTING.get(settings);
+        initialSyncDone = !waitForSync;
+        if (APPLY_VIRTUAL_THREADS_SETTING.get(settings)) {
+            virtualThreadExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("configsync[apply]-", 0).factory());
+        } else {
+            virtualThreadExecutor = null;
+        }
+        configFileApplier = new ConfigFileApplier(clusterService, threadPool, localConfigFiles, stats, syncThrottle, applyConcurrency,
+                virtualThreadExecutor);
+        final long migrationBulkBytes = MIGRATION_BULK_SIZE_SETTING.get(settings).getBytes();
+        migrator = new LegacyIndexMigrator(this::client, clusterService, threadPool, index, MIGRATION_SLICES_SETTING.get(settings),
+                migrationBulkBytes, this::invalidateManifest);
+        layoutMigrator = new IndexLayoutMigrator(this::client, clusterService, threadPool, index, migrationBulkBytes,
+                this::invalidateManifest);
+        tombstoneCollector = new TombstoneCollector(this::client, clusterService, threadPool, index, TOMBSTONE_RETENTION_SETTING.get(settings),
+                TOMBSTONE_GC_INTERVAL_SETTING.get(settings), this::ackedGeneration,
+                (purges, listener) -> updateManifest(GenerationUpdateRequest.purge(purges), listener));
+        manifestReconciler = new ManifestReconciler(this::client, clusterService, threadPool, index, scrollForUpdate,
+                MANIFEST_RECONCILE_INTERVAL_SETTING.get(settings), this::updateManifest);
+
+        transportService.registerRequestHandler(ACTION_CONFIG_FLUSH, THREAD_POOL_NAME, FileFlushRequest::new,
                 new ConfigFileFlushRequestHandler());
-        transportService.registerRequestHandler(ACTION_CONFIG_RESET, ThreadPool.Names.GENERIC, ResetSyncRequest::new,
+        transportService.registerRequestHandler(ACTION_CONFIG_RESET, THREAD_POOL_NAME, ResetSyncRequest::new,
                 new ConfigSyncResetRequestHandler());
+        transportService.registerRequestHandler(ACTION_CONFIG_GENERATION, ThreadPool.Names.GENERIC, GenerationUpdateRequest::new,
+                new ConfigGenerationUpdateRequestHandler());
+        transportService.registerRequestHandler(ACTION_CONFIG_STATS, ThreadPool.Names.GENERIC, NodeStatsRequest::new,
+                new ConfigSyncStatsRequestHandler());
+        transportService.registerRequestHandler(ACTION_CONFIG_MIGRATION, ThreadPool.Names.GENERIC, MigrationRequest::new,
+                new ConfigMigrationRequestHandler());
+        transportService.registerRequestHandler(ACTION_CONFIG_NODE_READY, ThreadPool.Names.GENERIC, NodeReadyRequest::new,
+                new ConfigNodeReadyRequestHandler());
+        transportService.registerRequestHandler(PeerFileTransfer.ACTION_FILE_CHUNK, THREAD_POOL_NAME, PeerFileTransfer.FileChunkRequest::new,
+                peerFileTransfer);
+        transportService.registerRequestHandler(ChangeBroadcaster.ACTION_CHANGE_BATCH, SYNC_THREAD_POOL_NAME,
+                ChangeBroadcaster.ChangeBatchRequest::new, changeBroadcaster);
 
         pluginComponent.setConfigSyncService(this);
     }
@@ -219,7 +498,7 @@ public class ConfigSyncService extends AbstractLifecycleComponent {
                 logger.debug("ConfigFileUpdater is not scheduled.");
             }
         } else {
-            scheduledCancellable = threadPool.schedule(configFileUpdater, interval, Names.SAME);
+            scheduledCancellable = threadPool.schedule(configFileUpdater, interval, THREAD_POOL_NAME);
             if (logger.isDebugEnabled()) {
                 logger.debug("Scheduled ConfigFileUpdater with {}", interval);
             }
@@ -227,12 +506,177 @@ public class ConfigSyncService extends AbstractLifecycleComponent {
         return interval;
     }
 
+    @Override
+    public void clusterChanged(final ClusterChangedEvent event) {
+        // the config index cannot be searched until the cluster state is recovered
+        if (event.localNodeClusterManager() && !ConfigSyncMetadata.get(event.state()).isComplete()
+                && !event.state().blocks().hasGlobalBlock(GatewayService.STATE_NOT_RECOVERED_BLOCK)
+                && rebuildingManifest.compareAndSet(false, true)) {
+            threadPool.generic().execute(this::rebuildManifest);
+        }
+        if (event.localNodeClusterManager() && !event.previousState().nodes().isLocalNodeElectedClusterManager()
+                && ConfigSyncMigrationMetadata.get(event.state()) != null) {
+            // a migration left unfinished by the previous cluster-manager resumes from its checkpoint
+            threadPool.generic().execute(() -> migrator.start(false));
+        }
+        if (event.localNodeClusterManager() && !event.previousState().nodes().isLocalNodeElectedClusterManager()) {
+            threadPool.generic().execute(layoutMigrator::start);
+            tombstoneCollector.start();
+            manifestReconciler.start();
+        }
+        if (broadcastEnabled && event.localNodeClusterManager() && event.metadataChanged()) {
+            final ConfigSyncMetadata previous = ConfigSyncMetadata.get(event.previousState());
+            final ConfigSyncMetadata current = ConfigSyncMetadata.get(event.state());
+            if (current.getGeneration() != previous.getGeneration()) {
+                threadPool.generic().execute(() -> changeBroadcaster.broadcast(previous, current));
+            }
+        }
+        if (event.localNodeClusterManager() && event.nodesRemoved()) {
+            // an empty request drops the nodes that left, so they sync again when they rejoin
+            submitNodeReady(new NodeReadyRequest((String) null), wrap(r -> {}, e -> logger.warn("Failed to update ready nodes.", e)));
+        }
+        if (waitForSync && configFileUpdater != null && event.state().nodes().getClusterManagerNodeId() == null
+                && event.previousState().nodes().getClusterManagerNodeId() != null) {
+            // the node is dropped from the ready nodes once it leaves, so it reports again after the sync on rejoining
+            initialSyncDone = false;
+        }
+        if (configFileUpdater != null && event.state().nodes().getClusterManagerNodeId() != null
+                && event.previousState().nodes().getClusterManagerNodeId() == null) {
+            // a node that (re)joins may have missed changes and flushes while it was away, so it does not wait for the next interval
+            threadPool.generic().execute(this::syncAfterJoin);
+        }
+        reportReadyIfNeeded(event.state());
+        if (!event.metadataChanged()) {
+            return;
+        }
+        final long generation = ConfigSyncMetadata.get(event.state()).getGeneration();
+        if (generation != publishedGeneration) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Config generation is changed: {} -> {}", publishedGeneration, generation);
+            }
+            publishedGeneration = generation;
+        }
+    }
+
+    private void syncAfterJoin() {
+        final long generation = publishedGeneration;
+        logger.info("Joined the cluster. Syncing outdated config files.");
+        stats.onJoinSync();
+        newConfigFileWriter(false).execute(wrap(response -> {
+            markSynced(generation);
+            onJoinSyncDone();
+        }, e -> {
+            logger.warn("Failed to sync config files after joining the cluster.", e);
+            onJoinSyncDone();
+        }));
+    }
+
+    private void onJoinSyncDone() {
+        initialSyncDone = true;
+        reportReadyIfNeeded(clusterService.state());
+    }
+
+    /**
+     * Records the generation the local files are synced to, and watches the synced files if the watcher is enabled.
+     */
+    private void markSynced(final long generation) {
+        syncedGeneration = generation;
+        watchSyncedFiles();
+    }
+
+    /**
+     * Moves to the generation of a pushed batch if this node was synced to the generation before it,
+     * so the updater does not compare the files again.
+     */
+    private void onBatchApplied(final long previousGeneration, final long generation) {
+        if (syncedGeneration == previousGeneration) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Synced to generation {} by a pushed batch.", generation);
+            }
+            markSynced(generation);
+        }
+    }
+
+    /**
+     * Reloads the analyzers that use the files written since the last call, so a sync reloads each index at most once.
+     */
+    private void reloadAnalyzers() {
+        final Set<String> paths = localConfigFiles.drainChangedPaths();
+        if (analyzerReloader == null || paths.isEmpty()) {
+            return;
+        }
+        threadPool.executor(THREAD_POOL_NAME).execute(() -> analyzerReloader.reload(paths));
+    }
+
+    private ConfigFileWriter newConfigFileWriter(final boolean initialSync) {
+        return new ConfigFileWriter(this::client, clusterService, index, localConfigFiles, configFileApplier,
+                peerTransferEnabled ? peerFileTransfer : null, stats, syncThrottle, scrollForUpdate, sizeForUpdate, prefetchPages,
+                prefetchMaxBytes, coldSyncSlices, coldSyncMinFiles, lastChecked, this::reloadAnalyzers, initialSync);
+    }
+
+    private void watchSyncedFiles() {
+        if (configFileWatcher == null) {
+            return;
+        }
+        final ConfigSyncMetadata metadata = ConfigSyncMetadata.get(clusterService.state());
+        if (!metadata.isComplete()) {
+            return;
+        }
+        try {
+            AccessController.doPrivileged((PrivilegedExceptionAction<Void>) () -> {
+                configFileWatcher.watch(localFiles(metadata).keySet());
+                return null;
+            });
+        } catch (final PrivilegedActionException e) {
+            logger.warn("Failed to watch the config files.", e.getException());
+        }
+    }
+
+    /**
+     * Fetches the synced files the watcher has seen changed, unless they are still current
+     * (the node's own writes are reported as well).
+     */
+    private void restoreChangedFiles(final Set<String> paths) {
+        final ConfigSyncMetadata metadata = ConfigSyncMetadata.get(clusterService.state());
+        if (!metadata.isComplete()) {
+            // the updater syncs by timestamp until the manifest is rebuilt
+            return;
+        }
+        final Map<String, FileEntry> files = localFiles(metadata);
+        final List<String> outdatedPaths = new ArrayList<>();
+        try {
+            AccessController.doPrivileged((PrivilegedExceptionAction<Void>) () -> {
+                for (final String path : paths) {
+                    final FileEntry entry = files.get(path);
+                    if (entry != null && !localConfigFiles.isCurrent(path, entry)) {
+                        outdatedPaths.add(path);
+                    }
+                }
+                return null;
+            });
+        } catch (final PrivilegedActionException e) {
+            logger.warn("Failed to check the changed config files.", e.getException());
+            return;
+        }
+        if (outdatedPaths.isEmpty()) {
+            return;
+        }
+        stats.onDrifted(outdatedPaths.size());
+        logger.warn("{} config files are changed locally. Restoring {}", outdatedPaths.size(),
+                outdatedPaths.size() > 10 ? outdatedPaths.subList(0, 10) + "..." : outdatedPaths);
+        // a restored directory is watched again
+        newConfigFileWriter(false).execute(outdatedPaths, wrap(response -> watchSyncedFiles(),
+                e -> logger.warn("Failed to restore the changed config files.", e)));
+    }
+
     @Override
     protected void doStart() {
         if (logger.isDebugEnabled()) {
             logger.debug("Starting ConfigSyncService");
         }
 
+        clusterService.addListener(this);
+
         if (fileUpdaterEnabled) {
             clusterService.addLifecycleListener(new LifecycleListener() {
                 @Override
@@ -244,25 +688,127 @@ public class ConfigSyncService extends AbstractLifecycleComponent {
     }
 
     private void waitForClusterReady() {
-        client.admin().cluster().prepareHealth().setWaitForGreenStatus().execute(wrap(res -> {
-            if (res.isTimedOut()) {
-                logger.warn("Cluster service was timeouted.");
-            }
-            checkIfIndexExists(wrap(response -> {
-                final TimeValue time = startUpdater();
-                if (time.millis() >= 0) {
-                    logger.info("ConfigFileUpdater is started at {} intervals.", time);
+        final ClusterState state = clusterService.state();
+        if (state.blocks().hasGlobalBlock(GatewayService.STATE_NOT_RECOVERED_BLOCK)) {
+            // the config index is neither looked up nor created before the cluster state is recovered
+            new ClusterStateObserver(state, clusterService, null, logger, threadPool.getThreadContext())
+                    .waitForNextChange(new ClusterStateObserver.Listener() {
+                        @Override
+                        public void onNewClusterState(final ClusterState state) {
+                            threadPool.generic().execute(ConfigSyncService.this::waitForClusterReady);
+                        }
+
+                        @Override
+                        public void onClusterServiceClose() {
+                            // the node is shutting down
+                        }
+
+                        @Override
+                        public void onTimeout(final TimeValue timeout) {
+                            threadPool.generic().execute(ConfigSyncService.this::waitForClusterReady);
+                        }
+                    }, s -> !s.blocks().hasGlobalBlock(GatewayService.STATE_NOT_RECOVERED_BLOCK));
+            return;
+        }
+        checkIfIndexExists(wrap(response -> {
+            // the initial sync only needs a copy of the config index, not the whole cluster to be green
+            client.admin().cluster().prepareHealth(index).setWaitForYellowStatus().execute(wrap(res -> {
+                if (res.isTimedOut()) {
+                    logger.warn("{} is not available yet.", index);
                 }
+                layoutMigrator.start();
+                runInitialSync();
             }, e -> {
-                logger.warn("Could not create {}. Retrying to start it.", index, e);
+                logger.warn("Could not start ConfigFileUpdater. Retrying to start it.", e);
                 threadPool.schedule(() -> waitForClusterReady(), TimeValue.timeValueSeconds(15), Names.GENERIC);
             }));
         }, e -> {
-            logger.warn("Could not start ConfigFileUpdater. Retrying to start it.", e);
+            logger.warn("Could not create {}. Retrying to start it.", index, e);
             threadPool.schedule(() -> waitForClusterReady(), TimeValue.timeValueSeconds(15), Names.GENERIC);
         }));
     }
 
+    /**
+     * Writes every outdated file with sliced, parallel fetches, reports the node ready for shards
+     * that may need the files, and then schedules the updater.
+     */
+    private void runInitialSync() {
+        final long generation = publishedGeneration;
+        final long startTime = System.nanoTime();
+        newConfigFileWriter(true).execute(wrap(response -> {
+            markSynced(generation);
+            logger.info("Initial config sync is finished in {}.", TimeValue.timeValueNanos(System.nanoTime() - startTime));
+            onInitialSyncDone();
+        }, e -> {
+            // shards are not held back indefinitely; the updater retries the sync
+            logger.warn("Failed to run the initial config sync.", e);
+            onInitialSyncDone();
+        }));
+    }
+
+    private void onInitialSyncDone() {
+        initialSyncDone = true;
+        reportReadyIfNeeded(clusterService.state());
+        final TimeValue time = startUpdater();
+        if (time.millis() >= 0) {
+            logger.info("ConfigFileUpdater is started at {} intervals.", time);
+        }
+    }
+
+    private void reportReadyIfNeeded(final ClusterState state) {
+        final DiscoveryNode localNode = state.nodes().getLocalNode();
+        final DiscoveryNode clusterManagerNode = state.nodes().getClusterManagerNode();
+        if (!initialSyncDone || localNode == null || clusterManagerNode == null
+                || ConfigSyncReadyNodes.get(state).isReady(localNode.getId()) || !reportingReady.compareAndSet(false, true)) {
+            return;
+        }
+        transportService.sendRequest(clusterManagerNode, ACTION_CONFIG_NODE_READY, new NodeReadyRequest(localNode.getId()),
+                new TransportResponseHandler<NodeReadyResponse>() {
+
+                    @Override
+                    public NodeReadyResponse read(StreamInput in) throws IOException {
+                        return new NodeReadyResponse(in);
+                    }
+
+                    @Override
+                    public void handleResponse(final NodeReadyResponse response) {
+                        reportingReady.set(false);
+                        if (logger.isDebugEnabled()) {
+                            logger.debug("Reported {} as ready.", localNode.getId());
+                        }
+                    }
+
+                    @Override
+                    public void handleException(final TransportException exp) {
+                        reportingReady.set(false);
+                        logger.warn("Failed to report the initial config sync. Retrying to report it.", exp);
+                        threadPool.schedule(() -> reportReadyIfNeeded(clusterService.state()), TimeValue.timeValueSeconds(1),
+                                Names.GENERIC);
+                    }
+
+                    @Override
+                    public String executor() {
+                        return ThreadPool.Names.GENERIC;
+                    }
+                });
+    }
+
+    private void submitNodeReady(final NodeReadyRequest request, final ActionListener<ClusterState> listener) {
+        clusterService.submitStateUpdateTask("configsync-node-ready", request, ClusterStateTaskConfig.build(Priority.NORMAL),
+                nodeReadyExecutor, new ClusterStateTaskListener() {
+
+                    @Override
+                    public void onFailure(final String source, final Exception e) {
+                        listener.onFailure(e);
+                    }
+
+                    @Override
+                    public void clusterStateProcessed(final String source, final ClusterState oldState, final ClusterState newState) {
+                        listener.onResponse(newState);
+                    }
+                });
+    }
+
     private void checkIfIndexExists(final ActionListener<ActionResponse> listener) {
         client().admin().indices().prepareExists(index).execute(wrap(response -> {
             if (response.isExists()) {
@@ -283,6 +829,19 @@ public class ConfigSyncService extends AbstractLifecycleComponent {
     }
 
     private void createIndex(final ActionListener<ActionResponse> listener) {
+        try {
+            // the config index is an alias, so that the layout of the backing index can be migrated online
+            prepareCreateIndex(client(), IndexLayoutMigrator.backingIndex(index, IndexLayoutMigrator.LAYOUT_VERSION))
+                    .addAlias(new Alias(index)).execute(wrap(response -> waitForIndex(listener), listener::onFailure));
+        } catch (final IOException e) {
+            listener.onFailure(e);
+        }
+    }
+
+    /**
+     * Prepares the creation of a backing index of the config index with the current layout.
+     */
+    static CreateIndexRequestBuilder prepareCreateIndex(final Client client, final String name) throws IOException {
         try (final Reader in = new InputStreamReader(ConfigSyncService.class.getClassLoader().getResourceAsStream(FILE_MAPPING_JSON),
                 StandardCharsets.UTF_8)) {
             final String source = Streams.copyToString(in);
@@ -294,118 +853,240 @@ public class ConfigSyncService extends AbstractLifecycleComponent {
                     .field("auto_expand_replicas", "0-all")//
                     .endObject()//
                     .endObject();
-            client().admin().indices().prepareCreate(index).setSettings(settingsBuilder)
-                    .setMapping(source)
-                    .execute(wrap(response -> waitForIndex(listener), listener::onFailure));
-        } catch (final IOException e) {
-            listener.onFailure(e);
+            return client.admin().indices().prepareCreate(name).setSettings(settingsBuilder).setMapping(source);
         }
     }
 
     private void waitForIndex(final ActionListener<ActionResponse> listener) {
         client.admin().cluster().prepareHealth(index).setWaitForYellowStatus().execute(wrap(response -> {
             listener.onResponse(response);
-            migrateFromOldIndex();
+            startMigration(wrap(res -> {}, e -> logger.warn("Failed to start the migration from {}.", LegacyIndexMigrator.LEGACY_INDEX, e)));
         }, listener::onFailure));
     }
 
-    private void migrateFromOldIndex() {
-        final String oldIndex = ".configsync";
-        client().admin().indices().prepareExists(oldIndex).execute(wrap(response -> {
-            if (response.isExists()) {
-                if (logger.isDebugEnabled()) {
-                    logger.debug("{} exists.", oldIndex);
-                }
-                copyIndex(client(), oldIndex, index);
-            } else {
-                if (logger.isDebugEnabled()) {
-                    logger.debug("{} does not exist.", oldIndex);
-                }
-            }
-        }, e -> {
-            if (e instanceof IndexNotFoundException) {
-                if (logger.isDebugEnabled()) {
-                    logger.debug("{} does not exist.", oldIndex);
-                }
-            } else {
-                logger.debug("Failed to check if {} exists.", oldIndex, e);
+    @Override
+    protected void doStop() {
+        clusterService.removeListener(this);
+        if (configFileUpdater != null) {
+            configFileUpdater.terminate();
+        }
+        if (storeCoalescer != null) {
+            storeCoalescer.flush();
+        }
+    }
+
+    @Override
+    protected void doClose() {
+        if (configFileWatcher != null) {
+            try {
+                configFileWatcher.close();
+            } catch (final IOException e) {
+                logger.warn("Failed to close the config file watcher.", e);
             }
-        }));
+        }
+        if (virtualThreadExecutor != null) {
+            virtualThreadExecutor.shutdown();
+        }
     }
 
-    private static void copyIndex(final Client client, final String oldIndex, final String newIndex) {
-        logger.info("Copy from {} to {}", oldIndex, newIndex);
-        final String timeout = "1m";
-        final int scrollSize = 100;
-        SearchResponse searchResponse = client.prepareSearch(oldIndex).setScroll(timeout).setSize(scrollSize)
-                .setQuery(QueryBuilders.matchAllQuery()).execute().actionGet(timeout);
-        String scrollId = searchResponse.getScrollId();
+    /**
+     * Stores the content of the path. Content identical to the stored one is not written again, and the listener
+     * receives {@link DocWriteResponse.Result#NOOP}.
+     *
+     * @param nodes the {@link NodeSelector} of the nodes that sync the file, or null for every node
+     */
+    public void store(final String path, final byte[] contentArray, final String nodes,
+            final ActionListener<DocWriteResponse.Result> listener) {
         try {
-            while (scrollId != null) {
-                final SearchHits searchHits = searchResponse.getHits();
-                final SearchHit[] hits = searchHits.getHits();
-                if (hits.length == 0) {
-                    break;
-                }
-
-                final BulkRequestBuilder bulkRequest = client.prepareBulk();
-                for (final SearchHit hit : hits) {
-                    bulkRequest.add(
-                            client.prepareIndex().setIndex(newIndex).setId(hit.getId()).setSource(hit.getSourceRef(), XContentType.JSON));
-                    logger.info("Copying id:{}", hit.getId());
-                }
-
-                BulkResponse bulkResponse = bulkRequest.execute().actionGet(timeout);
-                if (bulkResponse.hasFailures()) {
-                    logger.warn(bulkResponse.buildFailureMessage());
+            NodeSelector.resolve(nodes, clusterService.state().nodes());
+        } catch (final IllegalArgumentException e) {
+            listener.onFailure(e);
+            return;
+        }
+        checkIfIndexExists(wrap(response -> {
+            final FileEntry entry = new FileEntry(LocalConfigFiles.hash(contentArray), contentArray.length, 0L).withNodes(nodes);
+            // a buffered write of the path will replace the stored content, so it is not compared
+            if (storeCoalescer != null && storeCoalescer.isPending(path)) {
+                storeCoalescer.store(path, contentArray, entry.getNodes(), listener);
+                return;
+            }
+            isStored(path, entry, wrap(stored -> {
+                if (stored) {
+                    stats.onStoreNoop();
+                    listener.onResponse(DocWriteResponse.Result.NOOP);
+                } else if (storeCoalescer != null) {
+                    storeCoalescer.store(path, contentArray, entry.getNodes(), listener);
+                } else {
+                    write(path, contentArray, entry, listener);
                 }
+            }, listener::onFailure));
+        }, listener::onFailure));
+    }
 
-                searchResponse = client.prepareSearchScroll(scrollId).setScroll(timeout).execute().actionGet(timeout);
-                scrollId = searchResponse.getScrollId();
-            }
-        } catch (Exception e) {
-            logger.warn("Failed to copy from {} to {}.", oldIndex, newIndex, e);
-        } finally {
-            if (scrollId != null) {
-                client.prepareClearScroll().addScrollId(scrollId)
-                        .execute(wrap(res -> {}, e -> logger.warn("Failed to clear the scroll context.", e)));
-            }
+    /**
+     * Checks if the path holds the content of the entry: in the manifest if it is complete, in the document otherwise.
+     */
+    private void isStored(final String path, final FileEntry entry, final ActionListener<Boolean> listener) {
+        final ConfigSyncMetadata metadata = ConfigSyncMetadata.get(clusterService.state());
+        if (metadata.isComplete()) {
+            final FileEntry current = metadata.getFiles().get(path);
+            listener.onResponse(current != null && !current.isDeleted() && current.getSize() == entry.getSize()
+                    && current.getHash().equals(entry.getHash()) && Objects.equals(current.getNodes(), entry.getNodes()));
+            return;
         }
+        client().prepareGet(index, getId(path)).execute(wrap(res -> {
+            if (!res.isExists() || Boolean.TRUE.equals(res.getSource().get(DELETED))
+                    || res.getSource().get(HASH) == null && res.getSource().get(CONTENT) == null) {
+                listener.onResponse(false);
+                return;
+            }
+            final FileEntry current = getFileEntry(res.getSource());
+            listener.onResponse(current.getSize() == entry.getSize() && current.getHash().equals(entry.getHash())
+                    && Objects.equals(current.getNodes(), entry.getNodes()));
+        }, listener::onFailure));
     }
 
-    @Override
-    protected void doStop() {
-        if (configFileUpdater != null) {
-            configFileUpdater.terminate();
+    /**
+     * Returns the manifest entry of a document source, hashing its content if it was stored without a hash.
+     */
+    static FileEntry getFileEntry(final Map<String, Object> source) {
+        if (Boolean.TRUE.equals(source.get(DELETED))) {
+            return FileEntry.tombstone(0L);
+        }
+        if (source.get(HASH) instanceof String hash && source.get(SIZE) instanceof Number size) {
+            return new FileEntry(hash, size.longValue(), 0L).withNodes((String) source.get(NODES));
         }
+        final byte[] content = ConfigFileSource.decodeContent(source.get(CONTENT));
+        return new FileEntry(LocalConfigFiles.hash(content), content.length, 0L).withNodes((String) source.get(NODES));
     }
 
-    @Override
-    protected void doClose() {
+    private void write(final String path, final byte[] contentArray, final FileEntry entry,
+            final ActionListener<DocWriteResponse.Result> listener) {
+        try {
+            final String id = getId(path);
+            final XContentBuilder builder = sourceBuilder();
+            builder.startObject();
+            builder.field(PATH, path);
+            builder.field(CONTENT, contentArray);
+            builder.field(HASH, entry.getHash());
+            builder.field(SIZE, entry.getSize());
+            if (entry.getNodes() != null) {
+                builder.field(NODES, entry.getNodes());
+            }
+            builder.field(TIMESTAMP, new Date());
+            builder.endObject();
+            final RefreshPolicy refreshPolicy = refreshPolicy();
+            client().prepareIndex(index).setId(id).setSource(builder).setRefreshPolicy(refreshPolicy)
+                    .execute(wrap(res -> recordWrites(
+                            GenerationUpdateRequest.written(path, entry.withSeqNo(res.getSeqNo()), res.getShardId().getIndex().getUUID()),
+                            () -> {
+                                scheduleRefreshIfNeeded(refreshPolicy);
+                                listener.onResponse(res.getResult());
+                            }), listener::onFailure));
+        } catch (final IOException e) {
+            listener.onFailure(new OpenSearchException("Failed to register " + path, e));
+        }
     }
 
-    public void store(final String path, final byte[] contentArray, final ActionListener<IndexResponse> listener) {
-        checkIfIndexExists(wrap(response -> {
-            try {
-                final String id = getId(path);
-                final XContentBuilder builder = JsonXContent.contentBuilder();
+    /**
+     * Writes stores buffered by the {@link StoreCoalescer} in one bulk request, followed by one manifest update.
+     */
+    private void writeStores(final Map<String, PendingStore> stores) {
+        final List<Map.Entry<String, PendingStore>> entries = new ArrayList<>(stores.entrySet());
+        try {
+            final RefreshPolicy refreshPolicy = refreshPolicy();
+            final BulkRequestBuilder bulk = client().prepareBulk().setRefreshPolicy(refreshPolicy);
+            final Date timestamp = new Date();
+            final Map<String, FileEntry> fileEntries = new HashMap<>();
+            for (final Map.Entry<String, PendingStore> entry : entries) {
+                final XContentBuilder builder = sourceBuilder();
                 builder.startObject();
-                builder.field(PATH, path);
-                builder.field(CONTENT, contentArray);
-                builder.field(TIMESTAMP, new Date());
+                builder.field(PATH, entry.getKey());
+                if (entry.getValue().isDeleted()) {
+                    builder.field(DELETED, true);
+                } else {
+                    final byte[] content = entry.getValue().getContent();
+                    final FileEntry fileEntry =
+                            new FileEntry(LocalConfigFiles.hash(content), content.length, 0L).withNodes(entry.getValue().getNodes());
+                    fileEntries.put(entry.getKey(), fileEntry);
+                    builder.field(CONTENT, content);
+                    builder.field(HASH, fileEntry.getHash());
+                    builder.field(SIZE, fileEntry.getSize());
+                    if (entry.getValue().getNodes() != null) {
+                        builder.field(NODES, entry.getValue().getNodes());
+                    }
+                }
+                builder.field(TIMESTAMP, timestamp);
                 builder.endObject();
-                client().prepareIndex(index).setId(id).setSource(builder).setRefreshPolicy(RefreshPolicy.IMMEDIATE).execute(listener);
-            } catch (final IOException e) {
-                throw new OpenSearchException("Failed to register " + path, e);
+                bulk.add(client().prepareIndex(index).setId(getId(entry.getKey())).setSource(builder));
             }
-        }, listener::onFailure));
+            stats.onStoreBatch();
+            bulk.execute(wrap(bulkResponse -> {
+                final BulkItemResponse[] items = bulkResponse.getItems();
+                final Map<String, FileEntry> files = new HashMap<>();
+                String indexUuid = null;
+                for (int i = 0; i < items.length; i++) {
+                    if (!items[i].isFailed()) {
+                        final String path = entries.get(i).getKey();
+                        final FileEntry entry = entries.get(i).getValue().isDeleted() ? FileEntry.tombstone(0L) : fileEntries.get(path);
+                        files.put(path, entry.withSeqNo(items[i].getResponse().getSeqNo()));
+                        indexUuid = items[i].getResponse().getShardId().getIndex().getUUID();
+                    }
+                }
+                final Runnable respond = () -> {
+                    scheduleRefreshIfNeeded(refreshPolicy);
+                    for (int i = 0; i < items.length; i++) {
+                        if (items[i].isFailed()) {
+                            entries.get(i).getValue().onFailure(items[i].getFailure().getCause());
+                        } else {
+                            entries.get(i).getValue().onResponse(items[i].getResponse().getResult());
+                        }
+                    }
+                };
+                if (files.isEmpty()) {
+                    respond.run();
+                } else {
+                    recordWrites(GenerationUpdateRequest.written(files, indexUuid), respond);
+                }
+            }, e -> entries.forEach(entry -> entry.getValue().onFailure(e))));
+        } catch (final Exception e) {
+            entries.forEach(entry -> entry.getValue().onFailure(e));
+        }
+    }
+
+    /**
+     * Returns the refresh policy of stores and deletes. Until the manifest is built, nodes find changes by searching,
+     * so the writes are made searchable before the generation moves.
+     */
+    private RefreshPolicy refreshPolicy() {
+        if (storeRefreshPolicy == RefreshPolicy.NONE && !ConfigSyncMetadata.get(clusterService.state()).isComplete()) {
+            return RefreshPolicy.IMMEDIATE;
+        }
+        return storeRefreshPolicy;
+    }
+
+    /**
+     * Schedules a refresh of the config index after writes made without one, so that listings see them.
+     * Writes made before the scheduled refresh runs share it.
+     */
+    private void scheduleRefreshIfNeeded(final RefreshPolicy refreshPolicy) {
+        if (refreshPolicy != RefreshPolicy.NONE || !refreshScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        threadPool.schedule(() -> {
+            refreshScheduled.set(false);
+            stats.onScheduledRefresh();
+            client().admin().indices().prepareRefresh(index)
+                    .execute(wrap(res -> {}, e -> logger.warn("Failed to refresh " + index + ".", e)));
+        }, storeRefreshInterval, ThreadPool.Names.GENERIC);
     }
 
     public void getPaths(final int from, final int size, final String[] fields, final String sortField, final String sortOrder,
             final ActionListener<List<Object>> listener) {
         checkIfIndexExists(wrap(res -> {
             final boolean hasFields = !(fields == null || fields.length == 0);
-            client().prepareSearch(index).setSize(size).setFrom(from)
+            client().prepareSearch(index).setPreference(LOCAL_PREFERENCE).setSize(size).setFrom(from)
+                    .setQuery(QueryBuilders.boolQuery().mustNot(QueryBuilders.termQuery(DELETED, true)))
                     .setFetchSource(hasFields ? fields : new String[] { PATH }, null)
                     .addSort(sortField, SortOrder.DESC.toString().equalsIgnoreCase(sortOrder) ? SortOrder.DESC : SortOrder.ASC)
                     .execute(wrap(response -> {
@@ -426,17 +1107,24 @@ public class ConfigSyncService extends AbstractLifecycleComponent {
         }, listener::onFailure));
     }
 
-    private String getId(final String path) {
+    /**
+     * Returns a builder for the source of a config document. Sources are SMILE, so the content is stored as raw bytes
+     * instead of a base64 string, and is neither encoded nor escaped on store or decoded on apply.
+     */
+    static XContentBuilder sourceBuilder() throws IOException {
+        return XContentFactory.smileBuilder();
+    }
+
+    static String getId(final String path) {
         return Base64.encodeBase64URLSafeString(path.getBytes(StandardCharsets.UTF_8));
     }
 
-    public void resetSync(final ActionListener<ConfigResetSyncResponse> listener) {
-        checkIfIndexExists(wrap(response -> {
-            final ClusterState state = clusterService.state();
-            final DiscoveryNodes nodes = state.nodes();
-            final Iterator<DiscoveryNode> nodesIt = nodes.getDataNodes().values().iterator();
-            resetSync(nodesIt, listener);
-        }, listener::onFailure));
+    /**
+     * Restarts the sync on the nodes matched by the {@link NodeSelector}, or on every node if it is null.
+     */
+    public void resetSync(final String nodes, final ActionListener<ConfigResetSyncResponse> listener) {
+        checkIfIndexExists(wrap(response -> resetSync(NodeSelector.select(nodes, clusterService.state().nodes()), listener),
+                listener::onFailure));
     }
 
     private void resetSync(final Iterator<DiscoveryNode> nodesIt, final ActionListener<ConfigResetSyncResponse> listener) {
@@ -478,6 +1166,8 @@ public class ConfigSyncService extends AbstractLifecycleComponent {
             if (configFileUpdater != null) {
                 configFileUpdater.terminate();
             }
+            syncedGeneration = -1;
+            localConfigFiles.clear();
             checkIfIndexExists(wrap(response -> {
                 final TimeValue time = startUpdater();
                 if (time.millis() >= 0) {
@@ -493,13 +1183,12 @@ public class ConfigSyncService extends AbstractLifecycleComponent {
         }
     }
 
-    public void flush(final ActionListener<ConfigFileFlushResponse> listener) {
-        checkIfIndexExists(wrap(response -> {
-            final ClusterState state = clusterService.state();
-            final DiscoveryNodes nodes = state.nodes();
-            final Iterator<DiscoveryNode> nodesIt = nodes.getDataNodes().values().iterator();
-            flushOnNode(nodesIt, listener);
-        }, listener::onFailure));
+    /**
+     * Syncs the files on the nodes matched by the {@link NodeSelector}, or on every node if it is null.
+     */
+    public void flush(final String nodes, final ActionListener<ConfigFileFlushResponse> listener) {
+        checkIfIndexExists(wrap(response -> flushOnNode(NodeSelector.select(nodes, clusterService.state().nodes()), listener),
+                listener::onFailure));
     }
 
     private void flushOnNode(final Iterator<DiscoveryNode> nodesIt, final ActionListener<ConfigFileFlushResponse> listener) {
@@ -533,11 +1222,134 @@ public class ConfigSyncService extends AbstractLifecycleComponent {
         }
     }
 
+    public void stats(final ActionListener<Map<String, Object>> listener) {
+        final Iterator<DiscoveryNode> nodesIt = clusterService.state().nodes().getNodes().values().iterator();
+        statsOnNode(nodesIt, new LinkedHashMap<>(), listener);
+    }
+
+    private void statsOnNode(final Iterator<DiscoveryNode> nodesIt, final Map<String, Object> nodeStats,
+            final ActionListener<Map<String, Object>> listener) {
+        if (!nodesIt.hasNext()) {
+            listener.onResponse(nodeStats);
+        } else {
+            final DiscoveryNode node = nodesIt.next();
+            transportService.sendRequest(node, ACTION_CONFIG_STATS, new NodeStatsRequest(),
+                    new TransportResponseHandler<NodeStatsResponse>() {
+
+                        @Override
+                        public NodeStatsResponse read(StreamInput in) throws IOException {
+                            return new NodeStatsResponse(in);
+                        }
+
+                        @Override
+                        public void handleResponse(final NodeStatsResponse response) {
+                            final Map<String, Object> map = new LinkedHashMap<>();
+                            map.put("name", node.getName());
+                            map.putAll(response.stats);
+                            nodeStats.put(node.getId(), map);
+                            statsOnNode(nodesIt, nodeStats, listener);
+                        }
+
+                        @Override
+                        public void handleException(final TransportException exp) {
+                            listener.onFailure(exp);
+                        }
+
+                        @Override
+                        public String executor() {
+                            return ThreadPool.Names.GENERIC;
+                        }
+                    });
+        }
+    }
+
+    private Map<String, Object> localStats() {
+        final Map<String, Object> map = stats.toMap();
+        @SuppressWarnings("unchecked")
+        final Map<String, Object> apply = (Map<String, Object>) map.get("apply");
+        apply.put("concurrency", applyConcurrency);
+        apply.put("virtual_threads", virtualThreadExecutor != null);
+        @SuppressWarnings("unchecked")
+        final Map<String, Object> fetch = (Map<String, Object>) map.get("fetch");
+        fetch.put("prefetch_pages", prefetchPages);
+        fetch.put("prefetch_max_bytes", prefetchMaxBytes);
+        fetch.put("cold_sync_slices", coldSyncSlices);
+        @SuppressWarnings("unchecked")
+        final Map<String, Object> throttle = (Map<String, Object>) map.get("throttle");
+        throttle.put("fetch_bytes_per_sec", syncThrottle.getFetchRate());
+        throttle.put("write_bytes_per_sec", syncThrottle.getWriteRate());
+        map.put("initial_sync_done", initialSyncDone);
+        if (fileUpdaterEnabled || configFileUpdater != null) {
+            map.put("synced_generation", syncedGeneration);
+        }
+        return map;
+    }
+
+    /**
+     * Asks the cluster-manager to copy the legacy config index into the config index.
+     * An unfinished migration is resumed rather than started over.
+     */
+    public void startMigration(final ActionListener<Void> listener) {
+        final DiscoveryNode clusterManagerNode = clusterService.state().nodes().getClusterManagerNode();
+        if (clusterManagerNode == null) {
+            listener.onFailure(new OpenSearchException("No cluster-manager node to start the migration."));
+            return;
+        }
+        transportService.sendRequest(clusterManagerNode, ACTION_CONFIG_MIGRATION, new MigrationRequest(),
+                new TransportResponseHandler<MigrationResponse>() {
+
+                    @Override
+                    public MigrationResponse read(StreamInput in) throws IOException {
+                        return new MigrationResponse(in);
+                    }
+
+                    @Override
+                    public void handleResponse(final MigrationResponse response) {
+                        listener.onResponse(null);
+                    }
+
+                    @Override
+                    public void handleException(final TransportException exp) {
+                        listener.onFailure(exp);
+                    }
+
+                    @Override
+                    public String executor() {
+                        return ThreadPool.Names.GENERIC;
+                    }
+                });
+    }
+
+    /**
+     * Returns the migration status recorded in the cluster state.
+     */
+    public Map<String, Object> getMigrationStatus() {
+        final ConfigSyncMigrationMetadata metadata = ConfigSyncMigrationMetadata.get(clusterService.state());
+        if (metadata == null) {
+            return Collections.singletonMap(ConfigSyncMigrationMetadata.STATE, "none");
+        }
+        return metadata.toMap();
+    }
+
+    /**
+     * Returns the backing index of the config index and its layout version.
+     */
+    public Map<String, Object> getLayoutStatus() {
+        final Map<String, Object> status = new LinkedHashMap<>();
+        final IndexMetadata indexMetadata = IndexLayoutMigrator.resolve(clusterService.state(), index);
+        if (indexMetadata != null) {
+            status.put("index", indexMetadata.getIndex().getName());
+            status.put("version", IndexLayoutMigrator.layoutVersion(indexMetadata));
+        }
+        status.put("current_version", IndexLayoutMigrator.LAYOUT_VERSION);
+        return status;
+    }
+
     public void getContent(final String path, final ActionListener<byte[]> listener) {
         checkIfIndexExists(wrap(res -> {
-            client().prepareGet(index, getId(path)).execute(wrap(response -> {
-                if (response.isExists()) {
-                    final byte[] configContent = Base64.decodeBase64((String) response.getSource().get(ConfigSyncService.CONTENT));
+            client().prepareGet(index, getId(path)).setPreference(LOCAL_PREFERENCE).execute(wrap(response -> {
+                if (response.isExists() && !Boolean.TRUE.equals(response.getSource().get(DELETED))) {
+                    final byte[] configContent = ConfigFileSource.decodeContent(response.getSource().get(CONTENT));
                     listener.onResponse(configContent);
                 } else {
                     listener.onResponse(null);
@@ -546,61 +1358,195 @@ public class ConfigSyncService extends AbstractLifecycleComponent {
         }, listener::onFailure));
     }
 
-    public void delete(final String path, final ActionListener<DeleteResponse> listener) {
-        checkIfIndexExists(
-                wrap(response -> client().prepareDelete(index, getId(path)).setRefreshPolicy(RefreshPolicy.IMMEDIATE).execute(listener),
-                        listener::onFailure));
+    /**
+     * Replaces the document of the path with a tombstone, so that every node removes its copy of the file.
+     * The tombstone is removed by the {@link TombstoneCollector} once all nodes have synced it.
+     */
+    public void delete(final String path, final ActionListener<DocWriteResponse.Result> listener) {
+        checkIfIndexExists(wrap(response -> {
+            // a buffered store of the path is replaced instead of being written first
+            if (storeCoalescer != null
+                    && storeCoalescer.deleteIfPending(path, ActionListener.map(listener, res -> DocWriteResponse.Result.DELETED))) {
+                return;
+            }
+            final String id = getId(path);
+            client().prepareGet(index, id).setFetchSource(new String[] { DELETED }, null).execute(wrap(getResponse -> {
+                if (!getResponse.isExists() || Boolean.TRUE.equals(getResponse.getSource().get(DELETED))) {
+                    listener.onResponse(DocWriteResponse.Result.NOT_FOUND);
+                    return;
+                }
+                final XContentBuilder builder = sourceBuilder();
+                builder.startObject();
+                builder.field(PATH, path);
+                builder.field(DELETED, true);
+                builder.field(TIMESTAMP, new Date());
+                builder.endObject();
+                // a concurrent store or delete of the path fails this one with a version conflict
+                final RefreshPolicy refreshPolicy = refreshPolicy();
+                client().prepareIndex(index).setId(id).setSource(builder).setIfSeqNo(getResponse.getSeqNo())
+                        .setIfPrimaryTerm(getResponse.getPrimaryTerm()).setRefreshPolicy(refreshPolicy)
+                        .execute(wrap(res -> recordWrites(GenerationUpdateRequest.written(path,
+                                FileEntry.tombstone(0L).withSeqNo(res.getSeqNo()), res.getShardId().getIndex().getUUID()), () -> {
+                                    scheduleRefreshIfNeeded(refreshPolicy);
+                                    listener.onResponse(DocWriteResponse.Result.DELETED);
+                                }), listener::onFailure));
+            }, listener::onFailure));
+        }, listener::onFailure));
     }
 
-    public void waitForStatus(final String waitForStatus, final String timeout, final ActionListener<ClusterHealthResponse> listener) {
+    /**
+     * Deletes the file at the path and every file under it as a directory.
+     * The tombstones are written in one bulk request per page, followed by one refresh and one manifest update.
+     *
+     * @param listener receives the number of deleted files
+     */
+    public void deleteByPrefix(final String prefix, final ActionListener<Integer> listener) {
+        final String from;
         try {
-            client.admin().cluster().prepareHealth(index).setWaitForStatus(ClusterHealthStatus.fromString(waitForStatus))
-                    .setTimeout(timeout).execute(listener);
-        } catch (final Exception e) {
+            from = normalizePrefix(prefix);
+        } catch (final IllegalArgumentException e) {
             listener.onFailure(e);
+            return;
         }
+        checkIfIndexExists(wrap(response -> newPathBulkOperation(from, null, true).execute(listener), listener::onFailure));
+    }
+
+    /**
+     * Copies the file at the source path, or every file under it as a directory, to the target path inside the cluster.
+     * The stored content is reused as it is, without being decoded or sent to the client.
+     *
+     * @param listener receives the number of copied files
+     */
+    public void copy(final String source, final String target, final ActionListener<Integer> listener) {
+        copyOrMove(source, target, false, listener);
+    }
+
+    /**
+     * Moves the file at the source path, or every file under it as a directory, to the target path inside the cluster.
+     * The sources are replaced with tombstones in the same bulk requests as the copies are written.
+     *
+     * @param listener receives the number of moved files
+     */
+    public void move(final String source, final String target, final ActionListener<Integer> listener) {
+        copyOrMove(source, target, true, listener);
     }
 
-    private void updateConfigFile(final Map<String, Object> source) {
+    private void copyOrMove(final String source, final String target, final boolean deleteSource, final ActionListener<Integer> listener) {
+        final String from;
+        final String to;
         try {
-            final Date timestamp = getTimestamp(source.get(TIMESTAMP));
-            final String path = (String) source.get(PATH);
-            final Path filePath = Paths.get(configPath, path.replace("..", ""));
-            if (logger.isDebugEnabled()) {
-                logger.debug("Checking {}", filePath);
+            from = normalizePrefix(source);
+            to = normalizePrefix(target);
+        } catch (final IllegalArgumentException e) {
+            listener.onFailure(e);
+            return;
+        }
+        // a tree copied into itself would overwrite its own sources
+        if (from.equals(to) || to.startsWith(from + "/") || from.startsWith(to + "/")) {
+            listener.onFailure(new IllegalArgumentException("[" + source + "] and [" + target + "] overlap."));
+            return;
+        }
+        checkIfIndexExists(wrap(response -> newPathBulkOperation(from, to, deleteSource).execute(listener), listener::onFailure));
+    }
+
+    private PathBulkOperation newPathBulkOperation(final String source, final String target, final boolean deleteSource) {
+        return new PathBulkOperation(this::client, index, scrollForUpdate, sizeForUpdate,
+                ConfigSyncMetadata.get(clusterService.state()).getFiles(),
+                (request, listener) -> recordWrites(request, () -> listener.onResponse(null)), source, target, deleteSource);
+    }
+
+    static String normalizePrefix(final String path) {
+        String prefix = path == null ? "" : path.trim();
+        while (prefix.endsWith("/")) {
+            prefix = prefix.substring(0, prefix.length() - 1);
+        }
+        if (prefix.isEmpty()) {
+            throw new IllegalArgumentException(PATH + " is empty.");
+        }
+        return prefix;
+    }
+
+    /**
+     * Returns the lowest config generation synced by the nodes that sync files, which have all applied every tombstone up to it.
+     */
+    private void ackedGeneration(final ActionListener<Long> listener) {
+        stats(wrap(nodeStats -> {
+            long acked = ConfigSyncMetadata.get(clusterService.state()).getGeneration();
+            for (final Object value : nodeStats.values()) {
+                final Object synced = ((Map<?, ?>) value).get("synced_generation");
+                if (synced instanceof Number) {
+                    acked = Math.min(acked, ((Number) synced).longValue());
+                }
             }
-            final Exception e = AccessController.doPrivileged((PrivilegedAction<Exception>) () -> {
-                try {
-                    if (logger.isDebugEnabled()) {
-                        logger.debug("timestamp(index): {}", timestamp.getTime());
-                        if (Files.exists(filePath)) {
-                            logger.debug("timestamp(file):  {}", Files.getLastModifiedTime(filePath).toMillis());
-                        }
+            listener.onResponse(acked);
+        }, listener::onFailure));
+    }
+
+    private void invalidateManifest() {
+        updateManifest(GenerationUpdateRequest.invalidate(),
+                wrap(res -> {}, e -> logger.warn("Failed to invalidate the config manifest.", e)));
+    }
+
+    /**
+     * Records documents already written to the config index in the manifest and runs {@code next} either way:
+     * the write has happened, so a failed update is left to the {@link ManifestReconciler} instead of being reported.
+     */
+    private void recordWrites(final GenerationUpdateRequest request, final Runnable next) {
+        updateManifest(request, wrap(r -> next.run(), e -> {
+            logger.warn("Failed to record {} written files in the config manifest. The next reconciliation records them.",
+                    request.files.size(), e);
+            next.run();
+        }));
+    }
+
+    private void updateManifest(final GenerationUpdateRequest request, final ActionListener<Void> listener) {
+        final DiscoveryNode clusterManagerNode = clusterService.state().nodes().getClusterManagerNode();
+        if (clusterManagerNode == null) {
+            listener.onFailure(new OpenSearchException("No cluster-manager node to update the config generation."));
+            return;
+        }
+        transportService.sendRequest(clusterManagerNode, ACTION_CONFIG_GENERATION, request,
+                new TransportResponseHandler<GenerationUpdateResponse>() {
+
+                    @Override
+                    public GenerationUpdateResponse read(StreamInput in) throws IOException {
+                        return new GenerationUpdateResponse(in);
                     }
-                    if (!Files.exists(filePath) || Files.getLastModifiedTime(filePath).toMillis() < timestamp.getTime()) {
-                        final String content = (String) source.get(CONTENT);
-                        final File parentFile = filePath.toFile().getParentFile();
-                        if (!parentFile.exists() && !parentFile.mkdirs()) {
-                            logger.warn("Failed to create " + parentFile.getAbsolutePath());
-                        }
-                        final String absolutePath = filePath.toFile().getAbsolutePath();
-                        decodeToFile(content, absolutePath);
-                        logger.info("Updated " + absolutePath);
+
+                    @Override
+                    public void handleResponse(final GenerationUpdateResponse response) {
+                        listener.onResponse(null);
                     }
-                } catch (final Exception e1) {
-                    return e1;
-                }
-                return null;
-            });
-            if (e != null) {
-                throw e;
-            }
+
+                    @Override
+                    public void handleException(final TransportException exp) {
+                        listener.onFailure(exp);
+                    }
+
+                    @Override
+                    public String executor() {
+                        return ThreadPool.Names.GENERIC;
+                    }
+                });
+    }
+
+    public void waitForStatus(final String waitForStatus, final String timeout, final ActionListener<ClusterHealthResponse> listener) {
+        try {
+            client.admin().cluster().prepareHealth(index).setWaitForStatus(ClusterHealthStatus.fromString(waitForStatus))
+                    .setTimeout(timeout).execute(listener);
         } catch (final Exception e) {
-            logger.warn("Failed to update " + source.get(PATH), e);
+            listener.onFailure(e);
         }
     }
 
-    private Date getTimestamp(final Object value) throws ParseException {
+    /**
+     * Returns the manifest as it applies to this node, where files selected for other nodes are tombstones.
+     */
+    private Map<String, FileEntry> localFiles(final ConfigSyncMetadata metadata) {
+        return NodeSelector.localFiles(metadata.getFiles(), clusterService.state().nodes());
+    }
+
+    static Date getTimestamp(final Object value) throws ParseException {
         if (value instanceof Date) {
             return (Date) value;
         } else if (value instanceof Number) {
@@ -614,97 +1560,79 @@ public class ConfigSyncService extends AbstractLifecycleComponent {
 
     class ConfigFileUpdater implements Runnable {
 
-        ConfigFileWriter writer = new ConfigFileWriter();
+        ConfigFileWriter writer = newConfigFileWriter(false);
 
         @Override
         public void run() {
-            if (writer.terminated.get()) {
+            if (writer.isTerminated()) {
                 if (logger.isDebugEnabled()) {
                     logger.debug("Terminated {}", this);
                 }
                 return;
             }
 
+            final long generation = publishedGeneration;
+            List<String> driftedPaths = null;
+            if (generation == syncedGeneration) {
+                driftedPaths = checkDrift();
+                if (driftedPaths == null) {
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("Config generation {} is not changed. Skipping ConfigFileUpdater.", generation);
+                    }
+                    startUpdater();
+                    return;
+                }
+            }
+
             if (logger.isDebugEnabled()) {
                 logger.debug("Processing ConfigFileUpdater.");
             }
 
-            writer.execute(wrap(response -> startUpdater(), e -> {
+            writer.execute(driftedPaths, wrap(response -> {
+                markSynced(generation);
+                startUpdater();
+            }, e -> {
                 logger.error("Failed to process ConfigFileUpdater.", e);
                 startUpdater();
             }));
         }
 
-        public void terminate() {
-            writer.terminate();
-        }
-    }
-
-    class ConfigFileWriter implements ActionListener<SearchResponse> {
-
-        private final AtomicBoolean terminated = new AtomicBoolean(false);
-
-        private ActionListener<Void> listener;
-
-        private volatile String currentScrollId;
-
-        public void execute(final ActionListener<Void> listener) {
-            this.listener = listener;
-
-            final Date now = new Date();
-            final QueryBuilder queryBuilder =
-                    QueryBuilders.boolQuery().filter(QueryBuilders.rangeQuery(TIMESTAMP).from(lastChecked.getTime()));
-            lastChecked = now;
-            client().prepareSearch(index).setQuery(queryBuilder).setScroll(scrollForUpdate).setSize(sizeForUpdate)
-                    .execute(this);
-        }
-
-        public void terminate() {
-            terminated.set(true);
-        }
-
-        private void clearScroll(final String scrollId) {
-            if (scrollId != null) {
-                client().prepareClearScroll().addScrollId(scrollId)
-                        .execute(wrap(res -> {
-                            if (logger.isDebugEnabled()) {
-                                logger.debug("Cleared scroll context: {}", scrollId);
-                            }
-                        }, e -> logger.warn("Failed to clear the scroll context.", e)));
+        /**
+         * Compares the hash tree of the local files with the one of the manifest every {@code configsync.anti_entropy.interval},
+         * and returns the paths of the files changed on this node since they were synced, or null if there are none.
+         */
+        private List<String> checkDrift() {
+            final long now = System.currentTimeMillis();
+            if (antiEntropyInterval.millis() <= 0 || now - lastAntiEntropyCheck < antiEntropyInterval.millis()) {
+                return null;
             }
-        }
-
-        @Override
-        public void onResponse(final SearchResponse response) {
-            currentScrollId = response.getScrollId();
-
-            if (terminated.get()) {
-                if (logger.isDebugEnabled()) {
-                    logger.debug("Terminated {}", this);
-                }
-                clearScroll(currentScrollId);
-                listener.onFailure(new OpenSearchException("Config Writing process was terminated."));
-                return;
+            lastAntiEntropyCheck = now;
+            final ConfigSyncMetadata metadata = ConfigSyncMetadata.get(clusterService.state());
+            if (!metadata.isComplete()) {
+                return null;
             }
-
-            final SearchHits searchHits = response.getHits();
-            final SearchHit[] hits = searchHits.getHits();
-            if (hits.length == 0) {
-                clearScroll(currentScrollId);
-                listener.onResponse(null);
-            } else {
-                for (final SearchHit hit : hits) {
-                    final Map<String, Object> source = hit.getSourceAsMap();
-                    updateConfigFile(source);
+            final Map<String, FileEntry> files = localFiles(metadata);
+            try {
+                final ConfigHashTree localTree = AccessController.doPrivileged(
+                        (PrivilegedExceptionAction<ConfigHashTree>) () -> localConfigFiles.getLocalTree(files));
+                final ConfigHashTree manifestTree = ConfigHashTree.of(files);
+                stats.onAntiEntropyCheck();
+                if (manifestTree.getRootHash().equals(localTree.getRootHash())) {
+                    return null;
                 }
-                client().prepareSearchScroll(currentScrollId).setScroll(scrollForUpdate).execute(this);
+                final List<String> paths = manifestTree.diff(localTree);
+                stats.onDrifted(paths.size());
+                logger.warn("{} config files differ from generation {}. Restoring {}", paths.size(), metadata.getGeneration(),
+                        paths.size() > 10 ? paths.subList(0, 10) + "..." : paths);
+                return paths;
+            } catch (final PrivilegedActionException e) {
+                logger.warn("Failed to check the local config files.", e.getException());
+                return null;
             }
         }
 
-        @Override
-        public void onFailure(final Exception e) {
-            clearScroll(currentScrollId);
-            listener.onFailure(e);
+        public void terminate() {
+            writer.terminate();
         }
     }
 
@@ -712,7 +1640,9 @@ public class ConfigSyncService extends AbstractLifecycleComponent {
 
         @Override
         public void messageReceived(final FileFlushRequest request, final TransportChannel channel, final Task task) throws Exception {
-            new ConfigFileWriter().execute(wrap(response -> {
+            final long generation = publishedGeneration;
+            newConfigFileWriter(false).execute(wrap(response -> {
+                markSynced(generation);
                 try {
                     channel.sendResponse(new FileFlushResponse(true));
                 } catch (final IOException e) {
@@ -770,6 +1700,173 @@ public class ConfigSyncService extends AbstractLifecycleComponent {
         }
     }
 
+    class ConfigGenerationUpdateRequestHandler implements TransportRequestHandler<GenerationUpdateRequest> {
+
+        @Override
+        public void messageReceived(final GenerationUpdateRequest request, final TransportChannel channel, final Task task)
+                throws Exception {
+            clusterService.submitStateUpdateTask("configsync-generation", request, ClusterStateTaskConfig.build(Priority.NORMAL),
+                    generationUpdateExecutor, new ClusterStateTaskListener() {
+
+                        @Override
+                        public void onFailure(final String source, final Exception e) {
+                            try {
+                                channel.sendResponse(e);
+                            } catch (final IOException ioe) {
+                                logger.error("Failed to send Generation response.", ioe);
+                            }
+                        }
+
+                        @Override
+                        public void clusterStateProcessed(final String source, final ClusterState oldState, final ClusterState newState) {
+                            try {
+                                channel.sendResponse(new GenerationUpdateResponse(true));
+                            } catch (final IOException e) {
+                                throw new OpenSearchException(e);
+                            }
+                        }
+                    });
+        }
+    }
+
+    private void rebuildManifest() {
+        final ClusterState state = clusterService.state();
+        if (!state.nodes().isLocalNodeElectedClusterManager() || ConfigSyncMetadata.get(state).isComplete()) {
+            rebuildingManifest.set(false);
+            return;
+        }
+
+        logger.info("Building the config manifest from {}.", index);
+        new ManifestBuilder(this::client, index, scrollForUpdate).rebuild(wrap(request -> {
+            clusterService.submitStateUpdateTask("configsync-manifest", request,
+                    ClusterStateTaskConfig.build(Priority.NORMAL), generationUpdateExecutor, new ClusterStateTaskListener() {
+
+                        @Override
+                        public void onFailure(final String source, final Exception e) {
+                            rebuildingManifest.set(false);
+                            logger.warn("Failed to publish the config manifest.", e);
+                        }
+
+                        @Override
+                        public void clusterStateProcessed(final String source, final ClusterState oldState, final ClusterState newState) {
+                            rebuildingManifest.set(false);
+                            logger.info("Built the config manifest with {} files.", request.files.size());
+                        }
+                    });
+        }, e -> {
+            logger.warn("Failed to build the config manifest. Retrying to build it.", e);
+            threadPool.schedule(this::rebuildManifest, TimeValue.timeValueSeconds(15), Names.GENERIC);
+        }));
+    }
+
+    private static class GenerationUpdateResponse extends AcknowledgedResponse {
+
+        GenerationUpdateResponse(final StreamInput in) throws IOException {
+            super(in);
+        }
+
+        GenerationUpdateResponse(final boolean acknowledged) {
+            super(acknowledged);
+        }
+    }
+
+    class ConfigSyncStatsRequestHandler implements TransportRequestHandler<NodeStatsRequest> {
+
+        @Override
+        public void messageReceived(final NodeStatsRequest request, final TransportChannel channel, final Task task) throws Exception {
+            channel.sendResponse(new NodeStatsResponse(localStats()));
+        }
+    }
+
+    class ConfigMigrationRequestHandler implements TransportRequestHandler<MigrationRequest> {
+
+        @Override
+        public void messageReceived(final MigrationRequest request, final TransportChannel channel, final Task task) throws Exception {
+            migrator.start(true);
+            layoutMigrator.start();
+            channel.sendResponse(new MigrationResponse(true));
+        }
+    }
+
+    class ConfigNodeReadyRequestHandler implements TransportRequestHandler<NodeReadyRequest> {
+
+        @Override
+        public void messageReceived(final NodeReadyRequest request, final TransportChannel channel, final Task task) throws Exception {
+            submitNodeReady(request, wrap(state -> {
+                // shards held back by the allocation decider are assigned by the next reroute
+                client().admin().cluster().prepareReroute().execute(wrap(res -> {}, e -> logger.warn("Failed to reroute.", e)));
+                channel.sendResponse(new NodeReadyResponse(true));
+            }, e -> {
+                try {
+                    channel.sendResponse(e);
+                } catch (final IOException ioe) {
+                    logger.error("Failed to send NodeReady response.", ioe);
+                }
+            }));
+        }
+    }
+
+    private static class NodeReadyResponse extends AcknowledgedResponse {
+
+        NodeReadyResponse(final StreamInput in) throws IOException {
+            super(in);
+        }
+
+        NodeReadyResponse(final boolean acknowledged) {
+            super(acknowledged);
+        }
+    }
+
+    public static class MigrationRequest extends TransportRequest {
+        MigrationRequest() {
+            super();
+        }
+
+        MigrationRequest(final StreamInput in) throws IOException {
+            super(in);
+        }
+    }
+
+    private static class MigrationResponse extends AcknowledgedResponse {
+
+        MigrationResponse(final StreamInput in) throws IOException {
+            super(in);
+        }
+
+        MigrationResponse(final boolean acknowledged) {
+            super(acknowledged);
+        }
+    }
+
+    public static class NodeStatsRequest extends TransportRequest {
+        NodeStatsRequest() {
+            super();
+        }
+
+        NodeStatsRequest(final StreamInput in) throws IOException {
+            super(in);
+        }
+    }
+
+    private static class NodeStatsResponse extends TransportResponse {
+        private final Map<String, Object> stats;
+
+        NodeStatsResponse(final StreamInput in) throws IOException {
+            super(in);
+            stats = in.readMap();
+        }
+
+        NodeStatsResponse(final Map<String, Object> stats) {
+            super();
+            this.stats = stats;
+        }
+
+        @Override
+        public void writeTo(final StreamOutput out) throws IOException {
+            out.writeMap(stats);
+        }
+    }
+
     public static class ResetSyncRequest extends TransportRequest {
         ResetSyncRequest() {
             super();
@@ -791,9 +1888,4 @@ public class ConfigSyncService extends AbstractLifecycleComponent {
         }
     }
 
-    private static void decodeToFile(final String dataToDecode, final String filename) throws java.io.IOException {
-        try (final Base64OutputStream os = new Base64OutputStream(new FileOutputStream(filename), false)) {
-            os.write(dataToDecode.getBytes(StandardCharsets.UTF_8));
-        }
-    }
 }
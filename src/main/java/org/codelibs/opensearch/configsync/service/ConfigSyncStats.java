@@ -0,0 +1,409 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.opensearch.configsync.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Node-local counters of the config sync work, reported by {@code GET /_configsync/stats}.
+ */
+public class ConfigSyncStats {
+
+    private final LongAdder appliedFiles = new LongAdder();
+
+    private final LongAdder appliedBytes = new LongAdder();
+
+    private final LongAdder failedFiles = new LongAdder();
+
+    private final LongAdder deletedFiles = new LongAdder();
+
+    private final LongAdder applyTimeInNanos = new LongAdder();
+
+    private final AtomicInteger currentApplies = new AtomicInteger();
+
+    private final LongAdder fetchedPages = new LongAdder();
+
+    private final LongAdder fetchedBytes = new LongAdder();
+
+    private final AtomicLong bufferedBytes = new AtomicLong();
+
+    private final LongAdder currentFiles = new LongAdder();
+
+    private final LongAdder slicedSyncs = new LongAdder();
+
+    private final LongAdder joinSyncs = new LongAdder();
+
+    private final LongAdder antiEntropyChecks = new LongAdder();
+
+    private final LongAdder driftedFiles = new LongAdder();
+
+    private final LongAdder peerFiles = new LongAdder();
+
+    private final LongAdder peerBytes = new LongAdder();
+
+    private final LongAdder peerFallbacks = new LongAdder();
+
+    private final LongAdder peerServedBytes = new LongAdder();
+
+    private final LongAdder broadcastsSent = new LongAdder();
+
+    private final LongAdder broadcastsReceived = new LongAdder();
+
+    private final LongAdder broadcastsSynced = new LongAdder();
+
+    private final LongAdder storeBatches = new LongAdder();
+
+    private final LongAdder coalescedStores = new LongAdder();
+
+    private final LongAdder scheduledRefreshes = new LongAdder();
+
+    private final LongAdder storeNoops = new LongAdder();
+
+    private final LongAdder reloadedIndices = new LongAdder();
+
+    private final LongAdder reloadedAnalyzers = new LongAdder();
+
+    private final LongAdder failedReloads = new LongAdder();
+
+    private final LongAdder fetchThrottleTimeInNanos = new LongAdder();
+
+    private final LongAdder writeThrottleTimeInNanos = new LongAdder();
+
+    /**
+     * Marks the start of a file write and returns the start time to pass to {@link #onApplied} or {@link #onApplyFailed}.
+     */
+    public long onApplyStarted() {
+        currentApplies.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    public void onApplied(final long startTime, final long bytes) {
+        currentApplies.decrementAndGet();
+        appliedFiles.increment();
+        appliedBytes.add(bytes);
+        applyTimeInNanos.add(System.nanoTime() - startTime);
+    }
+
+    public void onApplyFailed(final long startTime) {
+        currentApplies.decrementAndGet();
+        failedFiles.increment();
+        applyTimeInNanos.add(System.nanoTime() - startTime);
+    }
+
+    public void onDeleted() {
+        deletedFiles.increment();
+    }
+
+    public void onPageFetched(final long bytes) {
+        fetchedPages.increment();
+        fetchedBytes.add(bytes);
+        bufferedBytes.addAndGet(bytes);
+    }
+
+    public void onPageReleased(final long bytes) {
+        bufferedBytes.addAndGet(-bytes);
+    }
+
+    public void onCurrentFiles(final int files) {
+        currentFiles.add(files);
+    }
+
+    public void onSlicedSync() {
+        slicedSyncs.increment();
+    }
+
+    public void onJoinSync() {
+        joinSyncs.increment();
+    }
+
+    public void onAntiEntropyCheck() {
+        antiEntropyChecks.increment();
+    }
+
+    public void onDrifted(final int files) {
+        driftedFiles.add(files);
+    }
+
+    public void onPeerChunk(final long bytes) {
+        peerBytes.add(bytes);
+    }
+
+    public void onPeerFetched() {
+        peerFiles.increment();
+    }
+
+    public void onPeerFallback() {
+        peerFallbacks.increment();
+    }
+
+    public void onPeerServed(final long bytes) {
+        peerServedBytes.add(bytes);
+    }
+
+    public void onBroadcastSent() {
+        broadcastsSent.increment();
+    }
+
+    public void onBroadcastReceived() {
+        broadcastsReceived.increment();
+    }
+
+    public void onBroadcastSynced() {
+        broadcastsSynced.increment();
+    }
+
+    public void onStoreBatch() {
+        storeBatches.increment();
+    }
+
+    public void onStoreCoalesced() {
+        coalescedStores.increment();
+    }
+
+    public void onScheduledRefresh() {
+        scheduledRefreshes.increment();
+    }
+
+    public void onStoreNoop() {
+        storeNoops.increment();
+    }
+
+    public void onAnalyzersReloaded(final int analyzers) {
+        reloadedIndices.increment();
+        reloadedAnalyzers.add(analyzers);
+    }
+
+    public void onAnalyzerReloadFailed() {
+        failedReloads.increment();
+    }
+
+    public void onFetchThrottled(final long nanos) {
+        fetchThrottleTimeInNanos.add(nanos);
+    }
+
+    public void onWriteThrottled(final long nanos) {
+        writeThrottleTimeInNanos.add(nanos);
+    }
+
+    public long getAppliedFiles() {
+        return appliedFiles.sum();
+    }
+
+    public long getAppliedBytes() {
+        return appliedBytes.sum();
+    }
+
+    public long getFailedFiles() {
+        return failedFiles.sum();
+    }
+
+    public long getDeletedFiles() {
+        return deletedFiles.sum();
+    }
+
+    public long getApplyTimeInMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(applyTimeInNanos.sum());
+    }
+
+    public int getCurrentApplies() {
+        return currentApplies.get();
+    }
+
+    public long getFetchedPages() {
+        return fetchedPages.sum();
+    }
+
+    public long getFetchedBytes() {
+        return fetchedBytes.sum();
+    }
+
+    /**
+     * Returns the source bytes of pages fetched but not yet written.
+     */
+    public long getBufferedBytes() {
+        return bufferedBytes.get();
+    }
+
+    /**
+     * Returns the number of changed documents whose content was not fetched because the local file was already current.
+     */
+    public long getCurrentFiles() {
+        return currentFiles.sum();
+    }
+
+    public long getSlicedSyncs() {
+        return slicedSyncs.sum();
+    }
+
+    public long getJoinSyncs() {
+        return joinSyncs.sum();
+    }
+
+    public long getAntiEntropyChecks() {
+        return antiEntropyChecks.sum();
+    }
+
+    /**
+     * Returns the number of files found changed on this node since they were synced.
+     */
+    public long getDriftedFiles() {
+        return driftedFiles.sum();
+    }
+
+    public long getPeerFiles() {
+        return peerFiles.sum();
+    }
+
+    public long getPeerBytes() {
+        return peerBytes.sum();
+    }
+
+    /**
+     * Returns the number of files no peer could serve, which were fetched from the index instead.
+     */
+    public long getPeerFallbacks() {
+        return peerFallbacks.sum();
+    }
+
+    public long getPeerServedBytes() {
+        return peerServedBytes.sum();
+    }
+
+    public long getBroadcastsSent() {
+        return broadcastsSent.sum();
+    }
+
+    public long getBroadcastsReceived() {
+        return broadcastsReceived.sum();
+    }
+
+    /**
+     * Returns the number of received batches that brought this node to their generation without a fetch of its own.
+     */
+    public long getBroadcastsSynced() {
+        return broadcastsSynced.sum();
+    }
+
+    /**
+     * Returns the number of bulk requests that wrote buffered stores.
+     */
+    public long getStoreBatches() {
+        return storeBatches.sum();
+    }
+
+    /**
+     * Returns the number of buffered writes replaced by a later write to the same path before they were written.
+     */
+    public long getCoalescedStores() {
+        return coalescedStores.sum();
+    }
+
+    public long getScheduledRefreshes() {
+        return scheduledRefreshes.sum();
+    }
+
+    /**
+     * Returns the number of uploads not written because the path already held the content.
+     */
+    public long getStoreNoops() {
+        return storeNoops.sum();
+    }
+
+    /**
+     * Returns the number of times the search analyzers of an index were reloaded after a sync changed files it uses.
+     */
+    public long getReloadedIndices() {
+        return reloadedIndices.sum();
+    }
+
+    public long getReloadedAnalyzers() {
+        return reloadedAnalyzers.sum();
+    }
+
+    public long getFailedReloads() {
+        return failedReloads.sum();
+    }
+
+    /**
+     * Returns the time syncs waited for {@code configsync.throttle.fetch_bytes_per_sec}.
+     */
+    public long getFetchThrottleTimeInMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(fetchThrottleTimeInNanos.sum());
+    }
+
+    /**
+     * Returns the time syncs waited for {@code configsync.throttle.write_bytes_per_sec}.
+     */
+    public long getWriteThrottleTimeInMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(writeThrottleTimeInNanos.sum());
+    }
+
+    public Map<String, Object> toMap() {
+        final Map<String, Object> apply = new LinkedHashMap<>();
+        apply.put("files", getAppliedFiles());
+        apply.put("bytes", getAppliedBytes());
+        apply.put("failed", getFailedFiles());
+        apply.put("deleted", getDeletedFiles());
+        apply.put("time_in_millis", getApplyTimeInMillis());
+        apply.put("current", getCurrentApplies());
+        final Map<String, Object> fetch = new LinkedHashMap<>();
+        fetch.put("pages", getFetchedPages());
+        fetch.put("bytes", getFetchedBytes());
+        fetch.put("buffered_bytes", getBufferedBytes());
+        fetch.put("current_files", getCurrentFiles());
+        fetch.put("sliced_syncs", getSlicedSyncs());
+        fetch.put("join_syncs", getJoinSyncs());
+        final Map<String, Object> antiEntropy = new LinkedHashMap<>();
+        antiEntropy.put("checks", getAntiEntropyChecks());
+        antiEntropy.put("drifted_files", getDriftedFiles());
+        final Map<String, Object> peer = new LinkedHashMap<>();
+        peer.put("files", getPeerFiles());
+        peer.put("bytes", getPeerBytes());
+        peer.put("fallbacks", getPeerFallbacks());
+        peer.put("served_bytes", getPeerServedBytes());
+        final Map<String, Object> broadcast = new LinkedHashMap<>();
+        broadcast.put("sent", getBroadcastsSent());
+        broadcast.put("received", getBroadcastsReceived());
+        broadcast.put("synced", getBroadcastsSynced());
+        final Map<String, Object> store = new LinkedHashMap<>();
+        store.put("batches", getStoreBatches());
+        store.put("coalesced", getCoalescedStores());
+        store.put("scheduled_refreshes", getScheduledRefreshes());
+        store.put("noops", getStoreNoops());
+        final Map<String, Object> analyzerReload = new LinkedHashMap<>();
+        analyzerReload.put("indices", getReloadedIndices());
+        analyzerReload.put("analyzers", getReloadedAnalyzers());
+        analyzerReload.put("failed", getFailedReloads());
+        final Map<String, Object> throttle = new LinkedHashMap<>();
+        throttle.put("fetch_time_in_millis", getFetchThrottleTimeInMillis());
+        throttle.put("write_time_in_millis", getWriteThrottleTimeInMillis());
+        final Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("fetch", fetch);
+        stats.put("apply", apply);
+        stats.put("anti_entropy", antiEntropy);
+        stats.put("peer", peer);
+        stats.put("broadcast", broadcast);
+        stats.put("store", store);
+        stats.put("analyzer_reload", analyzerReload);
+        stats.put("throttle", throttle);
+        return stats;
+    }
+}
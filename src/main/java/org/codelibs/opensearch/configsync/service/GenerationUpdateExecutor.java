@@ -0,0 +1,98 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.opensearch.configsync.service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.codelibs.opensearch.configsync.cluster.ConfigSyncMetadata;
+import org.codelibs.opensearch.configsync.cluster.ConfigSyncMetadata.FileEntry;
+import org.opensearch.cluster.ClusterState;
+import org.opensearch.cluster.ClusterStateTaskExecutor;
+import org.opensearch.cluster.metadata.Metadata;
+import org.opensearch.index.seqno.SequenceNumbers;
+
+/**
+ * Applies batched {@link GenerationUpdateRequest}s to the manifest in the cluster state under a single new generation.
+ * An entry replaces the one of its path only if it was read from or written as a newer document, so updates
+ * arriving out of order cannot leave an older entry in the manifest.
+ */
+public class GenerationUpdateExecutor implements ClusterStateTaskExecutor<GenerationUpdateRequest> {
+
+    @Override
+    public ClusterTasksResult<GenerationUpdateRequest> execute(final ClusterState currentState,
+            final List<GenerationUpdateRequest> tasks) throws Exception {
+        // all stores/deletes batched into this update share a single generation
+        final ConfigSyncMetadata current = ConfigSyncMetadata.get(currentState);
+        final long generation = current.getGeneration() + 1;
+        boolean complete = current.isComplete();
+        String indexUuid = current.getIndexUuid();
+        long checkpoint = current.getCheckpoint();
+        final Map<String, FileEntry> files = new HashMap<>(current.getFiles());
+        for (final GenerationUpdateRequest task : tasks) {
+            if (task.invalidate) {
+                complete = false;
+                continue;
+            }
+            if (task.indexUuid != null && !task.indexUuid.equals(indexUuid)) {
+                // sequence numbers of another index, e.g. one replaced by a migration or a restore, cannot be compared
+                files.clear();
+                indexUuid = task.indexUuid;
+                checkpoint = SequenceNumbers.NO_OPS_PERFORMED;
+                complete = false;
+            }
+            if (task.rebuild) {
+                // the index snapshot replaces the manifest, except for the entries stored or deleted while it was read
+                final Map<String, FileEntry> newer = new HashMap<>();
+                files.forEach((path, entry) -> {
+                    final FileEntry read = task.files.get(path);
+                    if (entry.getSeqNo() > (read != null ? read.getSeqNo() : task.checkpoint)) {
+                        newer.put(path, entry);
+                    }
+                });
+                files.clear();
+                task.files.forEach((path, entry) -> files.put(path, entry.withVersion(generation)));
+                files.putAll(newer);
+                complete = true;
+            } else {
+                task.files.forEach((path, entry) -> {
+                    if (isNewer(entry, files.get(path))) {
+                        files.put(path, entry.withVersion(generation));
+                    }
+                });
+                // a path stored or deleted again after the tombstone was collected keeps its newer entry
+                task.purges.forEach((path, version) -> files.computeIfPresent(path,
+                        (p, entry) -> entry.isDeleted() && entry.getVersion() <= version ? null : entry));
+            }
+            checkpoint = Math.max(checkpoint, task.checkpoint);
+        }
+        final boolean changed = complete != current.isComplete() || !files.equals(current.getFiles());
+        if (!changed && checkpoint == current.getCheckpoint() && indexUuid.equals(current.getIndexUuid())) {
+            return ClusterTasksResult.<GenerationUpdateRequest> builder().successes(tasks).build(currentState);
+        }
+        // a checkpoint moved without any change in the files does not make nodes sync again
+        final ConfigSyncMetadata metadata =
+                new ConfigSyncMetadata(changed ? generation : current.getGeneration(), complete, indexUuid, checkpoint, files);
+        final ClusterState newState = ClusterState.builder(currentState)
+                .metadata(Metadata.builder(currentState.metadata()).putCustom(ConfigSyncMetadata.TYPE, metadata)).build();
+        return ClusterTasksResult.<GenerationUpdateRequest> builder().successes(tasks).build(newState);
+    }
+
+    private static boolean isNewer(final FileEntry entry, final FileEntry current) {
+        return current == null || entry.getSeqNo() == SequenceNumbers.UNASSIGNED_SEQ_NO || entry.getSeqNo() > current.getSeqNo();
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.opensearch.configsync.service;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+
+import org.codelibs.opensearch.configsync.cluster.ConfigSyncMetadata.FileEntry;
+import org.opensearch.core.common.io.stream.StreamInput;
+import org.opensearch.core.common.io.stream.StreamOutput;
+import org.opensearch.index.seqno.SequenceNumbers;
+import org.opensearch.transport.TransportRequest;
+
+/**
+ * Changes to the manifest sent to the elected cluster-manager, which applies them with the {@link GenerationUpdateExecutor}.
+ * The entries carry the sequence numbers of the documents they were read from or written as, in the config index with the given UUID.
+ */
+public class GenerationUpdateRequest extends TransportRequest {
+    // entries of stored files and tombstones of deleted ones
+    final Map<String, FileEntry> files;
+
+    final Map<String, Long> purges;
+
+    final String indexUuid;
+
+    // the sequence number up to which the files cover the config index, for a rebuild or a reconciliation
+    final long checkpoint;
+
+    final boolean rebuild;
+
+    final boolean invalidate;
+
+    GenerationUpdateRequest(final Map<String, FileEntry> files, final Map<String, Long> purges, final String indexUuid,
+            final long checkpoint, final boolean rebuild, final boolean invalidate) {
+        super();
+        this.files = files;
+        this.purges = purges;
+        this.indexUuid = indexUuid;
+        this.checkpoint = checkpoint;
+        this.rebuild = rebuild;
+        this.invalidate = invalidate;
+    }
+
+    GenerationUpdateRequest(final StreamInput in) throws IOException {
+        super(in);
+        files = in.readMap(StreamInput::readString, FileEntry::new);
+        purges = in.readMap(StreamInput::readString, StreamInput::readVLong);
+        indexUuid = in.readOptionalString();
+        checkpoint = in.readZLong();
+        rebuild = in.readBoolean();
+        invalidate = in.readBoolean();
+    }
+
+    /**
+     * Records files written to the config index, including tombstones, each with the sequence number of its write.
+     */
+    static GenerationUpdateRequest written(final Map<String, FileEntry> files, final String indexUuid) {
+        return new GenerationUpdateRequest(files, Collections.emptyMap(), indexUuid, SequenceNumbers.NO_OPS_PERFORMED, false, false);
+    }
+
+    static GenerationUpdateRequest written(final String path, final FileEntry entry, final String indexUuid) {
+        return written(Collections.singletonMap(path, entry), indexUuid);
+    }
+
+    /**
+     * Removes collected tombstones, each given with the version it had when it was collected.
+     */
+    static GenerationUpdateRequest purge(final Map<String, Long> purges) {
+        return new GenerationUpdateRequest(Collections.emptyMap(), purges, null, SequenceNumbers.NO_OPS_PERFORMED, false, false);
+    }
+
+    /**
+     * Replaces the manifest with the files read from the index, keeping the entries written after they were read.
+     */
+    static GenerationUpdateRequest rebuild(final Map<String, FileEntry> files, final String indexUuid, final long checkpoint) {
+        return new GenerationUpdateRequest(files, Collections.emptyMap(), indexUuid, checkpoint, true, false);
+    }
+
+    /**
+     * Records the files changed in the index after the checkpoint of the manifest, e.g. by indexing documents directly.
+     */
+    static GenerationUpdateRequest reconcile(final Map<String, FileEntry> files, final String indexUuid, final long checkpoint) {
+        return new GenerationUpdateRequest(files, Collections.emptyMap(), indexUuid, checkpoint, false, false);
+    }
+
+    static GenerationUpdateRequest invalidate() {
+        return new GenerationUpdateRequest(Collections.emptyMap(), Collections.emptyMap(), null, SequenceNumbers.NO_OPS_PERFORMED,
+                false, true);
+    }
+
+    @Override
+    public void writeTo(final StreamOutput out) throws IOException {
+        super.writeTo(out);
+        out.writeMap(files, StreamOutput::writeString, (o, v) -> v.writeTo(o));
+        out.writeMap(purges, StreamOutput::writeString, StreamOutput::writeVLong);
+        out.writeOptionalString(indexUuid);
+        out.writeZLong(checkpoint);
+        out.writeBoolean(rebuild);
+        out.writeBoolean(invalidate);
+    }
+}
@@ -0,0 +1,386 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.opensearch.configsync.service;
+
+import static org.opensearch.core.action.ActionListener.wrap;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.opensearch.OpenSearchException;
+import org.opensearch.ResourceAlreadyExistsException;
+import org.opensearch.action.admin.indices.stats.ShardStats;
+import org.opensearch.action.bulk.BulkRequestBuilder;
+import org.opensearch.action.delete.DeleteRequest;
+import org.opensearch.action.index.IndexRequest;
+import org.opensearch.action.search.SearchResponse;
+import org.opensearch.cluster.ClusterState;
+import org.opensearch.cluster.metadata.IndexAbstraction;
+import org.opensearch.cluster.metadata.IndexMetadata;
+import org.opensearch.cluster.metadata.MappingMetadata;
+import org.opensearch.cluster.service.ClusterService;
+import org.opensearch.common.settings.Settings;
+import org.opensearch.common.unit.TimeValue;
+import org.opensearch.core.action.ActionListener;
+import org.opensearch.core.common.bytes.BytesReference;
+import org.opensearch.core.xcontent.MediaTypeRegistry;
+import org.opensearch.index.mapper.SeqNoFieldMapper;
+import org.opensearch.index.query.QueryBuilder;
+import org.opensearch.index.query.QueryBuilders;
+import org.opensearch.search.SearchHit;
+import org.opensearch.threadpool.ThreadPool;
+import org.opensearch.threadpool.ThreadPool.Names;
+import org.opensearch.transport.client.Client;
+
+/**
+ * Moves the config index to a backing index with the current layout while files keep being synced.
+ * The config index name is an alias over a versioned backing index ({@code <index>-v<layout>}).
+ * On the elected cluster-manager, a backing index with an older layout, or a plain index from a version
+ * without the alias, is copied into a new backing index. The documents with a sequence number above the checkpoint
+ * taken before each pass are copied again until few operations remain, and documents deleted from the old index are
+ * removed page by page. Writes are then blocked on the old index only for a last short catch-up pass, and the
+ * alias is swapped to the new index in one aliases request that also removes the old one. Reads are served by the
+ * old index until the swap; writes made while the block is set fail and are not retried.
+ */
+public class IndexLayoutMigrator {
+    private static final Logger logger = LogManager.getLogger(IndexLayoutMigrator.class);
+
+    /** Layout of the backing index created from {@code configsync/file_mapping.json}. */
+    public static final int LAYOUT_VERSION = 2;
+
+    public static final String LAYOUT_VERSION_FIELD = "layout_version";
+
+    private static final int PAGE_SIZE = 100;
+
+    // writes are blocked for the last pass once at most this many operations remain to be copied
+    private static final long CATCH_UP_MAX_OPS = 1000;
+
+    private static final int MAX_CATCH_UP_PASSES = 10;
+
+    private static final TimeValue SCROLL_TIME = TimeValue.timeValueMinutes(1);
+
+    private static final TimeValue RETRY_INTERVAL = TimeValue.timeValueMinutes(1);
+
+    private final Supplier<Client> client;
+
+    private final ClusterService clusterService;
+
+    private final ThreadPool threadPool;
+
+    private final String index;
+
+    private final long bulkBytes;
+
+    private final Runnable onCompleted;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    public IndexLayoutMigrator(final Supplier<Client> client, final ClusterService clusterService, final ThreadPool threadPool,
+            final String index, final long bulkBytes, final Runnable onCompleted) {
+        this.client = client;
+        this.clusterService = clusterService;
+        this.threadPool = threadPool;
+        this.index = index;
+        this.bulkBytes = bulkBytes;
+        this.onCompleted = onCompleted;
+    }
+
+    public static String backingIndex(final String index, final int layoutVersion) {
+        return index + "-v" + layoutVersion;
+    }
+
+    /**
+     * Returns the index the config index name resolves to, or null if it does not exist.
+     */
+    public static IndexMetadata resolve(final ClusterState state, final String index) {
+        final IndexAbstraction abstraction = state.metadata().getIndicesLookup().get(index);
+        if (abstraction == null) {
+            return null;
+        }
+        return abstraction.getWriteIndex() != null ? abstraction.getWriteIndex() : abstraction.getIndices().get(0);
+    }
+
+    /**
+     * Returns the layout version recorded in the mapping of the index, or 0 for an index created before versioning.
+     */
+    public static int layoutVersion(final IndexMetadata indexMetadata) {
+        final MappingMetadata mapping = indexMetadata.mapping();
+        if (mapping == null || !(mapping.sourceAsMap().get("_meta") instanceof Map<?, ?> meta)) {
+            return 0;
+        }
+        return meta.get(LAYOUT_VERSION_FIELD) instanceof Number version ? version.intValue() : 0;
+    }
+
+    /**
+     * Starts the migration if the local node is the elected cluster-manager and the config index has an older layout.
+     */
+    public void start() {
+        final ClusterState state = clusterService.state();
+        if (!state.nodes().isLocalNodeElectedClusterManager()) {
+            return;
+        }
+        final IndexMetadata current = resolve(state, index);
+        if (current == null || layoutVersion(current) >= LAYOUT_VERSION || !running.compareAndSet(false, true)) {
+            return;
+        }
+
+        final String source = current.getIndex().getName();
+        final String target = backingIndex(index, LAYOUT_VERSION);
+        logger.info("Migrating {} from layout {} in {} to layout {} in {}.", index, layoutVersion(current), source, LAYOUT_VERSION,
+                target);
+        final Consumer<Exception> fail = e -> onFailure(source, e);
+        createTarget(target, wrap(created -> getCheckpoint(source, wrap(checkpoint -> {
+            copy(source, target, QueryBuilders.matchAllQuery(), wrap(copied -> catchUp(source, target, checkpoint, 1, wrap(since -> {
+                removeDeleted(source, target, wrap(removed -> {
+                    setWriteBlock(source, true, wrap(blocked -> refresh(source, wrap(refreshed -> {
+                        copy(source, target, changedSince(since), wrap(caughtUp -> removeDeletedIfAny(source, target,
+                                wrap(synced -> swap(source, target), fail)), fail));
+                    }, fail)), fail));
+                }, fail));
+            }, fail)), fail));
+        }, fail)), fail));
+    }
+
+    private static QueryBuilder changedSince(final long checkpoint) {
+        return QueryBuilders.rangeQuery(SeqNoFieldMapper.NAME).gt(checkpoint);
+    }
+
+    /**
+     * Copies the documents written since the given checkpoint while writes go on, until at most {@link #CATCH_UP_MAX_OPS}
+     * operations remain or {@link #MAX_CATCH_UP_PASSES} passes were made, and returns the checkpoint the last pass covered.
+     */
+    private void catchUp(final String source, final String target, final long since, final int pass, final ActionListener<Long> listener) {
+        getCheckpoint(source, wrap(checkpoint -> {
+            if (checkpoint - since <= CATCH_UP_MAX_OPS || pass >= MAX_CATCH_UP_PASSES) {
+                listener.onResponse(since);
+                return;
+            }
+            if (logger.isDebugEnabled()) {
+                logger.debug("Catching up {} operations of {} in pass {}.", checkpoint - since, source, pass);
+            }
+            copy(source, target, changedSince(since),
+                    wrap(r -> catchUp(source, target, checkpoint, pass + 1, listener), listener::onFailure));
+        }, listener::onFailure));
+    }
+
+    /**
+     * Returns the lowest local checkpoint of the primaries of the index and refreshes it, so the copy sees every document
+     * up to the checkpoint and every later write has a higher sequence number.
+     */
+    private void getCheckpoint(final String indexName, final ActionListener<Long> listener) {
+        client.get().admin().indices().prepareStats(indexName).clear().execute(wrap(stats -> {
+            long checkpoint = Long.MAX_VALUE;
+            for (final ShardStats shardStats : stats.getShards()) {
+                if (shardStats.getShardRouting().primary() && shardStats.getSeqNoStats() != null) {
+                    checkpoint = Math.min(checkpoint, shardStats.getSeqNoStats().getLocalCheckpoint());
+                }
+            }
+            if (checkpoint == Long.MAX_VALUE) {
+                listener.onFailure(new OpenSearchException("No sequence number stats of {} are available.", indexName));
+                return;
+            }
+            final long localCheckpoint = checkpoint;
+            refresh(indexName, wrap(r -> listener.onResponse(localCheckpoint), listener::onFailure));
+        }, listener::onFailure));
+    }
+
+    private void refresh(final String indexName, final ActionListener<Void> listener) {
+        client.get().admin().indices().prepareRefresh(indexName).execute(wrap(res -> listener.onResponse(null), listener::onFailure));
+    }
+
+    private void createTarget(final String target, final ActionListener<Void> listener) {
+        try {
+            ConfigSyncService.prepareCreateIndex(client.get(), target).execute(wrap(res -> {
+                client.get().admin().cluster().prepareHealth(target).setWaitForYellowStatus()
+                        .execute(wrap(health -> listener.onResponse(null), listener::onFailure));
+            }, e -> {
+                if (e instanceof ResourceAlreadyExistsException) {
+                    // left by an interrupted migration; the copy overwrites its documents
+                    listener.onResponse(null);
+                } else {
+                    listener.onFailure(e);
+                }
+            }));
+        } catch (final Exception e) {
+            listener.onFailure(e);
+        }
+    }
+
+    private void copy(final String source, final String target, final QueryBuilder query, final ActionListener<Void> listener) {
+        final BulkBuffer buffer = new BulkBuffer();
+        scan(source, query, true, (hits, next) -> {
+            for (final SearchHit hit : hits) {
+                final BytesReference sourceRef = hit.getSourceRef();
+                buffer.add(new IndexRequest(target).id(hit.getId()).source(sourceRef, MediaTypeRegistry.xContentType(sourceRef)),
+                        sourceRef.length());
+            }
+            buffer.flushIfFull(next);
+        }, wrap(r -> buffer.flush(listener), listener::onFailure));
+    }
+
+    /**
+     * Deletes the documents of the target that are no longer in the source, looking up one page of ids at a time.
+     */
+    private void removeDeleted(final String source, final String target, final ActionListener<Void> listener) {
+        final BulkBuffer buffer = new BulkBuffer();
+        refresh(target, wrap(refreshed -> scan(target, QueryBuilders.matchAllQuery(), false, (hits, next) -> {
+            final String[] ids = new String[hits.length];
+            for (int i = 0; i < hits.length; i++) {
+                ids[i] = hits[i].getId();
+            }
+            client.get().prepareSearch(source).setQuery(QueryBuilders.idsQuery().addIds(ids)).setFetchSource(false).setSize(ids.length)
+                    .execute(wrap(response -> {
+                        final Set<String> existing = new HashSet<>();
+                        for (final SearchHit hit : response.getHits().getHits()) {
+                            existing.add(hit.getId());
+                        }
+                        for (final String id : ids) {
+                            if (!existing.contains(id)) {
+                                buffer.add(new DeleteRequest(target, id), id.length());
+                            }
+                        }
+                        buffer.flushIfFull(next);
+                    }, next::onFailure));
+        }, wrap(r -> buffer.flush(listener), listener::onFailure)), listener::onFailure));
+    }
+
+    /**
+     * Runs {@link #removeDeleted} again only if the target has more documents than the source,
+     * which happens if documents were deleted after the last pass.
+     */
+    private void removeDeletedIfAny(final String source, final String target, final ActionListener<Void> listener) {
+        refresh(target, wrap(refreshed -> count(source, wrap(sourceCount -> count(target, wrap(targetCount -> {
+            if (targetCount > sourceCount) {
+                removeDeleted(source, target, listener);
+            } else {
+                listener.onResponse(null);
+            }
+        }, listener::onFailure)), listener::onFailure)), listener::onFailure));
+    }
+
+    private void count(final String indexName, final ActionListener<Long> listener) {
+        client.get().prepareSearch(indexName).setSize(0).setTrackTotalHits(true)
+                .execute(wrap(response -> listener.onResponse(response.getHits().getTotalHits().value()), listener::onFailure));
+    }
+
+    private void swap(final String source, final String target) {
+        refresh(target, wrap(refreshed -> {
+            client.get().admin().indices().prepareAliases().removeIndex(source).addAlias(target, index).execute(wrap(res -> {
+                logger.info("Migrated {} to layout {} in {}.", index, LAYOUT_VERSION, target);
+                running.set(false);
+                onCompleted.run();
+            }, e -> onFailure(source, e)));
+        }, e -> onFailure(source, e)));
+    }
+
+    private void setWriteBlock(final String indexName, final boolean blocked, final ActionListener<Void> listener) {
+        client.get().admin().indices().prepareUpdateSettings(indexName)
+                .setSettings(Settings.builder().put(IndexMetadata.SETTING_BLOCKS_WRITE, blocked))
+                .execute(wrap(res -> listener.onResponse(null), listener::onFailure));
+    }
+
+    private void onFailure(final String source, final Exception e) {
+        logger.warn("Failed to migrate the layout of {}. Retrying in {}.", index, RETRY_INTERVAL, e);
+        setWriteBlock(source, false, wrap(r -> {}, ex -> logger.warn("Failed to remove the write block from {}.", source, ex)));
+        running.set(false);
+        threadPool.schedule(this::start, RETRY_INTERVAL, Names.GENERIC);
+    }
+
+    private void scan(final String indexName, final QueryBuilder query, final boolean fetchSource, final PageHandler handler,
+            final ActionListener<Void> listener) {
+        client.get().prepareSearch(indexName).setQuery(query).setFetchSource(fetchSource).setScroll(SCROLL_TIME).setSize(PAGE_SIZE)
+                .execute(wrap(response -> onPage(response, handler, listener), listener::onFailure));
+    }
+
+    private void onPage(final SearchResponse response, final PageHandler handler, final ActionListener<Void> listener) {
+        final String scrollId = response.getScrollId();
+        final SearchHit[] hits = response.getHits().getHits();
+        if (hits.length == 0) {
+            clearScroll(scrollId);
+            listener.onResponse(null);
+            return;
+        }
+        handler.onPage(hits, wrap(r -> client.get().prepareSearchScroll(scrollId).setScroll(SCROLL_TIME)
+                .execute(wrap(next -> onPage(next, handler, listener), e -> {
+                    clearScroll(scrollId);
+                    listener.onFailure(e);
+                })), e -> {
+                    clearScroll(scrollId);
+                    listener.onFailure(e);
+                }));
+    }
+
+    private void clearScroll(final String scrollId) {
+        if (scrollId != null) {
+            client.get().prepareClearScroll().addScrollId(scrollId)
+                    .execute(wrap(res -> {}, e -> logger.warn("Failed to clear the scroll context.", e)));
+        }
+    }
+
+    interface PageHandler {
+        void onPage(SearchHit[] hits, ActionListener<Void> next);
+    }
+
+    /**
+     * Collects index and delete requests into bulk requests of about {@code configsync.migration.bulk_size} bytes.
+     */
+    class BulkBuffer {
+        private BulkRequestBuilder bulkRequest = client.get().prepareBulk();
+
+        private long bytes;
+
+        void add(final IndexRequest request, final long size) {
+            bulkRequest.add(request);
+            bytes += size;
+        }
+
+        void add(final DeleteRequest request, final long size) {
+            bulkRequest.add(request);
+            bytes += size;
+        }
+
+        void flushIfFull(final ActionListener<Void> listener) {
+            if (bytes >= bulkBytes) {
+                flush(listener);
+            } else {
+                listener.onResponse(null);
+            }
+        }
+
+        void flush(final ActionListener<Void> listener) {
+            if (bulkRequest.numberOfActions() == 0) {
+                listener.onResponse(null);
+                return;
+            }
+            final BulkRequestBuilder request = bulkRequest;
+            bulkRequest = client.get().prepareBulk();
+            bytes = 0;
+            request.execute(wrap(response -> {
+                if (response.hasFailures()) {
+                    listener.onFailure(new OpenSearchException("Failed to copy documents: {}", response.buildFailureMessage()));
+                } else {
+                    listener.onResponse(null);
+                }
+            }, listener::onFailure));
+        }
+    }
+}
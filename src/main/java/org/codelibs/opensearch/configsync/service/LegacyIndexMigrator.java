@@ -0,0 +1,374 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.opensearch.configsync.service;
+
+import static org.opensearch.core.action.ActionListener.wrap;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.codelibs.opensearch.configsync.cluster.ConfigSyncMigrationMetadata;
+import org.codelibs.opensearch.configsync.cluster.ConfigSyncMigrationMetadata.SliceProgress;
+import org.codelibs.opensearch.configsync.cluster.ConfigSyncMigrationMetadata.State;
+import org.opensearch.OpenSearchException;
+import org.opensearch.action.DocWriteRequest.OpType;
+import org.opensearch.action.bulk.BulkItemResponse;
+import org.opensearch.action.bulk.BulkRequestBuilder;
+import org.opensearch.action.bulk.BulkResponse;
+import org.opensearch.action.index.IndexRequest;
+import org.opensearch.action.search.SearchRequestBuilder;
+import org.opensearch.action.search.SearchResponse;
+import org.opensearch.cluster.ClusterState;
+import org.opensearch.cluster.ClusterStateTaskConfig;
+import org.opensearch.cluster.ClusterStateTaskExecutor;
+import org.opensearch.cluster.ClusterStateTaskListener;
+import org.opensearch.cluster.metadata.Metadata;
+import org.opensearch.cluster.service.ClusterService;
+import org.opensearch.common.Priority;
+import org.opensearch.common.unit.TimeValue;
+import org.opensearch.common.util.concurrent.CountDown;
+import org.opensearch.core.action.ActionListener;
+import org.opensearch.core.rest.RestStatus;
+import org.opensearch.core.xcontent.MediaTypeRegistry;
+import org.opensearch.index.IndexNotFoundException;
+import org.opensearch.index.query.QueryBuilder;
+import org.opensearch.index.query.QueryBuilders;
+import org.opensearch.search.SearchHit;
+import org.opensearch.search.slice.SliceBuilder;
+import org.opensearch.search.sort.SortOrder;
+import org.opensearch.threadpool.ThreadPool.Names;
+import org.opensearch.threadpool.ThreadPool;
+import org.opensearch.transport.client.Client;
+
+/**
+ * Copies the documents of the legacy {@code .configsync} index into the config index.
+ * The copy runs asynchronously on the elected cluster-manager with one sliced scroll per slice,
+ * and each slice checkpoints the last copied path in {@link ConfigSyncMigrationMetadata}
+ * so that the migration resumes after a restart or a cluster-manager change.
+ * Documents are created, never overwritten, so copying again does not replace newer documents.
+ */
+public class LegacyIndexMigrator {
+    private static final Logger logger = LogManager.getLogger(LegacyIndexMigrator.class);
+
+    public static final String LEGACY_INDEX = ".configsync";
+
+    private static final int PAGE_SIZE = 100;
+
+    private static final TimeValue SCROLL_TIME = TimeValue.timeValueMinutes(1);
+
+    private static final TimeValue RETRY_INTERVAL = TimeValue.timeValueMinutes(1);
+
+    private final Supplier<Client> client;
+
+    private final ClusterService clusterService;
+
+    private final ThreadPool threadPool;
+
+    private final String index;
+
+    private final int numOfSlices;
+
+    private final long bulkBytes;
+
+    private final Runnable onCompleted;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    // documents may be added to the legacy index while a migration runs, so a request during a run starts another one after it
+    private final AtomicBoolean restartRequested = new AtomicBoolean(false);
+
+    private final CheckpointExecutor checkpointExecutor = new CheckpointExecutor();
+
+    public LegacyIndexMigrator(final Supplier<Client> client, final ClusterService clusterService, final ThreadPool threadPool,
+            final String index, final int numOfSlices, final long bulkBytes, final Runnable onCompleted) {
+        this.client = client;
+        this.clusterService = clusterService;
+        this.threadPool = threadPool;
+        this.index = index;
+        this.numOfSlices = numOfSlices;
+        this.bulkBytes = bulkBytes;
+        this.onCompleted = onCompleted;
+    }
+
+    /**
+     * Starts the migration if the local node is the elected cluster-manager.
+     *
+     * @param restart true to start a new migration when none is unfinished, false to only resume an unfinished one
+     */
+    public void start(final boolean restart) {
+        final ClusterState state = clusterService.state();
+        if (!state.nodes().isLocalNodeElectedClusterManager()) {
+            return;
+        }
+        final ConfigSyncMigrationMetadata metadata = ConfigSyncMigrationMetadata.get(state);
+        final boolean unfinished = metadata != null && metadata.getState() != State.COMPLETED;
+        if (!unfinished && !restart) {
+            return;
+        }
+        if (!running.compareAndSet(false, true)) {
+            if (restart) {
+                restartRequested.set(true);
+            }
+            return;
+        }
+
+        client.get().admin().indices().prepareExists(LEGACY_INDEX).execute(wrap(response -> {
+            if (!response.isExists()) {
+                if (logger.isDebugEnabled()) {
+                    logger.debug("{} does not exist.", LEGACY_INDEX);
+                }
+                running.set(false);
+            } else if (unfinished) {
+                logger.info("Resuming the migration from {} to {}: {} documents copied.", LEGACY_INDEX, index, metadata.getCopied());
+                run(metadata);
+            } else {
+                updateMetadata(m -> ConfigSyncMigrationMetadata.start(LEGACY_INDEX, index, numOfSlices), wrap(m -> {
+                    logger.info("Migrating from {} to {} with {} slices.", LEGACY_INDEX, index, numOfSlices);
+                    run(m);
+                }, this::onFailure));
+            }
+        }, e -> {
+            if (e instanceof IndexNotFoundException) {
+                running.set(false);
+            } else {
+                onFailure(e);
+            }
+        }));
+    }
+
+    private void run(final ConfigSyncMigrationMetadata metadata) {
+        final List<SliceProgress> slices = metadata.getSlices();
+        final CountDown countDown = new CountDown(slices.size());
+        final AtomicReference<Exception> failure = new AtomicReference<>();
+        final ActionListener<Void> sliceListener = ActionListener.wrap(r -> {
+            if (countDown.countDown()) {
+                onSlicesFinished(failure.get());
+            }
+        }, e -> {
+            failure.compareAndSet(null, e);
+            if (countDown.countDown()) {
+                onSlicesFinished(failure.get());
+            }
+        });
+        for (int i = 0; i < slices.size(); i++) {
+            if (slices.get(i).isDone()) {
+                sliceListener.onResponse(null);
+            } else {
+                new SliceCopier(i, slices.size(), slices.get(i)).start(sliceListener);
+            }
+        }
+    }
+
+    private void onSlicesFinished(final Exception e) {
+        if (e != null) {
+            onFailure(e);
+            return;
+        }
+        // the manifest is rebuilt by a search once the migration completes, so the copies must be visible to it
+        client.get().admin().indices().prepareRefresh(index).execute(wrap(refreshed -> {
+            updateMetadata(m -> m.withState(State.COMPLETED, null), wrap(m -> {
+                logger.info("Migrated {} documents from {} to {}.", m.getCopied(), LEGACY_INDEX, index);
+                running.set(false);
+                onCompleted.run();
+                if (restartRequested.getAndSet(false)) {
+                    start(true);
+                }
+            }, this::onFailure));
+        }, this::onFailure));
+    }
+
+    private void onFailure(final Exception e) {
+        logger.warn("Failed to migrate from {} to {}. Retrying in {}.", LEGACY_INDEX, index, RETRY_INTERVAL, e);
+        updateMetadata(m -> m == null ? null : m.withState(State.FAILED, e.getMessage()), wrap(m -> {}, ex -> {
+            logger.warn("Failed to record the migration failure.", ex);
+        }));
+        running.set(false);
+        threadPool.schedule(() -> start(false), RETRY_INTERVAL, Names.GENERIC);
+    }
+
+    private void updateMetadata(final Function<ConfigSyncMigrationMetadata, ConfigSyncMigrationMetadata> update,
+            final ActionListener<ConfigSyncMigrationMetadata> listener) {
+        clusterService.submitStateUpdateTask("configsync-migration", new CheckpointTask(update), ClusterStateTaskConfig.build(Priority.NORMAL),
+                checkpointExecutor, new ClusterStateTaskListener() {
+
+                    @Override
+                    public void onFailure(final String source, final Exception e) {
+                        listener.onFailure(e);
+                    }
+
+                    @Override
+                    public void clusterStateProcessed(final String source, final ClusterState oldState, final ClusterState newState) {
+                        listener.onResponse(ConfigSyncMigrationMetadata.get(newState));
+                    }
+                });
+    }
+
+    class SliceCopier {
+
+        private final int slice;
+
+        private final int max;
+
+        private String lastPath;
+
+        private long copied;
+
+        private ActionListener<Void> listener;
+
+        private volatile String scrollId;
+
+        private BulkRequestBuilder bulkRequest;
+
+        private long pendingBytes;
+
+        private String pendingLastPath;
+
+        SliceCopier(final int slice, final int max, final SliceProgress progress) {
+            this.slice = slice;
+            this.max = max;
+            this.lastPath = progress.getLastPath();
+            this.copied = progress.getCopied();
+        }
+
+        void start(final ActionListener<Void> listener) {
+            this.listener = listener;
+            bulkRequest = client.get().prepareBulk();
+            // documents are read in path order, so the last copied path is where the slice resumes
+            final QueryBuilder queryBuilder =
+                    lastPath == null ? QueryBuilders.matchAllQuery() : QueryBuilders.rangeQuery(ConfigSyncService.PATH).gt(lastPath);
+            final SearchRequestBuilder builder = client.get().prepareSearch(LEGACY_INDEX).setQuery(queryBuilder)
+                    .addSort(ConfigSyncService.PATH, SortOrder.ASC).setScroll(SCROLL_TIME).setSize(PAGE_SIZE);
+            if (max > 1) {
+                builder.slice(new SliceBuilder(slice, max));
+            }
+            builder.execute(wrap(this::onPage, this::fail));
+        }
+
+        private void onPage(final SearchResponse response) {
+            scrollId = response.getScrollId();
+            final SearchHit[] hits = response.getHits().getHits();
+            if (hits.length == 0) {
+                flush(true);
+                return;
+            }
+            try {
+                for (final SearchHit hit : hits) {
+                    pendingLastPath = ConfigFileSource.parse(hit.getSourceRef()).getPath();
+                    bulkRequest.add(new IndexRequest(index).id(hit.getId())
+                            .source(hit.getSourceRef(), MediaTypeRegistry.xContentType(hit.getSourceRef())).opType(OpType.CREATE));
+                    pendingBytes += hit.getSourceRef().length();
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("Copying id:{}", hit.getId());
+                    }
+                }
+            } catch (final Exception e) {
+                fail(e);
+                return;
+            }
+            if (pendingBytes >= bulkBytes) {
+                flush(false);
+            } else {
+                scroll();
+            }
+        }
+
+        private void flush(final boolean last) {
+            if (bulkRequest.numberOfActions() == 0) {
+                checkpoint(last);
+                return;
+            }
+            final BulkRequestBuilder request = bulkRequest;
+            bulkRequest = client.get().prepareBulk();
+            pendingBytes = 0;
+            request.execute(wrap((final BulkResponse response) -> {
+                int failed = 0;
+                for (final BulkItemResponse item : response.getItems()) {
+                    if (!item.isFailed() || item.status() == RestStatus.CONFLICT) {
+                        // already copied documents are kept as they are
+                        copied++;
+                    } else {
+                        failed++;
+                    }
+                }
+                if (failed > 0) {
+                    fail(new OpenSearchException("Failed to copy {} documents: {}", failed, response.buildFailureMessage()));
+                    return;
+                }
+                lastPath = pendingLastPath;
+                checkpoint(last);
+            }, this::fail));
+        }
+
+        private void checkpoint(final boolean last) {
+            final SliceProgress progress = new SliceProgress(lastPath, copied, last);
+            updateMetadata(m -> m.withSlice(slice, progress), wrap(m -> {
+                if (last) {
+                    clearScroll();
+                    listener.onResponse(null);
+                } else {
+                    scroll();
+                }
+            }, this::fail));
+        }
+
+        private void scroll() {
+            client.get().prepareSearchScroll(scrollId).setScroll(SCROLL_TIME).execute(wrap(this::onPage, this::fail));
+        }
+
+        private void fail(final Exception e) {
+            clearScroll();
+            listener.onFailure(e);
+        }
+
+        private void clearScroll() {
+            if (scrollId != null) {
+                client.get().prepareClearScroll().addScrollId(scrollId)
+                        .execute(wrap(res -> {}, e -> logger.warn("Failed to clear the scroll context.", e)));
+            }
+        }
+    }
+
+    static class CheckpointTask {
+        private final Function<ConfigSyncMigrationMetadata, ConfigSyncMigrationMetadata> update;
+
+        CheckpointTask(final Function<ConfigSyncMigrationMetadata, ConfigSyncMigrationMetadata> update) {
+            this.update = update;
+        }
+    }
+
+    static class CheckpointExecutor implements ClusterStateTaskExecutor<CheckpointTask> {
+
+        @Override
+        public ClusterTasksResult<CheckpointTask> execute(final ClusterState currentState, final List<CheckpointTask> tasks)
+                throws Exception {
+            ConfigSyncMigrationMetadata metadata = ConfigSyncMigrationMetadata.get(currentState);
+            for (final CheckpointTask task : tasks) {
+                metadata = task.update.apply(metadata);
+            }
+            if (metadata == null) {
+                return ClusterTasksResult.<CheckpointTask> builder().successes(tasks).build(currentState);
+            }
+            final ClusterState newState = ClusterState.builder(currentState)
+                    .metadata(Metadata.builder(currentState.metadata()).putCustom(ConfigSyncMigrationMetadata.TYPE, metadata)).build();
+            return ClusterTasksResult.<CheckpointTask> builder().successes(tasks).build(newState);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.opensearch.configsync.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.codelibs.opensearch.configsync.cluster.ConfigSyncMetadata.FileEntry;
+import org.opensearch.common.hash.MessageDigests;
+
+/**
+ * Keeps track of the files this node has written under the config path,
+ * so that a manifest can be compared with the local files without reading them again.
+ */
+public class LocalConfigFiles {
+
+    private static final String UNVERIFIED = "unverified";
+
+    private final String configPath;
+
+    private final Map<String, LocalFile> files = new ConcurrentHashMap<>();
+
+    private final Set<String> changedPaths = ConcurrentHashMap.newKeySet();
+
+    public LocalConfigFiles(final String configPath) {
+        this.configPath = configPath;
+    }
+
+    public Path resolve(final String path) {
+        return Paths.get(configPath, path.replace("..", ""));
+    }
+
+    /**
+     * Returns the paths in the manifest whose local file is missing or differs from the entry,
+     * or still exists for a deleted entry.
+     */
+    public List<String> getOutdatedPaths(final Map<String, FileEntry> manifest) throws IOException {
+        return ConfigHashTree.of(manifest).diff(getLocalTree(manifest));
+    }
+
+    /**
+     * Builds the hash tree of the local files at the paths of the manifest.
+     * Only files modified since they were written or last verified are read.
+     */
+    public ConfigHashTree getLocalTree(final Map<String, FileEntry> manifest) throws IOException {
+        final Map<String, String> hashes = new HashMap<>();
+        for (final Map.Entry<String, FileEntry> entry : manifest.entrySet()) {
+            final String hash = getLocalHash(entry.getKey(), entry.getValue());
+            if (hash != null) {
+                hashes.put(entry.getKey(), hash);
+            }
+        }
+        return ConfigHashTree.build(hashes);
+    }
+
+    public boolean isCurrent(final String path, final FileEntry entry) throws IOException {
+        final String hash = getLocalHash(path, entry);
+        if (hash == null) {
+            // a tombstone is applied when the file is gone
+            return entry.isDeleted();
+        }
+        return !entry.isDeleted() && hash.equals(entry.getHash());
+    }
+
+    /**
+     * Returns the content hash of the local file, or null if it does not exist.
+     * A file that cannot match the entry is not read and gets a hash that matches nothing.
+     */
+    private String getLocalHash(final String path, final FileEntry entry) throws IOException {
+        final Path filePath = resolve(path);
+        if (!Files.exists(filePath)) {
+            files.remove(path);
+            return null;
+        }
+        final BasicFileAttributes attrs = Files.readAttributes(filePath, BasicFileAttributes.class);
+        final LocalFile localFile = files.get(path);
+        if (localFile != null && localFile.matches(attrs)) {
+            return localFile.hash;
+        }
+        if (entry.isDeleted() || attrs.size() != entry.getSize()) {
+            return UNVERIFIED;
+        }
+        // unknown or modified since it was written: verify the content
+        final String hash = hash(filePath);
+        files.put(path, new LocalFile(hash, attrs));
+        return hash;
+    }
+
+    /**
+     * Records the content hash of a file that has just been written and returns its size.
+     */
+    public long applied(final String path, final String hash) throws IOException {
+        final Path filePath = resolve(path);
+        final LocalFile localFile = new LocalFile(hash, Files.readAttributes(filePath, BasicFileAttributes.class));
+        files.put(path, localFile);
+        changedPaths.add(path);
+        return localFile.size;
+    }
+
+    public void remove(final String path) {
+        files.remove(path);
+    }
+
+    /**
+     * Forgets a file that has just been deleted.
+     */
+    public void deleted(final String path) {
+        files.remove(path);
+        changedPaths.add(path);
+    }
+
+    /**
+     * Returns the paths written or deleted since the last call.
+     */
+    public Set<String> drainChangedPaths() {
+        final Set<String> paths = new HashSet<>();
+        for (final String path : changedPaths) {
+            if (changedPaths.remove(path)) {
+                paths.add(path);
+            }
+        }
+        return paths;
+    }
+
+    public void clear() {
+        files.clear();
+    }
+
+    public static String hash(final byte[] content) {
+        return MessageDigests.toHexString(MessageDigests.sha256().digest(content));
+    }
+
+    public static String hash(final Path filePath) throws IOException {
+        final MessageDigest digest = MessageDigests.sha256();
+        final byte[] buffer = new byte[8192];
+        try (InputStream in = Files.newInputStream(filePath)) {
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, n);
+            }
+        }
+        return MessageDigests.toHexString(digest.digest());
+    }
+
+    private static class LocalFile {
+        // a file modified this close to being hashed may change again without getting a new modification time
+        private static final long RACY_MILLIS = 1000L;
+
+        private final String hash;
+
+        private final long size;
+
+        private final FileTime lastModified;
+
+        private final boolean racy;
+
+        LocalFile(final String hash, final BasicFileAttributes attrs) {
+            this.hash = hash;
+            this.size = attrs.size();
+            this.lastModified = attrs.lastModifiedTime();
+            this.racy = System.currentTimeMillis() - lastModified.toMillis() < RACY_MILLIS;
+        }
+
+        boolean matches(final BasicFileAttributes attrs) {
+            return !racy && size == attrs.size() && lastModified.equals(attrs.lastModifiedTime());
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.opensearch.configsync.service;
+
+import static org.opensearch.core.action.ActionListener.wrap;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.codelibs.opensearch.configsync.cluster.ConfigSyncMetadata.FileEntry;
+import org.opensearch.OpenSearchException;
+import org.opensearch.action.admin.indices.stats.ShardStats;
+import org.opensearch.action.get.GetResponse;
+import org.opensearch.action.get.MultiGetItemResponse;
+import org.opensearch.action.get.MultiGetRequestBuilder;
+import org.opensearch.action.search.SearchResponse;
+import org.opensearch.common.unit.TimeValue;
+import org.opensearch.core.action.ActionListener;
+import org.opensearch.index.IndexNotFoundException;
+import org.opensearch.index.mapper.SeqNoFieldMapper;
+import org.opensearch.index.query.QueryBuilder;
+import org.opensearch.index.query.QueryBuilders;
+import org.opensearch.index.seqno.SequenceNumbers;
+import org.opensearch.search.SearchHit;
+import org.opensearch.transport.client.Client;
+
+/**
+ * Reads the manifest entries of the documents in the config index with a scroll, either all of them to rebuild the manifest
+ * or those changed after its checkpoint to reconcile it. Documents stored without a hash are fetched once more and hashed
+ * from their content. The config index has a single shard, so its sequence numbers order all of its documents.
+ */
+public class ManifestBuilder implements ActionListener<SearchResponse> {
+    private static final Logger logger = LogManager.getLogger(ManifestBuilder.class);
+
+    private final Supplier<Client> client;
+
+    private final String index;
+
+    private final TimeValue scrollTime;
+
+    private final Map<String, FileEntry> files = new HashMap<>();
+
+    private boolean rebuild;
+
+    private String indexUuid;
+
+    private long checkpoint = SequenceNumbers.NO_OPS_PERFORMED;
+
+    private ActionListener<GenerationUpdateRequest> listener;
+
+    private volatile String currentScrollId;
+
+    public ManifestBuilder(final Supplier<Client> client, final String index, final TimeValue scrollTime) {
+        this.client = client;
+        this.index = index;
+        this.scrollTime = scrollTime;
+    }
+
+    /**
+     * Reads every document to replace the manifest.
+     */
+    public void rebuild(final ActionListener<GenerationUpdateRequest> listener) {
+        rebuild = true;
+        execute(QueryBuilders.matchAllQuery(), listener);
+    }
+
+    /**
+     * Reads the documents written after the given sequence number, e.g. indexed directly instead of through the API.
+     */
+    public void reconcile(final long since, final ActionListener<GenerationUpdateRequest> listener) {
+        rebuild = false;
+        execute(QueryBuilders.rangeQuery(SeqNoFieldMapper.NAME).gt(since), listener);
+    }
+
+    private void execute(final QueryBuilder query, final ActionListener<GenerationUpdateRequest> listener) {
+        this.listener = listener;
+        // every operation up to the local checkpoint of the primary is visible to the scroll after the refresh
+        client.get().admin().indices().prepareStats(index).clear().execute(wrap(stats -> {
+            for (final ShardStats shardStats : stats.getShards()) {
+                if (shardStats.getShardRouting().primary() && shardStats.getSeqNoStats() != null) {
+                    indexUuid = shardStats.getShardRouting().index().getUUID();
+                    checkpoint = shardStats.getSeqNoStats().getLocalCheckpoint();
+                }
+            }
+            if (indexUuid == null) {
+                listener.onFailure(new OpenSearchException("No sequence number stats of {} are available.", index));
+                return;
+            }
+            client.get().admin().indices().prepareRefresh(index).execute(wrap(refreshed -> client.get().prepareSearch(index)
+                    .setPreference(ConfigSyncService.LOCAL_PREFERENCE).setQuery(query)
+                    .setFetchSource(new String[] { ConfigSyncService.PATH, ConfigSyncService.HASH, ConfigSyncService.SIZE,
+                            ConfigSyncService.DELETED, ConfigSyncService.NODES }, null)
+                    .seqNoAndPrimaryTerm(true).setScroll(scrollTime).setSize(100).execute(this), this::onFailure));
+        }, this::onFailure));
+    }
+
+    private void respond() {
+        if (rebuild) {
+            listener.onResponse(GenerationUpdateRequest.rebuild(files, indexUuid, checkpoint));
+        } else {
+            listener.onResponse(GenerationUpdateRequest.reconcile(files, indexUuid, checkpoint));
+        }
+    }
+
+    @Override
+    public void onResponse(final SearchResponse response) {
+        currentScrollId = response.getScrollId();
+        final SearchHit[] hits = response.getHits().getHits();
+        if (hits.length == 0) {
+            clearScroll();
+            respond();
+            return;
+        }
+        final MultiGetRequestBuilder builder = client.get().prepareMultiGet().setPreference(ConfigSyncService.LOCAL_PREFERENCE);
+        for (final SearchHit hit : hits) {
+            final Map<String, Object> source = hit.getSourceAsMap();
+            if (Boolean.TRUE.equals(source.get(ConfigSyncService.DELETED)) || source.get(ConfigSyncService.HASH) != null) {
+                files.put((String) source.get(ConfigSyncService.PATH), ConfigSyncService.getFileEntry(source).withSeqNo(hit.getSeqNo()));
+            } else {
+                // stored without a hash, e.g. by an older version or indexed directly: hashed from its content
+                builder.add(index, hit.getId());
+            }
+        }
+        if (builder.request().getItems().isEmpty()) {
+            client.get().prepareSearchScroll(currentScrollId).setScroll(scrollTime).execute(this);
+            return;
+        }
+        builder.execute(wrap(res -> {
+            for (final MultiGetItemResponse item : res.getResponses()) {
+                if (item.isFailed()) {
+                    onFailure(item.getFailure().getFailure());
+                    return;
+                }
+                final GetResponse getResponse = item.getResponse();
+                if (getResponse.isExists()) {
+                    final Map<String, Object> source = getResponse.getSourceAsMap();
+                    files.put((String) source.get(ConfigSyncService.PATH),
+                            ConfigSyncService.getFileEntry(source).withSeqNo(getResponse.getSeqNo()));
+                }
+            }
+            client.get().prepareSearchScroll(currentScrollId).setScroll(scrollTime).execute(this);
+        }, this::onFailure));
+    }
+
+    @Override
+    public void onFailure(final Exception e) {
+        clearScroll();
+        if (e instanceof IndexNotFoundException) {
+            files.clear();
+            indexUuid = null;
+            checkpoint = SequenceNumbers.NO_OPS_PERFORMED;
+            respond();
+        } else {
+            listener.onFailure(e);
+        }
+    }
+
+    private void clearScroll() {
+        if (currentScrollId != null) {
+            client.get().prepareClearScroll().addScrollId(currentScrollId)
+                    .execute(wrap(res -> {}, e -> logger.warn("Failed to clear the scroll context.", e)));
+            currentScrollId = null;
+        }
+    }
+}
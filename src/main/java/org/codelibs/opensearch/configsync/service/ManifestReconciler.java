@@ -0,0 +1,145 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.opensearch.configsync.service;
+
+import static org.opensearch.core.action.ActionListener.wrap;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.codelibs.opensearch.configsync.cluster.ConfigSyncMetadata;
+import org.opensearch.cluster.ClusterState;
+import org.opensearch.cluster.metadata.IndexMetadata;
+import org.opensearch.cluster.service.ClusterService;
+import org.opensearch.common.unit.TimeValue;
+import org.opensearch.core.action.ActionListener;
+import org.opensearch.threadpool.ThreadPool;
+import org.opensearch.threadpool.ThreadPool.Names;
+import org.opensearch.transport.client.Client;
+
+/**
+ * Keeps the manifest in line with the config index when it is changed outside the API.
+ * It runs periodically on the elected cluster-manager: documents written after the checkpoint of the manifest,
+ * e.g. indexed directly, are added to it, and a config index replaced by another one, e.g. restored from a snapshot,
+ * or one with fewer documents than the manifest has entries, e.g. after a direct delete, makes the manifest rebuilt.
+ */
+public class ManifestReconciler {
+    private static final Logger logger = LogManager.getLogger(ManifestReconciler.class);
+
+    private final Supplier<Client> client;
+
+    private final ClusterService clusterService;
+
+    private final ThreadPool threadPool;
+
+    private final String index;
+
+    private final TimeValue scrollTime;
+
+    private final TimeValue interval;
+
+    private final BiConsumer<GenerationUpdateRequest, ActionListener<Void>> updateManifest;
+
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+    // the documents missing from the index at the last run, confirmed by the next one before the manifest is rebuilt
+    private long missingDocs;
+
+    /**
+     * @param interval the time between two runs, or 0 to disable the reconciliation
+     * @param updateManifest submits the given update of the manifest
+     */
+    public ManifestReconciler(final Supplier<Client> client, final ClusterService clusterService, final ThreadPool threadPool,
+            final String index, final TimeValue scrollTime, final TimeValue interval,
+            final BiConsumer<GenerationUpdateRequest, ActionListener<Void>> updateManifest) {
+        this.client = client;
+        this.clusterService = clusterService;
+        this.threadPool = threadPool;
+        this.index = index;
+        this.scrollTime = scrollTime;
+        this.interval = interval;
+        this.updateManifest = updateManifest;
+    }
+
+    /**
+     * Schedules the reconciliation if the local node is the elected cluster-manager and it is not scheduled yet.
+     */
+    public void start() {
+        if (interval.millis() > 0 && clusterService.state().nodes().isLocalNodeElectedClusterManager()
+                && scheduled.compareAndSet(false, true)) {
+            threadPool.schedule(this::run, interval, Names.GENERIC);
+        }
+    }
+
+    private void run() {
+        if (!clusterService.state().nodes().isLocalNodeElectedClusterManager()) {
+            scheduled.set(false);
+            return;
+        }
+        reconcile(wrap(r -> threadPool.schedule(this::run, interval, Names.GENERIC), e -> {
+            logger.warn("Failed to reconcile the config manifest with {}.", index, e);
+            threadPool.schedule(this::run, interval, Names.GENERIC);
+        }));
+    }
+
+    /**
+     * Adds the documents written after the checkpoint of the manifest, or invalidates it if the config index was replaced
+     * or lost documents. Nothing is done while the manifest is being built.
+     */
+    public void reconcile(final ActionListener<Void> listener) {
+        final ClusterState state = clusterService.state();
+        final ConfigSyncMetadata metadata = ConfigSyncMetadata.get(state);
+        final IndexMetadata indexMetadata = IndexLayoutMigrator.resolve(state, index);
+        if (!metadata.isComplete() || indexMetadata == null) {
+            listener.onResponse(null);
+            return;
+        }
+        if (!indexMetadata.getIndexUUID().equals(metadata.getIndexUuid())) {
+            logger.info("{} was replaced by {}. Rebuilding the config manifest.", index, indexMetadata.getIndex());
+            updateManifest.accept(GenerationUpdateRequest.invalidate(), listener);
+            return;
+        }
+        new ManifestBuilder(client, index, scrollTime).reconcile(metadata.getCheckpoint(), wrap(request -> {
+            if (!request.files.isEmpty()) {
+                logger.info("{} files were changed in {} outside the API. Adding them to the config manifest.", request.files.size(),
+                        index);
+            }
+            updateManifest.accept(request, wrap(r -> checkDocCount(listener), listener::onFailure));
+        }, listener::onFailure));
+    }
+
+    private void checkDocCount(final ActionListener<Void> listener) {
+        client.get().prepareSearch(index).setSize(0).setTrackTotalHits(true).execute(wrap(response -> {
+            final ConfigSyncMetadata metadata = ConfigSyncMetadata.get(clusterService.state());
+            final long missing = metadata.getFiles().size() - response.getHits().getTotalHits().value();
+            if (!metadata.isComplete() || missing <= 0) {
+                missingDocs = 0;
+                listener.onResponse(null);
+            } else if (missing != missingDocs) {
+                // a tombstone being collected is removed from the index before it is removed from the manifest
+                missingDocs = missing;
+                listener.onResponse(null);
+            } else {
+                logger.info("{} documents were deleted from {} outside the API. Rebuilding the config manifest.", missing, index);
+                missingDocs = 0;
+                updateManifest.accept(GenerationUpdateRequest.invalidate(), listener);
+            }
+        }, listener::onFailure));
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.opensearch.configsync.service;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.codelibs.opensearch.configsync.cluster.ConfigSyncReadyNodes;
+import org.opensearch.cluster.ClusterState;
+import org.opensearch.cluster.ClusterStateTaskExecutor;
+
+/**
+ * Records the nodes that have finished their initial sync in {@link ConfigSyncReadyNodes}, keeping only the nodes in the cluster.
+ */
+public class NodeReadyExecutor implements ClusterStateTaskExecutor<NodeReadyRequest> {
+
+    @Override
+    public ClusterTasksResult<NodeReadyRequest> execute(final ClusterState currentState, final List<NodeReadyRequest> tasks)
+            throws Exception {
+        final ConfigSyncReadyNodes current = ConfigSyncReadyNodes.get(currentState);
+        final Set<String> nodeIds = new HashSet<>(current.getNodeIds());
+        for (final NodeReadyRequest task : tasks) {
+            if (task.nodeId != null) {
+                nodeIds.add(task.nodeId);
+            }
+        }
+        nodeIds.retainAll(currentState.nodes().getNodes().keySet());
+        final ConfigSyncReadyNodes readyNodes = new ConfigSyncReadyNodes(nodeIds);
+        if (readyNodes.equals(current)) {
+            return ClusterTasksResult.<NodeReadyRequest> builder().successes(tasks).build(currentState);
+        }
+        final ClusterState newState = ClusterState.builder(currentState).putCustom(ConfigSyncReadyNodes.TYPE, readyNodes).build();
+        return ClusterTasksResult.<NodeReadyRequest> builder().successes(tasks).build(newState);
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.opensearch.configsync.service;
+
+import java.io.IOException;
+
+import org.opensearch.core.common.io.stream.StreamInput;
+import org.opensearch.core.common.io.stream.StreamOutput;
+import org.opensearch.transport.TransportRequest;
+
+/**
+ * Reports a node as done with its initial sync, or, without a node id, drops the nodes that left from the ready nodes.
+ */
+public class NodeReadyRequest extends TransportRequest {
+    final String nodeId;
+
+    NodeReadyRequest(final String nodeId) {
+        super();
+        this.nodeId = nodeId;
+    }
+
+    NodeReadyRequest(final StreamInput in) throws IOException {
+        super(in);
+        nodeId = in.readOptionalString();
+    }
+
+    @Override
+    public void writeTo(final StreamOutput out) throws IOException {
+        super.writeTo(out);
+        out.writeOptionalString(nodeId);
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.opensearch.configsync.service;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.codelibs.opensearch.configsync.cluster.ConfigSyncMetadata.FileEntry;
+import org.opensearch.cluster.node.DiscoveryNode;
+import org.opensearch.cluster.node.DiscoveryNodes;
+
+/**
+ * Resolves the node selector of a file: a comma-separated list in the syntax of the {@code _nodes} APIs, such as node names,
+ * roles ({@code ingest:true}) or attributes ({@code zone:us-east-1a}). A file without a selector is synced by every node.
+ * Selectors are resolved by each node against the current cluster state, so a node that joins later or changes its
+ * attributes is matched the same way.
+ */
+public final class NodeSelector {
+
+    private NodeSelector() {
+    }
+
+    /**
+     * Returns the node ids matched by the selector, or every node for an empty selector.
+     *
+     * @throws IllegalArgumentException if the selector names an unknown role
+     */
+    public static String[] resolve(final String selector, final DiscoveryNodes nodes) {
+        return nodes.resolveNodes(split(selector));
+    }
+
+    public static boolean matches(final String selector, final DiscoveryNodes nodes) {
+        if (selector == null || selector.isEmpty()) {
+            return true;
+        }
+        return Arrays.asList(resolve(selector, nodes)).contains(nodes.getLocalNodeId());
+    }
+
+    /**
+     * Returns the manifest as it applies to the local node: the entries of files selected for other nodes are tombstones,
+     * so the node neither fetches them nor keeps a copy.
+     */
+    public static Map<String, FileEntry> localFiles(final Map<String, FileEntry> files, final DiscoveryNodes nodes) {
+        final Map<String, Boolean> matched = new HashMap<>();
+        Map<String, FileEntry> localFiles = null;
+        for (final Map.Entry<String, FileEntry> entry : files.entrySet()) {
+            final String selector = entry.getValue().getNodes();
+            if (selector == null || entry.getValue().isDeleted() || matched.computeIfAbsent(selector, s -> matches(s, nodes))) {
+                continue;
+            }
+            if (localFiles == null) {
+                localFiles = new HashMap<>(files);
+            }
+            localFiles.put(entry.getKey(), FileEntry.tombstone(entry.getValue().getVersion()));
+        }
+        return localFiles == null ? files : localFiles;
+    }
+
+    static String[] split(final String selector) {
+        if (selector == null || selector.isEmpty()) {
+            return new String[0];
+        }
+        return Arrays.stream(selector.split(",")).map(String::trim).filter(s -> !s.isEmpty()).toArray(String[]::new);
+    }
+
+    /**
+     * Returns the nodes matched by the selector, or every node for an empty selector.
+     */
+    public static Iterator<DiscoveryNode> select(final String selector, final DiscoveryNodes nodes) {
+        return Arrays.stream(resolve(selector, nodes)).map(nodes::get).iterator();
+    }
+}
@@ -0,0 +1,268 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.opensearch.configsync.service;
+
+import static org.opensearch.core.action.ActionListener.wrap;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.codelibs.opensearch.configsync.cluster.ConfigSyncMetadata.FileEntry;
+import org.opensearch.OpenSearchException;
+import org.opensearch.action.DocWriteResponse;
+import org.opensearch.action.bulk.BulkItemResponse;
+import org.opensearch.action.bulk.BulkRequestBuilder;
+import org.opensearch.action.search.SearchResponse;
+import org.opensearch.common.unit.TimeValue;
+import org.opensearch.common.xcontent.XContentType;
+import org.opensearch.core.action.ActionListener;
+import org.opensearch.core.xcontent.XContentBuilder;
+import org.opensearch.index.query.QueryBuilder;
+import org.opensearch.index.query.QueryBuilders;
+import org.opensearch.search.SearchHit;
+import org.opensearch.transport.client.Client;
+
+/**
+ * Rewrites the live documents at or under a path page by page: each page of a scroll becomes a bulk request
+ * that writes the copies, then one that writes the tombstones of the sources whose copy succeeded,
+ * and the manifest is updated once after a single refresh.
+ */
+public class PathBulkOperation implements ActionListener<SearchResponse> {
+    private static final Logger logger = LogManager.getLogger(PathBulkOperation.class);
+
+    private final Supplier<Client> client;
+
+    private final String index;
+
+    private final TimeValue scrollTime;
+
+    private final int scrollSize;
+
+    private final Map<String, FileEntry> manifest;
+
+    private final BiConsumer<GenerationUpdateRequest, ActionListener<Void>> updateManifest;
+
+    private final String source;
+
+    private final String target;
+
+    private final boolean deleteSource;
+
+    // the written copies and tombstones, each with the sequence number of its write
+    private final Map<String, FileEntry> files = new HashMap<>();
+
+    private String indexUuid;
+
+    private final Date timestamp = new Date();
+
+    private ActionListener<Integer> listener;
+
+    private volatile String currentScrollId;
+
+    // the paths whose every write succeeded
+    private int count;
+
+    private int failures;
+
+    private String failure;
+
+    /**
+     * @param manifest the manifest entries reused for the copies, so that their content is not hashed again
+     * @param updateManifest records the written copies and tombstones in the manifest
+     * @param target the path replacing the source prefix, or null to only delete
+     */
+    public PathBulkOperation(final Supplier<Client> client, final String index, final TimeValue scrollTime, final int scrollSize,
+            final Map<String, FileEntry> manifest, final BiConsumer<GenerationUpdateRequest, ActionListener<Void>> updateManifest,
+            final String source, final String target, final boolean deleteSource) {
+        this.client = client;
+        this.index = index;
+        this.scrollTime = scrollTime;
+        this.scrollSize = scrollSize;
+        this.manifest = manifest;
+        this.updateManifest = updateManifest;
+        this.source = source;
+        this.target = target;
+        this.deleteSource = deleteSource;
+    }
+
+    public void execute(final ActionListener<Integer> listener) {
+        this.listener = listener;
+        final QueryBuilder query = QueryBuilders.boolQuery()
+                .filter(QueryBuilders.boolQuery().should(QueryBuilders.termQuery(ConfigSyncService.PATH, source))
+                        .should(QueryBuilders.prefixQuery(ConfigSyncService.PATH, source + "/")).minimumShouldMatch(1))
+                .mustNot(QueryBuilders.termQuery(ConfigSyncService.DELETED, true));
+        client.get().prepareSearch(index).setQuery(query).seqNoAndPrimaryTerm(true).setScroll(scrollTime).setSize(scrollSize)
+                .execute(this);
+    }
+
+    @Override
+    public void onResponse(final SearchResponse response) {
+        currentScrollId = response.getScrollId();
+        final SearchHit[] hits = response.getHits().getHits();
+        if (hits.length == 0) {
+            finish();
+            return;
+        }
+        try {
+            final List<String> paths = new ArrayList<>();
+            for (final SearchHit hit : hits) {
+                paths.add((String) hit.getSourceAsMap().get(ConfigSyncService.PATH));
+            }
+            if (target != null) {
+                copy(Arrays.asList(hits), paths);
+            } else {
+                tombstone(Arrays.asList(hits), paths);
+            }
+        } catch (final Exception e) {
+            onFailure(e);
+        }
+    }
+
+    private void copy(final List<SearchHit> hits, final List<String> paths) {
+        final BulkRequestBuilder bulk = client.get().prepareBulk();
+        final List<String> newPaths = new ArrayList<>();
+        final List<FileEntry> entries = new ArrayList<>();
+        for (int i = 0; i < hits.size(); i++) {
+            final Map<String, Object> sourceMap = new HashMap<>(hits.get(i).getSourceAsMap());
+            final String path = paths.get(i);
+            final String newPath = target + path.substring(source.length());
+            entries.add(getEntry(path, sourceMap));
+            newPaths.add(newPath);
+            sourceMap.put(ConfigSyncService.PATH, newPath);
+            sourceMap.put(ConfigSyncService.TIMESTAMP, timestamp);
+            bulk.add(client.get().prepareIndex(index).setId(ConfigSyncService.getId(newPath)).setSource(sourceMap, XContentType.SMILE));
+        }
+        bulk.execute(wrap(bulkResponse -> {
+            // a source is removed only once its copy exists
+            final List<SearchHit> copiedHits = new ArrayList<>();
+            final List<String> copiedPaths = new ArrayList<>();
+            final BulkItemResponse[] items = bulkResponse.getItems();
+            for (int i = 0; i < items.length; i++) {
+                if (items[i].isFailed()) {
+                    onItemFailure(items[i]);
+                } else {
+                    final DocWriteResponse res = items[i].getResponse();
+                    files.put(newPaths.get(i), entries.get(i).withSeqNo(res.getSeqNo()));
+                    indexUuid = res.getShardId().getIndex().getUUID();
+                    copiedHits.add(hits.get(i));
+                    copiedPaths.add(paths.get(i));
+                }
+            }
+            if (deleteSource) {
+                tombstone(copiedHits, copiedPaths);
+            } else {
+                count += copiedHits.size();
+                nextPage();
+            }
+        }, this::onFailure));
+    }
+
+    private void tombstone(final List<SearchHit> hits, final List<String> paths) throws IOException {
+        if (hits.isEmpty()) {
+            nextPage();
+            return;
+        }
+        final BulkRequestBuilder bulk = client.get().prepareBulk();
+        for (int i = 0; i < hits.size(); i++) {
+            final SearchHit hit = hits.get(i);
+            final XContentBuilder builder = ConfigSyncService.sourceBuilder();
+            builder.startObject();
+            builder.field(ConfigSyncService.PATH, paths.get(i));
+            builder.field(ConfigSyncService.DELETED, true);
+            builder.field(ConfigSyncService.TIMESTAMP, timestamp);
+            builder.endObject();
+            bulk.add(client.get().prepareIndex(index).setId(hit.getId()).setSource(builder).setIfSeqNo(hit.getSeqNo())
+                    .setIfPrimaryTerm(hit.getPrimaryTerm()));
+        }
+        bulk.execute(wrap(bulkResponse -> {
+            final BulkItemResponse[] items = bulkResponse.getItems();
+            for (int i = 0; i < items.length; i++) {
+                if (items[i].isFailed()) {
+                    onItemFailure(items[i]);
+                } else {
+                    final DocWriteResponse res = items[i].getResponse();
+                    files.put(paths.get(i), FileEntry.tombstone(0L).withSeqNo(res.getSeqNo()));
+                    indexUuid = res.getShardId().getIndex().getUUID();
+                    count++;
+                }
+            }
+            nextPage();
+        }, this::onFailure));
+    }
+
+    private void onItemFailure(final BulkItemResponse item) {
+        failures++;
+        if (failure == null) {
+            failure = item.getFailureMessage();
+        }
+    }
+
+    private void nextPage() {
+        client.get().prepareSearchScroll(currentScrollId).setScroll(scrollTime).execute(this);
+    }
+
+    private FileEntry getEntry(final String path, final Map<String, Object> sourceMap) {
+        final FileEntry entry = manifest.get(path);
+        if (entry != null && !entry.isDeleted()) {
+            return entry;
+        }
+        return ConfigSyncService.getFileEntry(sourceMap);
+    }
+
+    private void finish() {
+        clearScroll();
+        if (files.isEmpty()) {
+            respond();
+            return;
+        }
+        // nodes fetch the changed paths as soon as the generation moves, so the writes must be visible first
+        final GenerationUpdateRequest request = GenerationUpdateRequest.written(files, indexUuid);
+        client.get().admin().indices().prepareRefresh(index).execute(
+                wrap(refreshed -> updateManifest.accept(request, wrap(r -> respond(), listener::onFailure)), listener::onFailure));
+    }
+
+    private void respond() {
+        if (failure != null) {
+            listener.onFailure(new OpenSearchException("Updated {} files under [{}], but failed to update {}: {}", count, source,
+                    failures, failure));
+        } else {
+            listener.onResponse(count);
+        }
+    }
+
+    @Override
+    public void onFailure(final Exception e) {
+        clearScroll();
+        listener.onFailure(e);
+    }
+
+    private void clearScroll() {
+        if (currentScrollId != null) {
+            client.get().prepareClearScroll().addScrollId(currentScrollId)
+                    .execute(wrap(res -> {}, e -> logger.warn("Failed to clear the scroll context.", e)));
+            currentScrollId = null;
+        }
+    }
+}
@@ -0,0 +1,465 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.opensearch.configsync.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.AccessController;
+import java.security.MessageDigest;
+import java.security.PrivilegedActionException;
+import java.security.PrivilegedExceptionAction;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.codelibs.opensearch.configsync.cluster.ConfigSyncMetadata;
+import org.codelibs.opensearch.configsync.cluster.ConfigSyncMetadata.FileEntry;
+import org.codelibs.opensearch.configsync.cluster.ConfigSyncReadyNodes;
+import org.opensearch.cluster.ClusterState;
+import org.opensearch.cluster.node.DiscoveryNode;
+import org.opensearch.cluster.service.ClusterService;
+import org.opensearch.common.Randomness;
+import org.opensearch.common.UUIDs;
+import org.opensearch.common.hash.MessageDigests;
+import org.opensearch.core.action.ActionListener;
+import org.opensearch.core.common.bytes.BytesArray;
+import org.opensearch.core.common.bytes.BytesReference;
+import org.opensearch.core.common.io.stream.StreamInput;
+import org.opensearch.core.common.io.stream.StreamOutput;
+import org.opensearch.core.transport.TransportResponse;
+import org.opensearch.tasks.Task;
+import org.opensearch.transport.TransportChannel;
+import org.opensearch.transport.TransportException;
+import org.opensearch.transport.TransportRequest;
+import org.opensearch.transport.TransportRequestHandler;
+import org.opensearch.transport.TransportResponseHandler;
+import org.opensearch.transport.TransportService;
+
+/**
+ * Copies synced files between nodes in binary chunks, so large files are not decoded from the config index by every node.
+ * A node serves a file only while it is live in the manifest and its local copy matches the requested hash,
+ * and the receiving node verifies the hash of the whole file before it replaces its copy. Files that no peer could serve are left to the regular fetch from the index.
+ */
+public class PeerFileTransfer implements TransportRequestHandler<PeerFileTransfer.FileChunkRequest> {
+    private static final Logger logger = LogManager.getLogger(PeerFileTransfer.class);
+
+    public static final String ACTION_FILE_CHUNK = "cluster:admin/configsync/file_chunk";
+
+    // peers asked for a file before falling back to the index
+    private static final int MAX_PEERS = 3;
+
+    private final TransportService transportService;
+
+    private final ClusterService clusterService;
+
+    private final LocalConfigFiles localConfigFiles;
+
+    private final ConfigSyncStats stats;
+
+    private final SyncThrottle throttle;
+
+    private final long minSize;
+
+    private final int chunkSize;
+
+    public PeerFileTransfer(final TransportService transportService, final ClusterService clusterService,
+            final LocalConfigFiles localConfigFiles, final ConfigSyncStats stats, final SyncThrottle throttle, final long minSize,
+            final int chunkSize) {
+        this.transportService = transportService;
+        this.clusterService = clusterService;
+        this.localConfigFiles = localConfigFiles;
+        this.stats = stats;
+        this.throttle = throttle;
+        this.minSize = minSize;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Fetches the files at least {@code configsync.peer_transfer.min_size} large from peers,
+     * and returns the paths still to be fetched from the index.
+     */
+    public void fetch(final List<String> paths, final Map<String, FileEntry> manifest, final ActionListener<List<String>> listener) {
+        final List<String> remaining = new ArrayList<>();
+        final List<String> large = new ArrayList<>();
+        for (final String path : paths) {
+            final FileEntry entry = manifest.get(path);
+            if (entry != null && !entry.isDeleted() && entry.getSize() >= minSize) {
+                large.add(path);
+            } else {
+                remaining.add(path);
+            }
+        }
+        final List<DiscoveryNode> peers = getPeers(clusterService.state());
+        if (large.isEmpty() || peers.isEmpty()) {
+            listener.onResponse(paths);
+            return;
+        }
+        fetchNext(large.iterator(), manifest, peers, remaining, listener);
+    }
+
+    private void fetchNext(final Iterator<String> it, final Map<String, FileEntry> manifest, final List<DiscoveryNode> peers,
+            final List<String> remaining, final ActionListener<List<String>> listener) {
+        if (!it.hasNext()) {
+            listener.onResponse(remaining);
+            return;
+        }
+        final String path = it.next();
+        new Download(path, manifest.get(path), peers.iterator()).start(ActionListener.wrap(fetched -> {
+            if (!fetched) {
+                stats.onPeerFallback();
+                remaining.add(path);
+            }
+            fetchNext(it, manifest, peers, remaining, listener);
+        }, e -> {
+            logger.warn("Failed to fetch {} from peers.", path, e);
+            stats.onPeerFallback();
+            remaining.add(path);
+            fetchNext(it, manifest, peers, remaining, listener);
+        }));
+    }
+
+    /**
+     * Returns the peers that have finished their initial sync, those with the same attributes (zone, rack, ...) as this node first.
+     */
+    static List<DiscoveryNode> getPeers(final ClusterState state) {
+        final DiscoveryNode localNode = state.nodes().getLocalNode();
+        final List<DiscoveryNode> near = new ArrayList<>();
+        final List<DiscoveryNode> far = new ArrayList<>();
+        for (final String nodeId : ConfigSyncReadyNodes.get(state).getNodeIds()) {
+            final DiscoveryNode node = state.nodes().get(nodeId);
+            if (node == null || node.getId().equals(localNode.getId())) {
+                continue;
+            }
+            if (node.getAttributes().equals(localNode.getAttributes())) {
+                near.add(node);
+            } else {
+                far.add(node);
+            }
+        }
+        // spread the load of a rollout over the peers
+        Randomness.shuffle(near);
+        Randomness.shuffle(far);
+        near.addAll(far);
+        return near.size() > MAX_PEERS ? new ArrayList<>(near.subList(0, MAX_PEERS)) : near;
+    }
+
+    /**
+     * Downloads one file chunk by chunk into a temporary file next to it, trying the peers in turn.
+     */
+    class Download {
+
+        private final String path;
+
+        private final FileEntry entry;
+
+        private final Iterator<DiscoveryNode> peers;
+
+        private final Path filePath;
+
+        private Path tempPath;
+
+        private ActionListener<Boolean> listener;
+
+        private DiscoveryNode peer;
+
+        private FileChannel channel;
+
+        private MessageDigest digest;
+
+        private long offset;
+
+        // set when the first chunk arrives, so a peer without the file is not counted as a failed write
+        private long startTime = -1;
+
+        Download(final String path, final FileEntry entry, final Iterator<DiscoveryNode> peers) {
+            this.path = path;
+            this.entry = entry;
+            this.peers = peers;
+            filePath = localConfigFiles.resolve(path);
+        }
+
+        void start(final ActionListener<Boolean> listener) {
+            this.listener = listener;
+            nextPeer();
+        }
+
+        private void nextPeer() {
+            discard();
+            if (!peers.hasNext()) {
+                listener.onResponse(false);
+                return;
+            }
+            peer = peers.next();
+            offset = 0;
+            digest = MessageDigests.sha256();
+            // unique, as syncs running at the same time may download the same file
+            tempPath = filePath.resolveSibling("." + filePath.getFileName() + "." + UUIDs.randomBase64UUID() + ".configsync");
+            try {
+                channel = doPrivileged(() -> {
+                    Files.createDirectories(tempPath.getParent());
+                    return FileChannel.open(tempPath, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                            StandardOpenOption.WRITE);
+                });
+            } catch (final IOException e) {
+                listener.onFailure(e);
+                return;
+            }
+            requestChunk();
+        }
+
+        private void requestChunk() {
+            final int length = (int) Math.min(chunkSize, entry.getSize() - offset);
+            transportService.sendRequest(peer, ACTION_FILE_CHUNK, new FileChunkRequest(path, entry.getHash(), entry.getSize(), offset, length),
+                    new TransportResponseHandler<FileChunkResponse>() {
+
+                        @Override
+                        public FileChunkResponse read(final StreamInput in) throws IOException {
+                            return new FileChunkResponse(in);
+                        }
+
+                        @Override
+                        public void handleResponse(final FileChunkResponse response) {
+                            onChunk(response);
+                        }
+
+                        @Override
+                        public void handleException(final TransportException exp) {
+                            if (logger.isDebugEnabled()) {
+                                logger.debug("Failed to fetch {} from {}.", path, peer, exp);
+                            }
+                            onApplyFailed();
+                            nextPeer();
+                        }
+
+                        @Override
+                        public String executor() {
+                            return ConfigSyncService.SYNC_THREAD_POOL_NAME;
+                        }
+                    });
+        }
+
+        private void onChunk(final FileChunkResponse response) {
+            if (!response.available) {
+                if (logger.isDebugEnabled()) {
+                    logger.debug("{} does not have the current {}.", peer, path);
+                }
+                onApplyFailed();
+                nextPeer();
+                return;
+            }
+            try {
+                final BytesReference content = response.content;
+                if (content.length() == 0 && offset < entry.getSize()) {
+                    throw new IOException("Empty chunk at " + offset + " of " + path);
+                }
+                if (startTime < 0) {
+                    startTime = stats.onApplyStarted();
+                }
+                final byte[] bytes = BytesReference.toBytes(content);
+                digest.update(bytes);
+                doPrivileged(() -> {
+                    final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                    return null;
+                });
+                offset += bytes.length;
+                stats.onPeerChunk(bytes.length);
+                // chunks are received on the configsync_sync threads, which may wait before asking for the next one
+                throttle.pauseFetch(bytes.length);
+                throttle.pauseWrite(bytes.length);
+                if (offset < entry.getSize()) {
+                    requestChunk();
+                    return;
+                }
+                closeChannel();
+                final String hash = MessageDigests.toHexString(digest.digest());
+                if (!hash.equals(entry.getHash())) {
+                    // the peer's file changed while it was sent
+                    throw new IOException("The hash of " + path + " from " + peer + " does not match.");
+                }
+                final long size = doPrivileged(() -> {
+                    Files.move(tempPath, filePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    return localConfigFiles.applied(path, hash);
+                });
+                tempPath = null;
+                stats.onApplied(startTime, size);
+                stats.onPeerFetched();
+                startTime = -1;
+                logger.info("Updated {} from {}", filePath.toAbsolutePath(), peer.getName());
+                listener.onResponse(true);
+            } catch (final IOException e) {
+                logger.warn("Failed to fetch {} from {}.", path, peer, e);
+                onApplyFailed();
+                nextPeer();
+            }
+        }
+
+        private void onApplyFailed() {
+            if (startTime >= 0) {
+                stats.onApplyFailed(startTime);
+                startTime = -1;
+            }
+        }
+
+        private void closeChannel() throws IOException {
+            if (channel != null) {
+                channel.close();
+                channel = null;
+            }
+        }
+
+        private void discard() {
+            if (tempPath == null) {
+                return;
+            }
+            try {
+                doPrivileged(() -> {
+                    closeChannel();
+                    Files.deleteIfExists(tempPath);
+                    return null;
+                });
+            } catch (final IOException e) {
+                logger.warn("Failed to remove {}.", tempPath, e);
+            }
+            tempPath = null;
+        }
+    }
+
+    @Override
+    public void messageReceived(final FileChunkRequest request, final TransportChannel channel, final Task task) throws Exception {
+        final FileChunkResponse response = doPrivileged(() -> {
+            // only files the manifest lists are served, so a request cannot read other files under the config directory
+            final FileEntry entry = ConfigSyncMetadata.get(clusterService.state()).getFiles().get(request.path);
+            if (entry == null || entry.isDeleted() || !request.hash.equals(entry.getHash())) {
+                return new FileChunkResponse(false, BytesArray.EMPTY);
+            }
+            // cached attributes make this a stat call unless the file changed
+            if (!localConfigFiles.isCurrent(request.path, new FileEntry(request.hash, request.size, 0L))) {
+                return new FileChunkResponse(false, BytesArray.EMPTY);
+            }
+            final long length = Math.max(0, Math.min(request.length, request.size - request.offset));
+            final ByteBuffer buffer = ByteBuffer.allocate((int) length);
+            try (FileChannel fileChannel = FileChannel.open(localConfigFiles.resolve(request.path), StandardOpenOption.READ)) {
+                long position = request.offset;
+                while (buffer.hasRemaining()) {
+                    final int n = fileChannel.read(buffer, position);
+                    if (n < 0) {
+                        return new FileChunkResponse(false, BytesArray.EMPTY);
+                    }
+                    position += n;
+                }
+            }
+            return new FileChunkResponse(true, new BytesArray(buffer.array()));
+        });
+        if (response.available) {
+            stats.onPeerServed(response.content.length());
+        }
+        channel.sendResponse(response);
+    }
+
+    private static <T> T doPrivileged(final PrivilegedExceptionAction<T> action) throws IOException {
+        try {
+            return AccessController.doPrivileged(action);
+        } catch (final PrivilegedActionException e) {
+            if (e.getException() instanceof IOException) {
+                throw (IOException) e.getException();
+            }
+            throw new IOException(e.getException());
+        }
+    }
+
+    public static class FileChunkRequest extends TransportRequest {
+
+        private final String path;
+
+        private final String hash;
+
+        private final long size;
+
+        private final long offset;
+
+        private final int length;
+
+        FileChunkRequest(final String path, final String hash, final long size, final long offset, final int length) {
+            this.path = path;
+            this.hash = hash;
+            this.size = size;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        public FileChunkRequest(final StreamInput in) throws IOException {
+            super(in);
+            path = in.readString();
+            hash = in.readString();
+            size = in.readVLong();
+            offset = in.readVLong();
+            length = in.readVInt();
+        }
+
+        @Override
+        public void writeTo(final StreamOutput out) throws IOException {
+            super.writeTo(out);
+            out.writeString(path);
+            out.writeString(hash);
+            out.writeVLong(size);
+            out.writeVLong(offset);
+            out.writeVInt(length);
+        }
+    }
+
+    static class FileChunkResponse extends TransportResponse {
+
+        private final boolean available;
+
+        private final BytesReference content;
+
+        FileChunkResponse(final boolean available, final BytesReference content) {
+            this.available = available;
+            this.content = content;
+        }
+
+        FileChunkResponse(final StreamInput in) throws IOException {
+            super(in);
+            available = in.readBoolean();
+            content = in.readBytesReference();
+        }
+
+        boolean isAvailable() {
+            return available;
+        }
+
+        BytesReference getContent() {
+            return content;
+        }
+
+        @Override
+        public void writeTo(final StreamOutput out) throws IOException {
+            out.writeBoolean(available);
+            out.writeBytesReference(content);
+        }
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.opensearch.configsync.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.opensearch.action.DocWriteResponse;
+import org.opensearch.common.unit.TimeValue;
+import org.opensearch.core.action.ActionListener;
+import org.opensearch.threadpool.ThreadPool;
+
+/**
+ * Buffers stores for {@code configsync.store.coalesce_window}, so that rapid uploads are written in one bulk request
+ * with a single refresh and manifest update. A path stored or deleted again while it is buffered keeps only its last
+ * write; the listeners of the replaced writes are answered with the response of the one that is written.
+ */
+public class StoreCoalescer {
+
+    private final ThreadPool threadPool;
+
+    private final TimeValue window;
+
+    private final long maxBytes;
+
+    private final ConfigSyncStats stats;
+
+    private final Consumer<Map<String, PendingStore>> writer;
+
+    // guarded by this
+    private Map<String, PendingStore> pending = new LinkedHashMap<>();
+
+    // guarded by this
+    private long pendingBytes;
+
+    // guarded by this
+    private boolean scheduled;
+
+    /**
+     * @param maxBytes the buffered content size at which the buffer is written without waiting for the window
+     * @param writer writes the buffered stores by path, in the order they were last written
+     */
+    public StoreCoalescer(final ThreadPool threadPool, final TimeValue window, final long maxBytes, final ConfigSyncStats stats,
+            final Consumer<Map<String, PendingStore>> writer) {
+        this.threadPool = threadPool;
+        this.window = window;
+        this.maxBytes = maxBytes;
+        this.stats = stats;
+        this.writer = writer;
+    }
+
+    public synchronized boolean isPending(final String path) {
+        return pending.containsKey(path);
+    }
+
+    /**
+     * @param nodes the node selector of the file, or null for every node
+     */
+    public void store(final String path, final byte[] content, final String nodes,
+            final ActionListener<DocWriteResponse.Result> listener) {
+        if (add(path, content, nodes, listener)) {
+            flush();
+        }
+    }
+
+    /**
+     * Replaces a buffered store of the path with a tombstone.
+     *
+     * @return false if the path is not buffered, in which case the delete is left to the caller
+     */
+    public boolean deleteIfPending(final String path, final ActionListener<DocWriteResponse.Result> listener) {
+        final boolean full;
+        synchronized (this) {
+            if (!pending.containsKey(path)) {
+                return false;
+            }
+            full = add(path, null, null, listener);
+        }
+        if (full) {
+            flush();
+        }
+        return true;
+    }
+
+    /**
+     * @return true if the buffer is full and has to be written now
+     */
+    private synchronized boolean add(final String path, final byte[] content, final String nodes,
+            final ActionListener<DocWriteResponse.Result> listener) {
+        final List<ActionListener<DocWriteResponse.Result>> listeners = new ArrayList<>();
+        // removed first, so the path moves to the end of the write order
+        final PendingStore previous = pending.remove(path);
+        if (previous != null) {
+            listeners.addAll(previous.listeners);
+            pendingBytes -= previous.size();
+            stats.onStoreCoalesced();
+        }
+        listeners.add(listener);
+        final PendingStore store = new PendingStore(content, nodes, listeners);
+        pending.put(path, store);
+        pendingBytes += store.size();
+        if (pendingBytes >= maxBytes) {
+            return true;
+        }
+        if (!scheduled) {
+            scheduled = true;
+            threadPool.schedule(this::flush, window, ConfigSyncService.THREAD_POOL_NAME);
+        }
+        return false;
+    }
+
+    /**
+     * Writes the buffered stores. A scheduled flush that finds the buffer already written does nothing.
+     */
+    public void flush() {
+        final Map<String, PendingStore> stores;
+        synchronized (this) {
+            scheduled = false;
+            if (pending.isEmpty()) {
+                return;
+            }
+            stores = pending;
+            pending = new LinkedHashMap<>();
+            pendingBytes = 0;
+        }
+        writer.accept(stores);
+    }
+
+    public static class PendingStore {
+
+        private final byte[] content;
+
+        private final String nodes;
+
+        private final List<ActionListener<DocWriteResponse.Result>> listeners;
+
+        PendingStore(final byte[] content, final String nodes, final List<ActionListener<DocWriteResponse.Result>> listeners) {
+            this.content = content;
+            this.nodes = nodes;
+            this.listeners = Collections.unmodifiableList(listeners);
+        }
+
+        /**
+         * Returns the content to store, or null for a tombstone.
+         */
+        public byte[] getContent() {
+            return content;
+        }
+
+        public String getNodes() {
+            return nodes;
+        }
+
+        public boolean isDeleted() {
+            return content == null;
+        }
+
+        long size() {
+            return content == null ? 0 : content.length;
+        }
+
+        public void onResponse(final DocWriteResponse.Result result) {
+            ActionListener.onResponse(listeners, result);
+        }
+
+        public void onFailure(final Exception e) {
+            ActionListener.onFailure(listeners, e);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.opensearch.configsync.service;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.apache.lucene.store.RateLimiter.SimpleRateLimiter;
+import org.opensearch.core.common.unit.ByteSizeValue;
+
+/**
+ * Limits the bytes per second a node fetches and writes while syncing, so a large rollout leaves network and disk
+ * to indexing and search. Callers wait on the {@code configsync_sync} threads until their bytes fit the rate; a rate of 0
+ * removes the limit. The rates can be changed while a sync runs, and the time spent waiting is counted in the stats.
+ */
+public class SyncThrottle {
+
+    private final ConfigSyncStats stats;
+
+    // null while unlimited
+    private volatile SimpleRateLimiter fetchLimiter;
+
+    private volatile SimpleRateLimiter writeLimiter;
+
+    public SyncThrottle(final ByteSizeValue fetchRate, final ByteSizeValue writeRate, final ConfigSyncStats stats) {
+        this.stats = stats;
+        fetchLimiter = limiter(null, fetchRate);
+        writeLimiter = limiter(null, writeRate);
+    }
+
+    public synchronized void setFetchRate(final ByteSizeValue rate) {
+        fetchLimiter = limiter(fetchLimiter, rate);
+    }
+
+    public synchronized void setWriteRate(final ByteSizeValue rate) {
+        writeLimiter = limiter(writeLimiter, rate);
+    }
+
+    private static SimpleRateLimiter limiter(final SimpleRateLimiter limiter, final ByteSizeValue rate) {
+        if (rate.getBytes() <= 0) {
+            return null;
+        }
+        if (limiter == null) {
+            return new SimpleRateLimiter(rate.getMbFrac());
+        }
+        // keeps the time of the last pause, so the new rate applies to the bytes already counted
+        limiter.setMBPerSec(rate.getMbFrac());
+        return limiter;
+    }
+
+    public boolean isFetchLimited() {
+        return fetchLimiter != null;
+    }
+
+    /**
+     * Returns the fetch rate in bytes per second, or 0 if it is not limited.
+     */
+    public long getFetchRate() {
+        return rate(fetchLimiter);
+    }
+
+    /**
+     * Returns the write rate in bytes per second, or 0 if it is not limited.
+     */
+    public long getWriteRate() {
+        return rate(writeLimiter);
+    }
+
+    private static long rate(final SimpleRateLimiter limiter) {
+        return limiter == null ? 0L : (long) (limiter.getMBPerSec() * 1024 * 1024);
+    }
+
+    /**
+     * Waits until the fetched bytes fit the fetch rate.
+     */
+    public void pauseFetch(final long bytes) {
+        final long nanos = pause(fetchLimiter, bytes);
+        if (nanos > 0) {
+            stats.onFetchThrottled(nanos);
+        }
+    }
+
+    /**
+     * Waits until the written bytes fit the write rate.
+     */
+    public void pauseWrite(final long bytes) {
+        final long nanos = pause(writeLimiter, bytes);
+        if (nanos > 0) {
+            stats.onWriteThrottled(nanos);
+        }
+    }
+
+    private static long pause(final SimpleRateLimiter limiter, final long bytes) {
+        if (limiter == null || bytes <= 0) {
+            return 0L;
+        }
+        return limiter.pause(bytes);
+    }
+
+    /**
+     * Returns a stream that waits for the write rate as it writes, or the stream itself while writes are not limited.
+     */
+    public OutputStream limitWrites(final OutputStream out) {
+        if (writeLimiter == null) {
+            return out;
+        }
+        return new FilterOutputStream(out) {
+
+            private long unpausedBytes;
+
+            @Override
+            public void write(final int b) throws IOException {
+                out.write(b);
+                onWritten(1);
+            }
+
+            @Override
+            public void write(final byte[] b, final int off, final int len) throws IOException {
+                out.write(b, off, len);
+                onWritten(len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                super.close();
+                pauseWrite(unpausedBytes);
+                unpausedBytes = 0;
+            }
+
+            private void onWritten(final long bytes) {
+                unpausedBytes += bytes;
+                final SimpleRateLimiter limiter = writeLimiter;
+                // pausing for every write would cost more than the writes
+                if (limiter == null || unpausedBytes >= limiter.getMinPauseCheckBytes()) {
+                    pauseWrite(unpausedBytes);
+                    unpausedBytes = 0;
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.opensearch.configsync.service;
+
+import static org.opensearch.core.action.ActionListener.wrap;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.codelibs.opensearch.configsync.cluster.ConfigSyncMetadata;
+import org.codelibs.opensearch.configsync.cluster.ConfigSyncMetadata.FileEntry;
+import org.opensearch.action.bulk.BulkItemResponse;
+import org.opensearch.action.bulk.BulkRequestBuilder;
+import org.opensearch.action.search.SearchResponse;
+import org.opensearch.cluster.service.ClusterService;
+import org.opensearch.common.unit.TimeValue;
+import org.opensearch.core.action.ActionListener;
+import org.opensearch.index.IndexNotFoundException;
+import org.opensearch.index.query.QueryBuilders;
+import org.opensearch.search.SearchHit;
+import org.opensearch.threadpool.ThreadPool;
+import org.opensearch.threadpool.ThreadPool.Names;
+import org.opensearch.transport.client.Client;
+
+/**
+ * Removes the tombstones of deleted config files from the config index and the manifest.
+ * It runs periodically on the elected cluster-manager. A tombstone is collected once every node
+ * has synced a generation that includes it, or once it is older than {@code configsync.tombstone.retention}
+ * so that a node which never acknowledges does not keep it forever.
+ */
+public class TombstoneCollector {
+    private static final Logger logger = LogManager.getLogger(TombstoneCollector.class);
+
+    private static final int PAGE_SIZE = 100;
+
+    private static final TimeValue SCROLL_TIME = TimeValue.timeValueMinutes(1);
+
+    private final Supplier<Client> client;
+
+    private final ClusterService clusterService;
+
+    private final ThreadPool threadPool;
+
+    private final String index;
+
+    private final TimeValue retention;
+
+    private final TimeValue interval;
+
+    private final Consumer<ActionListener<Long>> ackedGeneration;
+
+    private final BiConsumer<Map<String, Long>, ActionListener<Void>> purgeManifest;
+
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+    /**
+     * @param ackedGeneration supplies the lowest generation synced by every node
+     * @param purgeManifest removes the given paths from the manifest if they are still tombstones not newer than the given versions
+     */
+    public TombstoneCollector(final Supplier<Client> client, final ClusterService clusterService, final ThreadPool threadPool,
+            final String index, final TimeValue retention, final TimeValue interval, final Consumer<ActionListener<Long>> ackedGeneration,
+            final BiConsumer<Map<String, Long>, ActionListener<Void>> purgeManifest) {
+        this.client = client;
+        this.clusterService = clusterService;
+        this.threadPool = threadPool;
+        this.index = index;
+        this.retention = retention;
+        this.interval = interval;
+        this.ackedGeneration = ackedGeneration;
+        this.purgeManifest = purgeManifest;
+    }
+
+    /**
+     * Schedules the collection if the local node is the elected cluster-manager and it is not scheduled yet.
+     */
+    public void start() {
+        if (clusterService.state().nodes().isLocalNodeElectedClusterManager() && scheduled.compareAndSet(false, true)) {
+            threadPool.schedule(this::run, interval, Names.GENERIC);
+        }
+    }
+
+    private void run() {
+        if (!clusterService.state().nodes().isLocalNodeElectedClusterManager()) {
+            scheduled.set(false);
+            return;
+        }
+        collect(wrap(collected -> {
+            if (collected > 0) {
+                logger.info("Collected {} tombstones from {}.", collected, index);
+            }
+            threadPool.schedule(this::run, interval, Names.GENERIC);
+        }, e -> {
+            logger.warn("Failed to collect tombstones from {}.", index, e);
+            threadPool.schedule(this::run, interval, Names.GENERIC);
+        }));
+    }
+
+    /**
+     * Collects the acknowledged and expired tombstones and returns how many were removed.
+     */
+    public void collect(final ActionListener<Integer> listener) {
+        ackedGeneration.accept(wrap(acked -> new Scan(acked).start(listener), e -> {
+            // without every node's answer only expired tombstones are collected
+            logger.warn("Failed to get the synced generations. Collecting expired tombstones only.", e);
+            new Scan(-1L).start(listener);
+        }));
+    }
+
+    class Scan {
+
+        private final long ackedGeneration;
+
+        private final long expiredBefore;
+
+        private final Map<String, FileEntry> manifest;
+
+        private final Map<String, Long> purges = new HashMap<>();
+
+        private ActionListener<Integer> listener;
+
+        private String scrollId;
+
+        private int collected;
+
+        Scan(final long ackedGeneration) {
+            this.ackedGeneration = ackedGeneration;
+            expiredBefore = System.currentTimeMillis() - retention.millis();
+            manifest = ConfigSyncMetadata.get(clusterService.state()).getFiles();
+        }
+
+        void start(final ActionListener<Integer> listener) {
+            this.listener = listener;
+            client.get().prepareSearch(index).setQuery(QueryBuilders.termQuery(ConfigSyncService.DELETED, true))
+                    .setFetchSource(new String[] { ConfigSyncService.PATH, ConfigSyncService.TIMESTAMP }, null).seqNoAndPrimaryTerm(true)
+                    .setScroll(SCROLL_TIME).setSize(PAGE_SIZE).execute(wrap(this::onPage, this::onFailure));
+        }
+
+        private void onPage(final SearchResponse response) throws Exception {
+            scrollId = response.getScrollId();
+            final SearchHit[] hits = response.getHits().getHits();
+            if (hits.length == 0) {
+                finish();
+                return;
+            }
+            final BulkRequestBuilder bulk = client.get().prepareBulk();
+            final Map<String, String> paths = new HashMap<>();
+            for (final SearchHit hit : hits) {
+                final Map<String, Object> source = hit.getSourceAsMap();
+                final String path = (String) source.get(ConfigSyncService.PATH);
+                final FileEntry entry = manifest.get(path);
+                final boolean acknowledged = entry != null && entry.isDeleted() && entry.getVersion() <= ackedGeneration;
+                final boolean expired = ConfigSyncService.getTimestamp(source.get(ConfigSyncService.TIMESTAMP)).getTime() < expiredBefore;
+                if (acknowledged || expired) {
+                    // a file stored again since the search is not a tombstone anymore
+                    bulk.add(client.get().prepareDelete(index, hit.getId()).setIfSeqNo(hit.getSeqNo())
+                            .setIfPrimaryTerm(hit.getPrimaryTerm()));
+                    paths.put(hit.getId(), path);
+                }
+            }
+            if (bulk.numberOfActions() == 0) {
+                next();
+                return;
+            }
+            bulk.execute(wrap(bulkResponse -> {
+                for (final BulkItemResponse item : bulkResponse.getItems()) {
+                    if (item.isFailed()) {
+                        if (logger.isDebugEnabled()) {
+                            logger.debug("Failed to collect the tombstone {}: {}", item.getId(), item.getFailureMessage());
+                        }
+                        continue;
+                    }
+                    collected++;
+                    final String path = paths.get(item.getId());
+                    final FileEntry entry = manifest.get(path);
+                    if (entry != null && entry.isDeleted()) {
+                        purges.put(path, entry.getVersion());
+                    }
+                }
+                next();
+            }, this::onFailure));
+        }
+
+        private void next() {
+            client.get().prepareSearchScroll(scrollId).setScroll(SCROLL_TIME).execute(wrap(this::onPage, this::onFailure));
+        }
+
+        private void finish() {
+            clearScroll();
+            if (purges.isEmpty()) {
+                listener.onResponse(collected);
+            } else {
+                purgeManifest.accept(purges, wrap(r -> listener.onResponse(collected), listener::onFailure));
+            }
+        }
+
+        private void onFailure(final Exception e) {
+            clearScroll();
+            if (e instanceof IndexNotFoundException) {
+                listener.onResponse(collected);
+            } else {
+                listener.onFailure(e);
+            }
+        }
+
+        private void clearScroll() {
+            if (scrollId != null) {
+                client.get().prepareClearScroll().addScrollId(scrollId)
+                        .execute(wrap(res -> {}, e -> logger.warn("Failed to clear the scroll context.", e)));
+                scrollId = null;
+            }
+        }
+    }
+}
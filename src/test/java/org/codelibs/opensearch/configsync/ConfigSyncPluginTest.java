@@ -23,7 +23,10 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -49,6 +52,12 @@ public class ConfigSyncPluginTest extends TestCase {
 
     private String clusterName;
 
+    private boolean broadcastEnabled;
+
+    private boolean watcherEnabled;
+
+    private String storeCoalesceWindow;
+
     private void setupClusterRunnder(final Boolean fileUpdaterEnabled, final String flushInterval) {
         clusterName = "es-configsync-" + System.currentTimeMillis();
         // create runner instance
@@ -62,6 +71,21 @@ public class ConfigSyncPluginTest extends TestCase {
                 settingsBuilder.putList("discovery.seed_hosts", "127.0.0.1:9301");
                 settingsBuilder.putList("cluster.initial_master_nodes", "127.0.0.1:9301");
                 settingsBuilder.put("configsync.flush_interval", flushInterval);
+                settingsBuilder.put("configsync.tombstone.gc_interval", "1s");
+                settingsBuilder.put("configsync.anti_entropy.interval", "1s");
+                settingsBuilder.put("configsync.watcher.enabled", watcherEnabled);
+                settingsBuilder.put("configsync.peer_transfer.min_size", "0b");
+                settingsBuilder.put("configsync.broadcast.enabled", broadcastEnabled);
+                if (storeCoalesceWindow != null) {
+                    settingsBuilder.put("configsync.store.coalesce_window", storeCoalesceWindow);
+                    settingsBuilder.put("configsync.store.refresh_policy", "wait_for");
+                }
+                if (number == 1) {
+                    settingsBuilder.put("configsync.apply.virtual_threads", true);
+                } else if (number == 2) {
+                    settingsBuilder.put("configsync.cold_sync.min_files", 1);
+                    settingsBuilder.put("configsync.cold_sync.slices", 3);
+                }
                 if (fileUpdaterEnabled != null) {
                     settingsBuilder.put("configsync.file_updater.enabled", fileUpdaterEnabled.booleanValue());
                 }
@@ -151,6 +175,10 @@ public class ConfigSyncPluginTest extends TestCase {
     }
 
     public void test_configFiles() throws Exception {
+        // changes are pushed by the cluster-manager; files that are not still arrive with the updater
+        broadcastEnabled = true;
+        // uploads are buffered and written in bulk
+        storeCoalesceWindow = "100ms";
         setupClusterRunnder(null, "1m");
 
         Node node = runner.node();
@@ -189,6 +217,7 @@ public class ConfigSyncPluginTest extends TestCase {
                 .param("path", "test1.txt").body("Test1").execute()) {
             Map<String, Object> contentMap = response.getContent(OpenSearchCurl.jsonParser());
             assertEquals("true", contentMap.get("acknowledged").toString());
+            assertEquals("created", contentMap.get("result").toString());
         }
 
         try (CurlResponse response = OpenSearchCurl.get(node, "/_configsync/file").header("Content-Type", "application/json").execute()) {
@@ -210,6 +239,14 @@ public class ConfigSyncPluginTest extends TestCase {
             assertEquals("Test1", new String(getText(configFiles[base])));
         }
 
+        // the same content is not written again
+        try (CurlResponse response = OpenSearchCurl.post(node, "/_configsync/file").header("Content-Type", "application/json")
+                .param("path", "test1.txt").body("Test1").execute()) {
+            Map<String, Object> contentMap = response.getContent(OpenSearchCurl.jsonParser());
+            assertEquals("true", contentMap.get("acknowledged").toString());
+            assertEquals("noop", contentMap.get("result").toString());
+        }
+
         try (CurlResponse response = OpenSearchCurl.post(node, "/_configsync/file").header("Content-Type", "application/json")
                 .body("{\"path\":\"dir1/test2.txt\",\"content\":\""
                         + Base64.getEncoder().encodeToString("Test2".getBytes(StandardCharsets.UTF_8)) + "\"}")
@@ -279,6 +316,47 @@ public class ConfigSyncPluginTest extends TestCase {
             assertEquals("Test3", new String(getText(configFiles[base + 2])));
         }
 
+        // files changed or deleted on a node are restored by the anti-entropy check without a new generation
+        Files.write(configFiles[0].toPath(), "Test9".getBytes(StandardCharsets.UTF_8));
+        Files.delete(configFiles[4].toPath());
+        for (int i = 0; i < 30; i++) {
+            if (configFiles[4].exists() && "Test1".equals(new String(getText(configFiles[0])))) {
+                break;
+            }
+            Thread.sleep(500L);
+        }
+        assertEquals("Test1", new String(getText(configFiles[0])));
+        assertTrue(configFiles[4].getAbsolutePath(), configFiles[4].exists());
+        assertEquals("Test2", new String(getText(configFiles[4])));
+        try (CurlResponse response = OpenSearchCurl.get(node, "/_configsync/stats").header("Content-Type", "application/json").execute()) {
+            Map<String, Object> contentMap = response.getContent(OpenSearchCurl.jsonParser());
+            Map<String, Object> nodes = (Map<String, Object>) contentMap.get("nodes");
+            // the watcher is disabled and the flush interval is longer than the test, so only the check restores them
+            long driftedFiles = 0;
+            for (Object nodeStats : nodes.values()) {
+                Map<String, Object> antiEntropy = (Map<String, Object>) ((Map<String, Object>) nodeStats).get("anti_entropy");
+                driftedFiles += ((Number) antiEntropy.get("drifted_files")).longValue();
+            }
+            assertTrue(driftedFiles >= 2);
+        }
+        try (CurlResponse response = OpenSearchCurl.get(node, "/_configsync/stats").header("Content-Type", "application/json").execute()) {
+            Map<String, Object> contentMap = response.getContent(OpenSearchCurl.jsonParser());
+            Map<String, Object> nodes = (Map<String, Object>) contentMap.get("nodes");
+            long sent = 0;
+            long received = 0;
+            long batches = 0;
+            for (Object nodeStats : nodes.values()) {
+                Map<String, Object> broadcast = (Map<String, Object>) ((Map<String, Object>) nodeStats).get("broadcast");
+                sent += ((Number) broadcast.get("sent")).longValue();
+                received += ((Number) broadcast.get("received")).longValue();
+                Map<String, Object> store = (Map<String, Object>) ((Map<String, Object>) nodeStats).get("store");
+                batches += ((Number) store.get("batches")).longValue();
+            }
+            assertTrue(sent > 0);
+            assertTrue(received > 0);
+            assertTrue(batches > 0);
+        }
+
         try (CurlResponse response = OpenSearchCurl.delete(node, "/_configsync/file").header("Content-Type", "application/json")
                 .param("path", "dir1/test2.txt").execute()) {
             Map<String, Object> contentMap = response.getContent(OpenSearchCurl.jsonParser());
@@ -327,9 +405,29 @@ public class ConfigSyncPluginTest extends TestCase {
             assertEquals("true", contentMap.get("acknowledged").toString());
             assertEquals("not_found", contentMap.get("result").toString());
         }
+
+        // a file selected for one node is removed from the others
+        String nodeName = runner.getNode(0).settings().get("node.name");
+        try (CurlResponse response = OpenSearchCurl.post(node, "/_configsync/file").header("Content-Type", "application/json")
+                .param("path", "dir1/dir2/test3.txt").param("nodes", nodeName).body("Test4").execute()) {
+            Map<String, Object> contentMap = response.getContent(OpenSearchCurl.jsonParser());
+            assertEquals("true", contentMap.get("acknowledged").toString());
+            assertEquals("updated", contentMap.get("result").toString());
+        }
+        for (int i = 0; i < 30; i++) {
+            if ("Test4".equals(new String(getText(configFiles[2]))) && !configFiles[5].exists() && !configFiles[8].exists()) {
+                break;
+            }
+            Thread.sleep(500L);
+        }
+        assertEquals("Test4", new String(getText(configFiles[2])));
+        assertFalse(configFiles[5].getAbsolutePath(), configFiles[5].exists());
+        assertFalse(configFiles[8].getAbsolutePath(), configFiles[8].exists());
     }
 
     public void test_configFiles_withFlush() throws Exception {
+        // local changes are restored as soon as they are noticed
+        watcherEnabled = true;
         setupClusterRunnder(null, "1m");
 
         Node node = runner.node();
@@ -386,6 +484,40 @@ public class ConfigSyncPluginTest extends TestCase {
             assertEquals("Test1", new String(getText(configFiles[base])));
         }
 
+        try (CurlResponse response = OpenSearchCurl.get(node, "/_configsync/stats").header("Content-Type", "application/json").execute()) {
+            Map<String, Object> contentMap = response.getContent(OpenSearchCurl.jsonParser());
+            assertEquals("true", contentMap.get("acknowledged").toString());
+            Map<String, Object> nodes = (Map<String, Object>) contentMap.get("nodes");
+            assertEquals(numOfNode, nodes.size());
+            for (Object nodeStats : nodes.values()) {
+                Map<String, Object> apply = (Map<String, Object>) ((Map<String, Object>) nodeStats).get("apply");
+                assertTrue(((Number) apply.get("files")).longValue() >= 1);
+                assertEquals(0, ((Number) apply.get("failed")).intValue());
+            }
+        }
+
+        // an index using config files is allocated once every node has reported its initial sync
+        try (CurlResponse response = OpenSearchCurl.put(node, "/analyzed").header("Content-Type", "application/json")
+                .body("{\"settings\":{\"index.number_of_shards\":1,\"index.number_of_replicas\":" + (numOfNode - 1)
+                        + ",\"index.analysis.analyzer.my_analyzer.type\":\"custom\","
+                        + "\"index.analysis.analyzer.my_analyzer.tokenizer\":\"standard\"}}")
+                .execute()) {
+            Map<String, Object> contentMap = response.getContent(OpenSearchCurl.jsonParser());
+            assertEquals("true", contentMap.get("acknowledged").toString());
+        }
+        try (CurlResponse response = OpenSearchCurl.get(node, "/_cluster/health/analyzed").header("Content-Type", "application/json")
+                .param("wait_for_status", "green").param("timeout", "30s").execute()) {
+            Map<String, Object> contentMap = response.getContent(OpenSearchCurl.jsonParser());
+            assertEquals("green", contentMap.get("status").toString());
+        }
+        try (CurlResponse response = OpenSearchCurl.get(node, "/_configsync/stats").header("Content-Type", "application/json").execute()) {
+            Map<String, Object> contentMap = response.getContent(OpenSearchCurl.jsonParser());
+            Map<String, Object> nodes = (Map<String, Object>) contentMap.get("nodes");
+            for (Object nodeStats : nodes.values()) {
+                assertEquals(Boolean.TRUE, ((Map<String, Object>) nodeStats).get("initial_sync_done"));
+            }
+        }
+
         try (CurlResponse response = OpenSearchCurl.post(node, "/_configsync/file").header("Content-Type", "application/json")
                 .body("{\"path\":\"dir1/test2.txt\",\"content\":\""
                         + Base64.getEncoder().encodeToString("Test2".getBytes(StandardCharsets.UTF_8)) + "\"}")
@@ -492,6 +624,351 @@ public class ConfigSyncPluginTest extends TestCase {
             assertEquals("true", contentMap.get("acknowledged").toString());
             assertEquals("not_found", contentMap.get("result").toString());
         }
+
+        // deleted files are removed from every node
+        try (CurlResponse response = OpenSearchCurl.post(node, "/_configsync/flush").header("Content-Type", "application/json").execute()) {
+            Map<String, Object> contentMap = response.getContent(OpenSearchCurl.jsonParser());
+            assertEquals("true", contentMap.get("acknowledged").toString());
+        }
+        for (int i = 0; i < numOfNode; i++) {
+            int base = i * 3;
+            assertFalse(configFiles[base].getAbsolutePath(), configFiles[base].exists());
+            assertFalse(configFiles[base + 1].getAbsolutePath(), configFiles[base + 1].exists());
+            assertTrue(configFiles[base + 2].getAbsolutePath(), configFiles[base + 2].exists());
+        }
+
+        // directories are copied, moved and deleted on the server side
+        try (CurlResponse response = OpenSearchCurl.post(node, "/_configsync/copy").header("Content-Type", "application/json")
+                .body("{\"source\":\"dir1/\",\"target\":\"dir3\"}").execute()) {
+            Map<String, Object> contentMap = response.getContent(OpenSearchCurl.jsonParser());
+            assertEquals("true", contentMap.get("acknowledged").toString());
+            assertEquals(1, ((Number) contentMap.get("count")).intValue());
+        }
+
+        try (CurlResponse response = OpenSearchCurl.post(node, "/_configsync/move").header("Content-Type", "application/json")
+                .param("source", "dir3/dir2").param("target", "dir4").execute()) {
+            Map<String, Object> contentMap = response.getContent(OpenSearchCurl.jsonParser());
+            assertEquals("true", contentMap.get("acknowledged").toString());
+            assertEquals(1, ((Number) contentMap.get("count")).intValue());
+        }
+
+        try (CurlResponse response = OpenSearchCurl.post(node, "/_configsync/copy").header("Content-Type", "application/json")
+                .param("source", "dir4").param("target", "dir4/dir5").execute()) {
+            assertEquals(400, response.getHttpStatusCode());
+        }
+
+        try (CurlResponse response = OpenSearchCurl.delete(node, "/_configsync/file").header("Content-Type", "application/json")
+                .param("prefix", "dir1").execute()) {
+            Map<String, Object> contentMap = response.getContent(OpenSearchCurl.jsonParser());
+            assertEquals("true", contentMap.get("acknowledged").toString());
+            assertEquals(1, ((Number) contentMap.get("count")).intValue());
+        }
+
+        try (CurlResponse response = OpenSearchCurl.get(node, "/_configsync/file").header("Content-Type", "application/json").execute()) {
+            Map<String, Object> contentMap = response.getContent(OpenSearchCurl.jsonParser());
+            List<String> list = (List<String>) contentMap.get("path");
+            assertEquals(1, list.size());
+            assertEquals("dir4/test3.txt", list.get(0).toString());
+        }
+
+        try (CurlResponse response = OpenSearchCurl.post(node, "/_configsync/flush").header("Content-Type", "application/json").execute()) {
+            Map<String, Object> contentMap = response.getContent(OpenSearchCurl.jsonParser());
+            assertEquals("true", contentMap.get("acknowledged").toString());
+        }
+        for (int i = 0; i < numOfNode; i++) {
+            int base = i * 3;
+            File confPath = configFiles[base].getParentFile();
+            assertFalse(configFiles[base + 2].getAbsolutePath(), configFiles[base + 2].exists());
+            assertFalse(new File(confPath, "dir3/dir2/test3.txt").exists());
+            File moved = new File(confPath, "dir4/test3.txt");
+            assertTrue(moved.getAbsolutePath(), moved.exists());
+            assertEquals("Test3", new String(getText(moved)));
+        }
+
+        // files synced by a node are copied to the nodes flushed after it
+        try (CurlResponse response = OpenSearchCurl.get(node, "/_configsync/stats").header("Content-Type", "application/json").execute()) {
+            Map<String, Object> contentMap = response.getContent(OpenSearchCurl.jsonParser());
+            Map<String, Object> nodes = (Map<String, Object>) contentMap.get("nodes");
+            long peerFiles = 0;
+            long servedBytes = 0;
+            for (Object nodeStats : nodes.values()) {
+                Map<String, Object> peer = (Map<String, Object>) ((Map<String, Object>) nodeStats).get("peer");
+                peerFiles += ((Number) peer.get("files")).longValue();
+                servedBytes += ((Number) peer.get("served_bytes")).longValue();
+            }
+            assertTrue(peerFiles > 0);
+            assertTrue(servedBytes > 0);
+        }
+
+        // tombstones are collected once every node has synced them
+        int tombstones = -1;
+        for (int i = 0; i < 30; i++) {
+            try (CurlResponse response = OpenSearchCurl.post(node, "/" + INDEX_NAME + "/_count").header("Content-Type", "application/json")
+                    .body("{\"query\":{\"term\":{\"deleted\":true}}}").execute()) {
+                Map<String, Object> contentMap = response.getContent(OpenSearchCurl.jsonParser());
+                tombstones = ((Number) contentMap.get("count")).intValue();
+            }
+            if (tombstones == 0) {
+                break;
+            }
+            Thread.sleep(1000L);
+        }
+        assertEquals(0, tombstones);
+
+        // indices using a synced file reload their search analyzers after it is written
+        uploadAndFlush(node, "analysis/synonyms.txt", "foo, bar");
+        try (CurlResponse response = OpenSearchCurl.put(node, "/synonyms").header("Content-Type", "application/json")
+                .body("{\"settings\":{\"index.number_of_shards\":1,\"index.number_of_replicas\":" + (numOfNode - 1)
+                        + ",\"index.analysis.filter.syn.type\":\"synonym_graph\","
+                        + "\"index.analysis.filter.syn.synonyms_path\":\"analysis/synonyms.txt\","
+                        + "\"index.analysis.filter.syn.updateable\":true,"
+                        + "\"index.analysis.analyzer.syn_search.tokenizer\":\"whitespace\","
+                        + "\"index.analysis.analyzer.syn_search.filter\":[\"syn\"]},"
+                        + "\"mappings\":{\"properties\":{\"text\":{\"type\":\"text\",\"search_analyzer\":\"syn_search\"}}}}")
+                .execute()) {
+            Map<String, Object> contentMap = response.getContent(OpenSearchCurl.jsonParser());
+            assertEquals("true", contentMap.get("acknowledged").toString());
+        }
+        try (CurlResponse response = OpenSearchCurl.get(node, "/_cluster/health/synonyms").header("Content-Type", "application/json")
+                .param("wait_for_status", "green").param("timeout", "30s").execute()) {
+            Map<String, Object> contentMap = response.getContent(OpenSearchCurl.jsonParser());
+            assertEquals("green", contentMap.get("status").toString());
+        }
+        assertEquals("[bar, foo]", analyze(node, "synonyms", "syn_search", "foo").toString());
+
+        uploadAndFlush(node, "analysis/synonyms.txt", "foo, baz");
+        long reloadedIndices = 0;
+        for (int i = 0; i < 30; i++) {
+            try (CurlResponse response = OpenSearchCurl.get(node, "/_configsync/stats").header("Content-Type", "application/json").execute()) {
+                Map<String, Object> contentMap = response.getContent(OpenSearchCurl.jsonParser());
+                Map<String, Object> nodes = (Map<String, Object>) contentMap.get("nodes");
+                reloadedIndices = 0;
+                for (Object nodeStats : nodes.values()) {
+                    Map<String, Object> analyzerReload = (Map<String, Object>) ((Map<String, Object>) nodeStats).get("analyzer_reload");
+                    reloadedIndices += ((Number) analyzerReload.get("indices")).longValue();
+                }
+            }
+            if (reloadedIndices >= numOfNode) {
+                break;
+            }
+            Thread.sleep(500L);
+        }
+        assertEquals(numOfNode, reloadedIndices);
+        assertEquals("[baz, foo]", analyze(node, "synonyms", "syn_search", "foo").toString());
+
+        // throttle rates are updated on every node through the cluster settings
+        {
+            Settings settings = Settings.builder().put("configsync.throttle.fetch_bytes_per_sec", "10mb")
+                    .put("configsync.throttle.write_bytes_per_sec", "5mb").build();
+            ClusterUpdateSettingsResponse response =
+                    node.client().admin().cluster().prepareUpdateSettings().setTransientSettings(settings).execute().actionGet();
+            assertTrue(response.isAcknowledged());
+        }
+        uploadAndFlush(node, "analysis/synonyms.txt", "foo, qux");
+        try (CurlResponse response = OpenSearchCurl.get(node, "/_configsync/stats").header("Content-Type", "application/json").execute()) {
+            Map<String, Object> contentMap = response.getContent(OpenSearchCurl.jsonParser());
+            Map<String, Object> nodes = (Map<String, Object>) contentMap.get("nodes");
+            assertEquals(numOfNode, nodes.size());
+            for (Object nodeStats : nodes.values()) {
+                Map<String, Object> throttle = (Map<String, Object>) ((Map<String, Object>) nodeStats).get("throttle");
+                assertEquals(10485760L, ((Number) throttle.get("fetch_bytes_per_sec")).longValue());
+                assertEquals(5242880L, ((Number) throttle.get("write_bytes_per_sec")).longValue());
+                assertTrue(throttle.containsKey("write_time_in_millis"));
+            }
+        }
+        for (int i = 0; i < numOfNode; i++) {
+            String homePath = runner.getNode(i).settings().get("path.home");
+            assertEquals("foo, qux", new String(getText(new File(new File(homePath, "config"), "analysis/synonyms.txt"))));
+        }
+        {
+            Settings settings = Settings.builder().putNull("configsync.throttle.fetch_bytes_per_sec")
+                    .putNull("configsync.throttle.write_bytes_per_sec").build();
+            ClusterUpdateSettingsResponse response =
+                    node.client().admin().cluster().prepareUpdateSettings().setTransientSettings(settings).execute().actionGet();
+            assertTrue(response.isAcknowledged());
+        }
+    }
+
+    private static void uploadAndFlush(Node node, String path, String content) throws IOException {
+        try (CurlResponse response = OpenSearchCurl.post(node, "/_configsync/file").header("Content-Type", "application/json")
+                .param("path", path).body(content).execute()) {
+            Map<String, Object> contentMap = response.getContent(OpenSearchCurl.jsonParser());
+            assertEquals("true", contentMap.get("acknowledged").toString());
+        }
+        try (CurlResponse response = OpenSearchCurl.post(node, "/_configsync/flush").header("Content-Type", "application/json").execute()) {
+            Map<String, Object> contentMap = response.getContent(OpenSearchCurl.jsonParser());
+            assertEquals("true", contentMap.get("acknowledged").toString());
+        }
+    }
+
+    private static List<String> analyze(Node node, String index, String analyzer, String text) throws IOException {
+        try (CurlResponse response = OpenSearchCurl.post(node, "/" + index + "/_analyze").header("Content-Type", "application/json")
+                .body("{\"analyzer\":\"" + analyzer + "\",\"text\":\"" + text + "\"}").execute()) {
+            Map<String, Object> contentMap = response.getContent(OpenSearchCurl.jsonParser());
+            List<String> tokens = new ArrayList<>();
+            for (Object token : (List<Object>) contentMap.get("tokens")) {
+                tokens.add(((Map<String, Object>) token).get("token").toString());
+            }
+            Collections.sort(tokens);
+            return tokens;
+        }
+    }
+
+    public void test_migrationFromLegacyIndex() throws Exception {
+        setupClusterRunnder(null, "1m");
+
+        Node node = runner.node();
+        String legacyIndex = ".configsync";
+
+        try (CurlResponse response = OpenSearchCurl.put(node, "/" + legacyIndex).header("Content-Type", "application/json")
+                .body("{\"mappings\":{\"properties\":{\"path\":{\"type\":\"keyword\"},\"content\":{\"type\":\"binary\"},"
+                        + "\"@timestamp\":{\"type\":\"date\"}}}}")
+                .execute()) {
+            Map<String, Object> contentMap = response.getContent(OpenSearchCurl.jsonParser());
+            assertEquals("true", contentMap.get("acknowledged").toString());
+        }
+        int numOfDocs = 5;
+        for (int i = 0; i < numOfDocs; i++) {
+            String path = "legacy/test" + i + ".txt";
+            String id = Base64.getUrlEncoder().withoutPadding().encodeToString(path.getBytes(StandardCharsets.UTF_8));
+            try (CurlResponse response = OpenSearchCurl.put(node, "/" + legacyIndex + "/_doc/" + id).header("Content-Type", "application/json")
+                    .param("refresh", "true").body("{\"path\":\"" + path + "\",\"content\":\""
+                            + Base64.getEncoder().encodeToString(("Legacy" + i).getBytes(StandardCharsets.UTF_8))
+                            + "\",\"@timestamp\":\"2020-01-01T00:00:00.000Z\"}")
+                    .execute()) {
+                assertEquals(201, response.getHttpStatusCode());
+            }
+        }
+
+        try (CurlResponse response = OpenSearchCurl.post(node, "/_configsync/migration").header("Content-Type", "application/json").execute()) {
+            Map<String, Object> contentMap = response.getContent(OpenSearchCurl.jsonParser());
+            assertEquals("true", contentMap.get("acknowledged").toString());
+        }
+
+        Map<String, Object> migration = null;
+        for (int i = 0; i < 30; i++) {
+            try (CurlResponse response = OpenSearchCurl.get(node, "/_configsync/migration").header("Content-Type", "application/json").execute()) {
+                Map<String, Object> contentMap = response.getContent(OpenSearchCurl.jsonParser());
+                assertEquals("true", contentMap.get("acknowledged").toString());
+                migration = (Map<String, Object>) contentMap.get("migration");
+            }
+            if ("completed".equals(migration.get("state")) && ((Number) migration.get("copied")).intValue() == numOfDocs) {
+                break;
+            }
+            Thread.sleep(1000L);
+        }
+        assertEquals("completed", migration.get("state"));
+        assertEquals(numOfDocs, ((Number) migration.get("copied")).intValue());
+        assertEquals(legacyIndex, migration.get("source"));
+        assertEquals(INDEX_NAME, migration.get("target"));
+
+        try (CurlResponse response = OpenSearchCurl.get(node, "/_configsync/file").header("Content-Type", "application/json").execute()) {
+            Map<String, Object> contentMap = response.getContent(OpenSearchCurl.jsonParser());
+            List<String> list = (List<String>) contentMap.get("path");
+            assertEquals(numOfDocs, list.size());
+        }
+
+        configFiles = new File[numOfNode];
+        for (int i = 0; i < numOfNode; i++) {
+            String homePath = runner.getNode(i).settings().get("path.home");
+            configFiles[i] = new File(new File(homePath, "config"), "legacy/test0.txt");
+        }
+        for (int n = 0; n < 10; n++) {
+            try (CurlResponse response = OpenSearchCurl.post(node, "/_configsync/flush").header("Content-Type", "application/json").execute()) {
+                Map<String, Object> contentMap = response.getContent(OpenSearchCurl.jsonParser());
+                assertEquals("true", contentMap.get("acknowledged").toString());
+            }
+            boolean synced = true;
+            for (File file : configFiles) {
+                synced &= file.exists();
+            }
+            if (synced) {
+                break;
+            }
+            Thread.sleep(1000L);
+        }
+        for (File file : configFiles) {
+            assertTrue(file.exists());
+            assertEquals("Legacy0", new String(getText(file)));
+        }
+    }
+
+    public void test_indexLayoutMigration() throws Exception {
+        setupClusterRunnder(null, "1m");
+
+        Node node = runner.node();
+
+        Map<String, Object> layout = getLayout(node);
+        assertEquals(INDEX_NAME + "-v2", layout.get("index"));
+        assertEquals(2, ((Number) layout.get("version")).intValue());
+
+        // replace the backing index with a plain index in the layout before versioning
+        try (CurlResponse response = OpenSearchCurl.delete(node, "/" + INDEX_NAME + "-v2").execute()) {
+            assertEquals(200, response.getHttpStatusCode());
+        }
+        try (CurlResponse response = OpenSearchCurl.put(node, "/" + INDEX_NAME).header("Content-Type", "application/json")
+                .body("{\"mappings\":{\"properties\":{\"path\":{\"type\":\"keyword\"},\"content\":{\"type\":\"binary\"},"
+                        + "\"@timestamp\":{\"type\":\"date\"}}}}")
+                .execute()) {
+            assertEquals(200, response.getHttpStatusCode());
+        }
+        String path = "old/test1.txt";
+        String id = Base64.getUrlEncoder().withoutPadding().encodeToString(path.getBytes(StandardCharsets.UTF_8));
+        try (CurlResponse response = OpenSearchCurl.put(node, "/" + INDEX_NAME + "/_doc/" + id).header("Content-Type", "application/json")
+                .param("refresh", "true").body("{\"path\":\"" + path + "\",\"content\":\""
+                        + Base64.getEncoder().encodeToString("Old1".getBytes(StandardCharsets.UTF_8))
+                        + "\",\"@timestamp\":\"2020-01-01T00:00:00.000Z\"}")
+                .execute()) {
+            assertEquals(201, response.getHttpStatusCode());
+        }
+        layout = getLayout(node);
+        assertEquals(INDEX_NAME, layout.get("index"));
+        assertEquals(0, ((Number) layout.get("version")).intValue());
+
+        try (CurlResponse response = OpenSearchCurl.post(node, "/_configsync/migration").header("Content-Type", "application/json").execute()) {
+            Map<String, Object> contentMap = response.getContent(OpenSearchCurl.jsonParser());
+            assertEquals("true", contentMap.get("acknowledged").toString());
+        }
+        for (int i = 0; i < 30; i++) {
+            layout = getLayout(node);
+            if (Integer.valueOf(2).equals(layout.get("version"))) {
+                break;
+            }
+            Thread.sleep(1000L);
+        }
+        assertEquals(INDEX_NAME + "-v2", layout.get("index"));
+        assertEquals(2, ((Number) layout.get("version")).intValue());
+
+        try (CurlResponse response = OpenSearchCurl.get(node, "/_configsync/file").header("Content-Type", "application/json").execute()) {
+            Map<String, Object> contentMap = response.getContent(OpenSearchCurl.jsonParser());
+            List<String> list = (List<String>) contentMap.get("path");
+            assertEquals(1, list.size());
+            assertEquals(path, list.get(0));
+        }
+        try (CurlResponse response = OpenSearchCurl.get(node, "/_configsync/file").header("Content-Type", "application/json")
+                .param("path", path).execute()) {
+            assertEquals("Old1", response.getContentAsString());
+        }
+
+        try (CurlResponse response = OpenSearchCurl.post(node, "/_configsync/file").header("Content-Type", "application/json")
+                .param("path", "new/test2.txt").body("New2").execute()) {
+            Map<String, Object> contentMap = response.getContent(OpenSearchCurl.jsonParser());
+            assertEquals("true", contentMap.get("acknowledged").toString());
+        }
+        try (CurlResponse response = OpenSearchCurl.get(node, "/_configsync/file").header("Content-Type", "application/json").execute()) {
+            Map<String, Object> contentMap = response.getContent(OpenSearchCurl.jsonParser());
+            List<String> list = (List<String>) contentMap.get("path");
+            assertEquals(2, list.size());
+        }
+    }
+
+    private static Map<String, Object> getLayout(Node node) {
+        try (CurlResponse response = OpenSearchCurl.get(node, "/_configsync/migration").header("Content-Type", "application/json").execute()) {
+            Map<String, Object> contentMap = response.getContent(OpenSearchCurl.jsonParser());
+            return (Map<String, Object>) contentMap.get("layout");
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
     }
 
     private static byte[] getText(File file) throws IOException {
@@ -15,18 +15,31 @@
  */
 package org.codelibs.opensearch.configsync;
 
+import org.codelibs.opensearch.configsync.allocation.ConfigSyncAllocationDecider;
+import org.codelibs.opensearch.configsync.cluster.ConfigSyncMetadata;
+import org.codelibs.opensearch.configsync.cluster.ConfigSyncMigrationMetadata;
+import org.codelibs.opensearch.configsync.cluster.ConfigSyncReadyNodes;
+import org.codelibs.opensearch.configsync.rest.RestConfigSyncCopyAction;
 import org.codelibs.opensearch.configsync.rest.RestConfigSyncFileAction;
 import org.codelibs.opensearch.configsync.rest.RestConfigSyncFlushAction;
+import org.codelibs.opensearch.configsync.rest.RestConfigSyncMigrationAction;
 import org.codelibs.opensearch.configsync.rest.RestConfigSyncResetAction;
+import org.codelibs.opensearch.configsync.rest.RestConfigSyncStatsAction;
 import org.codelibs.opensearch.configsync.rest.RestConfigSyncWaitAction;
 import org.codelibs.opensearch.configsync.service.ConfigSyncService;
+import org.opensearch.cluster.ClusterState;
+import org.opensearch.cluster.NamedDiff;
+import org.opensearch.cluster.metadata.Metadata;
 import org.opensearch.cluster.node.DiscoveryNodes;
+import org.opensearch.cluster.routing.allocation.decider.AllocationDecider;
 import org.opensearch.common.lifecycle.LifecycleComponent;
 import org.opensearch.common.settings.ClusterSettings;
 import org.opensearch.common.settings.IndexScopedSettings;
 import org.opensearch.common.settings.Setting;
 import org.opensearch.common.settings.Settings;
 import org.opensearch.common.settings.SettingsFilter;
+import org.opensearch.core.common.io.stream.NamedWriteableRegistry;
+import org.opensearch.core.xcontent.NamedXContentRegistry;
 import org.opensearch.cluster.metadata.IndexNameExpressionResolver;
 import org.opensearch.indices.SystemIndexDescriptor;
 import org.opensearch.plugins.ActionPlugin;
@@ -34,9 +47,12 @@ import org.opensearch.plugins.Plugin;
 import org.opensearch.plugins.SystemIndexPlugin;
 import org.opensearch.rest.RestController;
 import org.opensearch.rest.RestHandler;
+import org.opensearch.threadpool.ExecutorBuilder;
+import org.opensearch.threadpool.ScalingExecutorBuilder;
 
 import junit.framework.TestCase;
 
+import java.nio.file.Paths;
 import java.util.Collection;
 import java.util.List;
 import java.util.function.Supplier;
@@ -50,7 +66,7 @@ public class ConfigSyncPluginUnitTest extends TestCase {
     @Override
     protected void setUp() throws Exception {
         super.setUp();
-        plugin = new ConfigSyncPlugin();
+        plugin = new ConfigSyncPlugin(Settings.EMPTY, Paths.get("config"));
     }
 
     public void test_plugin_is_instance_of_plugin() {
@@ -65,7 +81,7 @@ public class ConfigSyncPluginUnitTest extends TestCase {
         assertTrue(plugin instanceof SystemIndexPlugin);
     }
 
-    public void test_getRestHandlers_returns_four_handlers() {
+    public void test_getRestHandlers_returns_all_handlers() {
         // Create a plugin component and set up the service
         ConfigSyncPlugin.PluginComponent pluginComponent = new ConfigSyncPlugin.PluginComponent();
         ConfigSyncService mockConfigSyncService = mock(ConfigSyncService.class);
@@ -84,12 +100,15 @@ public class ConfigSyncPluginUnitTest extends TestCase {
                 indexScopedSettings, settingsFilter, indexNameExpressionResolver, nodesInCluster);
 
         assertNotNull(handlers);
-        assertEquals(4, handlers.size());
+        assertEquals(7, handlers.size());
 
         assertTrue(handlers.get(0) instanceof RestConfigSyncFileAction);
         assertTrue(handlers.get(1) instanceof RestConfigSyncResetAction);
         assertTrue(handlers.get(2) instanceof RestConfigSyncFlushAction);
         assertTrue(handlers.get(3) instanceof RestConfigSyncWaitAction);
+        assertTrue(handlers.get(4) instanceof RestConfigSyncStatsAction);
+        assertTrue(handlers.get(5) instanceof RestConfigSyncMigrationAction);
+        assertTrue(handlers.get(6) instanceof RestConfigSyncCopyAction);
     }
 
     public void test_getGuiceServiceClasses_returns_config_sync_service() {
@@ -113,7 +132,7 @@ public class ConfigSyncPluginUnitTest extends TestCase {
         List<Setting<?>> settings = plugin.getSettings();
 
         assertNotNull(settings);
-        assertEquals(7, settings.size());
+        assertEquals(35, settings.size());
 
         assertTrue(settings.contains(ConfigSyncService.INDEX_SETTING));
         assertTrue(settings.contains(ConfigSyncService.XPACK_SECURITY_SETTING));
@@ -122,6 +141,89 @@ public class ConfigSyncPluginUnitTest extends TestCase {
         assertTrue(settings.contains(ConfigSyncService.SCROLL_SIZE_SETTING));
         assertTrue(settings.contains(ConfigSyncService.FLUSH_INTERVAL_SETTING));
         assertTrue(settings.contains(ConfigSyncService.FILE_UPDATER_ENABLED_SETTING));
+        assertTrue(settings.contains(ConfigSyncService.APPLY_CONCURRENCY_SETTING));
+        assertTrue(settings.contains(ConfigSyncService.APPLY_VIRTUAL_THREADS_SETTING));
+        assertTrue(settings.contains(ConfigSyncService.PREFETCH_PAGES_SETTING));
+        assertTrue(settings.contains(ConfigSyncService.PREFETCH_MAX_BYTES_SETTING));
+        assertTrue(settings.contains(ConfigSyncService.COLD_SYNC_SLICES_SETTING));
+        assertTrue(settings.contains(ConfigSyncService.COLD_SYNC_MIN_FILES_SETTING));
+        assertTrue(settings.contains(ConfigSyncService.ALLOCATION_WAIT_FOR_SYNC_SETTING));
+        assertTrue(settings.contains(ConfigSyncService.TOMBSTONE_RETENTION_SETTING));
+        assertTrue(settings.contains(ConfigSyncService.TOMBSTONE_GC_INTERVAL_SETTING));
+        assertTrue(settings.contains(ConfigSyncService.MANIFEST_RECONCILE_INTERVAL_SETTING));
+        assertTrue(settings.contains(ConfigSyncService.ANTI_ENTROPY_INTERVAL_SETTING));
+        assertTrue(settings.contains(ConfigSyncService.WATCHER_ENABLED_SETTING));
+        assertTrue(settings.contains(ConfigSyncService.WATCHER_DELAY_SETTING));
+        assertTrue(settings.contains(ConfigSyncService.PEER_TRANSFER_ENABLED_SETTING));
+        assertTrue(settings.contains(ConfigSyncService.PEER_TRANSFER_MIN_SIZE_SETTING));
+        assertTrue(settings.contains(ConfigSyncService.PEER_TRANSFER_CHUNK_SIZE_SETTING));
+        assertTrue(settings.contains(ConfigSyncService.BROADCAST_ENABLED_SETTING));
+        assertTrue(settings.contains(ConfigSyncService.BROADCAST_MAX_BYTES_SETTING));
+        assertTrue(settings.contains(ConfigSyncService.BROADCAST_CONCURRENCY_SETTING));
+        assertTrue(settings.contains(ConfigSyncService.STORE_REFRESH_POLICY_SETTING));
+        assertTrue(settings.contains(ConfigSyncService.STORE_REFRESH_INTERVAL_SETTING));
+        assertTrue(settings.contains(ConfigSyncService.STORE_COALESCE_WINDOW_SETTING));
+        assertTrue(settings.contains(ConfigSyncService.STORE_COALESCE_MAX_BYTES_SETTING));
+        assertTrue(settings.contains(ConfigSyncService.ANALYZER_RELOAD_ENABLED_SETTING));
+        assertTrue(settings.contains(ConfigSyncService.THROTTLE_FETCH_RATE_SETTING));
+        assertTrue(settings.contains(ConfigSyncService.THROTTLE_WRITE_RATE_SETTING));
+        assertTrue(settings.contains(ConfigSyncService.MIGRATION_SLICES_SETTING));
+        assertTrue(settings.contains(ConfigSyncService.MIGRATION_BULK_SIZE_SETTING));
+    }
+
+    public void test_getExecutorBuilders_returns_configsync_pools() {
+        List<ExecutorBuilder<?>> builders = plugin.getExecutorBuilders(Settings.EMPTY);
+
+        assertNotNull(builders);
+        assertEquals(2, builders.size());
+        assertTrue(builders.get(0) instanceof ScalingExecutorBuilder);
+        assertTrue(builders.get(0).getRegisteredSettings().stream()
+                .anyMatch(setting -> "thread_pool.configsync.max".equals(setting.getKey())));
+        assertTrue(builders.get(1) instanceof ScalingExecutorBuilder);
+        assertTrue(builders.get(1).getRegisteredSettings().stream()
+                .anyMatch(setting -> "thread_pool.configsync_sync.max".equals(setting.getKey())));
+    }
+
+    public void test_getNamedWriteables_registers_metadata() {
+        List<NamedWriteableRegistry.Entry> entries = plugin.getNamedWriteables();
+
+        assertNotNull(entries);
+        assertEquals(6, entries.size());
+        assertEquals(Metadata.Custom.class, entries.get(0).categoryClass);
+        assertEquals(ConfigSyncMetadata.TYPE, entries.get(0).name);
+        assertEquals(NamedDiff.class, entries.get(1).categoryClass);
+        assertEquals(ConfigSyncMetadata.TYPE, entries.get(1).name);
+        assertEquals(Metadata.Custom.class, entries.get(2).categoryClass);
+        assertEquals(ConfigSyncMigrationMetadata.TYPE, entries.get(2).name);
+        assertEquals(NamedDiff.class, entries.get(3).categoryClass);
+        assertEquals(ConfigSyncMigrationMetadata.TYPE, entries.get(3).name);
+        assertEquals(ClusterState.Custom.class, entries.get(4).categoryClass);
+        assertEquals(ConfigSyncReadyNodes.TYPE, entries.get(4).name);
+        assertEquals(NamedDiff.class, entries.get(5).categoryClass);
+        assertEquals(ConfigSyncReadyNodes.TYPE, entries.get(5).name);
+    }
+
+    public void test_getNamedXContent_registers_metadata() {
+        List<NamedXContentRegistry.Entry> entries = plugin.getNamedXContent();
+
+        assertNotNull(entries);
+        assertEquals(2, entries.size());
+        assertEquals(Metadata.Custom.class, entries.get(0).categoryClass);
+        assertEquals(ConfigSyncMetadata.TYPE, entries.get(0).name.getPreferredName());
+        assertEquals(ConfigSyncMigrationMetadata.TYPE, entries.get(1).name.getPreferredName());
+    }
+
+    public void test_additionalSettings_sets_wait_for_sync_attribute() {
+        Settings settings = plugin.additionalSettings();
+
+        assertEquals("true", settings.get("node.attr." + ConfigSyncAllocationDecider.WAIT_FOR_SYNC_ATTR));
+    }
+
+    public void test_createAllocationDeciders_returns_configsync_decider() {
+        Collection<AllocationDecider> deciders = plugin.createAllocationDeciders(Settings.EMPTY, null);
+
+        assertEquals(1, deciders.size());
+        assertTrue(deciders.iterator().next() instanceof ConfigSyncAllocationDecider);
     }
 
     public void test_getSystemIndexDescriptors_returns_configsync_descriptor() {
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.opensearch.configsync.allocation;
+
+import java.net.InetAddress;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.Map;
+
+import org.codelibs.opensearch.configsync.cluster.ConfigSyncMetadata;
+import org.codelibs.opensearch.configsync.cluster.ConfigSyncMetadata.FileEntry;
+import org.codelibs.opensearch.configsync.cluster.ConfigSyncReadyNodes;
+import org.codelibs.opensearch.configsync.service.LocalConfigFiles;
+import org.opensearch.Version;
+import org.opensearch.cluster.ClusterName;
+import org.opensearch.cluster.ClusterState;
+import org.opensearch.cluster.metadata.IndexMetadata;
+import org.opensearch.cluster.metadata.Metadata;
+import org.opensearch.cluster.node.DiscoveryNode;
+import org.opensearch.cluster.node.DiscoveryNodeRole;
+import org.opensearch.cluster.node.DiscoveryNodes;
+import org.opensearch.cluster.routing.RoutingNode;
+import org.opensearch.cluster.routing.RoutingNodes;
+import org.opensearch.cluster.routing.allocation.RoutingAllocation;
+import org.opensearch.cluster.routing.allocation.decider.Decision;
+import org.opensearch.common.settings.Settings;
+import org.opensearch.core.common.transport.TransportAddress;
+
+import junit.framework.TestCase;
+
+public class ConfigSyncAllocationDeciderTest extends TestCase {
+
+    private final ConfigSyncAllocationDecider decider =
+            new ConfigSyncAllocationDecider(Paths.get("config"), new LocalConfigFiles(Paths.get("config").toString()));
+
+    public void test_node_without_attribute_is_allowed() {
+        DiscoveryNode node = node("node1", Collections.emptyMap());
+        RoutingAllocation allocation = allocation(node, ConfigSyncReadyNodes.EMPTY);
+
+        assertEquals(Decision.Type.YES, decider.canAllocate(index("analyzed", true), new RoutingNode("node1", node), allocation).type());
+    }
+
+    public void test_index_without_analysis_is_allowed() {
+        DiscoveryNode node = node("node1", waitForSync());
+        RoutingAllocation allocation = allocation(node, ConfigSyncReadyNodes.EMPTY);
+
+        assertEquals(Decision.Type.YES, decider.canAllocate(index("plain", false), new RoutingNode("node1", node), allocation).type());
+    }
+
+    public void test_node_not_ready_is_rejected() {
+        DiscoveryNode node = node("node1", waitForSync());
+        RoutingAllocation allocation = allocation(node, ConfigSyncReadyNodes.EMPTY);
+
+        assertEquals(Decision.Type.NO, decider.canAllocate(index("analyzed", true), new RoutingNode("node1", node), allocation).type());
+    }
+
+    public void test_ready_node_is_allowed() {
+        DiscoveryNode node = node("node1", waitForSync());
+        RoutingAllocation allocation = allocation(node, new ConfigSyncReadyNodes(Collections.singleton("node1")));
+
+        assertEquals(Decision.Type.YES, decider.canAllocate(index("analyzed", true), new RoutingNode("node1", node), allocation).type());
+    }
+
+    public void test_waitsForSync() {
+        assertTrue(ConfigSyncAllocationDecider.waitsForSync(node("node1", waitForSync())));
+        assertFalse(ConfigSyncAllocationDecider.waitsForSync(node("node1", Collections.emptyMap())));
+    }
+
+    public void test_usesConfigFiles() {
+        assertTrue(decider.usesConfigFiles(index("analyzed", true), null));
+        assertFalse(decider.usesConfigFiles(index("plain", false), null));
+    }
+
+    public void test_usesConfigFiles_with_manifest() {
+        ConfigSyncMetadata synced = manifest("synonym.txt");
+        assertTrue(decider.usesConfigFiles(index("analyzed", true), synced));
+        assertFalse(decider.usesConfigFiles(index("analyzed", true), manifest("other.txt")));
+        assertFalse(decider.usesConfigFiles(index("plain", false), synced));
+        // the files are unknown while the manifest is incomplete
+        assertTrue(decider.usesConfigFiles(index("analyzed", true), new ConfigSyncMetadata(1L)));
+        assertFalse(decider.usesConfigFiles(inlineIndex("inline"), new ConfigSyncMetadata(1L)));
+    }
+
+    public void test_inline_analysis_is_allowed_while_manifest_is_incomplete() {
+        DiscoveryNode node = node("node1", waitForSync());
+        RoutingAllocation allocation = allocation(node, ConfigSyncReadyNodes.EMPTY);
+        RoutingNode routingNode = new RoutingNode("node1", node);
+
+        assertEquals(Decision.Type.YES, decider.canAllocate(inlineIndex("inline"), routingNode, allocation).type());
+        assertEquals(Decision.Type.NO, decider.canAllocate(index("analyzed", true), routingNode, allocation).type());
+    }
+
+    public void test_index_without_synced_files_is_allowed() {
+        DiscoveryNode node = node("node1", waitForSync());
+        ClusterState state = ClusterState.builder(ClusterName.DEFAULT).nodes(DiscoveryNodes.builder().add(node))
+                .metadata(Metadata.builder().putCustom(ConfigSyncMetadata.TYPE, manifest("other.txt"))).build();
+        RoutingAllocation allocation = new RoutingAllocation(null, new RoutingNodes(state), state, null, null, 0L);
+
+        assertEquals(Decision.Type.YES, decider.canAllocate(index("analyzed", true), new RoutingNode("node1", node), allocation).type());
+    }
+
+    private static ConfigSyncMetadata manifest(String path) {
+        return new ConfigSyncMetadata(2L, true, Collections.singletonMap(path, new FileEntry("h1", 1L, 2L)));
+    }
+
+    private static Map<String, String> waitForSync() {
+        return Collections.singletonMap(ConfigSyncAllocationDecider.WAIT_FOR_SYNC_ATTR, "true");
+    }
+
+    private static DiscoveryNode node(String id, Map<String, String> attributes) {
+        return new DiscoveryNode(id, new TransportAddress(InetAddress.getLoopbackAddress(), 9300), attributes,
+                Collections.singleton(DiscoveryNodeRole.DATA_ROLE), Version.CURRENT);
+    }
+
+    private static IndexMetadata index(String name, boolean analysis) {
+        Settings.Builder settings = Settings.builder().put(IndexMetadata.SETTING_VERSION_CREATED, Version.CURRENT)
+                .put(IndexMetadata.SETTING_NUMBER_OF_SHARDS, 1).put(IndexMetadata.SETTING_NUMBER_OF_REPLICAS, 0);
+        if (analysis) {
+            settings.put("index.analysis.filter.my_synonym.type", "synonym").put("index.analysis.filter.my_synonym.synonyms_path",
+                    "synonym.txt");
+        }
+        return IndexMetadata.builder(name).settings(settings).build();
+    }
+
+    private static IndexMetadata inlineIndex(String name) {
+        Settings.Builder settings = Settings.builder().put(IndexMetadata.SETTING_VERSION_CREATED, Version.CURRENT)
+                .put(IndexMetadata.SETTING_NUMBER_OF_SHARDS, 1).put(IndexMetadata.SETTING_NUMBER_OF_REPLICAS, 0)
+                .put("index.analysis.filter.my_synonym.type", "synonym")
+                .putList("index.analysis.filter.my_synonym.synonyms", "foo, bar");
+        return IndexMetadata.builder(name).settings(settings).build();
+    }
+
+    private static RoutingAllocation allocation(DiscoveryNode node, ConfigSyncReadyNodes readyNodes) {
+        ClusterState state = ClusterState.builder(ClusterName.DEFAULT).nodes(DiscoveryNodes.builder().add(node))
+                .metadata(Metadata.builder()).putCustom(ConfigSyncReadyNodes.TYPE, readyNodes).build();
+        return new RoutingAllocation(null, new RoutingNodes(state), state, null, null, 0L);
+    }
+}
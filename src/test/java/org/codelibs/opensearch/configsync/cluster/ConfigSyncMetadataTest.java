@@ -0,0 +1,234 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.opensearch.configsync.cluster;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.codelibs.opensearch.configsync.cluster.ConfigSyncMetadata.FileEntry;
+import org.opensearch.cluster.ClusterName;
+import org.opensearch.cluster.ClusterState;
+import org.opensearch.cluster.Diff;
+import org.opensearch.cluster.metadata.Metadata;
+import org.opensearch.common.io.stream.BytesStreamOutput;
+import org.opensearch.common.xcontent.json.JsonXContent;
+import org.opensearch.core.common.bytes.BytesReference;
+import org.opensearch.core.xcontent.DeprecationHandler;
+import org.opensearch.core.xcontent.NamedXContentRegistry;
+import org.opensearch.core.xcontent.ToXContent;
+import org.opensearch.core.xcontent.XContentBuilder;
+import org.opensearch.core.xcontent.XContentParser;
+
+import junit.framework.TestCase;
+
+public class ConfigSyncMetadataTest extends TestCase {
+
+    public void test_empty_generation() {
+        assertEquals(0L, ConfigSyncMetadata.EMPTY.getGeneration());
+    }
+
+    public void test_nextGeneration() {
+        ConfigSyncMetadata metadata = new ConfigSyncMetadata(5L);
+        ConfigSyncMetadata next = metadata.nextGeneration();
+
+        assertEquals(5L, metadata.getGeneration());
+        assertEquals(6L, next.getGeneration());
+        assertNotSame(metadata, next);
+    }
+
+    public void test_get_without_custom_returns_empty() {
+        ClusterState state = ClusterState.builder(ClusterName.DEFAULT).build();
+
+        assertSame(ConfigSyncMetadata.EMPTY, ConfigSyncMetadata.get(state));
+    }
+
+    public void test_get_with_custom() {
+        ConfigSyncMetadata metadata = new ConfigSyncMetadata(3L);
+        ClusterState state = ClusterState.builder(ClusterName.DEFAULT)
+                .metadata(Metadata.builder().putCustom(ConfigSyncMetadata.TYPE, metadata)).build();
+
+        assertEquals(metadata, ConfigSyncMetadata.get(state));
+    }
+
+    public void test_stream_round_trip() throws Exception {
+        ConfigSyncMetadata metadata = new ConfigSyncMetadata(42L);
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            metadata.writeTo(out);
+            ConfigSyncMetadata read = new ConfigSyncMetadata(out.bytes().streamInput());
+            assertEquals(metadata, read);
+            assertEquals(metadata.hashCode(), read.hashCode());
+        }
+    }
+
+    public void test_stream_round_trip_with_files() throws Exception {
+        ConfigSyncMetadata metadata = new ConfigSyncMetadata(2L, true, files("a.txt", "b.txt"));
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            metadata.writeTo(out);
+            ConfigSyncMetadata read = new ConfigSyncMetadata(out.bytes().streamInput());
+            assertEquals(metadata, read);
+            assertTrue(read.isComplete());
+            assertEquals(2, read.getFiles().size());
+            assertEquals(new FileEntry("hash-a.txt", 10L, 1L), read.getFiles().get("a.txt"));
+        }
+    }
+
+    public void test_nextGeneration_keeps_files() {
+        ConfigSyncMetadata metadata = new ConfigSyncMetadata(2L, true, files("a.txt"));
+        ConfigSyncMetadata next = metadata.nextGeneration();
+
+        assertEquals(3L, next.getGeneration());
+        assertTrue(next.isComplete());
+        assertEquals(metadata.getFiles(), next.getFiles());
+    }
+
+    public void test_diff_round_trip() throws Exception {
+        ConfigSyncMetadata before = new ConfigSyncMetadata(1L, false, files("a.txt", "b.txt"));
+        Map<String, FileEntry> afterFiles = files("a.txt", "c.txt");
+        afterFiles.put("a.txt", new FileEntry("changed", 5L, 2L));
+        ConfigSyncMetadata after = new ConfigSyncMetadata(2L, true, afterFiles);
+
+        Diff<Metadata.Custom> diff = after.diff(before);
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            diff.writeTo(out);
+            Diff<Metadata.Custom> read = ConfigSyncMetadata.readDiffFrom(out.bytes().streamInput());
+            assertEquals(after, read.apply(before));
+        }
+    }
+
+    public void test_xcontent_round_trip() throws Exception {
+        ConfigSyncMetadata metadata = new ConfigSyncMetadata(7L, true, files("a.txt", "dir/b.txt"));
+        XContentBuilder builder = JsonXContent.contentBuilder();
+        builder.startObject();
+        metadata.toXContent(builder, ToXContent.EMPTY_PARAMS);
+        builder.endObject();
+
+        try (XContentParser parser = JsonXContent.jsonXContent.createParser(NamedXContentRegistry.EMPTY,
+                DeprecationHandler.THROW_UNSUPPORTED_OPERATION, BytesReference.bytes(builder).streamInput())) {
+            assertEquals(XContentParser.Token.START_OBJECT, parser.nextToken());
+            assertEquals(metadata, ConfigSyncMetadata.fromXContent(parser));
+        }
+    }
+
+    public void test_writeable_name() {
+        assertEquals("configsync", new ConfigSyncMetadata(1L).getWriteableName());
+    }
+
+    public void test_not_persisted_to_gateway() {
+        assertFalse(new ConfigSyncMetadata(1L).context().contains(Metadata.XContentContext.GATEWAY));
+    }
+
+    public void test_empty_is_not_complete() {
+        assertFalse(ConfigSyncMetadata.EMPTY.isComplete());
+        assertTrue(ConfigSyncMetadata.EMPTY.getFiles().isEmpty());
+    }
+
+    public void test_file_entry_withVersion() {
+        FileEntry entry = new FileEntry("abc", 3L, 0L);
+        FileEntry versioned = entry.withVersion(9L);
+
+        assertEquals("abc", versioned.getHash());
+        assertEquals(3L, versioned.getSize());
+        assertEquals(9L, versioned.getVersion());
+        assertEquals(0L, entry.getVersion());
+    }
+
+    public void test_file_entry_withNodes() throws Exception {
+        FileEntry entry = new FileEntry("abc", 3L, 4L).withNodes("zone:a,ingest:true");
+        assertEquals("zone:a,ingest:true", entry.getNodes());
+        assertEquals("zone:a,ingest:true", entry.withVersion(5L).getNodes());
+        assertNull(entry.withNodes("").getNodes());
+        assertFalse(entry.equals(new FileEntry("abc", 3L, 4L)));
+
+        Map<String, FileEntry> files = files("a.txt");
+        files.put("b.txt", entry);
+        ConfigSyncMetadata metadata = new ConfigSyncMetadata(4L, true, files);
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            metadata.writeTo(out);
+            assertEquals(metadata, new ConfigSyncMetadata(out.bytes().streamInput()));
+        }
+        XContentBuilder builder = JsonXContent.contentBuilder();
+        builder.startObject();
+        metadata.toXContent(builder, ToXContent.EMPTY_PARAMS);
+        builder.endObject();
+        try (XContentParser parser = JsonXContent.jsonXContent.createParser(NamedXContentRegistry.EMPTY,
+                DeprecationHandler.THROW_UNSUPPORTED_OPERATION, BytesReference.bytes(builder).streamInput())) {
+            assertEquals(XContentParser.Token.START_OBJECT, parser.nextToken());
+            assertEquals(metadata, ConfigSyncMetadata.fromXContent(parser));
+        }
+    }
+
+    public void test_file_entry_tombstone() throws Exception {
+        FileEntry tombstone = FileEntry.tombstone(4L);
+        assertTrue(tombstone.isDeleted());
+        assertEquals(4L, tombstone.getVersion());
+        assertTrue(tombstone.withVersion(5L).isDeleted());
+        assertFalse(new FileEntry("abc", 3L, 4L).isDeleted());
+
+        Map<String, FileEntry> files = files("a.txt");
+        files.put("b.txt", tombstone);
+        ConfigSyncMetadata metadata = new ConfigSyncMetadata(4L, true, files);
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            metadata.writeTo(out);
+            assertEquals(metadata, new ConfigSyncMetadata(out.bytes().streamInput()));
+        }
+
+        XContentBuilder builder = JsonXContent.contentBuilder();
+        builder.startObject();
+        metadata.toXContent(builder, ToXContent.EMPTY_PARAMS);
+        builder.endObject();
+        try (XContentParser parser = JsonXContent.jsonXContent.createParser(NamedXContentRegistry.EMPTY,
+                DeprecationHandler.THROW_UNSUPPORTED_OPERATION, BytesReference.bytes(builder).streamInput())) {
+            assertEquals(XContentParser.Token.START_OBJECT, parser.nextToken());
+            assertEquals(metadata, ConfigSyncMetadata.fromXContent(parser));
+        }
+    }
+
+    public void test_index_uuid_checkpoint_and_seq_no() throws Exception {
+        FileEntry entry = new FileEntry("abc", 3L, 4L).withSeqNo(12L);
+        assertEquals(12L, entry.getSeqNo());
+        assertEquals(12L, entry.withVersion(5L).getSeqNo());
+        assertFalse(entry.equals(new FileEntry("abc", 3L, 4L)));
+
+        Map<String, FileEntry> files = files("a.txt");
+        files.put("b.txt", entry);
+        ConfigSyncMetadata metadata = new ConfigSyncMetadata(4L, true, "uuid", 12L, files);
+        assertEquals("uuid", metadata.getIndexUuid());
+        assertEquals(12L, metadata.getCheckpoint());
+        assertEquals(12L, metadata.nextGeneration().getCheckpoint());
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            metadata.writeTo(out);
+            assertEquals(metadata, new ConfigSyncMetadata(out.bytes().streamInput()));
+        }
+
+        XContentBuilder builder = JsonXContent.contentBuilder();
+        builder.startObject();
+        metadata.toXContent(builder, ToXContent.EMPTY_PARAMS);
+        builder.endObject();
+        try (XContentParser parser = JsonXContent.jsonXContent.createParser(NamedXContentRegistry.EMPTY,
+                DeprecationHandler.THROW_UNSUPPORTED_OPERATION, BytesReference.bytes(builder).streamInput())) {
+            assertEquals(XContentParser.Token.START_OBJECT, parser.nextToken());
+            assertEquals(metadata, ConfigSyncMetadata.fromXContent(parser));
+        }
+    }
+
+    private static Map<String, FileEntry> files(String... paths) {
+        Map<String, FileEntry> files = new HashMap<>();
+        for (String path : paths) {
+            files.put(path, new FileEntry("hash-" + path, 10L, 1L));
+        }
+        return files;
+    }
+}
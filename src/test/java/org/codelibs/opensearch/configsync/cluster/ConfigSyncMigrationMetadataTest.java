@@ -0,0 +1,131 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.opensearch.configsync.cluster;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.codelibs.opensearch.configsync.cluster.ConfigSyncMigrationMetadata.SliceProgress;
+import org.codelibs.opensearch.configsync.cluster.ConfigSyncMigrationMetadata.State;
+import org.opensearch.cluster.ClusterName;
+import org.opensearch.cluster.ClusterState;
+import org.opensearch.cluster.Diff;
+import org.opensearch.cluster.metadata.Metadata;
+import org.opensearch.common.io.stream.BytesStreamOutput;
+import org.opensearch.common.xcontent.json.JsonXContent;
+import org.opensearch.core.common.bytes.BytesReference;
+import org.opensearch.core.common.io.stream.NamedWriteableAwareStreamInput;
+import org.opensearch.core.common.io.stream.NamedWriteableRegistry;
+import org.opensearch.core.xcontent.DeprecationHandler;
+import org.opensearch.core.xcontent.NamedXContentRegistry;
+import org.opensearch.core.xcontent.ToXContent;
+import org.opensearch.core.xcontent.XContentBuilder;
+import org.opensearch.core.xcontent.XContentParser;
+
+import junit.framework.TestCase;
+
+public class ConfigSyncMigrationMetadataTest extends TestCase {
+
+    public void test_get_without_custom_returns_null() {
+        ClusterState state = ClusterState.builder(ClusterName.DEFAULT).build();
+
+        assertNull(ConfigSyncMigrationMetadata.get(state));
+    }
+
+    public void test_start() {
+        ConfigSyncMigrationMetadata metadata = ConfigSyncMigrationMetadata.start(".configsync", "configsync", 3);
+
+        assertEquals(State.RUNNING, metadata.getState());
+        assertEquals(3, metadata.getSlices().size());
+        assertEquals(0L, metadata.getCopied());
+        assertNull(metadata.getSlices().get(0).getLastPath());
+        assertFalse(metadata.getSlices().get(0).isDone());
+    }
+
+    public void test_withSlice_and_withState() {
+        ConfigSyncMigrationMetadata metadata = ConfigSyncMigrationMetadata.start(".configsync", "configsync", 2)
+                .withSlice(0, new SliceProgress("a.txt", 5L, false)).withSlice(1, new SliceProgress("b.txt", 3L, true));
+
+        assertEquals(8L, metadata.getCopied());
+        assertEquals("a.txt", metadata.getSlices().get(0).getLastPath());
+        assertTrue(metadata.getSlices().get(1).isDone());
+
+        ConfigSyncMigrationMetadata failed = metadata.withState(State.FAILED, "boom");
+        assertEquals(State.FAILED, failed.getState());
+        assertEquals("boom", failed.getFailure());
+        assertEquals(metadata.getSlices(), failed.getSlices());
+        assertEquals(State.RUNNING, metadata.getState());
+    }
+
+    public void test_stream_round_trip() throws Exception {
+        ConfigSyncMigrationMetadata metadata = sample();
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            metadata.writeTo(out);
+            ConfigSyncMigrationMetadata read = new ConfigSyncMigrationMetadata(out.bytes().streamInput());
+            assertEquals(metadata, read);
+            assertEquals(metadata.hashCode(), read.hashCode());
+        }
+    }
+
+    public void test_diff_round_trip() throws Exception {
+        ConfigSyncMigrationMetadata before = ConfigSyncMigrationMetadata.start(".configsync", "configsync", 2);
+        ConfigSyncMigrationMetadata after = sample();
+
+        Diff<Metadata.Custom> diff = after.diff(before);
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            diff.writeTo(out);
+            NamedWriteableRegistry registry = new NamedWriteableRegistry(Collections.singletonList(new NamedWriteableRegistry.Entry(
+                    Metadata.Custom.class, ConfigSyncMigrationMetadata.TYPE, ConfigSyncMigrationMetadata::new)));
+            Diff<Metadata.Custom> read = ConfigSyncMigrationMetadata
+                    .readDiffFrom(new NamedWriteableAwareStreamInput(out.bytes().streamInput(), registry));
+            assertEquals(after, read.apply(before));
+        }
+    }
+
+    public void test_xcontent_round_trip() throws Exception {
+        ConfigSyncMigrationMetadata metadata = sample();
+        XContentBuilder builder = JsonXContent.contentBuilder();
+        builder.startObject();
+        metadata.toXContent(builder, ToXContent.EMPTY_PARAMS);
+        builder.endObject();
+
+        try (XContentParser parser = JsonXContent.jsonXContent.createParser(NamedXContentRegistry.EMPTY,
+                DeprecationHandler.THROW_UNSUPPORTED_OPERATION, BytesReference.bytes(builder).streamInput())) {
+            assertEquals(XContentParser.Token.START_OBJECT, parser.nextToken());
+            assertEquals(metadata, ConfigSyncMigrationMetadata.fromXContent(parser));
+        }
+    }
+
+    public void test_toMap() {
+        Map<String, Object> map = sample().toMap();
+
+        assertEquals("failed", map.get("state"));
+        assertEquals(7L, map.get("copied"));
+        assertEquals("timeout", map.get("failure"));
+        assertEquals(2, ((List<?>) map.get("slices")).size());
+    }
+
+    public void test_persisted_to_gateway() {
+        assertTrue(sample().context().contains(Metadata.XContentContext.GATEWAY));
+        assertEquals("configsync_migration", sample().getWriteableName());
+    }
+
+    private static ConfigSyncMigrationMetadata sample() {
+        return ConfigSyncMigrationMetadata.start(".configsync", "configsync", 2).withSlice(0, new SliceProgress("dir/a.txt", 7L, true))
+                .withState(State.FAILED, "timeout");
+    }
+}
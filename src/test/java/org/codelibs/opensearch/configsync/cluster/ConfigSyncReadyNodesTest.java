@@ -0,0 +1,77 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.opensearch.configsync.cluster;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.opensearch.cluster.ClusterName;
+import org.opensearch.cluster.ClusterState;
+import org.opensearch.cluster.Diff;
+import org.opensearch.common.io.stream.BytesStreamOutput;
+import org.opensearch.core.common.io.stream.NamedWriteableAwareStreamInput;
+import org.opensearch.core.common.io.stream.NamedWriteableRegistry;
+
+import junit.framework.TestCase;
+
+public class ConfigSyncReadyNodesTest extends TestCase {
+
+    public void test_get_without_custom_returns_empty() {
+        ClusterState state = ClusterState.builder(ClusterName.DEFAULT).build();
+
+        assertSame(ConfigSyncReadyNodes.EMPTY, ConfigSyncReadyNodes.get(state));
+        assertFalse(ConfigSyncReadyNodes.get(state).isReady("node1"));
+    }
+
+    public void test_get_with_custom() {
+        ConfigSyncReadyNodes readyNodes = new ConfigSyncReadyNodes(new HashSet<>(Arrays.asList("node1", "node2")));
+        ClusterState state = ClusterState.builder(ClusterName.DEFAULT).putCustom(ConfigSyncReadyNodes.TYPE, readyNodes).build();
+
+        assertTrue(ConfigSyncReadyNodes.get(state).isReady("node1"));
+        assertTrue(ConfigSyncReadyNodes.get(state).isReady("node2"));
+        assertFalse(ConfigSyncReadyNodes.get(state).isReady("node3"));
+    }
+
+    public void test_stream_round_trip() throws Exception {
+        ConfigSyncReadyNodes readyNodes = new ConfigSyncReadyNodes(new HashSet<>(Arrays.asList("node1", "node2")));
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            readyNodes.writeTo(out);
+            ConfigSyncReadyNodes read = new ConfigSyncReadyNodes(out.bytes().streamInput());
+            assertEquals(readyNodes, read);
+            assertEquals(readyNodes.hashCode(), read.hashCode());
+        }
+    }
+
+    public void test_diff_round_trip() throws Exception {
+        ConfigSyncReadyNodes before = new ConfigSyncReadyNodes(Collections.singleton("node1"));
+        ConfigSyncReadyNodes after = new ConfigSyncReadyNodes(new HashSet<>(Arrays.asList("node1", "node2")));
+
+        Diff<ClusterState.Custom> diff = after.diff(before);
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            diff.writeTo(out);
+            NamedWriteableRegistry registry = new NamedWriteableRegistry(Collections.singletonList(
+                    new NamedWriteableRegistry.Entry(ClusterState.Custom.class, ConfigSyncReadyNodes.TYPE, ConfigSyncReadyNodes::new)));
+            Diff<ClusterState.Custom> read =
+                    ConfigSyncReadyNodes.readDiffFrom(new NamedWriteableAwareStreamInput(out.bytes().streamInput(), registry));
+            assertEquals(after, read.apply(before));
+        }
+    }
+
+    public void test_writeable_name() {
+        assertEquals("configsync_ready_nodes", ConfigSyncReadyNodes.EMPTY.getWriteableName());
+    }
+}
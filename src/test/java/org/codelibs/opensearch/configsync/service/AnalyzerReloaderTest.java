@@ -0,0 +1,97 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.opensearch.configsync.service;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+
+import org.opensearch.common.settings.Settings;
+import org.opensearch.core.index.Index;
+import org.opensearch.index.IndexService;
+import org.opensearch.index.IndexSettings;
+import org.opensearch.index.analysis.AnalysisRegistry;
+import org.opensearch.index.mapper.MapperService;
+
+import junit.framework.TestCase;
+
+public class AnalyzerReloaderTest extends TestCase {
+
+    private final Path configDir = Paths.get("/tmp/configsync/config").toAbsolutePath();
+
+    private final LocalConfigFiles localConfigFiles = new LocalConfigFiles(configDir.toString());
+
+    private final AnalysisRegistry analysisRegistry = mock(AnalysisRegistry.class);
+
+    private final ConfigSyncStats stats = new ConfigSyncStats();
+
+    public void test_references() {
+        Set<Path> filePaths = Collections.singleton(configDir.resolve("analysis/synonyms.txt"));
+        Settings synonyms = Settings.builder().put("index.analysis.filter.syn.type", "synonym_graph")
+                .put("index.analysis.filter.syn.synonyms_path", "analysis/synonyms.txt").build();
+        Settings absolute = Settings.builder()
+                .put("index.analysis.filter.syn.synonyms_path", configDir.resolve("analysis/synonyms.txt").toString()).build();
+        Settings list = Settings.builder().putList("index.analysis.filter.stop.stopwords", "a", "analysis/../analysis/synonyms.txt")
+                .build();
+        Settings other = Settings.builder().put("index.analysis.filter.syn.synonyms_path", "analysis/other.txt")
+                .putList("index.analysis.filter.syn.synonyms", "a, b => c").build();
+        Settings notAnalysis = Settings.builder().put("index.other_path", "analysis/synonyms.txt").build();
+
+        assertTrue(AnalyzerReloader.references(synonyms, configDir, filePaths));
+        assertTrue(AnalyzerReloader.references(absolute, configDir, filePaths));
+        assertTrue(AnalyzerReloader.references(list, configDir, filePaths));
+        assertFalse(AnalyzerReloader.references(other, configDir, filePaths));
+        assertFalse(AnalyzerReloader.references(notAnalysis, configDir, filePaths));
+    }
+
+    public void test_reload_only_indices_using_changed_files() throws Exception {
+        IndexService synonyms = indexService("synonyms", "analysis/synonyms.txt");
+        when(synonyms.mapperService().reloadSearchAnalyzers(analysisRegistry)).thenReturn(Arrays.asList("search_analyzer"));
+        IndexService other = indexService("other", "analysis/other.txt");
+        IndexService failing = indexService("failing", "analysis/synonyms.txt");
+        when(failing.mapperService().reloadSearchAnalyzers(analysisRegistry)).thenThrow(new IOException("test"));
+        AnalyzerReloader reloader =
+                new AnalyzerReloader(Arrays.asList(synonyms, other, failing), analysisRegistry, localConfigFiles, configDir, stats);
+
+        reloader.reload(Collections.singleton("analysis/synonyms.txt"));
+
+        verify(synonyms.mapperService()).reloadSearchAnalyzers(analysisRegistry);
+        verify(other.mapperService(), never()).reloadSearchAnalyzers(any());
+        assertEquals(1L, stats.getReloadedIndices());
+        assertEquals(1L, stats.getReloadedAnalyzers());
+        assertEquals(1L, stats.getFailedReloads());
+    }
+
+    private static IndexService indexService(String name, String synonymsPath) {
+        IndexSettings indexSettings = mock(IndexSettings.class);
+        when(indexSettings.getSettings()).thenReturn(Settings.builder().put("index.analysis.filter.syn.synonyms_path", synonymsPath).build());
+        IndexService indexService = mock(IndexService.class);
+        when(indexService.getIndexSettings()).thenReturn(indexSettings);
+        when(indexService.index()).thenReturn(new Index(name, "_na_"));
+        MapperService mapperService = mock(MapperService.class);
+        when(indexService.mapperService()).thenReturn(mapperService);
+        return indexService;
+    }
+}
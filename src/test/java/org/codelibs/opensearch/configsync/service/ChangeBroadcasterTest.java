@@ -0,0 +1,204 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.opensearch.configsync.service;
+
+import static org.mockito.Mockito.mock;
+
+import java.io.File;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.codelibs.opensearch.configsync.cluster.ConfigSyncMetadata;
+import org.codelibs.opensearch.configsync.cluster.ConfigSyncMetadata.FileEntry;
+import org.opensearch.Version;
+import org.opensearch.cluster.node.DiscoveryNode;
+import org.opensearch.cluster.node.DiscoveryNodeRole;
+import org.opensearch.cluster.node.DiscoveryNodes;
+import org.opensearch.cluster.service.ClusterService;
+import org.opensearch.common.io.stream.BytesStreamOutput;
+import org.opensearch.core.common.bytes.BytesReference;
+import org.opensearch.core.common.unit.ByteSizeValue;
+import org.opensearch.core.common.transport.TransportAddress;
+import org.opensearch.core.xcontent.XContentBuilder;
+import org.opensearch.threadpool.ThreadPool;
+import org.opensearch.transport.TransportService;
+
+import junit.framework.TestCase;
+
+public class ChangeBroadcasterTest extends TestCase {
+
+    private Path configDir;
+
+    private LocalConfigFiles localConfigFiles;
+
+    private ConfigSyncStats stats;
+
+    private List<long[]> syncedUpdates;
+
+    private ChangeBroadcaster broadcaster;
+
+    private final DiscoveryNodes nodes = DiscoveryNodes.builder()
+            .add(new DiscoveryNode("node1", "node1", new TransportAddress(InetAddress.getLoopbackAddress(), 9300),
+                    Collections.singletonMap("zone", "zone-a"), Collections.singleton(DiscoveryNodeRole.DATA_ROLE), Version.CURRENT))
+            .localNodeId("node1").build();
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        configDir = Files.createTempDirectory("configsync");
+        localConfigFiles = new LocalConfigFiles(configDir.toString());
+        stats = new ConfigSyncStats();
+        syncedUpdates = new ArrayList<>();
+        broadcaster = new ChangeBroadcaster(() -> null, mock(ClusterService.class), mock(TransportService.class), mock(ThreadPool.class),
+                localConfigFiles, stats, new SyncThrottle(ByteSizeValue.ZERO, ByteSizeValue.ZERO, stats), "configsync", 1024L, 5, () -> true,
+                (previous, generation) -> syncedUpdates.add(new long[] { previous, generation }), () -> {});
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        try (Stream<Path> stream = Files.walk(configDir)) {
+            stream.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+        super.tearDown();
+    }
+
+    public void test_getChanges() {
+        Map<String, FileEntry> manifest = new HashMap<>();
+        manifest.put("a.txt", new FileEntry("h1", 1L, 3L));
+        manifest.put("b.txt", new FileEntry("h2", 1L, 5L));
+        manifest.put("c.txt", FileEntry.tombstone(6L));
+
+        Map<String, FileEntry> changes = ChangeBroadcaster.getChanges(manifest, 4L);
+
+        assertEquals(Arrays.asList("b.txt", "c.txt"), new ArrayList<>(changes.keySet()));
+    }
+
+    public void test_apply_complete_batch() throws Exception {
+        Files.write(configDir.resolve("old.txt"), "old".getBytes(StandardCharsets.UTF_8));
+        Map<String, FileEntry> files = new HashMap<>();
+        files.put("dir1/a.txt", entry("Test1", 2L));
+        files.put("old.txt", FileEntry.tombstone(2L));
+        files.put("b.txt", entry("Test2", 1L));
+
+        boolean synced = broadcaster.apply(new ChangeBroadcaster.ChangeBatchRequest(1L, 2L, Collections.singletonList(source("dir1/a.txt",
+                "Test1")), Collections.singletonList("old.txt")), new ConfigSyncMetadata(2L, true, files), nodes);
+
+        assertTrue(synced);
+        assertEquals("Test1", new String(Files.readAllBytes(configDir.resolve("dir1/a.txt")), StandardCharsets.UTF_8));
+        assertFalse(Files.exists(configDir.resolve("old.txt")));
+        assertEquals(1, syncedUpdates.size());
+        assertEquals(1L, syncedUpdates.get(0)[0]);
+        assertEquals(2L, syncedUpdates.get(0)[1]);
+        assertEquals(1L, stats.getAppliedFiles());
+        assertEquals(1L, stats.getDeletedFiles());
+        assertEquals(1L, stats.getBroadcastsSynced());
+    }
+
+    public void test_content_not_matching_manifest_is_skipped() throws Exception {
+        Map<String, FileEntry> files = new HashMap<>();
+        files.put("a.txt", entry("Test1", 2L));
+
+        boolean synced = broadcaster.apply(new ChangeBroadcaster.ChangeBatchRequest(1L, 2L,
+                Collections.singletonList(source("a.txt", "Test9")), Collections.emptyList()), new ConfigSyncMetadata(2L, true, files), nodes);
+
+        assertFalse(synced);
+        assertFalse(Files.exists(configDir.resolve("a.txt")));
+        try (Stream<Path> stream = Files.list(configDir)) {
+            assertEquals(0L, stream.count());
+        }
+        assertTrue(syncedUpdates.isEmpty());
+        assertEquals(1L, stats.getFailedFiles());
+    }
+
+    public void test_missing_change_is_not_synced() throws Exception {
+        Map<String, FileEntry> files = new HashMap<>();
+        files.put("a.txt", entry("Test1", 2L));
+        files.put("b.txt", entry("Test2", 2L));
+
+        boolean synced = broadcaster.apply(new ChangeBroadcaster.ChangeBatchRequest(1L, 2L,
+                Collections.singletonList(source("a.txt", "Test1")), Collections.emptyList()), new ConfigSyncMetadata(2L, true, files), nodes);
+
+        assertFalse(synced);
+        assertTrue(Files.exists(configDir.resolve("a.txt")));
+        assertTrue(syncedUpdates.isEmpty());
+        assertEquals(1L, stats.getBroadcastsReceived());
+    }
+
+    public void test_newer_generation_is_not_synced() throws Exception {
+        Map<String, FileEntry> files = new HashMap<>();
+        files.put("a.txt", entry("Test1", 2L));
+
+        boolean synced = broadcaster.apply(new ChangeBroadcaster.ChangeBatchRequest(1L, 2L,
+                Collections.singletonList(source("a.txt", "Test1")), Collections.emptyList()), new ConfigSyncMetadata(3L, true, files), nodes);
+
+        assertFalse(synced);
+        assertTrue(Files.exists(configDir.resolve("a.txt")));
+        assertTrue(syncedUpdates.isEmpty());
+    }
+
+    public void test_file_selected_for_other_nodes_is_removed() throws Exception {
+        Files.write(configDir.resolve("a.txt"), "old".getBytes(StandardCharsets.UTF_8));
+        Map<String, FileEntry> files = new HashMap<>();
+        files.put("a.txt", entry("Test1", 2L).withNodes("zone:zone-b"));
+        files.put("b.txt", entry("Test2", 2L).withNodes("zone:zone-a"));
+
+        boolean synced = broadcaster.apply(new ChangeBroadcaster.ChangeBatchRequest(1L, 2L,
+                Arrays.asList(source("a.txt", "Test1"), source("b.txt", "Test2")), Collections.emptyList()),
+                new ConfigSyncMetadata(2L, true, files), nodes);
+
+        assertTrue(synced);
+        assertFalse(Files.exists(configDir.resolve("a.txt")));
+        assertEquals("Test2", new String(Files.readAllBytes(configDir.resolve("b.txt")), StandardCharsets.UTF_8));
+    }
+
+    public void test_request_serialization() throws Exception {
+        ChangeBroadcaster.ChangeBatchRequest request = new ChangeBroadcaster.ChangeBatchRequest(1L, 2L,
+                Collections.singletonList(source("a.txt", "Test1")), Collections.singletonList("b.txt"));
+        BytesStreamOutput out = new BytesStreamOutput();
+        request.writeTo(out);
+
+        ChangeBroadcaster.ChangeBatchRequest copy = new ChangeBroadcaster.ChangeBatchRequest(out.bytes().streamInput());
+        BytesStreamOutput out2 = new BytesStreamOutput();
+        copy.writeTo(out2);
+        assertEquals(out.bytes(), out2.bytes());
+    }
+
+    private static FileEntry entry(String content, long version) {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        return new FileEntry(LocalConfigFiles.hash(bytes), bytes.length, version);
+    }
+
+    private static BytesReference source(String path, String content) throws Exception {
+        XContentBuilder builder = ConfigSyncService.sourceBuilder();
+        builder.startObject();
+        builder.field(ConfigSyncService.PATH, path);
+        builder.field(ConfigSyncService.CONTENT, content.getBytes(StandardCharsets.UTF_8));
+        builder.field(ConfigSyncService.TIMESTAMP, new Date());
+        builder.endObject();
+        return BytesReference.bytes(builder);
+    }
+}
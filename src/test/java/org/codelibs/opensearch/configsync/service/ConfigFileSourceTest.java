@@ -0,0 +1,222 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.opensearch.configsync.service;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.codelibs.opensearch.configsync.cluster.ConfigSyncMetadata.FileEntry;
+import org.opensearch.OpenSearchException;
+import org.opensearch.OpenSearchParseException;
+import org.opensearch.common.xcontent.XContentHelper;
+import org.opensearch.common.xcontent.XContentType;
+import org.opensearch.common.xcontent.json.JsonXContent;
+import org.opensearch.core.common.bytes.BytesArray;
+import org.opensearch.core.common.bytes.BytesReference;
+import org.opensearch.core.xcontent.XContentBuilder;
+
+import junit.framework.TestCase;
+
+public class ConfigFileSourceTest extends TestCase {
+
+    public void test_parse_source_written_by_store() throws Exception {
+        byte[] content = "Test1\nline2".getBytes(StandardCharsets.UTF_8);
+        XContentBuilder builder = JsonXContent.contentBuilder();
+        builder.startObject();
+        builder.field(ConfigSyncService.PATH, "dir1/test1.txt");
+        builder.field(ConfigSyncService.CONTENT, content);
+        builder.field(ConfigSyncService.TIMESTAMP, new Date(1000L));
+        builder.field(ConfigSyncService.HASH, LocalConfigFiles.hash(content));
+        builder.endObject();
+
+        ConfigFileSource source = ConfigFileSource.parse(BytesReference.bytes(builder));
+
+        assertEquals("dir1/test1.txt", source.getPath());
+        assertEquals("1970-01-01T00:00:01.000Z", source.getTimestamp());
+        assertEquals(LocalConfigFiles.hash(content), source.getHash());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(content.length, source.writeContentTo(out));
+        assertEquals("Test1\nline2", new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    public void test_parse_smile_source() throws Exception {
+        byte[] content = "Test1\nline2\u0000\"".getBytes(StandardCharsets.UTF_8);
+        XContentBuilder builder = ConfigSyncService.sourceBuilder();
+        builder.startObject();
+        builder.field(ConfigSyncService.PATH, "dir1/test1.txt");
+        builder.field(ConfigSyncService.CONTENT, content);
+        builder.field(ConfigSyncService.TIMESTAMP, new Date(1000L));
+        builder.endObject();
+        BytesReference bytes = BytesReference.bytes(builder);
+
+        ConfigFileSource source = ConfigFileSource.parse(bytes);
+
+        assertEquals("dir1/test1.txt", source.getPath());
+        assertEquals("1970-01-01T00:00:01.000Z", source.getTimestamp());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(content.length, source.writeContentTo(out));
+        assertTrue(Arrays.equals(content, out.toByteArray()));
+        assertEquals(content.length, ConfigFileSource.decodeContent(XContentHelper.convertToMap(bytes, false, XContentType.SMILE).v2()
+                .get(ConfigSyncService.CONTENT)).length);
+    }
+
+    public void test_smile_source_stores_raw_bytes() throws Exception {
+        byte[] content = new byte[3000];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        XContentBuilder builder = ConfigSyncService.sourceBuilder();
+        builder.startObject();
+        builder.field(ConfigSyncService.PATH, "a.bin");
+        builder.field(ConfigSyncService.CONTENT, content);
+        builder.endObject();
+        BytesReference bytes = BytesReference.bytes(builder);
+
+        // base64 would take 4000 bytes
+        assertTrue(String.valueOf(bytes.length()), bytes.length() < content.length + 100);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ConfigFileSource.parse(bytes).writeContentTo(out);
+        assertTrue(Arrays.equals(content, out.toByteArray()));
+    }
+
+    public void test_smile_source_with_base64_content() throws Exception {
+        XContentBuilder builder = ConfigSyncService.sourceBuilder();
+        builder.startObject();
+        builder.field(ConfigSyncService.PATH, "a.txt");
+        builder.field(ConfigSyncService.CONTENT, "VGVzdDE=");
+        builder.endObject();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(5L, ConfigFileSource.parse(BytesReference.bytes(builder)).writeContentTo(out));
+        assertEquals("Test1", new String(out.toByteArray(), StandardCharsets.UTF_8));
+        assertEquals("Test1", new String(ConfigFileSource.decodeContent("VGVzdDE="), StandardCharsets.UTF_8));
+    }
+
+    public void test_numeric_timestamp() throws Exception {
+        ConfigFileSource source = ConfigFileSource.parse(new BytesArray("{\"@timestamp\":1234,\"path\":\"a.txt\",\"content\":\"\"}"));
+
+        assertEquals(1234L, source.getTimestamp());
+    }
+
+    public void test_tombstone() throws Exception {
+        ConfigFileSource source =
+                ConfigFileSource.parse(new BytesArray("{\"path\":\"a.txt\",\"deleted\":true,\"@timestamp\":1234}"));
+
+        assertEquals("a.txt", source.getPath());
+        assertTrue(source.isDeleted());
+        assertFalse(ConfigFileSource.parse(new BytesArray("{\"path\":\"a.txt\",\"content\":\"\"}")).isDeleted());
+    }
+
+    public void test_content_without_padding() throws Exception {
+        ConfigFileSource source = ConfigFileSource.parse(new BytesArray("{\"path\":\"a.txt\",\"content\":\"VGVzdDE\"}"));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        source.writeContentTo(out);
+        assertEquals("Test1", new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    public void test_unknown_fields_are_skipped() throws Exception {
+        ConfigFileSource source = ConfigFileSource
+                .parse(new BytesArray("{\"meta\":{\"path\":\"x\",\"list\":[1,2]},\"path\":\"a.txt\",\"content\":\"VGVzdDE=\"}"));
+
+        assertEquals("a.txt", source.getPath());
+        assertNull(source.getHash());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        source.writeContentTo(out);
+        assertEquals("Test1", new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    public void test_missing_path() throws Exception {
+        try {
+            ConfigFileSource.parse(new BytesArray("{\"content\":\"VGVzdDE=\"}"));
+            fail();
+        } catch (OpenSearchParseException e) {
+            // expected
+        }
+    }
+
+    public void test_missing_content() throws Exception {
+        ConfigFileSource source = ConfigFileSource.parse(new BytesArray("{\"path\":\"a.txt\"}"));
+        try {
+            source.writeContentTo(new ByteArrayOutputStream());
+            fail();
+        } catch (OpenSearchException e) {
+            assertFalse(e instanceof OpenSearchParseException);
+        }
+    }
+
+    public void test_url_safe_content_is_rejected() throws Exception {
+        ConfigFileSource source = ConfigFileSource.parse(new BytesArray("{\"path\":\"a.txt\",\"content\":\"-_-_\"}"));
+        try {
+            source.writeContentTo(new ByteArrayOutputStream());
+            fail();
+        } catch (OpenSearchParseException e) {
+            // expected
+        }
+    }
+
+    public void test_unpadded_content_is_decoded() throws Exception {
+        ConfigFileSource source = ConfigFileSource.parse(new BytesArray("{\"path\":\"a.txt\",\"content\":\"YWI\"}"));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(2L, source.writeContentTo(out));
+        assertEquals("ab", out.toString(StandardCharsets.UTF_8));
+    }
+
+    public void test_large_base64_content_is_decoded_in_chunks() throws Exception {
+        byte[] content = new byte[100000];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        XContentBuilder builder = ConfigSyncService.sourceBuilder();
+        builder.startObject();
+        builder.field(ConfigSyncService.PATH, "a.bin");
+        builder.field(ConfigSyncService.CONTENT, Base64.getEncoder().encodeToString(content));
+        builder.endObject();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(content.length, ConfigFileSource.parse(BytesReference.bytes(builder)).writeContentTo(out));
+        assertTrue(Arrays.equals(content, out.toByteArray()));
+    }
+
+    public void test_getFileEntry() throws Exception {
+        byte[] content = "Test1".getBytes(StandardCharsets.UTF_8);
+        Map<String, Object> stored = new HashMap<>();
+        stored.put(ConfigSyncService.PATH, "a.txt");
+        stored.put(ConfigSyncService.HASH, "h1");
+        stored.put(ConfigSyncService.SIZE, 5);
+        stored.put(ConfigSyncService.NODES, "zone:a");
+        Map<String, Object> unhashed = new HashMap<>();
+        unhashed.put(ConfigSyncService.PATH, "a.txt");
+        unhashed.put(ConfigSyncService.CONTENT, content);
+        Map<String, Object> deleted = new HashMap<>();
+        deleted.put(ConfigSyncService.PATH, "a.txt");
+        deleted.put(ConfigSyncService.DELETED, true);
+
+        FileEntry entry = ConfigSyncService.getFileEntry(stored);
+        assertEquals("h1", entry.getHash());
+        assertEquals(5L, entry.getSize());
+        assertEquals("zone:a", entry.getNodes());
+        entry = ConfigSyncService.getFileEntry(unhashed);
+        assertEquals(LocalConfigFiles.hash(content), entry.getHash());
+        assertEquals(5L, entry.getSize());
+        assertTrue(ConfigSyncService.getFileEntry(deleted).isDeleted());
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.opensearch.configsync.service;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import org.opensearch.common.unit.TimeValue;
+import org.opensearch.threadpool.ThreadPool;
+
+import junit.framework.TestCase;
+
+public class ConfigFileWatcherTest extends TestCase {
+
+    private Path configDir;
+
+    private ConfigFileWatcher watcher;
+
+    private final Set<String> changed = ConcurrentHashMap.newKeySet();
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        configDir = Files.createTempDirectory("configsync");
+        ThreadPool threadPool = mock(ThreadPool.class);
+        doAnswer(invocation -> {
+            ((Runnable) invocation.getArgument(0)).run();
+            return null;
+        }).when(threadPool).schedule(any(Runnable.class), any(TimeValue.class), anyString());
+        LocalConfigFiles localConfigFiles = new LocalConfigFiles(configDir.toString());
+        watcher = new ConfigFileWatcher(configDir, localConfigFiles::resolve, threadPool, TimeValue.timeValueMillis(100), changed::addAll);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        watcher.close();
+        try (Stream<Path> stream = Files.walk(configDir)) {
+            stream.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+        super.tearDown();
+    }
+
+    public void test_modified_file_is_reported() throws Exception {
+        write("a.txt", "Test1");
+        write("dir1/b.txt", "Test2");
+        watcher.watch(Arrays.asList("a.txt", "dir1/b.txt"));
+
+        write("dir1/b.txt", "Test3");
+
+        waitFor("dir1/b.txt");
+        assertFalse(changed.contains("a.txt"));
+    }
+
+    public void test_deleted_directory_is_reported() throws Exception {
+        write("dir1/dir2/c.txt", "Test3");
+        watcher.watch(Arrays.asList("dir1/dir2/c.txt"));
+
+        Files.delete(configDir.resolve("dir1/dir2/c.txt"));
+        Files.delete(configDir.resolve("dir1/dir2"));
+
+        waitFor("dir1/dir2/c.txt");
+    }
+
+    public void test_unwatched_file_is_not_reported() throws Exception {
+        write("a.txt", "Test1");
+        watcher.watch(Arrays.asList("a.txt"));
+
+        write("other.txt", "Test2");
+        write("a.txt", "Test3");
+
+        waitFor("a.txt");
+        assertFalse(changed.contains("other.txt"));
+    }
+
+    private void waitFor(String path) throws InterruptedException {
+        for (int i = 0; i < 100 && !changed.contains(path); i++) {
+            Thread.sleep(100L);
+        }
+        assertTrue(changed + " does not contain " + path, changed.contains(path));
+    }
+
+    private void write(String path, String content) throws Exception {
+        Path file = configDir.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.opensearch.configsync.service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.codelibs.opensearch.configsync.cluster.ConfigSyncMetadata.FileEntry;
+
+import junit.framework.TestCase;
+
+public class ConfigHashTreeTest extends TestCase {
+
+    public void test_same_files_have_same_root_hash() {
+        Map<String, String> hashes = new HashMap<>();
+        hashes.put("a.txt", "h1");
+        hashes.put("dir1/b.txt", "h2");
+        hashes.put("dir1/dir2/c.txt", "h3");
+
+        ConfigHashTree tree1 = ConfigHashTree.build(hashes);
+        ConfigHashTree tree2 = ConfigHashTree.build(new HashMap<>(hashes));
+
+        assertEquals(tree1.getRootHash(), tree2.getRootHash());
+        assertTrue(tree1.diff(tree2).isEmpty());
+    }
+
+    public void test_empty_trees_are_equal() {
+        assertEquals(ConfigHashTree.build(new HashMap<>()).getRootHash(), ConfigHashTree.build(new HashMap<>()).getRootHash());
+    }
+
+    public void test_diff_changed_file() {
+        Map<String, String> hashes = new HashMap<>();
+        hashes.put("a.txt", "h1");
+        hashes.put("dir1/b.txt", "h2");
+        hashes.put("dir1/dir2/c.txt", "h3");
+        ConfigHashTree tree1 = ConfigHashTree.build(hashes);
+        hashes.put("dir1/dir2/c.txt", "h4");
+        ConfigHashTree tree2 = ConfigHashTree.build(hashes);
+
+        assertFalse(tree1.getRootHash().equals(tree2.getRootHash()));
+        assertEquals(List.of("dir1/dir2/c.txt"), tree1.diff(tree2));
+    }
+
+    public void test_diff_missing_and_extra_files() {
+        Map<String, String> hashes1 = new HashMap<>();
+        hashes1.put("a.txt", "h1");
+        hashes1.put("dir1/b.txt", "h2");
+        hashes1.put("dir1/dir2/c.txt", "h3");
+        Map<String, String> hashes2 = new HashMap<>();
+        hashes2.put("a.txt", "h1");
+        hashes2.put("dir1/b.txt", "h2");
+        hashes2.put("dir3/d.txt", "h4");
+
+        List<String> paths = ConfigHashTree.build(hashes1).diff(ConfigHashTree.build(hashes2));
+
+        assertEquals(List.of("dir1/dir2/c.txt", "dir3/d.txt"), paths);
+    }
+
+    public void test_diff_missing_directory_before_other_directory() {
+        Map<String, String> hashes1 = new HashMap<>();
+        hashes1.put("dir4/a.txt", "h1");
+        Map<String, String> hashes2 = new HashMap<>(hashes1);
+        hashes2.put("analysis/b.txt", "h2");
+
+        assertEquals(List.of("analysis/b.txt"), ConfigHashTree.build(hashes1).diff(ConfigHashTree.build(hashes2)));
+    }
+
+    public void test_diff_file_replaced_by_directory() {
+        Map<String, String> hashes1 = new HashMap<>();
+        hashes1.put("dir1", "h1");
+        Map<String, String> hashes2 = new HashMap<>();
+        hashes2.put("dir1/a.txt", "h2");
+
+        assertEquals(List.of("dir1", "dir1/a.txt"), ConfigHashTree.build(hashes1).diff(ConfigHashTree.build(hashes2)));
+    }
+
+    public void test_manifest_tree_skips_deleted_files() {
+        Map<String, FileEntry> manifest = new HashMap<>();
+        manifest.put("a.txt", new FileEntry("h1", 2L, 1L));
+        manifest.put("b.txt", FileEntry.tombstone(2L));
+        Map<String, String> hashes = new HashMap<>();
+        hashes.put("a.txt", "h1");
+
+        assertEquals(ConfigHashTree.build(hashes).getRootHash(), ConfigHashTree.of(manifest).getRootHash());
+    }
+}
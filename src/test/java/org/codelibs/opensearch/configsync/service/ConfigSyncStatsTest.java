@@ -0,0 +1,206 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.opensearch.configsync.service;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+public class ConfigSyncStatsTest extends TestCase {
+
+    public void test_initial_stats_are_zero() {
+        ConfigSyncStats stats = new ConfigSyncStats();
+
+        assertEquals(0L, stats.getAppliedFiles());
+        assertEquals(0L, stats.getAppliedBytes());
+        assertEquals(0L, stats.getFailedFiles());
+        assertEquals(0, stats.getCurrentApplies());
+    }
+
+    public void test_onApplied() {
+        ConfigSyncStats stats = new ConfigSyncStats();
+
+        long startTime = stats.onApplyStarted();
+        assertEquals(1, stats.getCurrentApplies());
+        stats.onApplied(startTime, 10L);
+        stats.onApplied(stats.onApplyStarted(), 5L);
+
+        assertEquals(2L, stats.getAppliedFiles());
+        assertEquals(15L, stats.getAppliedBytes());
+        assertEquals(0L, stats.getFailedFiles());
+        assertEquals(0, stats.getCurrentApplies());
+    }
+
+    public void test_onApplyFailed() {
+        ConfigSyncStats stats = new ConfigSyncStats();
+
+        stats.onApplyFailed(stats.onApplyStarted());
+
+        assertEquals(0L, stats.getAppliedFiles());
+        assertEquals(1L, stats.getFailedFiles());
+        assertEquals(0, stats.getCurrentApplies());
+    }
+
+    public void test_page_accounting() {
+        ConfigSyncStats stats = new ConfigSyncStats();
+
+        stats.onPageFetched(100L);
+        stats.onPageFetched(50L);
+        assertEquals(150L, stats.getBufferedBytes());
+        stats.onPageReleased(100L);
+
+        assertEquals(2L, stats.getFetchedPages());
+        assertEquals(150L, stats.getFetchedBytes());
+        assertEquals(50L, stats.getBufferedBytes());
+    }
+
+    @SuppressWarnings("unchecked")
+    public void test_onSlicedSync() {
+        ConfigSyncStats stats = new ConfigSyncStats();
+
+        stats.onSlicedSync();
+        stats.onSlicedSync();
+
+        assertEquals(2L, stats.getSlicedSyncs());
+        assertEquals(2L, ((Map<String, Object>) stats.toMap().get("fetch")).get("sliced_syncs"));
+    }
+
+    @SuppressWarnings("unchecked")
+    public void test_onCurrentFiles() {
+        ConfigSyncStats stats = new ConfigSyncStats();
+
+        stats.onCurrentFiles(3);
+        stats.onCurrentFiles(0);
+
+        assertEquals(3L, stats.getCurrentFiles());
+        assertEquals(3L, ((Map<String, Object>) stats.toMap().get("fetch")).get("current_files"));
+    }
+
+    @SuppressWarnings("unchecked")
+    public void test_onJoinSync() {
+        ConfigSyncStats stats = new ConfigSyncStats();
+
+        stats.onJoinSync();
+
+        assertEquals(1L, stats.getJoinSyncs());
+        assertEquals(1L, ((Map<String, Object>) stats.toMap().get("fetch")).get("join_syncs"));
+    }
+
+    @SuppressWarnings("unchecked")
+    public void test_anti_entropy() {
+        ConfigSyncStats stats = new ConfigSyncStats();
+
+        stats.onAntiEntropyCheck();
+        stats.onAntiEntropyCheck();
+        stats.onDrifted(3);
+
+        Map<String, Object> antiEntropy = (Map<String, Object>) stats.toMap().get("anti_entropy");
+        assertEquals(2L, antiEntropy.get("checks"));
+        assertEquals(3L, antiEntropy.get("drifted_files"));
+    }
+
+    @SuppressWarnings("unchecked")
+    public void test_peer() {
+        ConfigSyncStats stats = new ConfigSyncStats();
+
+        stats.onPeerChunk(10L);
+        stats.onPeerChunk(5L);
+        stats.onPeerFetched();
+        stats.onPeerFallback();
+        stats.onPeerServed(7L);
+
+        Map<String, Object> peer = (Map<String, Object>) stats.toMap().get("peer");
+        assertEquals(1L, peer.get("files"));
+        assertEquals(15L, peer.get("bytes"));
+        assertEquals(1L, peer.get("fallbacks"));
+        assertEquals(7L, peer.get("served_bytes"));
+    }
+
+    @SuppressWarnings("unchecked")
+    public void test_broadcast() {
+        ConfigSyncStats stats = new ConfigSyncStats();
+
+        stats.onBroadcastSent();
+        stats.onBroadcastReceived();
+        stats.onBroadcastReceived();
+        stats.onBroadcastSynced();
+
+        Map<String, Object> broadcast = (Map<String, Object>) stats.toMap().get("broadcast");
+        assertEquals(1L, broadcast.get("sent"));
+        assertEquals(2L, broadcast.get("received"));
+        assertEquals(1L, broadcast.get("synced"));
+    }
+
+    @SuppressWarnings("unchecked")
+    public void test_store() {
+        ConfigSyncStats stats = new ConfigSyncStats();
+
+        stats.onStoreBatch();
+        stats.onStoreCoalesced();
+        stats.onStoreCoalesced();
+        stats.onScheduledRefresh();
+        stats.onStoreNoop();
+
+        Map<String, Object> store = (Map<String, Object>) stats.toMap().get("store");
+        assertEquals(1L, store.get("batches"));
+        assertEquals(2L, store.get("coalesced"));
+        assertEquals(1L, store.get("scheduled_refreshes"));
+        assertEquals(1L, store.get("noops"));
+    }
+
+    @SuppressWarnings("unchecked")
+    public void test_analyzer_reload() {
+        ConfigSyncStats stats = new ConfigSyncStats();
+
+        stats.onAnalyzersReloaded(2);
+        stats.onAnalyzersReloaded(0);
+        stats.onAnalyzerReloadFailed();
+
+        Map<String, Object> analyzerReload = (Map<String, Object>) stats.toMap().get("analyzer_reload");
+        assertEquals(2L, analyzerReload.get("indices"));
+        assertEquals(2L, analyzerReload.get("analyzers"));
+        assertEquals(1L, analyzerReload.get("failed"));
+    }
+
+    @SuppressWarnings("unchecked")
+    public void test_throttle() {
+        ConfigSyncStats stats = new ConfigSyncStats();
+
+        stats.onFetchThrottled(TimeUnit.MILLISECONDS.toNanos(30));
+        stats.onWriteThrottled(TimeUnit.MILLISECONDS.toNanos(10));
+        stats.onWriteThrottled(TimeUnit.MILLISECONDS.toNanos(15));
+
+        Map<String, Object> throttle = (Map<String, Object>) stats.toMap().get("throttle");
+        assertEquals(30L, throttle.get("fetch_time_in_millis"));
+        assertEquals(25L, throttle.get("write_time_in_millis"));
+    }
+
+    @SuppressWarnings("unchecked")
+    public void test_toMap() {
+        ConfigSyncStats stats = new ConfigSyncStats();
+        stats.onApplied(stats.onApplyStarted(), 3L);
+
+        Map<String, Object> apply = (Map<String, Object>) stats.toMap().get("apply");
+
+        assertEquals(1L, apply.get("files"));
+        assertEquals(3L, apply.get("bytes"));
+        assertEquals(0L, apply.get("failed"));
+        assertEquals(0, apply.get("current"));
+        assertTrue(apply.containsKey("time_in_millis"));
+        assertTrue(stats.toMap().containsKey("fetch"));
+    }
+}
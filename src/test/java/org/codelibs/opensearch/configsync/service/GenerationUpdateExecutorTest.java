@@ -0,0 +1,145 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.opensearch.configsync.service;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.codelibs.opensearch.configsync.cluster.ConfigSyncMetadata;
+import org.codelibs.opensearch.configsync.cluster.ConfigSyncMetadata.FileEntry;
+import org.opensearch.cluster.ClusterName;
+import org.opensearch.cluster.ClusterState;
+import org.opensearch.cluster.metadata.Metadata;
+
+import junit.framework.TestCase;
+
+public class GenerationUpdateExecutorTest extends TestCase {
+
+    public void test_rebuild_replaces_stale_entries() throws Exception {
+        Map<String, FileEntry> files = new HashMap<>();
+        files.put("stale.txt", new FileEntry("h0", 2L, 3L).withSeqNo(1L));
+        files.put("gone.txt", new FileEntry("h1", 2L, 4L).withSeqNo(2L));
+        files.put("stored.txt", new FileEntry("h2", 2L, 6L).withSeqNo(12L));
+        files.put("deleted.txt", FileEntry.tombstone(7L).withSeqNo(13L));
+        files.put("added.txt", new FileEntry("h6", 2L, 7L).withSeqNo(14L));
+        ClusterState state = state(new ConfigSyncMetadata(7L, false, "uuid", 10L, files));
+        // read from the index up to sequence number 11
+        Map<String, FileEntry> snapshot = new HashMap<>();
+        snapshot.put("stale.txt", new FileEntry("h3", 2L, 0L).withSeqNo(5L));
+        snapshot.put("stored.txt", new FileEntry("h4", 2L, 0L).withSeqNo(6L));
+        snapshot.put("deleted.txt", new FileEntry("h5", 2L, 0L).withSeqNo(7L));
+
+        ConfigSyncMetadata metadata = execute(state, GenerationUpdateRequest.rebuild(snapshot, "uuid", 11L));
+
+        assertTrue(metadata.isComplete());
+        assertEquals(8L, metadata.getGeneration());
+        assertEquals(11L, metadata.getCheckpoint());
+        assertEquals(4, metadata.getFiles().size());
+        assertEquals("h3", metadata.getFiles().get("stale.txt").getHash());
+        assertEquals(8L, metadata.getFiles().get("stale.txt").getVersion());
+        assertFalse(metadata.getFiles().containsKey("gone.txt"));
+        assertEquals("h2", metadata.getFiles().get("stored.txt").getHash());
+        assertTrue(metadata.getFiles().get("deleted.txt").isDeleted());
+        assertEquals("h6", metadata.getFiles().get("added.txt").getHash());
+    }
+
+    public void test_rebuild_of_another_index_drops_entries() throws Exception {
+        Map<String, FileEntry> files = new HashMap<>();
+        files.put("a.txt", new FileEntry("h0", 2L, 3L).withSeqNo(100L));
+        ClusterState state = state(new ConfigSyncMetadata(3L, false, "old", 100L, files));
+        Map<String, FileEntry> snapshot = new HashMap<>();
+        snapshot.put("a.txt", new FileEntry("h1", 2L, 0L).withSeqNo(0L));
+
+        ConfigSyncMetadata metadata = execute(state, GenerationUpdateRequest.rebuild(snapshot, "new", 0L));
+
+        assertTrue(metadata.isComplete());
+        assertEquals("new", metadata.getIndexUuid());
+        assertEquals(0L, metadata.getCheckpoint());
+        assertEquals("h1", metadata.getFiles().get("a.txt").getHash());
+    }
+
+    public void test_invalidate_and_store() throws Exception {
+        ClusterState state = state(new ConfigSyncMetadata(1L, true, "uuid", 0L, new HashMap<>()));
+
+        ConfigSyncMetadata metadata = execute(state, GenerationUpdateRequest.invalidate(),
+                GenerationUpdateRequest.written("a.txt", new FileEntry("h1", 2L, 0L).withSeqNo(1L), "uuid"));
+
+        assertFalse(metadata.isComplete());
+        assertEquals(2L, metadata.getFiles().get("a.txt").getVersion());
+    }
+
+    public void test_older_write_is_ignored() throws Exception {
+        Map<String, FileEntry> files = new HashMap<>();
+        files.put("a.txt", new FileEntry("new", 2L, 3L).withSeqNo(8L));
+        ClusterState state = state(new ConfigSyncMetadata(3L, true, "uuid", 8L, files));
+
+        ClusterState newState = new GenerationUpdateExecutor().execute(state,
+                Arrays.asList(GenerationUpdateRequest.written("a.txt", new FileEntry("old", 2L, 0L).withSeqNo(7L), "uuid"))).resultingState;
+
+        assertSame(state, newState);
+    }
+
+    public void test_write_to_another_index_invalidates() throws Exception {
+        Map<String, FileEntry> files = new HashMap<>();
+        files.put("a.txt", new FileEntry("h0", 2L, 3L).withSeqNo(8L));
+        ClusterState state = state(new ConfigSyncMetadata(3L, true, "old", 8L, files));
+
+        ConfigSyncMetadata metadata =
+                execute(state, GenerationUpdateRequest.written("b.txt", new FileEntry("h1", 2L, 0L).withSeqNo(0L), "new"));
+
+        assertFalse(metadata.isComplete());
+        assertEquals("new", metadata.getIndexUuid());
+        assertEquals(1, metadata.getFiles().size());
+        assertEquals("h1", metadata.getFiles().get("b.txt").getHash());
+    }
+
+    public void test_reconcile_adds_direct_writes() throws Exception {
+        Map<String, FileEntry> files = new HashMap<>();
+        files.put("a.txt", new FileEntry("h0", 2L, 3L).withSeqNo(5L));
+        ClusterState state = state(new ConfigSyncMetadata(3L, true, "uuid", 5L, files));
+        Map<String, FileEntry> changed = new HashMap<>();
+        changed.put("a.txt", new FileEntry("h0", 2L, 0L).withSeqNo(5L));
+        changed.put("b.txt", new FileEntry("h1", 2L, 0L).withSeqNo(6L));
+
+        ConfigSyncMetadata metadata = execute(state, GenerationUpdateRequest.reconcile(changed, "uuid", 6L));
+
+        assertTrue(metadata.isComplete());
+        assertEquals(4L, metadata.getGeneration());
+        assertEquals(6L, metadata.getCheckpoint());
+        assertEquals(3L, metadata.getFiles().get("a.txt").getVersion());
+        assertEquals(4L, metadata.getFiles().get("b.txt").getVersion());
+    }
+
+    public void test_reconcile_without_changes_keeps_generation() throws Exception {
+        Map<String, FileEntry> files = new HashMap<>();
+        files.put("a.txt", new FileEntry("h0", 2L, 3L).withSeqNo(5L));
+        ClusterState state = state(new ConfigSyncMetadata(3L, true, "uuid", 5L, files));
+
+        ConfigSyncMetadata metadata = execute(state, GenerationUpdateRequest.reconcile(new HashMap<>(), "uuid", 9L));
+
+        assertEquals(3L, metadata.getGeneration());
+        assertEquals(9L, metadata.getCheckpoint());
+    }
+
+    private static ClusterState state(ConfigSyncMetadata metadata) {
+        return ClusterState.builder(ClusterName.DEFAULT).metadata(Metadata.builder().putCustom(ConfigSyncMetadata.TYPE, metadata)).build();
+    }
+
+    private static ConfigSyncMetadata execute(ClusterState state, GenerationUpdateRequest... tasks) throws Exception {
+        return ConfigSyncMetadata.get(new GenerationUpdateExecutor().execute(state, Arrays.asList(tasks)).resultingState);
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.opensearch.configsync.service;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.codelibs.opensearch.configsync.cluster.ConfigSyncMetadata.FileEntry;
+
+import junit.framework.TestCase;
+
+public class LocalConfigFilesTest extends TestCase {
+
+    private Path configDir;
+
+    private LocalConfigFiles localConfigFiles;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        configDir = Files.createTempDirectory("configsync");
+        localConfigFiles = new LocalConfigFiles(configDir.toString());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        try (Stream<Path> stream = Files.walk(configDir)) {
+            stream.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+        super.tearDown();
+    }
+
+    public void test_resolve_strips_parent_references() {
+        assertEquals(configDir.resolve("a/b.txt"), localConfigFiles.resolve("../a/b.txt"));
+    }
+
+    public void test_hash_bytes_and_file_are_equal() throws Exception {
+        Path file = write("a.txt", "Test1");
+
+        assertEquals(LocalConfigFiles.hash("Test1".getBytes(StandardCharsets.UTF_8)), LocalConfigFiles.hash(file));
+        assertEquals(64, LocalConfigFiles.hash(file).length());
+    }
+
+    public void test_missing_file_is_outdated() throws Exception {
+        assertFalse(localConfigFiles.isCurrent("a.txt", entry("Test1")));
+    }
+
+    public void test_unknown_file_with_same_content_is_current() throws Exception {
+        write("a.txt", "Test1");
+
+        assertTrue(localConfigFiles.isCurrent("a.txt", entry("Test1")));
+    }
+
+    public void test_file_with_different_content_is_outdated() throws Exception {
+        write("a.txt", "Test2");
+
+        assertFalse(localConfigFiles.isCurrent("a.txt", entry("Test1")));
+    }
+
+    public void test_applied_file_is_compared_by_recorded_hash() throws Exception {
+        write("a.txt", "Test1");
+        localConfigFiles.applied("a.txt", LocalConfigFiles.hash("Test1".getBytes(StandardCharsets.UTF_8)));
+
+        assertTrue(localConfigFiles.isCurrent("a.txt", entry("Test1")));
+        assertFalse(localConfigFiles.isCurrent("a.txt", entry("Test2")));
+    }
+
+    public void test_modified_file_is_verified_again() throws Exception {
+        Path file = write("a.txt", "Test1");
+        localConfigFiles.applied("a.txt", LocalConfigFiles.hash("Test1".getBytes(StandardCharsets.UTF_8)));
+
+        Files.write(file, "Test2".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 10000L));
+
+        assertFalse(localConfigFiles.isCurrent("a.txt", entry("Test1")));
+        assertTrue(localConfigFiles.isCurrent("a.txt", entry("Test2")));
+    }
+
+    public void test_drainChangedPaths() throws Exception {
+        write("a.txt", "Test1");
+        localConfigFiles.applied("a.txt", LocalConfigFiles.hash("Test1".getBytes(StandardCharsets.UTF_8)));
+        localConfigFiles.deleted("b.txt");
+        localConfigFiles.remove("c.txt");
+
+        assertEquals(new HashSet<>(Arrays.asList("a.txt", "b.txt")), localConfigFiles.drainChangedPaths());
+        assertTrue(localConfigFiles.drainChangedPaths().isEmpty());
+    }
+
+    public void test_getOutdatedPaths() throws Exception {
+        write("a.txt", "Test1");
+        write("dir/b.txt", "Old");
+
+        Map<String, FileEntry> manifest = new HashMap<>();
+        manifest.put("a.txt", entry("Test1"));
+        manifest.put("dir/b.txt", entry("New"));
+        manifest.put("dir/c.txt", entry("Test3"));
+
+        List<String> paths = localConfigFiles.getOutdatedPaths(manifest);
+
+        assertEquals(2, paths.size());
+        assertTrue(paths.contains("dir/b.txt"));
+        assertTrue(paths.contains("dir/c.txt"));
+    }
+
+    public void test_deleted_entry_is_current_without_file() throws Exception {
+        assertTrue(localConfigFiles.isCurrent("a.txt", FileEntry.tombstone(1L)));
+    }
+
+    public void test_deleted_entry_is_outdated_with_file() throws Exception {
+        write("a.txt", "Test1");
+        localConfigFiles.applied("a.txt", LocalConfigFiles.hash("Test1".getBytes(StandardCharsets.UTF_8)));
+
+        assertFalse(localConfigFiles.isCurrent("a.txt", FileEntry.tombstone(2L)));
+
+        Map<String, FileEntry> manifest = new HashMap<>();
+        manifest.put("a.txt", FileEntry.tombstone(2L));
+        manifest.put("b.txt", FileEntry.tombstone(2L));
+        List<String> paths = localConfigFiles.getOutdatedPaths(manifest);
+        assertEquals(1, paths.size());
+        assertEquals("a.txt", paths.get(0));
+    }
+
+    public void test_local_tree_matches_manifest_tree() throws Exception {
+        write("a.txt", "Test1");
+        write("dir/b.txt", "Test2");
+
+        Map<String, FileEntry> manifest = new HashMap<>();
+        manifest.put("a.txt", entry("Test1"));
+        manifest.put("dir/b.txt", entry("Test2"));
+        manifest.put("dir/c.txt", FileEntry.tombstone(1L));
+
+        assertEquals(ConfigHashTree.of(manifest).getRootHash(), localConfigFiles.getLocalTree(manifest).getRootHash());
+
+        write("dir/b.txt", "Test3");
+
+        ConfigHashTree localTree = localConfigFiles.getLocalTree(manifest);
+        assertFalse(ConfigHashTree.of(manifest).getRootHash().equals(localTree.getRootHash()));
+        assertEquals(List.of("dir/b.txt"), ConfigHashTree.of(manifest).diff(localTree));
+    }
+
+    private Path write(String path, String content) throws Exception {
+        Path file = configDir.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static FileEntry entry(String content) {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        return new FileEntry(LocalConfigFiles.hash(bytes), bytes.length, 1L);
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.opensearch.configsync.service;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.codelibs.opensearch.configsync.cluster.ConfigSyncMetadata.FileEntry;
+import org.opensearch.Version;
+import org.opensearch.cluster.node.DiscoveryNode;
+import org.opensearch.cluster.node.DiscoveryNodeRole;
+import org.opensearch.cluster.node.DiscoveryNodes;
+import org.opensearch.core.common.transport.TransportAddress;
+
+import junit.framework.TestCase;
+
+public class NodeSelectorTest extends TestCase {
+
+    private final DiscoveryNodes nodes = DiscoveryNodes.builder()
+            .add(node("node1", 9300, "zone-a", DiscoveryNodeRole.DATA_ROLE))
+            .add(node("node2", 9301, "zone-b", DiscoveryNodeRole.INGEST_ROLE))
+            .localNodeId("node1")
+            .build();
+
+    public void test_matches() {
+        assertTrue(NodeSelector.matches(null, nodes));
+        assertTrue(NodeSelector.matches("", nodes));
+        assertTrue(NodeSelector.matches("zone:zone-a", nodes));
+        assertTrue(NodeSelector.matches("node1", nodes));
+        assertTrue(NodeSelector.matches("ingest:true, zone:zone-a", nodes));
+        assertFalse(NodeSelector.matches("zone:zone-b", nodes));
+        assertFalse(NodeSelector.matches("ingest:true", nodes));
+        assertFalse(NodeSelector.matches("node2", nodes));
+    }
+
+    public void test_select() {
+        List<String> names = new ArrayList<>();
+        NodeSelector.select("ingest:true", nodes).forEachRemaining(node -> names.add(node.getName()));
+        assertEquals(Collections.singletonList("node2"), names);
+
+        names.clear();
+        NodeSelector.select(null, nodes).forEachRemaining(node -> names.add(node.getName()));
+        Collections.sort(names);
+        assertEquals(List.of("node1", "node2"), names);
+    }
+
+    public void test_localFiles() {
+        Map<String, FileEntry> files = new HashMap<>();
+        files.put("a.txt", new FileEntry("h1", 1L, 2L));
+        files.put("b.txt", new FileEntry("h2", 1L, 3L).withNodes("zone:zone-a"));
+        files.put("c.txt", new FileEntry("h3", 1L, 4L).withNodes("zone:zone-b"));
+
+        Map<String, FileEntry> localFiles = NodeSelector.localFiles(files, nodes);
+
+        assertEquals(files.get("a.txt"), localFiles.get("a.txt"));
+        assertEquals(files.get("b.txt"), localFiles.get("b.txt"));
+        assertEquals(FileEntry.tombstone(4L), localFiles.get("c.txt"));
+        assertFalse(files.get("c.txt").isDeleted());
+    }
+
+    public void test_localFiles_without_selectors() {
+        Map<String, FileEntry> files = Collections.singletonMap("a.txt", new FileEntry("h1", 1L, 2L));
+
+        assertSame(files, NodeSelector.localFiles(files, nodes));
+    }
+
+    public void test_split() {
+        assertEquals(0, NodeSelector.split(null).length);
+        assertEquals(0, NodeSelector.split(" , ").length);
+        assertEquals(List.of("data:true", "zone:a"), List.of(NodeSelector.split("data:true, zone:a,")));
+    }
+
+    private static DiscoveryNode node(String name, int port, String zone, DiscoveryNodeRole role) {
+        return new DiscoveryNode(name, name, new TransportAddress(InetAddress.getLoopbackAddress(), port),
+                Collections.singletonMap("zone", zone), Collections.singleton(role), Version.CURRENT);
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.opensearch.configsync.service;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.codelibs.opensearch.configsync.cluster.ConfigSyncMetadata;
+import org.codelibs.opensearch.configsync.cluster.ConfigSyncMetadata.FileEntry;
+import org.mockito.ArgumentCaptor;
+import org.opensearch.cluster.ClusterName;
+import org.opensearch.cluster.ClusterState;
+import org.opensearch.cluster.metadata.Metadata;
+import org.opensearch.cluster.service.ClusterService;
+import org.opensearch.common.io.stream.BytesStreamOutput;
+import org.opensearch.core.common.unit.ByteSizeValue;
+import org.opensearch.core.transport.TransportResponse;
+import org.opensearch.transport.TransportChannel;
+import org.opensearch.transport.TransportService;
+
+import junit.framework.TestCase;
+
+public class PeerFileTransferTest extends TestCase {
+
+    private Path configDir;
+
+    private LocalConfigFiles localConfigFiles;
+
+    private ConfigSyncStats stats;
+
+    private PeerFileTransfer transfer;
+
+    private Map<String, FileEntry> files;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        configDir = Files.createTempDirectory("configsync");
+        localConfigFiles = new LocalConfigFiles(configDir.toString());
+        stats = new ConfigSyncStats();
+        files = new HashMap<>();
+        ClusterService clusterService = mock(ClusterService.class);
+        when(clusterService.state()).thenAnswer(invocation -> ClusterState.builder(ClusterName.DEFAULT)
+                .metadata(Metadata.builder().putCustom(ConfigSyncMetadata.TYPE, new ConfigSyncMetadata(1L, true, files))).build());
+        transfer = new PeerFileTransfer(mock(TransportService.class), clusterService, localConfigFiles, stats,
+                new SyncThrottle(ByteSizeValue.ZERO, ByteSizeValue.ZERO, stats), 0L, 4);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        try (Stream<Path> stream = Files.walk(configDir)) {
+            stream.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+        super.tearDown();
+    }
+
+    public void test_serves_chunk_of_current_file() throws Exception {
+        String hash = write("dir1/a.txt", "0123456789");
+
+        PeerFileTransfer.FileChunkResponse response = request(new PeerFileTransfer.FileChunkRequest("dir1/a.txt", hash, 10L, 4L, 4));
+
+        assertTrue(response.isAvailable());
+        assertEquals("4567", response.getContent().utf8ToString());
+        assertEquals(4L, stats.getPeerServedBytes());
+    }
+
+    public void test_last_chunk_is_truncated_to_size() throws Exception {
+        String hash = write("a.txt", "0123456789");
+
+        PeerFileTransfer.FileChunkResponse response = request(new PeerFileTransfer.FileChunkRequest("a.txt", hash, 10L, 8L, 4));
+
+        assertTrue(response.isAvailable());
+        assertEquals("89", response.getContent().utf8ToString());
+    }
+
+    public void test_changed_file_is_not_served() throws Exception {
+        write("a.txt", "0123456789");
+        String otherHash = LocalConfigFiles.hash("9876543210".getBytes(StandardCharsets.UTF_8));
+
+        PeerFileTransfer.FileChunkResponse response = request(new PeerFileTransfer.FileChunkRequest("a.txt", otherHash, 10L, 0L, 4));
+
+        assertFalse(response.isAvailable());
+        assertEquals(0L, stats.getPeerServedBytes());
+    }
+
+    public void test_missing_file_is_not_served() throws Exception {
+        String hash = LocalConfigFiles.hash("0123456789".getBytes(StandardCharsets.UTF_8));
+        files.put("a.txt", new FileEntry(hash, 10L, 1L));
+
+        PeerFileTransfer.FileChunkResponse response = request(new PeerFileTransfer.FileChunkRequest("a.txt", hash, 10L, 0L, 4));
+
+        assertFalse(response.isAvailable());
+    }
+
+    public void test_file_not_in_manifest_is_not_served() throws Exception {
+        String hash = write("a.txt", "0123456789");
+        files.clear();
+
+        PeerFileTransfer.FileChunkResponse response = request(new PeerFileTransfer.FileChunkRequest("a.txt", hash, 10L, 0L, 4));
+
+        assertFalse(response.isAvailable());
+        assertEquals(0L, stats.getPeerServedBytes());
+    }
+
+    public void test_deleted_file_is_not_served() throws Exception {
+        String hash = write("a.txt", "0123456789");
+        files.put("a.txt", FileEntry.tombstone(2L));
+
+        PeerFileTransfer.FileChunkResponse response = request(new PeerFileTransfer.FileChunkRequest("a.txt", hash, 10L, 0L, 4));
+
+        assertFalse(response.isAvailable());
+    }
+
+    public void test_request_serialization() throws Exception {
+        PeerFileTransfer.FileChunkRequest request = new PeerFileTransfer.FileChunkRequest("dir1/a.txt", "abc", 10L, 4L, 4);
+        BytesStreamOutput out = new BytesStreamOutput();
+        request.writeTo(out);
+
+        PeerFileTransfer.FileChunkRequest copy = new PeerFileTransfer.FileChunkRequest(out.bytes().streamInput());
+        BytesStreamOutput out2 = new BytesStreamOutput();
+        copy.writeTo(out2);
+        assertEquals(out.bytes(), out2.bytes());
+    }
+
+    private PeerFileTransfer.FileChunkResponse request(PeerFileTransfer.FileChunkRequest request) throws Exception {
+        TransportChannel channel = mock(TransportChannel.class);
+        transfer.messageReceived(request, channel, null);
+        ArgumentCaptor<TransportResponse> captor = ArgumentCaptor.forClass(TransportResponse.class);
+        verify(channel).sendResponse(captor.capture());
+        BytesStreamOutput out = new BytesStreamOutput();
+        captor.getValue().writeTo(out);
+        return new PeerFileTransfer.FileChunkResponse(out.bytes().streamInput());
+    }
+
+    private String write(String path, String content) throws Exception {
+        Path file = configDir.resolve(path);
+        Files.createDirectories(file.getParent());
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        Files.write(file, bytes);
+        String hash = LocalConfigFiles.hash(bytes);
+        localConfigFiles.applied(path, hash);
+        files.put(path, new FileEntry(hash, bytes.length, 1L));
+        return hash;
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.opensearch.configsync.service;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.codelibs.opensearch.configsync.service.StoreCoalescer.PendingStore;
+import org.opensearch.action.DocWriteResponse;
+import org.opensearch.common.unit.TimeValue;
+import org.opensearch.core.action.ActionListener;
+import org.opensearch.threadpool.ThreadPool;
+
+import junit.framework.TestCase;
+
+public class StoreCoalescerTest extends TestCase {
+
+    private final List<Runnable> scheduled = new ArrayList<>();
+
+    private final List<Map<String, PendingStore>> written = new ArrayList<>();
+
+    private ConfigSyncStats stats;
+
+    private StoreCoalescer coalescer;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        ThreadPool threadPool = mock(ThreadPool.class);
+        doAnswer(invocation -> {
+            scheduled.add(invocation.getArgument(0));
+            return null;
+        }).when(threadPool).schedule(any(Runnable.class), any(TimeValue.class), anyString());
+        stats = new ConfigSyncStats();
+        coalescer = new StoreCoalescer(threadPool, TimeValue.timeValueMillis(100), 10L, stats, written::add);
+    }
+
+    public void test_stores_are_written_together() {
+        coalescer.store("a.txt", bytes("A"), null, ActionListener.noOp());
+        coalescer.store("b.txt", bytes("B"), null, ActionListener.noOp());
+
+        assertEquals(1, scheduled.size());
+        assertTrue(written.isEmpty());
+        scheduled.get(0).run();
+
+        assertEquals(1, written.size());
+        assertEquals(Arrays.asList("a.txt", "b.txt"), new ArrayList<>(written.get(0).keySet()));
+    }
+
+    public void test_repeated_store_keeps_last_content() {
+        List<String> responses = new ArrayList<>();
+        coalescer.store("a.txt", bytes("A1"), null, listener(responses, "first"));
+        coalescer.store("b.txt", bytes("B"), null, ActionListener.noOp());
+        coalescer.store("a.txt", bytes("A2"), null, listener(responses, "second"));
+        scheduled.get(0).run();
+
+        Map<String, PendingStore> stores = written.get(0);
+        assertEquals(Arrays.asList("b.txt", "a.txt"), new ArrayList<>(stores.keySet()));
+        assertEquals("A2", new String(stores.get("a.txt").getContent(), StandardCharsets.UTF_8));
+        assertEquals(1L, stats.getCoalescedStores());
+
+        stores.get("a.txt").onResponse(DocWriteResponse.Result.UPDATED);
+        assertEquals(Arrays.asList("first", "second"), responses);
+    }
+
+    public void test_full_buffer_is_written_right_away() {
+        coalescer.store("a.txt", bytes("123456"), null, ActionListener.noOp());
+        assertTrue(written.isEmpty());
+        coalescer.store("b.txt", bytes("7890"), null, ActionListener.noOp());
+
+        assertEquals(1, written.size());
+        assertEquals(2, written.get(0).size());
+        // the scheduled flush finds nothing left to write
+        scheduled.get(0).run();
+        assertEquals(1, written.size());
+    }
+
+    public void test_delete_of_buffered_store() {
+        coalescer.store("a.txt", bytes("A"), null, ActionListener.noOp());
+        assertTrue(coalescer.isPending("a.txt"));
+
+        assertTrue(coalescer.deleteIfPending("a.txt", ActionListener.noOp()));
+        assertFalse(coalescer.deleteIfPending("b.txt", ActionListener.noOp()));
+        scheduled.get(0).run();
+
+        assertEquals(1, written.get(0).size());
+        assertTrue(written.get(0).get("a.txt").isDeleted());
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static ActionListener<DocWriteResponse.Result> listener(List<String> responses, String name) {
+        return ActionListener.wrap(r -> responses.add(name), e -> fail(e.getMessage()));
+    }
+}
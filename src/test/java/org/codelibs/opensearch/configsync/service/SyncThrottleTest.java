@@ -0,0 +1,83 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.opensearch.configsync.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+
+import org.opensearch.core.common.unit.ByteSizeUnit;
+import org.opensearch.core.common.unit.ByteSizeValue;
+
+import junit.framework.TestCase;
+
+public class SyncThrottleTest extends TestCase {
+
+    private final ConfigSyncStats stats = new ConfigSyncStats();
+
+    public void test_unlimited() throws Exception {
+        SyncThrottle throttle = new SyncThrottle(ByteSizeValue.ZERO, ByteSizeValue.ZERO, stats);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        throttle.pauseFetch(10L * 1024 * 1024);
+        throttle.pauseWrite(10L * 1024 * 1024);
+
+        assertFalse(throttle.isFetchLimited());
+        assertSame(out, throttle.limitWrites(out));
+        assertEquals(0L, throttle.getFetchRate());
+        assertEquals(0L, stats.getFetchThrottleTimeInMillis());
+        assertEquals(0L, stats.getWriteThrottleTimeInMillis());
+    }
+
+    public void test_limitWrites() throws Exception {
+        SyncThrottle throttle = new SyncThrottle(ByteSizeValue.ZERO, new ByteSizeValue(10, ByteSizeUnit.MB), stats);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] chunk = new byte[64 * 1024];
+
+        long startTime = System.nanoTime();
+        try (OutputStream limited = throttle.limitWrites(out)) {
+            // 2mb takes 200ms at 10mb/s
+            for (int i = 0; i < 32; i++) {
+                limited.write(chunk);
+            }
+        }
+        long elapsedMillis = (System.nanoTime() - startTime) / 1_000_000;
+
+        assertEquals(2 * 1024 * 1024, out.size());
+        assertTrue(String.valueOf(elapsedMillis), elapsedMillis >= 150L);
+        assertTrue(stats.getWriteThrottleTimeInMillis() >= 150L);
+        assertEquals(0L, stats.getFetchThrottleTimeInMillis());
+    }
+
+    public void test_setRate() throws Exception {
+        SyncThrottle throttle = new SyncThrottle(ByteSizeValue.ZERO, ByteSizeValue.ZERO, stats);
+
+        throttle.setFetchRate(new ByteSizeValue(20, ByteSizeUnit.MB));
+        assertTrue(throttle.isFetchLimited());
+        assertEquals(20L * 1024 * 1024, throttle.getFetchRate());
+        throttle.pauseFetch(2L * 1024 * 1024);
+        assertTrue(stats.getFetchThrottleTimeInMillis() >= 50L);
+
+        throttle.setFetchRate(new ByteSizeValue(40, ByteSizeUnit.MB));
+        assertEquals(40L * 1024 * 1024, throttle.getFetchRate());
+
+        throttle.setFetchRate(ByteSizeValue.ZERO);
+        assertFalse(throttle.isFetchLimited());
+        assertEquals(0L, throttle.getFetchRate());
+        long throttled = stats.getFetchThrottleTimeInMillis();
+        throttle.pauseFetch(100L * 1024 * 1024);
+        assertEquals(throttled, stats.getFetchThrottleTimeInMillis());
+    }
+}